@@ -50,6 +50,7 @@ CREATE TABLE IF NOT EXISTS fournisseurs (
 CREATE TABLE IF NOT EXISTS medicaments (
     id_medicament INT AUTO_INCREMENT PRIMARY KEY,
     nom_commercial VARCHAR(100) NOT NULL,
+    code_cip13 BIGINT NULL,  -- Code CIP13 / EAN-13 de la boite
     principe_actif VARCHAR(100),
     forme_galenique VARCHAR(50),
     dosage VARCHAR(50),
@@ -61,6 +62,7 @@ CREATE TABLE IF NOT EXISTS medicaments (
     date_creation DATETIME DEFAULT CURRENT_TIMESTAMP,
     date_modification DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     UNIQUE INDEX idx_medicament_nom (nom_commercial),
+    UNIQUE INDEX idx_medicament_cip13 (code_cip13),
     INDEX idx_medicament_principe (principe_actif),
     INDEX idx_medicament_ordonnance (necessite_ordonnance),
     INDEX idx_medicament_actif (actif)
@@ -85,7 +87,8 @@ CREATE TABLE IF NOT EXISTS lots (
     INDEX idx_lot_medicament (id_medicament),
     INDEX idx_lot_peremption (date_peremption),
     INDEX idx_lot_fournisseur (id_fournisseur),
-    INDEX idx_lot_medicament_peremption (id_medicament, date_peremption)
+    INDEX idx_lot_medicament_peremption (id_medicament, date_peremption),
+    INDEX idx_lot_medicament_numero (id_medicament, numero_lot)
 ) ENGINE=InnoDB;
 
 -- -----------------------------------------------------------------------------
@@ -99,7 +102,9 @@ CREATE TABLE IF NOT EXISTS ventes (
     numero_ordonnance VARCHAR(50),
     id_utilisateur INT,
     notes TEXT,
+    reference_journal CHAR(36) NULL,
     FOREIGN KEY (id_utilisateur) REFERENCES utilisateurs(id_utilisateur) ON DELETE SET NULL,
+    UNIQUE INDEX idx_vente_reference_journal (reference_journal),
     INDEX idx_vente_date (date_vente),
     INDEX idx_vente_utilisateur (id_utilisateur),
     INDEX idx_vente_ordonnance (est_sur_ordonnance)
@@ -120,6 +125,21 @@ CREATE TABLE IF NOT EXISTS ligne_ventes (
     INDEX idx_ligne_lot (id_lot)
 ) ENGINE=InnoDB;
 
+-- -----------------------------------------------------------------------------
+-- Table: consommation_journaliere
+-- Quantites vendues par medicament et par jour de vente, nettes des retours.
+-- Tenue a jour par les ventes, retours et annulations ; reconstruite depuis
+-- l'historique par com.sgpa.utils.ReconstructionConsommation.
+-- -----------------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS consommation_journaliere (
+    id_medicament INT NOT NULL,
+    jour DATE NOT NULL,
+    quantite INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id_medicament, jour),
+    FOREIGN KEY (id_medicament) REFERENCES medicaments(id_medicament) ON DELETE CASCADE,
+    INDEX idx_consommation_jour (jour)
+) ENGINE=InnoDB;
+
 -- -----------------------------------------------------------------------------
 -- Table: commandes
 -- -----------------------------------------------------------------------------
@@ -152,6 +172,80 @@ CREATE TABLE IF NOT EXISTS ligne_commandes (
     INDEX idx_ligne_cmd_medicament (id_medicament)
 ) ENGINE=InnoDB;
 
+-- -----------------------------------------------------------------------------
+-- Tables: delais_livraison, delais_livraison_medicament
+-- Delais de livraison observes (creation -> reception des commandes), par
+-- fournisseur et par fournisseur et medicament : sommes ponderees avec oubli
+-- exponentiel, tenues a jour a chaque reception ; reconstruites depuis
+-- l'historique par com.sgpa.utils.ReconstructionDelaisLivraison.
+-- -----------------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS delais_livraison (
+    id_fournisseur INT PRIMARY KEY,
+    poids DOUBLE NOT NULL DEFAULT 0,
+    somme_jours DOUBLE NOT NULL DEFAULT 0,
+    somme_carres DOUBLE NOT NULL DEFAULT 0,
+    FOREIGN KEY (id_fournisseur) REFERENCES fournisseurs(id_fournisseur) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS delais_livraison_medicament (
+    id_fournisseur INT NOT NULL,
+    id_medicament INT NOT NULL,
+    poids DOUBLE NOT NULL DEFAULT 0,
+    somme_jours DOUBLE NOT NULL DEFAULT 0,
+    somme_carres DOUBLE NOT NULL DEFAULT 0,
+    PRIMARY KEY (id_fournisseur, id_medicament),
+    FOREIGN KEY (id_fournisseur) REFERENCES fournisseurs(id_fournisseur) ON DELETE CASCADE,
+    FOREIGN KEY (id_medicament) REFERENCES medicaments(id_medicament) ON DELETE CASCADE,
+    INDEX idx_delai_medicament (id_medicament)
+) ENGINE=InnoDB;
+
+-- -----------------------------------------------------------------------------
+-- Table: colisages_fournisseur
+-- Colisage (unite de commande) d'un medicament chez un fournisseur : les quantites
+-- proposees par le planificateur sont arrondies a un multiple de ce colisage.
+-- Sans ligne, le colisage par defaut de la configuration s'applique (1).
+-- -----------------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS colisages_fournisseur (
+    id_fournisseur INT NOT NULL,
+    id_medicament INT NOT NULL,
+    colisage INT NOT NULL,
+    PRIMARY KEY (id_fournisseur, id_medicament),
+    FOREIGN KEY (id_fournisseur) REFERENCES fournisseurs(id_fournisseur) ON DELETE CASCADE,
+    FOREIGN KEY (id_medicament) REFERENCES medicaments(id_medicament) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- -----------------------------------------------------------------------------
+-- Table: classification_medicaments
+-- Classes ABC (valeur des ventes) et XYZ (regularite de la demande) de chaque
+-- medicament, calculees par com.sgpa.service.ClassificationMedicaments ; seules
+-- les lignes dont la classe change sont reecrites.
+-- -----------------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS classification_medicaments (
+    id_medicament INT PRIMARY KEY,
+    classe_abc CHAR(1) NOT NULL,
+    classe_xyz CHAR(1) NOT NULL,
+    date_classement DATETIME NOT NULL,
+    FOREIGN KEY (id_medicament) REFERENCES medicaments(id_medicament) ON DELETE CASCADE,
+    INDEX idx_classification_classes (classe_abc, classe_xyz)
+) ENGINE=InnoDB;
+
+-- -----------------------------------------------------------------------------
+-- Table: reservations_stock
+-- Stock retenu par les paniers de caisse en cours, partage entre les postes.
+-- Une reservation expire si le panier n'est pas touche pendant sa duree de vie ;
+-- elle est supprimee par la vente du panier ou quand le panier est vide.
+-- -----------------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS reservations_stock (
+    reference_panier CHAR(36) NOT NULL,
+    id_medicament INT NOT NULL,
+    quantite INT NOT NULL,
+    date_expiration DATETIME NOT NULL,
+    PRIMARY KEY (reference_panier, id_medicament),
+    FOREIGN KEY (id_medicament) REFERENCES medicaments(id_medicament) ON DELETE CASCADE,
+    INDEX idx_reservation_medicament (id_medicament, date_expiration),
+    INDEX idx_reservation_expiration (date_expiration)
+) ENGINE=InnoDB;
+
 
 -- =============================================================================
 -- 2. TABLES AVANCEES
@@ -260,6 +354,55 @@ CREATE TABLE IF NOT EXISTS regularisations (
 
 
 
+-- =============================================================================
+-- 3. MISES A JOUR DES BASES EXISTANTES
+-- Chaque modification n'est appliquee que si elle manque (script relancable)
+-- =============================================================================
+
+-- Code CIP13 des medicaments (lecture code-barres)
+SET @ddl := IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'medicaments' AND COLUMN_NAME = 'code_cip13') = 0,
+    'ALTER TABLE medicaments ADD COLUMN code_cip13 BIGINT NULL AFTER nom_commercial, ADD UNIQUE INDEX idx_medicament_cip13 (code_cip13)',
+    'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+-- Recherche d'un lot par numero (lecture DataMatrix GS1)
+SET @ddl := IF((SELECT COUNT(*) FROM information_schema.STATISTICS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'lots' AND INDEX_NAME = 'idx_lot_medicament_numero') = 0,
+    'ALTER TABLE lots ADD INDEX idx_lot_medicament_numero (id_medicament, numero_lot)',
+    'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+-- Reference du journal local des ventes (une entree rejouee n'est enregistree qu'une fois)
+SET @ddl := IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'ventes' AND COLUMN_NAME = 'reference_journal') = 0,
+    'ALTER TABLE ventes ADD COLUMN reference_journal CHAR(36) NULL AFTER notes, ADD UNIQUE INDEX idx_vente_reference_journal (reference_journal)',
+    'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+-- Consommation journaliere d'une base existante : calculee depuis l'historique des
+-- ventes et des retours tant que la table est vide (meme calcul que
+-- com.sgpa.utils.ReconstructionConsommation, a relancer pour une reparation)
+SET @consommation_vide := (SELECT COUNT(*) = 0 FROM consommation_journaliere);
+
+INSERT INTO consommation_journaliere (id_medicament, jour, quantite)
+SELECT l.id_medicament, DATE(v.date_vente), SUM(lv.quantite)
+FROM ligne_ventes lv
+JOIN lots l ON lv.id_lot = l.id_lot
+JOIN ventes v ON lv.id_vente = v.id_vente
+WHERE @consommation_vide = 1
+GROUP BY l.id_medicament, DATE(v.date_vente);
+
+INSERT INTO consommation_journaliere (id_medicament, jour, quantite)
+SELECT l.id_medicament, DATE(v.date_vente), -SUM(r.quantite)
+FROM retours r
+JOIN lots l ON r.id_lot = l.id_lot
+JOIN ventes v ON r.id_vente = v.id_vente
+WHERE @consommation_vide = 1
+GROUP BY l.id_medicament, DATE(v.date_vente)
+ON DUPLICATE KEY UPDATE quantite = quantite + VALUES(quantite);
+
+
 -- =============================================================================
 -- 4. VUES
 -- =============================================================================
@@ -0,0 +1,412 @@
+package com.sgpa.utils;
+
+import com.sgpa.dto.LigneVenteDTO;
+import com.sgpa.exception.ServiceException;
+import com.sgpa.exception.ServiceException.ErrorType;
+import com.sgpa.service.VenteService;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Banc de charge des ventes, sans interface graphique.
+ * <p>
+ * Cree un catalogue et des lots de test, puis simule N postes de caisse appelant
+ * {@link VenteService#creerVente} en parallele avec des paniers aleatoires. En fin
+ * de campagne, affiche le debit (ventes/s), les latences p50/p99, le temps
+ * d'attente d'une connexion du pool HikariCP, le nombre d'interblocages et verifie
+ * l'absence de survente (stock negatif ou stock vendu different du stock decremente).
+ * </p>
+ * <p>
+ * <b>Attention :</b> le banc ecrit dans la base configuree par
+ * {@code database.properties} (medicaments prefixes {@value #PREFIXE}). Il refuse de
+ * demarrer sans l'option {@code --base-jetable} ; utiliser une base MySQL locale
+ * dediee. Les requetes des DAOs etant propres a MySQL, aucune base embarquee
+ * n'est proposee.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * mvn -Pbench package   # le jar construit sans ce profil ne contient pas les bancs
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.BancChargeVentes --base-jetable \
+ *      --postes 8 --duree 60 --medicaments 200 --lignes 1-5 --quantite 1-3 --concentration 2
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class BancChargeVentes {
+
+    private static final Logger logger = LoggerFactory.getLogger(BancChargeVentes.class);
+
+    /** Prefixe des medicaments crees par le banc */
+    public static final String PREFIXE = "CHARGE-";
+
+    /** Codes MySQL : interblocage (1213) et attente de verrou expiree (1205) */
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    private int postes = 4;
+    private int dureeSecondes = 30;
+    private int nombreMedicaments = 100;
+    private int lignesMin = 1;
+    private int lignesMax = 4;
+    private int quantiteMin = 1;
+    private int quantiteMax = 3;
+    private double concentration = 1.5;
+    private boolean nettoyer = false;
+
+    private final LongAdder attenteConnexionNanos = new LongAdder();
+    private final LongAdder nombreConnexions = new LongAdder();
+    private final AtomicLong maxAttenteConnexionNanos = new AtomicLong();
+
+    private BancChargeVentes() {
+    }
+
+    /**
+     * Point d'entree du banc de charge.
+     *
+     * @param args les options de la campagne
+     */
+    public static void main(String[] args) {
+        BancChargeVentes banc = new BancChargeVentes();
+        if (!banc.lireOptions(args)) {
+            System.err.println("Usage: BancChargeVentes --base-jetable [--postes N] [--duree s] "
+                    + "[--medicaments N] [--lignes min-max] [--quantite min-max] "
+                    + "[--concentration x] [--nettoyer]");
+            System.exit(2);
+        }
+
+        DatabaseConnection.setMetricsTrackerFactory(banc.new CollecteurAttente());
+        try {
+            banc.executer();
+        } catch (SQLException | InterruptedException e) {
+            logger.error("Banc de charge interrompu", e);
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().shutdown();
+        }
+    }
+
+    private boolean lireOptions(String[] args) {
+        boolean baseJetable = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--base-jetable" -> baseJetable = true;
+                    case "--nettoyer" -> nettoyer = true;
+                    case "--postes" -> postes = Integer.parseInt(args[++i]);
+                    case "--duree" -> dureeSecondes = Integer.parseInt(args[++i]);
+                    case "--medicaments" -> nombreMedicaments = Integer.parseInt(args[++i]);
+                    case "--concentration" -> concentration = Double.parseDouble(args[++i]);
+                    case "--lignes" -> {
+                        int[] bornes = lireBornes(args[++i]);
+                        lignesMin = bornes[0];
+                        lignesMax = bornes[1];
+                    }
+                    case "--quantite" -> {
+                        int[] bornes = lireBornes(args[++i]);
+                        quantiteMin = bornes[0];
+                        quantiteMax = bornes[1];
+                    }
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return baseJetable && postes > 0 && dureeSecondes > 0 && nombreMedicaments > 0
+                && lignesMin > 0 && lignesMin <= lignesMax && quantiteMin > 0 && quantiteMin <= quantiteMax;
+    }
+
+    private static int[] lireBornes(String valeur) {
+        String[] parties = valeur.split("-");
+        int min = Integer.parseInt(parties[0]);
+        int max = parties.length > 1 ? Integer.parseInt(parties[1]) : min;
+        return new int[]{min, max};
+    }
+
+    private void executer() throws SQLException, InterruptedException {
+        int idUtilisateur = trouverUtilisateur();
+        int[] medicaments = creerCatalogue();
+        long stockInitial = stockTotal(medicaments);
+        System.out.printf("Catalogue: %d medicaments, %d unites en stock%n", medicaments.length, stockInitial);
+
+        VenteService venteService = new VenteService();
+        HikariPoolMXBean pool = DatabaseConnection.getInstance().getHikariPoolMXBean();
+
+        LongAdder ventes = new LongAdder();
+        LongAdder unitesVendues = new LongAdder();
+        LongAdder stocksInsuffisants = new LongAdder();
+        LongAdder interblocages = new LongAdder();
+        LongAdder autresErreurs = new LongAdder();
+        List<long[]> latencesParPoste = new ArrayList<>();
+        int[] nombreLatences = new int[postes];
+
+        long fin = System.nanoTime() + dureeSecondes * 1_000_000_000L;
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < postes; p++) {
+            final int poste = p;
+            long[] latences = new long[1 << 16];
+            latencesParPoste.add(latences);
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] tampon = latences;
+                try {
+                    depart.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < fin) {
+                    List<LigneVenteDTO> panier = genererPanier(random, medicaments);
+                    long debut = System.nanoTime();
+                    try {
+                        venteService.creerVente(panier, idUtilisateur, true);
+                        ventes.increment();
+                        unitesVendues.add(panier.stream().mapToInt(LigneVenteDTO::getQuantite).sum());
+                    } catch (ServiceException e) {
+                        if (e.getErrorType() == ErrorType.STOCK_INSUFFISANT) {
+                            stocksInsuffisants.increment();
+                        } else if (estInterblocage(e)) {
+                            interblocages.increment();
+                        } else {
+                            autresErreurs.increment();
+                            logger.debug("Vente en echec: {}", e.getMessage());
+                        }
+                    }
+                    long latence = System.nanoTime() - debut;
+                    if (nombreLatences[poste] == tampon.length) {
+                        tampon = Arrays.copyOf(tampon, tampon.length * 2);
+                        latencesParPoste.set(poste, tampon);
+                    }
+                    tampon[nombreLatences[poste]++] = latence;
+                }
+            }, "poste-" + (p + 1));
+            threads.add(t);
+            t.start();
+        }
+
+        long debutCampagne = System.nanoTime();
+        depart.countDown();
+        int maxEnAttente = 0;
+        while (System.nanoTime() < fin) {
+            maxEnAttente = Math.max(maxEnAttente, pool.getThreadsAwaitingConnection());
+            Thread.sleep(100);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        double dureeReelle = (System.nanoTime() - debutCampagne) / 1e9;
+
+        long[] toutes = fusionner(latencesParPoste, nombreLatences);
+        long stockFinal = stockTotal(medicaments);
+        long unitesTracees = unitesTracees(medicaments);
+        long lotsNegatifs = lotsNegatifs(medicaments);
+        long connexions = nombreConnexions.sum();
+
+        System.out.println("=== Banc de charge des ventes ===");
+        System.out.printf("Postes: %d, duree: %.1f s, paniers: %d-%d lignes x %d-%d unites%n",
+                postes, dureeReelle, lignesMin, lignesMax, quantiteMin, quantiteMax);
+        System.out.printf("Ventes: %d (%.1f ventes/s), stock insuffisant: %d, autres erreurs: %d%n",
+                ventes.sum(), ventes.sum() / dureeReelle, stocksInsuffisants.sum(), autresErreurs.sum());
+        System.out.printf("Latence: p50=%.1f ms, p99=%.1f ms, max=%.1f ms%n",
+                percentile(toutes, 0.50) / 1e6, percentile(toutes, 0.99) / 1e6,
+                toutes.length == 0 ? 0.0 : toutes[toutes.length - 1] / 1e6);
+        System.out.printf("Pool: attente moy.=%.2f ms, attente max=%.2f ms, threads en attente max=%d%n",
+                connexions == 0 ? 0.0 : attenteConnexionNanos.sum() / 1e6 / connexions,
+                maxAttenteConnexionNanos.get() / 1e6, maxEnAttente);
+        System.out.printf("Interblocages: %d%n", interblocages.sum());
+        System.out.printf("Survente: lots negatifs=%d, ecart stock/lignes=%d (vendu %d, trace %d, decremente %d)%n",
+                lotsNegatifs, (stockInitial - stockFinal) - unitesTracees,
+                unitesVendues.sum(), unitesTracees, stockInitial - stockFinal);
+
+        if (nettoyer) {
+            supprimerCatalogue();
+        }
+    }
+
+    private List<LigneVenteDTO> genererPanier(ThreadLocalRandom random, int[] medicaments) {
+        int nombreLignes = random.nextInt(lignesMin, lignesMax + 1);
+        List<LigneVenteDTO> panier = new ArrayList<>(nombreLignes);
+        for (int i = 0; i < nombreLignes; i++) {
+            // Loi de puissance : quelques references concentrent l'essentiel des ventes
+            int index = (int) (medicaments.length * Math.pow(random.nextDouble(), concentration));
+            panier.add(new LigneVenteDTO(medicaments[Math.min(index, medicaments.length - 1)],
+                    random.nextInt(quantiteMin, quantiteMax + 1)));
+        }
+        return panier;
+    }
+
+    private static boolean estInterblocage(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql
+                    && (sql.getErrorCode() == ER_LOCK_DEADLOCK || sql.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+                    || "40001".equals(sql.getSQLState()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long[] fusionner(List<long[]> latencesParPoste, int[] nombres) {
+        int total = 0;
+        for (int n : nombres) {
+            total += n;
+        }
+        long[] toutes = new long[total];
+        int position = 0;
+        for (int p = 0; p < nombres.length; p++) {
+            System.arraycopy(latencesParPoste.get(p), 0, toutes, position, nombres[p]);
+            position += nombres[p];
+        }
+        Arrays.sort(toutes);
+        return toutes;
+    }
+
+    private static double percentile(long[] triees, double p) {
+        if (triees.length == 0) {
+            return 0;
+        }
+        return triees[(int) Math.min(triees.length - 1, Math.ceil(p * triees.length) - 1)];
+    }
+
+    // ==================== Donnees de test ====================
+
+    private int trouverUtilisateur() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(id_utilisateur) FROM utilisateurs")) {
+            if (rs.next() && rs.getObject(1) != null) {
+                return rs.getInt(1);
+            }
+        }
+        throw new SQLException("Aucun utilisateur en base : executer sql/schema.sql avant le banc");
+    }
+
+    private int[] creerCatalogue() throws SQLException {
+        supprimerCatalogue();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] ids = new int[nombreMedicaments];
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO medicaments (nom_commercial, principe_actif, prix_public, necessite_ordonnance, "
+                            + "seuil_min, description) VALUES (?, ?, ?, FALSE, 10, 'Banc de charge')",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < nombreMedicaments; i++) {
+                    ps.setString(1, String.format("%s%05d", PREFIXE, i));
+                    ps.setString(2, "Principe " + (i % 50));
+                    ps.setBigDecimal(3, Montant.enBigDecimal(random.nextLong(150, 4_500)));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next()) {
+                        ids[i++] = keys.getInt(1);
+                    }
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO lots (id_medicament, numero_lot, date_peremption, quantite_stock, prix_achat) "
+                            + "VALUES (?, ?, ?, ?, ?)")) {
+                LocalDate aujourdhui = LocalDate.now();
+                for (int id : ids) {
+                    int nombreLots = random.nextInt(1, 5);
+                    for (int l = 0; l < nombreLots; l++) {
+                        ps.setInt(1, id);
+                        ps.setString(2, "CH" + id + "-" + l);
+                        ps.setDate(3, Date.valueOf(aujourdhui.plusDays(random.nextInt(30, 720))));
+                        ps.setInt(4, random.nextInt(20, 400));
+                        ps.setBigDecimal(5, Montant.enBigDecimal(random.nextLong(50, 2_000)));
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+        return ids;
+    }
+
+    private void supprimerCatalogue() throws SQLException {
+        String filtre = "SELECT id_medicament FROM medicaments WHERE nom_commercial LIKE '" + PREFIXE + "%'";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE v FROM ventes v WHERE v.id_vente IN (SELECT lv.id_vente FROM ligne_ventes lv "
+                    + "JOIN lots l ON l.id_lot = lv.id_lot WHERE l.id_medicament IN (" + filtre + "))");
+            st.executeUpdate("DELETE FROM lots WHERE id_medicament IN (" + filtre + ")");
+            st.executeUpdate("DELETE FROM medicaments WHERE nom_commercial LIKE '" + PREFIXE + "%'");
+        }
+    }
+
+    private long stockTotal(int[] medicaments) throws SQLException {
+        return requeteSomme("SELECT COALESCE(SUM(quantite_stock), 0) FROM lots WHERE id_medicament IN ", medicaments);
+    }
+
+    private long unitesTracees(int[] medicaments) throws SQLException {
+        return requeteSomme("SELECT COALESCE(SUM(lv.quantite), 0) FROM ligne_ventes lv "
+                + "JOIN lots l ON l.id_lot = lv.id_lot WHERE l.id_medicament IN ", medicaments);
+    }
+
+    private long lotsNegatifs(int[] medicaments) throws SQLException {
+        return requeteSomme("SELECT COUNT(*) FROM lots WHERE quantite_stock < 0 AND id_medicament IN ", medicaments);
+    }
+
+    private long requeteSomme(String sql, int[] medicaments) throws SQLException {
+        StringBuilder ids = new StringBuilder("(");
+        for (int i = 0; i < medicaments.length; i++) {
+            if (i > 0) ids.append(',');
+            ids.append(medicaments[i]);
+        }
+        ids.append(')');
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql + ids)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // ==================== Metriques du pool ====================
+
+    /**
+     * Collecteur HikariCP du temps d'attente d'une connexion.
+     */
+    private class CollecteurAttente implements MetricsTrackerFactory {
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    attenteConnexionNanos.add(elapsedAcquiredNanos);
+                    nombreConnexions.increment();
+                    maxAttenteConnexionNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+                }
+            };
+        }
+    }
+}
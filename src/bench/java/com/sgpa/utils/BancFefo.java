@@ -0,0 +1,261 @@
+package com.sgpa.utils;
+
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.dto.LigneVenteDTO;
+import com.sgpa.exception.ServiceException;
+import com.sgpa.service.FefoEngine;
+import com.sgpa.service.VenteService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Banc de latence des ventes avec et sans le moteur FEFO residant, sans interface graphique.
+ * <p>
+ * Cree un catalogue de test puis enregistre des ventes une par une, en alternant deux
+ * modes sur les memes paniers :
+ * </p>
+ * <ul>
+ *   <li><b>base</b> : le {@link FefoEngine} est vide avant chaque vente ; les lots
+ *       vendables du panier sont relus en base, comme avant le moteur residant
+ *       (une requete groupee par vente : l'ancien chemin en faisait deux par ligne,
+ *       l'ecart mesure est donc un minorant)</li>
+ *   <li><b>memoire</b> : les lots sont servis par le moteur, sans lecture</li>
+ * </ul>
+ * <p>
+ * Affiche, pour chaque mode, les latences moyenne, p50 et p99 de
+ * {@link VenteService#creerVente}. Les stocks de test sont dimensionnes pour ne jamais
+ * s'epuiser pendant la campagne.
+ * </p>
+ * <p>
+ * <b>Attention :</b> le banc ecrit dans la base configuree par
+ * {@code database.properties} (medicaments prefixes {@value #PREFIXE}) et refuse de
+ * demarrer sans l'option {@code --base-jetable}.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * mvn -Pbench package   # le jar construit sans ce profil ne contient pas les bancs
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.BancFefo --base-jetable --ventes 1000 --medicaments 50 --lignes 1-4
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class BancFefo {
+
+    private static final Logger logger = LoggerFactory.getLogger(BancFefo.class);
+
+    /** Prefixe des medicaments crees par le banc */
+    public static final String PREFIXE = "FEFO-";
+
+    /** Ventes de chauffe, non mesurees */
+    private static final int VENTES_CHAUFFE = 50;
+
+    private int nombreVentes = 500;
+    private int nombreMedicaments = 50;
+    private int lignesMin = 1;
+    private int lignesMax = 4;
+    private long graine = 42;
+    private boolean nettoyer = false;
+
+    private BancFefo() {
+    }
+
+    /**
+     * Point d'entree du banc.
+     *
+     * @param args les options de la campagne
+     */
+    public static void main(String[] args) {
+        BancFefo banc = new BancFefo();
+        if (!banc.lireOptions(args)) {
+            System.err.println("Usage: BancFefo --base-jetable [--ventes N] [--medicaments N] "
+                    + "[--lignes min-max] [--graine n] [--nettoyer]");
+            System.exit(2);
+        }
+
+        try {
+            banc.executer();
+        } catch (SQLException | ServiceException e) {
+            logger.error("Banc FEFO interrompu", e);
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().shutdown();
+        }
+    }
+
+    private boolean lireOptions(String[] args) {
+        boolean baseJetable = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--base-jetable" -> baseJetable = true;
+                    case "--nettoyer" -> nettoyer = true;
+                    case "--ventes" -> nombreVentes = Integer.parseInt(args[++i]);
+                    case "--medicaments" -> nombreMedicaments = Integer.parseInt(args[++i]);
+                    case "--graine" -> graine = Long.parseLong(args[++i]);
+                    case "--lignes" -> {
+                        String[] bornes = args[++i].split("-");
+                        lignesMin = Integer.parseInt(bornes[0]);
+                        lignesMax = bornes.length > 1 ? Integer.parseInt(bornes[1]) : lignesMin;
+                    }
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return baseJetable && nombreVentes > 0 && nombreMedicaments > 0 && lignesMin > 0 && lignesMin <= lignesMax;
+    }
+
+    private void executer() throws SQLException, ServiceException {
+        int idUtilisateur = trouverUtilisateur();
+        int[] medicaments = creerCatalogue();
+        MedicamentDAOCache.getInstance().invalider();
+
+        VenteService venteService = new VenteService();
+        FefoEngine fefoEngine = FefoEngine.getInstance();
+        Random random = new Random(graine);
+
+        for (int i = 0; i < VENTES_CHAUFFE; i++) {
+            venteService.creerVente(genererPanier(random, medicaments), idUtilisateur, true);
+        }
+
+        long[] base = new long[nombreVentes];
+        long[] memoire = new long[nombreVentes];
+        for (int i = 0; i < nombreVentes; i++) {
+            List<LigneVenteDTO> panier = genererPanier(random, medicaments);
+
+            fefoEngine.invaliderTout();
+            long debut = System.nanoTime();
+            venteService.creerVente(panier, idUtilisateur, true);
+            base[i] = System.nanoTime() - debut;
+
+            debut = System.nanoTime();
+            venteService.creerVente(panier, idUtilisateur, true);
+            memoire[i] = System.nanoTime() - debut;
+        }
+
+        System.out.println("=== Banc FEFO : latence d'une vente ===");
+        System.out.printf("%d vente(s) par mode, %d medicaments, paniers de %d-%d lignes%n",
+                nombreVentes, medicaments.length, lignesMin, lignesMax);
+        afficher("base", base);
+        afficher("memoire", memoire);
+        System.out.printf("Gain p50: %.1f%%%n", 100.0 * (1 - (double) median(memoire) / median(base)));
+
+        if (nettoyer) {
+            supprimerCatalogue();
+        }
+    }
+
+    private List<LigneVenteDTO> genererPanier(Random random, int[] medicaments) {
+        int nombreLignes = lignesMin + random.nextInt(lignesMax - lignesMin + 1);
+        List<LigneVenteDTO> panier = new ArrayList<>(nombreLignes);
+        for (int i = 0; i < nombreLignes; i++) {
+            panier.add(new LigneVenteDTO(medicaments[random.nextInt(medicaments.length)], 1 + random.nextInt(3)));
+        }
+        return panier;
+    }
+
+    private static void afficher(String mode, long[] latences) {
+        long[] triees = latences.clone();
+        Arrays.sort(triees);
+        double moyenne = Arrays.stream(triees).average().orElse(0);
+        System.out.printf("  %-8s moyenne=%.2f ms, p50=%.2f ms, p99=%.2f ms%n", mode, moyenne / 1e6,
+                triees[triees.length / 2] / 1e6, triees[Math.max(0, (int) Math.ceil(0.99 * triees.length) - 1)] / 1e6);
+    }
+
+    private static long median(long[] latences) {
+        long[] triees = latences.clone();
+        Arrays.sort(triees);
+        return Math.max(1, triees[triees.length / 2]);
+    }
+
+    // ==================== Donnees de test ====================
+
+    private int trouverUtilisateur() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(id_utilisateur) FROM utilisateurs")) {
+            if (rs.next() && rs.getObject(1) != null) {
+                return rs.getInt(1);
+            }
+        }
+        throw new SQLException("Aucun utilisateur en base : executer sql/schema.sql avant le banc");
+    }
+
+    private int[] creerCatalogue() throws SQLException {
+        supprimerCatalogue();
+        Random random = new Random(graine);
+        int[] ids = new int[nombreMedicaments];
+        // Au plus 3 unites par ligne, lignesMax lignes, deux ventes par panier mesure
+        int stockParLot = 3 * lignesMax * (nombreVentes * 2 + VENTES_CHAUFFE);
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO medicaments (nom_commercial, principe_actif, prix_public, necessite_ordonnance, "
+                            + "seuil_min, description) VALUES (?, ?, ?, FALSE, 10, 'Banc FEFO')",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < nombreMedicaments; i++) {
+                    ps.setString(1, String.format("%s%05d", PREFIXE, i));
+                    ps.setString(2, "Principe " + (i % 20));
+                    ps.setBigDecimal(3, Montant.enBigDecimal(150 + random.nextInt(4_000)));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next()) {
+                        ids[i++] = keys.getInt(1);
+                    }
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO lots (id_medicament, numero_lot, date_peremption, quantite_stock, prix_achat) "
+                            + "VALUES (?, ?, ?, ?, ?)")) {
+                LocalDate aujourdhui = LocalDate.now();
+                for (int id : ids) {
+                    for (int l = 0; l < 3; l++) {
+                        ps.setInt(1, id);
+                        ps.setString(2, "FE" + id + "-" + l);
+                        ps.setDate(3, Date.valueOf(aujourdhui.plusDays(60 + 120L * l)));
+                        ps.setInt(4, stockParLot);
+                        ps.setBigDecimal(5, Montant.enBigDecimal(50 + random.nextInt(1_000)));
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+        return ids;
+    }
+
+    private void supprimerCatalogue() throws SQLException {
+        String filtre = "SELECT id_medicament FROM medicaments WHERE nom_commercial LIKE '" + PREFIXE + "%'";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE v FROM ventes v WHERE v.id_vente IN (SELECT lv.id_vente FROM ligne_ventes lv "
+                    + "JOIN lots l ON l.id_lot = lv.id_lot WHERE l.id_medicament IN (" + filtre + "))");
+            st.executeUpdate("DELETE FROM consommation_journaliere WHERE id_medicament IN (" + filtre + ")");
+            st.executeUpdate("DELETE FROM lots WHERE id_medicament IN (" + filtre + ")");
+            st.executeUpdate("DELETE FROM medicaments WHERE nom_commercial LIKE '" + PREFIXE + "%'");
+        }
+    }
+}
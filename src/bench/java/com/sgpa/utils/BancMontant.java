@@ -0,0 +1,206 @@
+package com.sgpa.utils;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Banc du calcul du total panier : centimes {@code long} ({@link Montant}) contre
+ * chaines {@code BigDecimal.multiply/add}, sans base de donnees ni interface graphique.
+ * <p>
+ * Simule la caisse qui recalcule le total a chaque frappe : un panier de N lignes
+ * (prix a deux decimales, quantites de 1 a 5) est recalcule en entier apres la
+ * modification d'une quantite. Les deux modes travaillent sur les memes paniers et
+ * doivent trouver les memes totaux.
+ * </p>
+ * <p>
+ * Affiche, pour chaque mode :
+ * </p>
+ * <ul>
+ *   <li>la latence d'un recalcul (moyenne, p50, p99), mesuree par paquets de
+ *       {@value #RECALCULS_PAR_MESURE} recalculs pour rester au-dessus de la
+ *       resolution de {@link System#nanoTime()}</li>
+ *   <li>les octets alloues par recalcul (compteur d'allocation du thread de la JVM)</li>
+ * </ul>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * mvn -Pbench package   # le jar construit sans ce profil ne contient pas les bancs
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.BancMontant --lignes 20 --mesures 20000
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class BancMontant {
+
+    /** Recalculs par mesure de latence */
+    private static final int RECALCULS_PAR_MESURE = 100;
+
+    /** Mesures de chauffe (compilation JIT), non retenues */
+    private static final int MESURES_CHAUFFE = 5_000;
+
+    private int nombreLignes = 20;
+    private int nombreMesures = 20_000;
+    private long graine = 42;
+
+    /** Empeche le JIT d'eliminer les calculs dont le resultat n'est pas lu */
+    private long puits;
+
+    private BancMontant() {
+    }
+
+    /**
+     * Point d'entree du banc.
+     *
+     * @param args les options de la campagne
+     */
+    public static void main(String[] args) {
+        BancMontant banc = new BancMontant();
+        if (!banc.lireOptions(args)) {
+            System.err.println("Usage: BancMontant [--lignes N] [--mesures N] [--graine n]");
+            System.exit(2);
+        }
+        banc.executer();
+    }
+
+    private boolean lireOptions(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--lignes" -> nombreLignes = Integer.parseInt(args[++i]);
+                    case "--mesures" -> nombreMesures = Integer.parseInt(args[++i]);
+                    case "--graine" -> graine = Long.parseLong(args[++i]);
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return nombreLignes > 0 && nombreMesures > 0;
+    }
+
+    private void executer() {
+        Random random = new Random(graine);
+        BigDecimal[] prix = new BigDecimal[nombreLignes];
+        long[] prixCentimes = new long[nombreLignes];
+        int[] quantites = new int[nombreLignes];
+        for (int i = 0; i < nombreLignes; i++) {
+            prix[i] = BigDecimal.valueOf(50 + random.nextInt(10_000), Montant.DECIMALES);
+            prixCentimes[i] = Montant.enCentimes(prix[i]);
+            quantites[i] = 1 + random.nextInt(5);
+        }
+
+        if (totalBigDecimal(prix, quantites).compareTo(Montant.enBigDecimal(totalCentimes(prixCentimes, quantites))) != 0) {
+            throw new IllegalStateException("Les deux modes ne donnent pas le meme total");
+        }
+
+        // Chauffe des deux modes (compilation JIT) avant toute mesure
+        mesurerBigDecimal(random, prix, quantites, MESURES_CHAUFFE);
+        mesurerCentimes(random, prixCentimes, quantites, MESURES_CHAUFFE);
+        Resultat bigDecimal = mesurerBigDecimal(random, prix, quantites, nombreMesures);
+        Resultat centimes = mesurerCentimes(random, prixCentimes, quantites, nombreMesures);
+
+        System.out.println("=== Banc Montant : recalcul du total panier ===");
+        System.out.printf("%d ligne(s) par panier, %d recalculs par mode%n",
+                nombreLignes, (long) nombreMesures * RECALCULS_PAR_MESURE);
+        afficher("BigDecimal", bigDecimal);
+        afficher("centimes", centimes);
+        System.out.printf("Gain p50: %.1f%%%n",
+                100.0 * (1 - centimes.percentile(0.50) / Math.max(1e-9, bigDecimal.percentile(0.50))));
+        System.out.println("(controle: " + puits + ")");
+    }
+
+    private Resultat mesurerBigDecimal(Random random, BigDecimal[] prix, int[] quantites, int mesures) {
+        double[] latences = new double[mesures];
+        long allouesAvant = octetsAlloues();
+        for (int m = 0; m < mesures; m++) {
+            long debut = System.nanoTime();
+            for (int r = 0; r < RECALCULS_PAR_MESURE; r++) {
+                quantites[random.nextInt(quantites.length)] = 1 + random.nextInt(5);
+                puits += totalBigDecimal(prix, quantites).unscaledValue().longValue();
+            }
+            latences[m] = (System.nanoTime() - debut) / (double) RECALCULS_PAR_MESURE;
+        }
+        return new Resultat(latences, octetsAlloues() - allouesAvant, (long) mesures * RECALCULS_PAR_MESURE);
+    }
+
+    private Resultat mesurerCentimes(Random random, long[] prixCentimes, int[] quantites, int mesures) {
+        double[] latences = new double[mesures];
+        long allouesAvant = octetsAlloues();
+        for (int m = 0; m < mesures; m++) {
+            long debut = System.nanoTime();
+            for (int r = 0; r < RECALCULS_PAR_MESURE; r++) {
+                quantites[random.nextInt(quantites.length)] = 1 + random.nextInt(5);
+                puits += totalCentimes(prixCentimes, quantites);
+            }
+            latences[m] = (System.nanoTime() - debut) / (double) RECALCULS_PAR_MESURE;
+        }
+        return new Resultat(latences, octetsAlloues() - allouesAvant, (long) mesures * RECALCULS_PAR_MESURE);
+    }
+
+    /**
+     * Total comme avant {@link Montant} : une multiplication et une addition BigDecimal par ligne.
+     */
+    private static BigDecimal totalBigDecimal(BigDecimal[] prix, int[] quantites) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < prix.length; i++) {
+            total = total.add(prix[i].multiply(BigDecimal.valueOf(quantites[i])));
+        }
+        return total;
+    }
+
+    /**
+     * Total comme le panier actuel (voir {@code VenteController#getTotalPanier}).
+     */
+    private static long totalCentimes(long[] prixCentimes, int[] quantites) {
+        long total = 0;
+        for (int i = 0; i < prixCentimes.length; i++) {
+            total = Montant.ajouter(total, Montant.multiplier(prixCentimes[i], quantites[i]));
+        }
+        return total;
+    }
+
+    /**
+     * @return les octets alloues par le thread courant depuis son demarrage, ou -1 si
+     *         la JVM ne fournit pas ce compteur
+     */
+    private static long octetsAlloues() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mx
+                && mx.isThreadAllocatedMemorySupported() && mx.isThreadAllocatedMemoryEnabled()) {
+            return mx.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void afficher(String mode, Resultat resultat) {
+        String allocation = resultat.octets < 0 ? "n/d"
+                : String.format("%.1f o", resultat.octets / (double) resultat.recalculs);
+        System.out.printf("  %-10s moyenne=%.1f ns, p50=%.1f ns, p99=%.1f ns, alloue/recalcul=%s%n", mode,
+                Arrays.stream(resultat.latences).average().orElse(0),
+                resultat.percentile(0.50), resultat.percentile(0.99), allocation);
+    }
+
+    /**
+     * Latences (ns par recalcul) et allocation d'un mode.
+     */
+    private static final class Resultat {
+        private final double[] latences;
+        private final long octets;
+        private final long recalculs;
+
+        private Resultat(double[] latences, long octets, long recalculs) {
+            this.latences = latences.clone();
+            Arrays.sort(this.latences);
+            this.octets = octets;
+            this.recalculs = recalculs;
+        }
+
+        private double percentile(double p) {
+            return latences[Math.max(0, (int) Math.ceil(p * latences.length) - 1)];
+        }
+    }
+}
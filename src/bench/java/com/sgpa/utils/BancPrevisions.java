@@ -0,0 +1,346 @@
+package com.sgpa.utils;
+
+import com.sgpa.dao.impl.ConsommationDAOImpl;
+import com.sgpa.dto.HistoriqueConsommations;
+import com.sgpa.exception.DAOException;
+import com.sgpa.service.prevision.Croston;
+import com.sgpa.service.prevision.HoltWinters;
+import com.sgpa.service.prevision.ModelePrevision;
+import com.sgpa.service.prevision.MoteurPrevision;
+import com.sgpa.service.prevision.MoyenneMobile;
+import com.sgpa.service.prevision.Prevision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Banc d'evaluation des previsions de demande, sans interface graphique.
+ * <p>
+ * Rejoue un historique journalier a des dates de coupure glissantes : a chaque
+ * coupure, chaque strategie est ajustee sur la fenetre d'analyse qui precede, prevoit
+ * l'horizon a couvrir, puis est comparee aux ventes reelles. Pour chaque strategie
+ * sont affiches :
+ * </p>
+ * <ul>
+ *   <li>MAPE et WAPE de la demande cumulee sur l'horizon, et le biais</li>
+ *   <li>jours de rupture et surstock d'une politique « commander la prevision » :
+ *       le stock a la coupure vaut la demande prevue sur l'horizon</li>
+ *   <li>jours de rupture evites par rapport a la moyenne plate de la fenetre
+ *       (calcul historique de {@code PredictionService})</li>
+ *   <li>temps de calcul pour 1000 medicaments (un ajustement par medicament, un thread)</li>
+ * </ul>
+ * <p>
+ * L'historique vient soit de la table {@code consommation_journaliere} (option
+ * {@code --base}, lecture seule), soit d'un generateur synthetique pluriannuel :
+ * saisonnalite hebdomadaire et annuelle (pic hivernal), tendance, demande
+ * intermittente et pics epidemiques.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * mvn -Pbench package   # le jar construit sans ce profil ne contient pas les bancs
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.BancPrevisions --synthetique \
+ *      --medicaments 2000 --annees 3 --fenetre 90 --horizon 24 --coupures 26 --pas 7
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.BancPrevisions --base --jours 730
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class BancPrevisions {
+
+    private static final Logger logger = LoggerFactory.getLogger(BancPrevisions.class);
+
+    /** Nom de la strategie de reference (moyenne plate de la fenetre) */
+    private static final String REFERENCE = "Moyenne fenetre";
+
+    private boolean base = false;
+    private int joursBase = 730;
+    private int nombreMedicaments = 2000;
+    private int annees = 3;
+    private int fenetre = 90;
+    private int horizon = 24;
+    private int coupures = 26;
+    private int pas = 7;
+    private long graine = 42;
+
+    private BancPrevisions() {
+    }
+
+    /**
+     * Point d'entree du banc.
+     *
+     * @param args les options de la campagne
+     */
+    public static void main(String[] args) {
+        BancPrevisions banc = new BancPrevisions();
+        if (!banc.lireOptions(args)) {
+            System.err.println("Usage: BancPrevisions (--synthetique [--medicaments N] [--annees N] [--graine n]"
+                    + " | --base [--jours N]) [--fenetre j] [--horizon j] [--coupures N] [--pas j]");
+            System.exit(2);
+        }
+
+        try {
+            int[][] series = banc.base ? banc.chargerBase() : banc.generer();
+            banc.executer(series);
+        } catch (DAOException e) {
+            logger.error("Banc des previsions interrompu", e);
+            System.exit(1);
+        } finally {
+            if (banc.base) {
+                DatabaseConnection.getInstance().shutdown();
+            }
+        }
+    }
+
+    private boolean lireOptions(String[] args) {
+        boolean source = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--base" -> {
+                        base = true;
+                        source = true;
+                    }
+                    case "--synthetique" -> {
+                        base = false;
+                        source = true;
+                    }
+                    case "--jours" -> joursBase = Integer.parseInt(args[++i]);
+                    case "--medicaments" -> nombreMedicaments = Integer.parseInt(args[++i]);
+                    case "--annees" -> annees = Integer.parseInt(args[++i]);
+                    case "--fenetre" -> fenetre = Integer.parseInt(args[++i]);
+                    case "--horizon" -> horizon = Integer.parseInt(args[++i]);
+                    case "--coupures" -> coupures = Integer.parseInt(args[++i]);
+                    case "--pas" -> pas = Integer.parseInt(args[++i]);
+                    case "--graine" -> graine = Long.parseLong(args[++i]);
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return source && joursBase > 0 && nombreMedicaments > 0 && annees > 0 && fenetre > 0
+                && horizon > 0 && coupures > 0 && pas > 0;
+    }
+
+    // ==================== Sources ====================
+
+    private int[][] chargerBase() throws DAOException {
+        HistoriqueConsommations historique = new ConsommationDAOImpl().getHistoriqueConsommations(joursBase);
+        int[] ids = historique.getIdsMedicaments();
+        int[][] series = new int[ids.length][];
+        for (int i = 0; i < ids.length; i++) {
+            series[i] = historique.getSerie(ids[i]);
+        }
+        System.out.printf("Historique: %d medicaments vendus sur %d jours depuis le %s%n",
+                ids.length, joursBase, historique.getPremierJour());
+        return series;
+    }
+
+    /**
+     * Genere des series journalieres : un quart de chaque profil (saisonnier,
+     * tendance, intermittent, a pics).
+     */
+    private int[][] generer() {
+        Random random = new Random(graine);
+        int jours = annees * 365;
+        int[][] series = new int[nombreMedicaments][jours];
+
+        for (int m = 0; m < nombreMedicaments; m++) {
+            int profil = m % 4;
+            double niveau = 0.5 + random.nextDouble() * 12;
+            double amplitudeAnnuelle = profil == 0 ? 0.3 + random.nextDouble() * 0.6 : 0.1;
+            double tendance = profil == 1 ? (random.nextDouble() - 0.3) * 2.0 / 365 : 0;
+            double[] semaine = new double[7];
+            for (int j = 0; j < 7; j++) {
+                semaine[j] = j == 6 ? 0.3 : 0.85 + random.nextDouble() * 0.3;
+            }
+
+            double pic = 0;
+            for (int t = 0; t < jours; t++) {
+                // Pic hivernal centre sur mi-janvier (jour 15 de l'annee)
+                double saison = 1 + amplitudeAnnuelle * Math.cos(2 * Math.PI * (t % 365 - 15) / 365.0);
+                double moyenne = niveau * saison * semaine[t % 7] * Math.max(0.1, 1 + tendance * t);
+
+                if (profil == 2) {
+                    // Intermittent : une vente de taille variable quelques fois par mois
+                    series[m][t] = random.nextDouble() < 0.08 ? 1 + random.nextInt(6) : 0;
+                    continue;
+                }
+                if (profil == 3) {
+                    if (pic < 0.05 && random.nextDouble() < 0.004) {
+                        pic = 1.5 + random.nextDouble() * 2;
+                    }
+                    moyenne *= 1 + pic;
+                    pic *= 0.85;
+                }
+                series[m][t] = poisson(random, moyenne);
+            }
+        }
+        System.out.printf("Historique synthetique: %d medicaments sur %d jours (graine %d)%n",
+                nombreMedicaments, jours, graine);
+        return series;
+    }
+
+    private static int poisson(Random random, double moyenne) {
+        if (moyenne > 30) {
+            return Math.max(0, (int) Math.round(moyenne + Math.sqrt(moyenne) * random.nextGaussian()));
+        }
+        double limite = Math.exp(-moyenne);
+        double produit = random.nextDouble();
+        int k = 0;
+        while (produit > limite) {
+            produit *= random.nextDouble();
+            k++;
+        }
+        return k;
+    }
+
+    // ==================== Evaluation ====================
+
+    private void executer(int[][] series) {
+        int longueur = series.length == 0 ? 0 : series[0].length;
+        int derniere = longueur - horizon;
+        int premiere = Math.max(fenetre, derniere - (coupures - 1) * pas);
+        if (series.length == 0 || derniere < fenetre) {
+            System.out.printf("Historique trop court: %d jours pour une fenetre de %d et un horizon de %d%n",
+                    longueur, fenetre, horizon);
+            return;
+        }
+
+        MoteurPrevision moteur = new MoteurPrevision();
+        List<Resultat> resultats = new ArrayList<>();
+        resultats.add(new Resultat(new MoyenneMobile(fenetre), REFERENCE));
+        resultats.add(new Resultat(new MoyenneMobile(28), null));
+        resultats.add(new Resultat(new MoyenneMobile(7), null));
+        resultats.add(new Resultat(new HoltWinters(), null));
+        resultats.add(new Resultat(new Croston(0.1), null));
+        resultats.add(new Resultat(new SelectionAutomatique(moteur), null));
+
+        // Passe a vide pour la compilation JIT, non mesuree
+        int[] echauffement = Arrays.copyOfRange(series[0], premiere - fenetre, premiere);
+        for (int i = 0; i < 200; i++) {
+            for (Resultat r : resultats) {
+                r.modele.prevoir(echauffement, fenetre, horizon);
+            }
+        }
+
+        int nombreCoupures = 0;
+        for (int coupure = premiere; coupure <= derniere; coupure += pas) {
+            nombreCoupures++;
+            for (int[] serie : series) {
+                int[] entrainement = Arrays.copyOfRange(serie, coupure - fenetre, coupure);
+                for (Resultat r : resultats) {
+                    long debut = System.nanoTime();
+                    double[] prevue = r.modele.prevoir(entrainement, fenetre, horizon);
+                    r.nanos += System.nanoTime() - debut;
+                    r.evaluer(prevue, serie, coupure);
+                }
+            }
+        }
+
+        Resultat reference = resultats.get(0);
+        System.out.println("=== Banc des previsions ===");
+        System.out.printf("Medicaments: %d, coupures: %d (tous les %d j), fenetre: %d j, horizon: %d j%n",
+                series.length, nombreCoupures, pas, fenetre, horizon);
+        System.out.printf("%-18s %8s %8s %8s %12s %12s %10s %12s%n",
+                "Strategie", "MAPE", "WAPE", "Biais", "J. rupture", "Evites/ref", "Surstock", "ms/1k SKU");
+        for (Resultat r : resultats) {
+            System.out.printf("%-18s %7.1f%% %7.1f%% %7.1f%% %12d %12d %9.1f%% %12.2f%n",
+                    r.nom,
+                    r.nombreMape == 0 ? 0.0 : 100 * r.sommeMape / r.nombreMape,
+                    r.sommeReel == 0 ? 0.0 : 100 * r.sommeEcartAbsolu / r.sommeReel,
+                    r.sommeReel == 0 ? 0.0 : 100 * (r.sommePrevu - r.sommeReel) / r.sommeReel,
+                    r.joursRupture,
+                    reference.joursRupture - r.joursRupture,
+                    r.sommeReel == 0 ? 0.0 : 100 * r.surstock / r.sommeReel,
+                    r.ajustements == 0 ? 0.0 : r.nanos / 1e6 / r.ajustements * 1000);
+        }
+        System.out.println("MAPE/WAPE : demande cumulee sur l'horizon ; surstock en % de la demande reelle");
+    }
+
+    /**
+     * La selection par backtest du {@link MoteurPrevision}, vue comme une strategie.
+     */
+    private static final class SelectionAutomatique implements ModelePrevision {
+        private final MoteurPrevision moteur;
+
+        SelectionAutomatique(MoteurPrevision moteur) {
+            this.moteur = moteur;
+        }
+
+        @Override
+        public String getNom() {
+            return "Auto (backtest)";
+        }
+
+        @Override
+        public int getLongueurMinimale() {
+            return 1;
+        }
+
+        @Override
+        public double[] prevoir(int[] serie, int longueur, int horizon) {
+            int[] prefixe = longueur == serie.length ? serie : Arrays.copyOf(serie, longueur);
+            Prevision prevision = moteur.prevoir(prefixe, horizon);
+            double[] quantites = new double[horizon];
+            for (int k = 0; k < horizon; k++) {
+                quantites[k] = prevision.getQuantite(k);
+            }
+            return quantites;
+        }
+    }
+
+    /**
+     * Mesures cumulees d'une strategie.
+     */
+    private static final class Resultat {
+        final ModelePrevision modele;
+        final String nom;
+        long nanos;
+        long ajustements;
+        double sommeMape;
+        long nombreMape;
+        double sommeEcartAbsolu;
+        double sommeReel;
+        double sommePrevu;
+        long joursRupture;
+        double surstock;
+
+        Resultat(ModelePrevision modele, String nom) {
+            this.modele = modele;
+            this.nom = nom != null ? nom : modele.getNom();
+        }
+
+        void evaluer(double[] prevue, int[] serie, int coupure) {
+            ajustements++;
+            double prevu = 0;
+            for (double q : prevue) {
+                prevu += q;
+            }
+            long stock = (long) Math.ceil(prevu);
+            long cumul = 0;
+            for (int k = 0; k < prevue.length; k++) {
+                cumul += serie[coupure + k];
+                if (cumul > stock) {
+                    joursRupture++;
+                }
+            }
+            sommeReel += cumul;
+            sommePrevu += prevu;
+            sommeEcartAbsolu += Math.abs(prevu - cumul);
+            surstock += Math.max(0, stock - cumul);
+            if (cumul > 0) {
+                sommeMape += Math.abs(prevu - cumul) / cumul;
+                nombreMape++;
+            }
+        }
+    }
+}
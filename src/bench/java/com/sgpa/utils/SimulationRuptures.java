@@ -0,0 +1,199 @@
+package com.sgpa.utils;
+
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.dto.HistoriqueConsommations;
+import com.sgpa.dto.LotsPeremption;
+import com.sgpa.exception.DAOException;
+import com.sgpa.exception.ServiceException;
+import com.sgpa.model.Medicament;
+import com.sgpa.service.RisqueRuptureService;
+import com.sgpa.service.prevision.RisqueRupture;
+import com.sgpa.service.prevision.SimulationRupture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Simulation du risque de rupture de tout le catalogue, sans interface graphique.
+ * <p>
+ * Affiche le temps de calcul, les pertes par peremption attendues et les medicaments
+ * au plus fort risque de rupture au dernier horizon. Avec {@code --synthetique}, le
+ * catalogue (historique et lots) est genere en memoire : la simulation est mesuree
+ * sans base de donnees.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * mvn -Pbench package   # le jar construit sans ce profil ne contient pas les bancs
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.SimulationRuptures --trajectoires 2000 --horizons 7,14,30
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.SimulationRuptures --synthetique --medicaments 5000
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class SimulationRuptures {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulationRuptures.class);
+
+    private boolean synthetique = false;
+    private int nombreMedicaments = 5000;
+    private int trajectoires = SimulationRupture.TRAJECTOIRES_DEFAUT;
+    private int[] horizons = {7, 14, 30};
+    private int top = 20;
+    private long graine = 42;
+
+    private SimulationRuptures() {
+    }
+
+    /**
+     * Point d'entree du traitement.
+     *
+     * @param args les options de la simulation
+     */
+    public static void main(String[] args) {
+        SimulationRuptures simulation = new SimulationRuptures();
+        if (!simulation.lireOptions(args)) {
+            System.err.println("Usage: SimulationRuptures [--synthetique [--medicaments N]] [--trajectoires N]"
+                    + " [--horizons j,j,...] [--top N] [--graine n]");
+            System.exit(2);
+        }
+
+        try {
+            if (simulation.synthetique) {
+                simulation.executerSynthetique();
+            } else {
+                simulation.executerBase();
+            }
+        } catch (ServiceException | DAOException e) {
+            logger.error("Simulation des risques de rupture impossible", e);
+            System.exit(1);
+        } finally {
+            if (!simulation.synthetique) {
+                DatabaseConnection.getInstance().shutdown();
+            }
+        }
+    }
+
+    private boolean lireOptions(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--synthetique" -> synthetique = true;
+                    case "--medicaments" -> nombreMedicaments = Integer.parseInt(args[++i]);
+                    case "--trajectoires" -> trajectoires = Integer.parseInt(args[++i]);
+                    case "--horizons" -> horizons = Arrays.stream(args[++i].split(","))
+                            .mapToInt(h -> Integer.parseInt(h.trim())).sorted().toArray();
+                    case "--top" -> top = Integer.parseInt(args[++i]);
+                    case "--graine" -> graine = Long.parseLong(args[++i]);
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return nombreMedicaments > 0 && trajectoires > 0 && horizons.length > 0 && horizons[0] > 0 && top >= 0;
+    }
+
+    private void executerBase() throws ServiceException, DAOException {
+        long debut = System.nanoTime();
+        Map<Integer, RisqueRupture> risques =
+                new RisqueRuptureService(new SimulationRupture(trajectoires, graine)).simulerCatalogue(horizons);
+        long duree = (System.nanoTime() - debut) / 1_000_000;
+
+        Map<Integer, String> noms = new HashMap<>();
+        for (Medicament medicament : MedicamentDAOCache.getInstance().findAllActive()) {
+            noms.put(medicament.getIdMedicament(), medicament.getNomCommercial());
+        }
+        afficher(new ArrayList<>(risques.values()), noms, duree);
+    }
+
+    private void executerSynthetique() {
+        Random random = new Random(graine);
+        int jours = 90;
+        Map<Integer, int[]> series = new HashMap<>();
+        int[] ids = new int[nombreMedicaments];
+        int[] debuts = new int[nombreMedicaments + 1];
+        List<int[]> lots = new ArrayList<>();
+
+        for (int m = 0; m < nombreMedicaments; m++) {
+            ids[m] = m + 1;
+            double niveau = 0.2 + random.nextDouble() * 10;
+            int[] serie = new int[jours];
+            for (int t = 0; t < jours; t++) {
+                // Demande irreguliere : la moitie des jours a niveau/2, l'autre a 3*niveau/2 en moyenne
+                serie[t] = (int) Math.round(niveau * (0.5 + random.nextDouble()) * (random.nextBoolean() ? 0.5 : 1.5));
+            }
+            series.put(ids[m], serie);
+
+            // Un a quatre lots couvrant en moyenne 10 a 60 jours, peremption entre J+1 et J+180
+            debuts[m] = lots.size();
+            int nbLots = 1 + random.nextInt(4);
+            int[] peremptions = new int[nbLots];
+            for (int k = 0; k < nbLots; k++) {
+                peremptions[k] = 1 + random.nextInt(180);
+            }
+            Arrays.sort(peremptions);
+            double couverture = 10 + random.nextDouble() * 50;
+            for (int k = 0; k < nbLots; k++) {
+                lots.add(new int[] {(int) Math.ceil(niveau * couverture / nbLots), peremptions[k]});
+            }
+        }
+        debuts[nombreMedicaments] = lots.size();
+
+        int[] quantites = new int[lots.size()];
+        int[] joursAvantPeremption = new int[lots.size()];
+        for (int k = 0; k < quantites.length; k++) {
+            quantites[k] = lots.get(k)[0];
+            joursAvantPeremption[k] = lots.get(k)[1];
+        }
+        LocalDate aujourdhui = LocalDate.now();
+        HistoriqueConsommations historique = new HistoriqueConsommations(aujourdhui.minusDays(jours), jours, series);
+        LotsPeremption lotsPeremption = new LotsPeremption(aujourdhui, ids, debuts, quantites, joursAvantPeremption);
+        System.out.printf("Catalogue synthetique: %d medicaments, %d lots (graine %d)%n",
+                nombreMedicaments, quantites.length, graine);
+
+        long debut = System.nanoTime();
+        RisqueRupture[] risques = new SimulationRupture(trajectoires, graine).simuler(historique, lotsPeremption,
+                ids, horizons);
+        long duree = (System.nanoTime() - debut) / 1_000_000;
+        afficher(Arrays.asList(risques), new HashMap<>(), duree);
+    }
+
+    private void afficher(List<RisqueRupture> risques, Map<Integer, String> noms, long duree) {
+        int dernier = horizons.length - 1;
+        System.out.printf("%d medicament(s) x %d trajectoire(s) en %d ms (%d coeur(s))%n", risques.size(),
+                trajectoires, duree, Runtime.getRuntime().availableProcessors());
+
+        for (int h = 0; h < horizons.length; h++) {
+            double pertes = 0;
+            int aRisque = 0;
+            for (RisqueRupture risque : risques) {
+                pertes += risque.getPerteMoyenne(h);
+                if (risque.getProbabiliteRupture(h) >= 0.5) {
+                    aRisque++;
+                }
+            }
+            System.out.printf("J+%-3d rupture probable (>= 50%%): %d medicament(s), pertes attendues: %.0f unite(s)%n",
+                    horizons[h], aRisque, pertes);
+        }
+
+        risques.sort(Comparator.comparingDouble((RisqueRupture r) -> r.getProbabiliteRupture(dernier)).reversed());
+        System.out.printf("%nPlus forts risques a J+%d:%n", horizons[dernier]);
+        for (RisqueRupture risque : risques.subList(0, Math.min(top, risques.size()))) {
+            System.out.printf("  %-40s %5.1f%% rupture, %6.1f perdu(s)%n",
+                    noms.getOrDefault(risque.getIdMedicament(), "#" + risque.getIdMedicament()),
+                    risque.getProbabiliteRupture(dernier) * 100, risque.getPerteMoyenne(dernier));
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.sgpa;
 
+import com.sgpa.service.ClassificationMedicaments;
+import com.sgpa.service.FileImpressionTickets;
+import com.sgpa.service.JournalVentes;
 import com.sgpa.utils.DatabaseConnection;
 import com.sgpa.utils.FontLoader;
 import javafx.application.Application;
@@ -58,6 +61,16 @@ public class Main extends Application {
             return;
         }
 
+        // Ouvrir le journal local des ventes : rejoue les ventes restees en attente
+        try {
+            JournalVentes.getInstance();
+        } catch (Exception e) {
+            logger.error("Journal local des ventes indisponible: {}", e.getMessage());
+        }
+
+        // Classification ABC/XYZ calculee en tache de fond, hors du thread JavaFX
+        ClassificationMedicaments.getInstance().demarrer();
+
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/login.fxml"));
             Parent root = loader.load();
@@ -77,6 +90,7 @@ public class Main extends Application {
             primaryStage.setY((sb.getHeight() - 680) / 2);
             primaryStage.setOnCloseRequest(event -> {
                 logger.info("Fermeture de l'application...");
+                JournalVentes.arreter();
                 DatabaseConnection.getInstance().shutdown();
             });
 
@@ -122,6 +136,8 @@ public class Main extends Application {
     @Override
     public void stop() {
         logger.info("Arret de l'application...");
+        JournalVentes.arreter();
+        FileImpressionTickets.getInstance().arreter();
         DatabaseConnection.getInstance().shutdown();
     }
 }
@@ -431,6 +431,11 @@ public class AlerteController extends BaseController {
         runAsync(loadTask);
     }
 
+    @Override
+    public void onViewDisplayed() {
+        loadAllAlertes();
+    }
+
     @FXML
     private void handleRefresh() {
         loadAllAlertes();
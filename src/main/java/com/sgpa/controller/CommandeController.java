@@ -1,7 +1,7 @@
 package com.sgpa.controller;
 
 import com.sgpa.dao.impl.FournisseurDAOImpl;
-import com.sgpa.dao.impl.MedicamentDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
 import com.sgpa.exception.ServiceException;
 import com.sgpa.model.*;
 import com.sgpa.model.enums.StatutCommande;
@@ -97,7 +97,7 @@ public class CommandeController extends BaseController {
     // --- Services et DAOs ---
     private final CommandeService commandeService;
     private final FournisseurDAOImpl fournisseurDAO;
-    private final MedicamentDAOImpl medicamentDAO;
+    private final MedicamentDAOCache medicamentDAO;
     private final RapportService rapportService;
     private final ExportService exportService;
     private final ExcelExportService excelExportService;
@@ -115,7 +115,7 @@ public class CommandeController extends BaseController {
     public CommandeController() {
         this.commandeService = new CommandeService();
         this.fournisseurDAO = new FournisseurDAOImpl();
-        this.medicamentDAO = new MedicamentDAOImpl();
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
         this.rapportService = new RapportService();
         this.exportService = new ExportService();
         this.excelExportService = new ExcelExportService();
@@ -2,14 +2,17 @@ package com.sgpa.controller;
 
 import com.sgpa.dao.MedicamentDAO;
 import com.sgpa.dao.VenteDAO;
-import com.sgpa.dao.impl.MedicamentDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
 import com.sgpa.dao.impl.VenteDAOImpl;
 import com.sgpa.dto.AlertePeremption;
 import com.sgpa.dto.AlerteStock;
+import com.sgpa.exception.ServiceException;
 import com.sgpa.model.Utilisateur;
 import com.sgpa.model.Vente;
 import com.sgpa.service.AlerteService;
 import com.sgpa.service.AuthenticationService;
+import com.sgpa.service.JournalVentes;
+import com.sgpa.service.MoteurAlertes;
 import com.sgpa.utils.AnimationUtils;
 import com.sgpa.utils.DialogHelper;
 import javafx.animation.FadeTransition;
@@ -58,6 +61,8 @@ public class DashboardController {
 
     private static final Logger logger = LoggerFactory.getLogger(DashboardController.class);
 
+    private static final DateTimeFormatter FORMAT_VENTE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
     // Sauvegarde du contenu initial du dashboard pour restauration
     private Node dashboardContent;
 
@@ -103,10 +108,13 @@ public class DashboardController {
     private final AlerteService alerteService;
     private final MedicamentDAO medicamentDAO;
     private final VenteDAO venteDAO;
+    private final MoteurAlertes.EcouteurAlertes ecouteurAlertes = this::onAlertesModifiees;
+    private final JournalVentes.EcouteurRejets ecouteurRejets = entree -> Platform.runLater(this::signalerVentesRejetees);
+    private boolean dialogueRejetsOuvert;
 
     public DashboardController() {
         this.alerteService = new AlerteService();
-        this.medicamentDAO = new MedicamentDAOImpl();
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
         this.venteDAO = new VenteDAOImpl();
     }
 
@@ -118,6 +126,13 @@ public class DashboardController {
     public void initialize() {
         setupDateLabel();
         setupAlertsTable();
+        // Rafraichir sur changement d'alertes (vente, reception, changement de jour) plutot qu'a intervalles
+        alerteService.abonner(ecouteurAlertes);
+        // Ventes provisoires refusees au rejeu du journal local : signalees des leur refus
+        JournalVentes journal = getJournalVentes();
+        if (journal != null) {
+            journal.ajouterEcouteur(ecouteurRejets);
+        }
         // Sauvegarder le contenu initial du dashboard
         Platform.runLater(() -> {
             if (!contentArea.getChildren().isEmpty()) {
@@ -147,6 +162,7 @@ public class DashboardController {
         updateUserInfo();
         configureAccessByRole();
         loadDashboardData();
+        Platform.runLater(this::signalerVentesRejetees);
     }
 
     private void configureAccessByRole() {
@@ -288,6 +304,18 @@ public class DashboardController {
                     ));
                 }
 
+                JournalVentes journal = getJournalVentes();
+                if (journal != null) {
+                    for (JournalVentes.Entree e : journal.getVentesRejetees()) {
+                        alertes.add(new AlerteDTO(
+                                "VENTE REFUSEE",
+                                "Vente du " + e.getDateVente().format(FORMAT_VENTE),
+                                String.format("%.2f EUR non enregistres : %s", e.getMontantProvisoire(), e.getMotifRejet()),
+                                "CRITIQUE"
+                        ));
+                    }
+                }
+
                 for (AlertePeremption a : peremptionAlertes) {
                     alertes.add(new AlerteDTO(
                             "PEREMPTION",
@@ -332,6 +360,75 @@ public class DashboardController {
         loadDashboardData();
     }
 
+    /**
+     * Rafraichit la vue affichee quand le moteur d'alertes signale un changement :
+     * le tableau de bord, ou l'ecran des alertes s'il est ouvert.
+     */
+    private void onAlertesModifiees() {
+        Platform.runLater(() -> {
+            if (dashboardContent != null && contentArea.getChildren().contains(dashboardContent)) {
+                loadDashboardData();
+                return;
+            }
+            Parent vueAlertes = viewCache.get("/fxml/alertes.fxml");
+            if (vueAlertes != null && contentArea.getChildren().contains(vueAlertes)
+                    && controllerCache.get("/fxml/alertes.fxml") instanceof AlerteController alerteController) {
+                alerteController.onViewDisplayed();
+            }
+        });
+    }
+
+    /**
+     * Signale les ventes provisoires refusees au rejeu du journal local (stock vendu
+     * entre-temps par un autre poste, ordonnance manquante...) et propose de les acquitter.
+     * Tant qu'elles ne le sont pas, elles restent dans le journal et dans la table des alertes.
+     */
+    private void signalerVentesRejetees() {
+        JournalVentes journal = getJournalVentes();
+        if (journal == null || dialogueRejetsOuvert) {
+            return;
+        }
+        List<JournalVentes.Entree> rejetees = journal.getVentesRejetees();
+        if (rejetees.isEmpty()) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder();
+        message.append(rejetees.size()).append(" vente(s) provisoire(s) n'ont pas pu etre enregistrees :\n");
+        for (JournalVentes.Entree e : rejetees) {
+            message.append("\n- ").append(e.getDateVente().format(FORMAT_VENTE))
+                    .append(String.format(", %.2f EUR : ", e.getMontantProvisoire()))
+                    .append(e.getMotifRejet());
+        }
+        message.append("\n\nCes ventes ne sont ni encaissees ni deduites du stock. Les marquer comme traitees ?");
+
+        dialogueRejetsOuvert = true;
+        DialogHelper.showConfirmation(contentArea, "Ventes refusees", message.toString(),
+                "Marquer traitees", "Plus tard",
+                () -> {
+                    dialogueRejetsOuvert = false;
+                    try {
+                        for (JournalVentes.Entree e : rejetees) {
+                            journal.acquitter(e.getReference());
+                        }
+                    } catch (ServiceException ex) {
+                        logger.error("Erreur lors de l'acquittement des ventes refusees", ex);
+                        DialogHelper.showError(contentArea, "Erreur", ex.getMessage());
+                    }
+                    loadDashboardData();
+                },
+                () -> dialogueRejetsOuvert = false);
+    }
+
+    private JournalVentes getJournalVentes() {
+        try {
+            return JournalVentes.getInstance();
+        } catch (ServiceException e) {
+            logger.warn("Journal local des ventes indisponible", e);
+            return null;
+        }
+    }
+
     @FXML
     private void showDashboard() {
         setActiveButton(btnDashboard);
@@ -650,6 +747,11 @@ public class DashboardController {
                 "Deconnexion",
                 "Voulez-vous vraiment vous deconnecter ?",
                 () -> {
+                    alerteService.desabonner(ecouteurAlertes);
+                    JournalVentes journal = getJournalVentes();
+                    if (journal != null) {
+                        journal.retirerEcouteur(ecouteurRejets);
+                    }
                     if (authService != null) {
                         authService.logout();
                     }
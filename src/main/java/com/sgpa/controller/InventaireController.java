@@ -1,14 +1,17 @@
 package com.sgpa.controller;
 
 import com.sgpa.exception.ServiceException;
+import com.sgpa.exception.ServiceException.ErrorType;
 import com.sgpa.model.ComptageInventaire;
 import com.sgpa.model.Lot;
 import com.sgpa.model.SessionInventaire;
 import com.sgpa.model.enums.MotifEcart;
+import com.sgpa.service.CodeBarreService;
 import com.sgpa.service.ExcelExportService;
 import com.sgpa.service.ExportService;
 import com.sgpa.service.InventaireService;
 import com.sgpa.service.RapportService;
+import com.sgpa.utils.CodeBarre;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.beans.property.SimpleStringProperty;
@@ -26,13 +29,17 @@ import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.UnaryOperator;
 
 /**
@@ -64,6 +71,7 @@ public class InventaireController extends BaseController {
     @FXML private ToggleButton btnFiltreACompter;
     @FXML private ToggleButton btnFiltreComptes;
     @FXML private ToggleButton btnFiltreEcarts;
+    @FXML private ToggleButton btnFiltreCycle;
     @FXML private TableView<LotRow> tableLots;
     @FXML private TableColumn<LotRow, String> colMedicament;
     @FXML private TableColumn<LotRow, String> colLot;
@@ -102,9 +110,11 @@ public class InventaireController extends BaseController {
     private final RapportService rapportService;
     private final ExportService exportService;
     private final ExcelExportService excelExportService;
+    private final CodeBarreService codeBarreService;
     private final ObservableList<LotRow> lotsData = FXCollections.observableArrayList();
     private final ObservableList<SessionRow> sessionsData = FXCollections.observableArrayList();
     private FilteredList<LotRow> filteredLots;
+    private final Map<Integer, List<LotRow>> lotsParMedicament = new HashMap<>();
 
     private SessionInventaire sessionEnCours;
     private LotRow lotSelectionne;
@@ -119,6 +129,7 @@ public class InventaireController extends BaseController {
         this.rapportService = new RapportService();
         this.exportService = new ExportService();
         this.excelExportService = new ExcelExportService();
+        this.codeBarreService = new CodeBarreService();
     }
 
     @FXML
@@ -301,6 +312,7 @@ public class InventaireController extends BaseController {
         btnFiltreACompter.setToggleGroup(filterGroup);
         btnFiltreComptes.setToggleGroup(filterGroup);
         btnFiltreEcarts.setToggleGroup(filterGroup);
+        btnFiltreCycle.setToggleGroup(filterGroup);
 
         // Empecher la deselection totale
         filterGroup.selectedToggleProperty().addListener((obs, oldVal, newVal) -> {
@@ -312,6 +324,7 @@ public class InventaireController extends BaseController {
             else if (newVal == btnFiltreACompter) activeFilter = "A_COMPTER";
             else if (newVal == btnFiltreComptes) activeFilter = "COMPTES";
             else if (newVal == btnFiltreEcarts) activeFilter = "ECARTS";
+            else if (newVal == btnFiltreCycle) activeFilter = "CYCLE";
             applyFilters();
         });
 
@@ -324,7 +337,7 @@ public class InventaireController extends BaseController {
         filteredLots.setPredicate(lot -> {
             // Filtre texte
             String searchText = txtRecherche.getText();
-            if (searchText != null && !searchText.isEmpty()) {
+            if (searchText != null && !searchText.isEmpty() && !CodeBarre.ressembleCodeBarre(searchText)) {
                 String lowerCaseFilter = searchText.toLowerCase();
                 if (!lot.medicament.toLowerCase().contains(lowerCaseFilter) &&
                         !lot.numeroLot.toLowerCase().contains(lowerCaseFilter)) {
@@ -340,6 +353,8 @@ public class InventaireController extends BaseController {
                     return "Compte".equals(lot.statut);
                 case "ECARTS":
                     return lot.ecart != null && lot.ecart != 0;
+                case "CYCLE":
+                    return lot.cycleSemaine;
                 default:
                     return true;
             }
@@ -353,17 +368,31 @@ public class InventaireController extends BaseController {
     }
 
     private void loadLotsSequential() {
-        Task<List<Lot>> task = new Task<>() {
+        Task<List<LotRow>> task = new Task<>() {
             @Override
-            protected List<Lot> call() throws Exception {
-                return inventaireService.getAllLotsForComptage();
+            protected List<LotRow> call() throws Exception {
+                List<Lot> lots = inventaireService.getAllLotsForComptage();
+                // Lots du comptage cyclique de la semaine (filtre "Cette semaine")
+                Set<Integer> cycle = new HashSet<>();
+                for (Lot lot : inventaireService.getLotsForComptageCyclique(lots, LocalDate.now())) {
+                    cycle.add(lot.getIdLot());
+                }
+                List<LotRow> rows = new ArrayList<>(lots.size());
+                for (Lot lot : lots) {
+                    LotRow row = new LotRow(lot);
+                    row.cycleSemaine = cycle.contains(row.idLot);
+                    rows.add(row);
+                }
+                return rows;
             }
         };
 
         task.setOnSucceeded(e -> {
             lotsData.clear();
-            for (Lot lot : task.getValue()) {
-                lotsData.add(new LotRow(lot));
+            lotsParMedicament.clear();
+            for (LotRow row : task.getValue()) {
+                lotsData.add(row);
+                lotsParMedicament.computeIfAbsent(row.idMedicament, k -> new ArrayList<>()).add(row);
             }
             // Une fois les lots charges, charger la session
             loadSessionEnCours();
@@ -576,6 +605,88 @@ public class InventaireController extends BaseController {
         runAsync(task);
     }
 
+    /**
+     * Validation du champ de recherche par la douchette : selectionne le lot lu pour comptage.
+     * <p>
+     * Un DataMatrix designe le lot exact ; un simple CIP13 selectionne le lot s'il est
+     * unique, sinon filtre la liste sur le medicament.
+     * </p>
+     */
+    @FXML
+    private void handleScan() {
+        String saisie = txtRecherche.getText();
+        if (!CodeBarre.ressembleCodeBarre(saisie)) {
+            return;
+        }
+
+        Task<CodeBarreService.Lecture> task = new Task<>() {
+            @Override
+            protected CodeBarreService.Lecture call() throws Exception {
+                CodeBarreService.Lecture lecture = codeBarreService.lire(saisie);
+                if (lecture == null) {
+                    throw new ServiceException("Code-barres illisible: " + saisie.strip(), ErrorType.VALIDATION);
+                }
+                return lecture;
+            }
+        };
+
+        task.setOnSucceeded(e -> selectionnerLecture(task.getValue()));
+
+        task.setOnFailed(e -> {
+            Throwable ex = task.getException();
+            if (!(ex instanceof ServiceException)) {
+                logger.error("Erreur lors de la lecture du code-barres", ex);
+            }
+            txtRecherche.selectAll();
+            showWarning("Lecture code-barres", ex.getMessage());
+        });
+
+        runAsync(task);
+    }
+
+    private void selectionnerLecture(CodeBarreService.Lecture lecture) {
+        String nom = lecture.getMedicament().getNomCommercial();
+        List<LotRow> lots = lotsParMedicament.getOrDefault(lecture.getMedicament().getIdMedicament(), List.of());
+        String numeroLot = lecture.getCode().getNumeroLot();
+
+        LotRow cible = null;
+        for (LotRow row : lots) {
+            boolean memeLot = lecture.getLot() != null
+                    ? row.idLot == lecture.getLot().getIdLot()
+                    : numeroLot != null && numeroLot.equals(row.numeroLot);
+            if (memeLot) {
+                cible = row;
+                break;
+            }
+        }
+        if (cible == null && numeroLot == null && lots.size() == 1) {
+            cible = lots.get(0);
+        }
+
+        if (cible == null) {
+            if (lots.isEmpty()) {
+                txtRecherche.selectAll();
+                showWarning("Lecture code-barres", nom + " : aucun lot en stock");
+            } else {
+                // Plusieurs lots : filtrer sur le medicament, le lot est choisi a la main
+                txtRecherche.setText(nom);
+                txtRecherche.positionCaret(nom.length());
+                if (numeroLot != null) {
+                    showWarning("Lecture code-barres", "Lot " + numeroLot + " inconnu pour " + nom);
+                }
+            }
+            return;
+        }
+
+        txtRecherche.clear();
+        if (filterGroup.getSelectedToggle() != btnFiltreTous) {
+            btnFiltreTous.setSelected(true);
+        }
+        tableLots.getSelectionModel().select(cible);
+        tableLots.scrollTo(cible);
+        spinnerQtePhysique.requestFocus();
+    }
+
     private void selectLotForComptage(LotRow lot) {
         lotSelectionne = lot;
 
@@ -893,6 +1004,7 @@ public class InventaireController extends BaseController {
      */
     public static class LotRow {
         public final int idLot;
+        public final int idMedicament;
         public final String medicament;
         public final String numeroLot;
         public final String datePeremption;
@@ -900,9 +1012,11 @@ public class InventaireController extends BaseController {
         public Integer stockPhysique;
         public Integer ecart;
         public String statut;
+        public boolean cycleSemaine;
 
         public LotRow(Lot lot) {
             this.idLot = lot.getIdLot();
+            this.idMedicament = lot.getIdMedicament();
             this.medicament = lot.getMedicament() != null ? lot.getMedicament().getNomCommercial() : "Lot #" + idLot;
             this.numeroLot = lot.getNumeroLot() != null ? lot.getNumeroLot() : "-";
             this.datePeremption = lot.getDatePeremption() != null ?
@@ -1,10 +1,11 @@
 package com.sgpa.controller;
 
-import com.sgpa.dao.impl.MedicamentDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
 import com.sgpa.model.Medicament;
 import com.sgpa.service.ExcelExportService;
 import com.sgpa.service.ExportService;
 import com.sgpa.service.RapportService;
+import com.sgpa.utils.CodeBarre;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -50,6 +51,7 @@ public class MedicamentController extends BaseController {
     @FXML private TextField txtPrincipeActif;
     @FXML private ComboBox<String> comboForme;
     @FXML private TextField txtDosage;
+    @FXML private TextField txtCodeCip13;
     @FXML private TextField txtPrix;
     @FXML private Spinner<Integer> spinnerSeuil;
     @FXML private TextArea txtDescription;
@@ -58,7 +60,7 @@ public class MedicamentController extends BaseController {
     @FXML private Button btnDelete;
     @FXML private Button btnSave;
 
-    private final MedicamentDAOImpl medicamentDAO;
+    private final MedicamentDAOCache medicamentDAO;
     private final RapportService rapportService;
     private final ExportService exportService;
     private final ExcelExportService excelExportService;
@@ -68,7 +70,7 @@ public class MedicamentController extends BaseController {
     private boolean isEditMode = false;
 
     public MedicamentController() {
-        this.medicamentDAO = new MedicamentDAOImpl();
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
         this.rapportService = new RapportService();
         this.exportService = new ExportService();
         this.excelExportService = new ExcelExportService();
@@ -189,6 +191,7 @@ public class MedicamentController extends BaseController {
         txtPrincipeActif.setText(medicament.getPrincipeActif());
         comboForme.setValue(medicament.getFormeGalenique());
         txtDosage.setText(medicament.getDosage());
+        txtCodeCip13.setText(medicament.getCodeCip13() != null ? String.valueOf(medicament.getCodeCip13()) : "");
         txtPrix.setText(medicament.getPrixPublic() != null ? medicament.getPrixPublic().toString() : "");
         spinnerSeuil.getValueFactory().setValue(medicament.getSeuilMin());
         txtDescription.setText(medicament.getDescription());
@@ -207,6 +210,7 @@ public class MedicamentController extends BaseController {
         txtPrincipeActif.clear();
         comboForme.setValue(null);
         txtDosage.clear();
+        txtCodeCip13.clear();
         txtPrix.clear();
         spinnerSeuil.getValueFactory().setValue(10);
         txtDescription.clear();
@@ -278,11 +282,23 @@ public class MedicamentController extends BaseController {
             return;
         }
 
+        Long codeCip13 = null;
+        String saisieCip = txtCodeCip13.getText().trim();
+        if (!saisieCip.isEmpty()) {
+            CodeBarre code = CodeBarre.analyser(saisieCip);
+            if (code == null) {
+                showWarning("Validation", "Le code CIP13 doit comporter 13 chiffres avec une cle valide.");
+                return;
+            }
+            codeCip13 = code.getCodeCip13();
+        }
+
         Medicament medicament = isEditMode ? selectedMedicament : new Medicament();
         medicament.setNomCommercial(txtNomCommercial.getText().trim());
         medicament.setPrincipeActif(txtPrincipeActif.getText().trim());
         medicament.setFormeGalenique(comboForme.getValue());
         medicament.setDosage(txtDosage.getText().trim());
+        medicament.setCodeCip13(codeCip13);
         medicament.setPrixPublic(prix);
         medicament.setSeuilMin(spinnerSeuil.getValue());
         medicament.setDescription(txtDescription.getText().trim());
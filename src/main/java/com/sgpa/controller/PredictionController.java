@@ -1,7 +1,6 @@
 package com.sgpa.controller;
 
 import com.sgpa.dto.PredictionReapprovisionnement;
-import com.sgpa.service.ConfigService;
 import com.sgpa.service.ExcelExportService;
 import com.sgpa.service.PredictionService;
 import com.sgpa.service.RapportService;
@@ -82,7 +81,6 @@ public class PredictionController extends BaseController {
     @FXML private NumberAxis yAxis;
 
     private final PredictionService predictionService;
-    private final ConfigService configService;
     private final RapportService rapportService;
     private final ExcelExportService excelExportService;
 
@@ -92,7 +90,6 @@ public class PredictionController extends BaseController {
 
     public PredictionController() {
         this.predictionService = new PredictionService();
-        this.configService = new ConfigService();
         this.rapportService = new RapportService();
         this.excelExportService = new ExcelExportService();
     }
@@ -349,7 +346,7 @@ public class PredictionController extends BaseController {
         lblDetailStock.setText(String.valueOf(prediction.getStockVendable()));
         lblDetailConsoMois.setText(String.format("%.0f unites", prediction.getConsommationMensuelle()));
         lblDetailSeuil.setText(String.valueOf(prediction.getSeuilMin()));
-        lblDetailDelai.setText(configService.getPredictionDelaiLivraisonDefaut() + " jours");
+        lblDetailDelai.setText(prediction.getDelaiLivraison() + " jours");
 
         updateChart(prediction);
     }
@@ -3,14 +3,16 @@ package com.sgpa.controller;
 import com.sgpa.dao.impl.CommandeDAOImpl;
 import com.sgpa.dao.impl.FournisseurDAOImpl;
 import com.sgpa.dao.impl.LotDAOImpl;
-import com.sgpa.dao.impl.MedicamentDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
 import com.sgpa.dto.PredictionReapprovisionnement;
+import com.sgpa.dto.StocksMedicaments;
 import com.sgpa.model.Commande;
 import com.sgpa.model.Fournisseur;
 import com.sgpa.model.Lot;
 import com.sgpa.model.Medicament;
 import com.sgpa.service.AuditService;
 import com.sgpa.service.ExportService;
+import com.sgpa.service.FefoEngine;
 import com.sgpa.service.PredictionService;
 import com.sgpa.service.StockService;
 import com.sgpa.utils.DialogHelper;
@@ -152,7 +154,7 @@ public class ProduitsStockController extends BaseController {
     private final ExportService exportService;
 
     // DAOs pour les operations sans service existant
-    private final MedicamentDAOImpl medicamentDAO;
+    private final MedicamentDAOCache medicamentDAO;
     private final LotDAOImpl lotDAO;
     private final FournisseurDAOImpl fournisseurDAO;
     private final CommandeDAOImpl commandeDAO;
@@ -193,7 +195,7 @@ public class ProduitsStockController extends BaseController {
         this.auditService = new AuditService();
         this.predictionService = new PredictionService();
         this.exportService = new ExportService();
-        this.medicamentDAO = new MedicamentDAOImpl();
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
         this.lotDAO = new LotDAOImpl();
         this.fournisseurDAO = new FournisseurDAOImpl();
         this.commandeDAO = new CommandeDAOImpl();
@@ -697,15 +699,11 @@ public class ProduitsStockController extends BaseController {
             protected Void call() throws Exception {
                 medicaments = medicamentDAO.findAllActive();
 
-                // Stock vendable via StockService
+                // Stock vendable de tous les medicaments en une requete
+                StocksMedicaments snapshot = stockService.getStocks();
                 stocks = new HashMap<>();
                 for (Medicament m : medicaments) {
-                    try {
-                        stocks.put(m.getIdMedicament(),
-                                stockService.getStockVendable(m.getIdMedicament()));
-                    } catch (Exception e) {
-                        stocks.put(m.getIdMedicament(), 0);
-                    }
+                    stocks.put(m.getIdMedicament(), snapshot.getStockVendable(m.getIdMedicament()));
                 }
 
                 // Peremption proche
@@ -715,34 +713,17 @@ public class ProduitsStockController extends BaseController {
                     peremptionIds.add(lot.getIdMedicament());
                 }
 
-                // Predictions
-                predictions = new HashMap<>();
-                for (Medicament m : medicaments) {
-                    try {
-                        PredictionReapprovisionnement pred = predictionService.genererPrediction(m.getIdMedicament());
-                        if (pred != null) {
-                            predictions.put(m.getIdMedicament(), pred);
-                        }
-                    } catch (Exception e) {
-                        // Prediction non disponible, ignorer
-                    }
+                // Predictions de tous les medicaments en une passe
+                try {
+                    predictions = predictionService.genererPredictionsParMedicament();
+                } catch (Exception e) {
+                    // Predictions non disponibles, ignorer
+                    logger.warn("Predictions non disponibles", e);
+                    predictions = Map.of();
                 }
 
                 // Valorisation totale du stock
-                valeurTotale = BigDecimal.ZERO;
-                for (Medicament m : medicaments) {
-                    try {
-                        List<Lot> lots = lotDAO.findByMedicamentIdSortedByExpiration(m.getIdMedicament());
-                        for (Lot lot : lots) {
-                            if (lot.isVendable() && lot.getPrixAchat() != null) {
-                                valeurTotale = valeurTotale.add(
-                                        lot.getPrixAchat().multiply(BigDecimal.valueOf(lot.getQuantiteStock())));
-                            }
-                        }
-                    } catch (Exception e) {
-                        // ignorer
-                    }
-                }
+                valeurTotale = lotDAO.getValeurStockVendable();
 
                 return null;
             }
@@ -978,9 +959,13 @@ public class ProduitsStockController extends BaseController {
         }
 
         Task<List<Medicament>> task = new Task<>() {
+            private StocksMedicaments stocks;
+
             @Override
             protected List<Medicament> call() throws Exception {
-                return medicamentDAO.findByNom(search);
+                List<Medicament> resultats = medicamentDAO.findByNom(search);
+                stocks = stockService.getStocks();
+                return resultats;
             }
 
             @Override
@@ -988,12 +973,7 @@ public class ProduitsStockController extends BaseController {
                 allMedicaments = getValue();
                 stockCache.clear();
                 for (Medicament m : allMedicaments) {
-                    try {
-                        stockCache.put(m.getIdMedicament(),
-                                stockService.getStockVendable(m.getIdMedicament()));
-                    } catch (Exception e) {
-                        stockCache.put(m.getIdMedicament(), 0);
-                    }
+                    stockCache.put(m.getIdMedicament(), stocks.getStockVendable(m.getIdMedicament()));
                 }
                 activeFilter = null;
                 updateBadgeStyles();
@@ -1329,7 +1309,9 @@ public class ProduitsStockController extends BaseController {
         Task<Lot> saveTask = new Task<>() {
             @Override
             protected Lot call() throws Exception {
-                return lotDAO.save(lot);
+                Lot saved = lotDAO.save(lot);
+                FefoEngine.getInstance().invalider(lot.getIdMedicament());
+                return saved;
             }
 
             @Override
@@ -1360,6 +1342,7 @@ public class ProduitsStockController extends BaseController {
                         @Override
                         protected Void call() throws Exception {
                             lotDAO.delete(lot.getIdLot());
+                            FefoEngine.getInstance().invalider(lot.getIdMedicament());
                             return null;
                         }
 
@@ -2,12 +2,14 @@ package com.sgpa.controller;
 
 import com.sgpa.dao.impl.FournisseurDAOImpl;
 import com.sgpa.dao.impl.LotDAOImpl;
-import com.sgpa.dao.impl.MedicamentDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.dto.StocksMedicaments;
 import com.sgpa.model.Fournisseur;
 import com.sgpa.model.Lot;
 import com.sgpa.model.Medicament;
 import com.sgpa.service.ExcelExportService;
 import com.sgpa.service.ExportService;
+import com.sgpa.service.FefoEngine;
 import com.sgpa.service.RapportService;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -73,7 +75,7 @@ public class StockController extends BaseController {
     @FXML private ComboBox<Fournisseur> comboFournisseur;
     @FXML private TextField txtPrixAchat;
 
-    private final MedicamentDAOImpl medicamentDAO;
+    private final MedicamentDAOCache medicamentDAO;
     private final LotDAOImpl lotDAO;
     private final FournisseurDAOImpl fournisseurDAO;
     private final ExportService exportService;
@@ -85,8 +87,11 @@ public class StockController extends BaseController {
 
     private Medicament selectedMedicament;
 
+    /** Stocks de tous les medicaments, relus avec la liste (une requete) */
+    private StocksMedicaments stocks = new StocksMedicaments(new int[0], new int[0], new int[0]);
+
     public StockController() {
-        this.medicamentDAO = new MedicamentDAOImpl();
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
         this.lotDAO = new LotDAOImpl();
         this.fournisseurDAO = new FournisseurDAOImpl();
         this.exportService = new ExportService();
@@ -113,27 +118,17 @@ public class StockController extends BaseController {
         colPrincipe.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getPrincipeActif()));
         colSeuil.setCellValueFactory(data -> new SimpleStringProperty(String.valueOf(data.getValue().getSeuilMin())));
 
-        // Stock total (necessite requete)
-        colStock.setCellValueFactory(data -> {
-            try {
-                int stock = lotDAO.getTotalStockByMedicament(data.getValue().getIdMedicament());
-                return new SimpleStringProperty(String.valueOf(stock));
-            } catch (Exception e) {
-                return new SimpleStringProperty("?");
-            }
-        });
+        // Stock total (instantane charge avec la liste)
+        colStock.setCellValueFactory(data -> new SimpleStringProperty(
+                String.valueOf(stocks.getStockTotal(data.getValue().getIdMedicament()))));
 
         // Statut avec couleur
         colStatut.setCellValueFactory(data -> {
-            try {
-                int stock = lotDAO.getTotalStockByMedicament(data.getValue().getIdMedicament());
-                int seuil = data.getValue().getSeuilMin();
-                if (stock == 0) return new SimpleStringProperty("RUPTURE");
-                if (stock < seuil) return new SimpleStringProperty("BAS");
-                return new SimpleStringProperty("OK");
-            } catch (Exception e) {
-                return new SimpleStringProperty("?");
-            }
+            int stock = stocks.getStockTotal(data.getValue().getIdMedicament());
+            int seuil = data.getValue().getSeuilMin();
+            if (stock == 0) return new SimpleStringProperty("RUPTURE");
+            if (stock < seuil) return new SimpleStringProperty("BAS");
+            return new SimpleStringProperty("OK");
         });
 
         colStatut.setCellFactory(column -> new TableCell<>() {
@@ -250,13 +245,18 @@ public class StockController extends BaseController {
 
     private void loadData() {
         Task<List<Medicament>> task = new Task<>() {
+            private StocksMedicaments snapshot;
+
             @Override
             protected List<Medicament> call() throws Exception {
-                return medicamentDAO.findAllActive();
+                List<Medicament> medicaments = medicamentDAO.findAllActive();
+                snapshot = lotDAO.getStocksParMedicament();
+                return medicaments;
             }
 
             @Override
             protected void succeeded() {
+                stocks = snapshot;
                 medicamentData.setAll(getValue());
                 updateStats();
             }
@@ -275,12 +275,7 @@ public class StockController extends BaseController {
         int peremptionProche = 0;
 
         for (Medicament m : medicamentData) {
-            try {
-                int stock = lotDAO.getTotalStockByMedicament(m.getIdMedicament());
-                if (stock < m.getSeuilMin()) stockBas++;
-            } catch (Exception e) {
-                logger.error("Erreur calcul stock", e);
-            }
+            if (stocks.getStockTotal(m.getIdMedicament()) < m.getSeuilMin()) stockBas++;
         }
 
         try {
@@ -334,13 +329,18 @@ public class StockController extends BaseController {
         }
 
         Task<List<Medicament>> task = new Task<>() {
+            private StocksMedicaments snapshot;
+
             @Override
             protected List<Medicament> call() throws Exception {
-                return medicamentDAO.findByNom(search);
+                List<Medicament> medicaments = medicamentDAO.findByNom(search);
+                snapshot = lotDAO.getStocksParMedicament();
+                return medicaments;
             }
 
             @Override
             protected void succeeded() {
+                stocks = snapshot;
                 medicamentData.setAll(getValue());
             }
         };
@@ -445,7 +445,9 @@ public class StockController extends BaseController {
         Task<Lot> task = new Task<>() {
             @Override
             protected Lot call() throws Exception {
-                return lotDAO.save(lot);
+                Lot saved = lotDAO.save(lot);
+                FefoEngine.getInstance().invalider(lot.getIdMedicament());
+                return saved;
             }
 
             @Override
@@ -469,14 +471,20 @@ public class StockController extends BaseController {
                 "Voulez-vous vraiment supprimer le lot " + lot.getNumeroLot() + "?",
                 () -> {
                     Task<Void> task = new Task<>() {
+                        private StocksMedicaments snapshot;
+
                         @Override
                         protected Void call() throws Exception {
                             lotDAO.delete(lot.getIdLot());
+                            FefoEngine.getInstance().invalider(lot.getIdMedicament());
+                            snapshot = lotDAO.getStocksParMedicament();
                             return null;
                         }
 
                         @Override
                         protected void succeeded() {
+                            stocks = snapshot;
+                            tableMedicaments.refresh();
                             handleMedicamentSelection(selectedMedicament);
                             updateStats();
                         }
@@ -1,16 +1,25 @@
 package com.sgpa.controller;
 
 import com.sgpa.dao.MedicamentDAO;
-import com.sgpa.dao.impl.MedicamentDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
 import com.sgpa.dto.LigneVenteDTO;
+import com.sgpa.dto.StocksMedicaments;
 import com.sgpa.exception.DAOException;
 import com.sgpa.exception.ServiceException;
+import com.sgpa.exception.ServiceException.ErrorType;
+import com.sgpa.model.Lot;
 import com.sgpa.model.Medicament;
 import com.sgpa.model.Utilisateur;
 import com.sgpa.model.Vente;
-import com.sgpa.service.RapportService;
+import com.sgpa.service.CodeBarreService;
+import com.sgpa.service.FefoEngine;
+import com.sgpa.service.FileImpressionTickets;
+import com.sgpa.service.IndexRechercheMedicaments;
+import com.sgpa.service.ReservationStock;
 import com.sgpa.service.StockService;
 import com.sgpa.service.VenteService;
+import com.sgpa.utils.CodeBarre;
+import com.sgpa.utils.Montant;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -31,6 +40,9 @@ import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controleur pour l'ecran de vente.
@@ -72,17 +84,29 @@ public class VenteController extends BaseController {
     private final MedicamentDAO medicamentDAO;
     private final StockService stockService;
     private final VenteService venteService;
-    private final RapportService rapportService;
+    private final IndexRechercheMedicaments indexRecherche;
+    private final CodeBarreService codeBarreService;
+    private final ReservationStock reservationStock;
+    private final FefoEngine fefoEngine;
+
+    /** Stocks lus au dernier chargement de la liste, reutilises par la recherche */
+    private volatile StocksMedicaments stocks;
+
+    /** Reference du panier en cours pour les reservations de stock, renouvelee apres chaque vente */
+    private String referencePanier = UUID.randomUUID().toString();
 
     private final ObservableList<MedicamentStock> medicamentsData = FXCollections.observableArrayList();
     private final ObservableList<LignePanier> panierData = FXCollections.observableArrayList();
     private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(250));
 
     public VenteController() {
-        this.medicamentDAO = new MedicamentDAOImpl();
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
         this.stockService = new StockService();
         this.venteService = new VenteService();
-        this.rapportService = new RapportService();
+        this.indexRecherche = IndexRechercheMedicaments.getInstance();
+        this.codeBarreService = new CodeBarreService();
+        this.reservationStock = new ReservationStock();
+        this.fefoEngine = FefoEngine.getInstance();
     }
 
     @FXML
@@ -153,8 +177,10 @@ public class VenteController extends BaseController {
     private void setupPanierTable() {
         colPanierNom.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().nom));
         colPanierQte.setCellValueFactory(data -> new SimpleStringProperty(String.valueOf(data.getValue().quantite)));
-        colPanierPrix.setCellValueFactory(data -> new SimpleStringProperty(PRICE_FORMAT.format(data.getValue().prixUnitaire)));
-        colPanierTotal.setCellValueFactory(data -> new SimpleStringProperty(PRICE_FORMAT.format(data.getValue().getTotal())));
+        colPanierPrix.setCellValueFactory(data -> new SimpleStringProperty(
+                PRICE_FORMAT.format(Montant.enBigDecimal(data.getValue().prixUnitaire))));
+        colPanierTotal.setCellValueFactory(data -> new SimpleStringProperty(
+                PRICE_FORMAT.format(Montant.enBigDecimal(data.getValue().getTotal()))));
 
         // Bouton supprimer
         colPanierAction.setCellFactory(column -> new TableCell<>() {
@@ -169,6 +195,7 @@ public class VenteController extends BaseController {
                     LignePanier ligne = getTableView().getItems().get(getIndex());
                     panierData.remove(ligne);
                     updateTotals();
+                    ajusterReservation(ligne.idMedicament);
                 });
             }
 
@@ -197,10 +224,12 @@ public class VenteController extends BaseController {
             @Override
             protected List<MedicamentStock> call() throws Exception {
                 List<Medicament> medicaments = medicamentDAO.findAllActive();
+                StocksMedicaments instantane = stockService.getStocks();
+                stocks = instantane;
                 List<MedicamentStock> result = new ArrayList<>();
 
                 for (Medicament med : medicaments) {
-                    int stock = stockService.getStockVendable(med.getIdMedicament());
+                    int stock = instantane.getStockVendable(med.getIdMedicament());
                     result.add(new MedicamentStock(med, stock));
                 }
                 return result;
@@ -230,15 +259,29 @@ public class VenteController extends BaseController {
             loadAllMedicaments();
             return;
         }
+        if (CodeBarre.ressembleCodeBarre(search)) {
+            // Lecture douchette : traitee par handleScan a la validation
+            return;
+        }
 
         Task<List<MedicamentStock>> searchTask = new Task<>() {
             @Override
             protected List<MedicamentStock> call() throws Exception {
-                List<Medicament> medicaments = medicamentDAO.findByNom(search);
+                List<Medicament> medicaments = indexRecherche.rechercher(search,
+                        IndexRechercheMedicaments.LIMITE_DEFAUT);
+                StocksMedicaments instantane = stocks;
+                if (instantane == null) {
+                    instantane = stockService.getStocks();
+                    stocks = instantane;
+                }
                 List<MedicamentStock> result = new ArrayList<>();
 
+                // Stock du moteur FEFO si le medicament est en memoire, sinon celui de la liste
                 for (Medicament med : medicaments) {
-                    int stock = stockService.getStockVendable(med.getIdMedicament());
+                    int stock = fefoEngine.getStockVendableResident(med.getIdMedicament());
+                    if (stock < 0) {
+                        stock = instantane.getStockVendable(med.getIdMedicament());
+                    }
                     result.add(new MedicamentStock(med, stock));
                 }
                 return result;
@@ -252,27 +295,126 @@ public class VenteController extends BaseController {
         runAsync(searchTask);
     }
 
+    /**
+     * Validation du champ de recherche (touche Entree, envoyee par la douchette apres le code).
+     * <p>
+     * Un code CIP13 ou DataMatrix ajoute directement une boite au panier ; une saisie
+     * texte lance la recherche sans attendre le delai de frappe.
+     * </p>
+     */
+    @FXML
+    private void handleScan() {
+        searchDebounce.stop();
+        String saisie = searchField.getText();
+        if (!CodeBarre.ressembleCodeBarre(saisie)) {
+            executeSearch();
+            return;
+        }
+        // Le code suivant remplacera celui-ci
+        searchField.selectAll();
+
+        Task<MedicamentStock> scanTask = new Task<>() {
+            @Override
+            protected MedicamentStock call() throws Exception {
+                CodeBarreService.Lecture lecture = codeBarreService.lire(saisie);
+                if (lecture == null) {
+                    throw new ServiceException("Code-barres illisible: " + saisie.strip(), ErrorType.VALIDATION);
+                }
+                Medicament med = lecture.getMedicament();
+                if (!med.isActif()) {
+                    throw new ServiceException(med.getNomCommercial() + " n'est plus au catalogue",
+                            ErrorType.VALIDATION);
+                }
+                if (lecture.isPerime()) {
+                    throw new ServiceException("Boite perimee: " + med.getNomCommercial() +
+                            (lecture.getCode().getNumeroLot() != null ? " (lot " + lecture.getCode().getNumeroLot() + ")" : ""),
+                            ErrorType.MEDICAMENT_PERIME);
+                }
+                // Stock du moteur FEFO (sans requete si le medicament est deja en memoire)
+                return new MedicamentStock(med, lecture.getStockVendable(), lecture.getLot());
+            }
+        };
+
+        scanTask.setOnSucceeded(event -> ajouterAuPanier(scanTask.getValue(), 1));
+
+        scanTask.setOnFailed(event -> {
+            Throwable ex = scanTask.getException();
+            if (!(ex instanceof ServiceException)) {
+                logger.error("Erreur lors de la lecture du code-barres", ex);
+            }
+            showWarning("Lecture code-barres", ex.getMessage());
+        });
+
+        runAsync(scanTask);
+    }
+
     @FXML
     private void handleAddToCart() {
         MedicamentStock selected = tableMedicaments.getSelectionModel().getSelectedItem();
-        if (selected == null || selected.stock == 0) return;
+        if (selected == null) return;
+        ajouterAuPanier(selected, spinnerQuantite.getValue());
+    }
 
-        int quantite = spinnerQuantite.getValue();
+    private void ajouterAuPanier(MedicamentStock selected, int quantite) {
+        if (selected.stock == 0) {
+            showWarning("Stock insuffisant", selected.nom + " n'est plus disponible");
+            return;
+        }
         if (quantite > selected.stock) {
             showWarning("Stock insuffisant", "Stock disponible: " + selected.stock + " unites");
             return;
         }
 
-        // Verifier si le medicament est deja dans le panier
+        // Le stock couvre toutes les lignes du medicament (une par lot scanne)
+        int dejaAuPanier = quantiteAuPanier(selected.id);
+        if (dejaAuPanier + quantite > selected.stock) {
+            showWarning("Stock insuffisant",
+                    "Vous avez deja " + dejaAuPanier + " dans le panier. Stock disponible: " + selected.stock);
+            return;
+        }
+
+        // Retenir la quantite totale du medicament face aux autres postes avant de l'ajouter
+        String reference = referencePanier;
+        int quantiteTotale = dejaAuPanier + quantite;
+        Task<Void> reservationTask = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                reservationStock.reserver(reference, selected.id, quantiteTotale);
+                return null;
+            }
+        };
+
+        reservationTask.setOnSucceeded(event -> {
+            if (quantiteAuPanier(selected.id) + quantite != quantiteTotale) {
+                // Panier modifie pendant la reservation : reprendre sur son contenu actuel
+                ajouterAuPanier(selected, quantite);
+                return;
+            }
+            ajouterLigne(selected, quantite);
+        });
+
+        reservationTask.setOnFailed(event -> {
+            Throwable ex = reservationTask.getException();
+            if (!(ex instanceof ServiceException se) || se.getErrorType() != ErrorType.STOCK_INSUFFISANT) {
+                logger.error("Erreur lors de la reservation du stock", ex);
+            }
+            showWarning("Stock insuffisant", ex.getMessage());
+        });
+
+        runAsync(reservationTask);
+    }
+
+    /**
+     * Ajoute au panier une quantite deja reservee.
+     *
+     * @param selected le medicament (et le lot scanne)
+     * @param quantite la quantite a ajouter
+     */
+    private void ajouterLigne(MedicamentStock selected, int quantite) {
+        // Verifier si le medicament (et le meme lot scanne) est deja dans le panier
         for (LignePanier ligne : panierData) {
-            if (ligne.idMedicament == selected.id) {
-                int newQte = ligne.quantite + quantite;
-                if (newQte > selected.stock) {
-                    showWarning("Stock insuffisant",
-                            "Vous avez deja " + ligne.quantite + " dans le panier. Stock disponible: " + selected.stock);
-                    return;
-                }
-                ligne.quantite = newQte;
+            if (ligne.idMedicament == selected.id && Objects.equals(ligne.idLot, selected.idLot)) {
+                ligne.quantite += quantite;
                 tablePanier.refresh();
                 updateTotals();
                 return;
@@ -280,7 +422,8 @@ public class VenteController extends BaseController {
         }
 
         // Ajouter nouvelle ligne
-        panierData.add(new LignePanier(selected.id, selected.nom, quantite, selected.prix));
+        String nom = selected.numeroLot != null ? selected.nom + " (lot " + selected.numeroLot + ")" : selected.nom;
+        panierData.add(new LignePanier(selected.id, nom, quantite, Montant.enCentimes(selected.prix), selected.idLot));
         updateTotals();
     }
 
@@ -291,9 +434,63 @@ public class VenteController extends BaseController {
         showConfirmation("Vider le panier", "Voulez-vous vraiment vider le panier ?", () -> {
             panierData.clear();
             updateTotals();
+            libererReservations();
         });
     }
 
+    /**
+     * Ramene la reservation d'un medicament a sa quantite restante au panier (0 la supprime).
+     *
+     * @param idMedicament l'ID du medicament retire du panier
+     */
+    private void ajusterReservation(int idMedicament) {
+        String reference = referencePanier;
+        int quantiteTotale = quantiteAuPanier(idMedicament);
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                reservationStock.reserver(reference, idMedicament, quantiteTotale);
+                return null;
+            }
+        };
+        // Une reduction ne peut pas manquer de stock ; a defaut, la reservation expirera
+        task.setOnFailed(event -> logger.warn("Reservation non ajustee pour le medicament {}",
+                idMedicament, task.getException()));
+        runAsync(task);
+    }
+
+    /**
+     * Retourne la quantite d'un medicament au panier, toutes lignes (lots) confondues.
+     *
+     * @param idMedicament l'ID du medicament
+     * @return la quantite au panier
+     */
+    private int quantiteAuPanier(int idMedicament) {
+        int quantite = 0;
+        for (LignePanier ligne : panierData) {
+            if (ligne.idMedicament == idMedicament) {
+                quantite += ligne.quantite;
+            }
+        }
+        return quantite;
+    }
+
+    /**
+     * Libere les reservations du panier vide.
+     */
+    private void libererReservations() {
+        String reference = referencePanier;
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                reservationStock.libererPanier(reference);
+                return null;
+            }
+        };
+        task.setOnFailed(event -> logger.warn("Reservations du panier non liberees", task.getException()));
+        runAsync(task);
+    }
+
     @FXML
     private void handleValidateSale() {
         if (panierData.isEmpty()) {
@@ -304,25 +501,50 @@ public class VenteController extends BaseController {
         // Preparer les lignes de vente
         List<LigneVenteDTO> lignes = new ArrayList<>();
         for (LignePanier ligne : panierData) {
-            lignes.add(new LigneVenteDTO(ligne.idMedicament, ligne.quantite));
+            LigneVenteDTO dto = new LigneVenteDTO(ligne.idMedicament, ligne.quantite);
+            dto.setIdLot(ligne.idLot);
+            lignes.add(dto);
         }
 
+        BigDecimal montantPanier = Montant.enBigDecimal(getTotalPanier());
+        String reference = referencePanier;
+
         // Desactiver le bouton pendant le traitement
         btnValider.setDisable(true);
 
         Task<Vente> venteTask = new Task<>() {
             @Override
             protected Vente call() throws Exception {
-                return venteService.creerVente(
+                return venteService.creerVenteJournalisee(
                         lignes,
                         currentUser != null ? currentUser.getIdUtilisateur() : 1,
-                        chkOrdonnance.isSelected()
+                        chkOrdonnance.isSelected(),
+                        montantPanier,
+                        reference
                 );
             }
         };
 
         venteTask.setOnSucceeded(event -> {
             Vente vente = venteTask.getValue();
+            // Reservations consommees par la vente (ou a son rejeu) : nouveau panier
+            referencePanier = UUID.randomUUID().toString();
+
+            // Base lente ou indisponible : vente conservee dans le journal local
+            if (vente.getIdVente() == null) {
+                logger.warn("Vente provisoire enregistree localement: {}", vente.getNotes());
+                panierData.clear();
+                updateTotals();
+                btnValider.setDisable(false);
+                showWarning("Vente enregistree localement",
+                        "La base de donnees ne repond pas : la vente est conservee sur ce poste\n" +
+                        "et sera enregistree automatiquement des son retour.\n\n" +
+                        "Reference provisoire: " + vente.getNotes() + "\n" +
+                        "Montant total: " + PRICE_FORMAT.format(vente.getMontantTotal()) + " EUR\n\n" +
+                        "Le ticket pourra etre imprime depuis l'historique.");
+                return;
+            }
+
             logger.info("Vente creee avec succes: ID={}, Montant={}",
                     vente.getIdVente(), vente.getMontantTotal());
 
@@ -364,69 +586,88 @@ public class VenteController extends BaseController {
 
     private void updateTotals() {
         int nbArticles = panierData.stream().mapToInt(l -> l.quantite).sum();
-        BigDecimal total = panierData.stream()
-                .map(LignePanier::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         lblNbArticles.setText(String.valueOf(nbArticles));
-        lblTotal.setText(PRICE_FORMAT.format(total) + " EUR");
+        lblTotal.setText(PRICE_FORMAT.format(Montant.enBigDecimal(getTotalPanier())) + " EUR");
 
         btnValider.setDisable(panierData.isEmpty());
         btnViderPanier.setDisable(panierData.isEmpty());
     }
 
+    /**
+     * Calcule le total du panier en centimes.
+     *
+     * @return le total en centimes
+     */
+    private long getTotalPanier() {
+        long total = 0;
+        for (LignePanier ligne : panierData) {
+            total = Montant.ajouter(total, ligne.getTotal());
+        }
+        return total;
+    }
+
     /**
      * Imprime le ticket de caisse pour une vente.
      *
      * @param vente la vente a imprimer
      */
     private void imprimerTicket(Vente vente) {
-        Task<String> printTask = new Task<>() {
-            @Override
-            protected String call() throws Exception {
-                String nomVendeur = currentUser != null
-                        ? currentUser.getNomComplet()
-                        : "Vendeur";
-                return rapportService.genererTicketCaisse(vente, nomVendeur);
+        String nomVendeur = currentUser != null
+                ? currentUser.getNomComplet()
+                : "Vendeur";
+
+        // Rendu par la file d'impression : la caisse reste disponible pour le client suivant
+        CompletableFuture<String> ticket;
+        try {
+            ticket = FileImpressionTickets.getInstance().soumettre(vente, nomVendeur);
+        } catch (ServiceException e) {
+            showError("Erreur", e.getMessage());
+            return;
+        }
+
+        ticket.whenComplete((filePath, ex) -> Platform.runLater(() -> {
+            if (ex != null) {
+                logger.error("Erreur lors de la generation du ticket", ex);
+                showError("Erreur",
+                        "Impossible de generer le ticket de caisse.");
+            } else {
+                ouvrirTicket(filePath);
             }
-        };
+        }));
+    }
 
-        printTask.setOnSucceeded(event -> {
-            String filePath = printTask.getValue();
-            logger.info("Ticket genere: {}", filePath);
-
-            // Ouvrir le PDF avec l'application par defaut
-            try {
-                File pdfFile = new File(filePath);
-                if (pdfFile.exists()) {
-                    String os = System.getProperty("os.name").toLowerCase();
-                    ProcessBuilder pb;
-                    if (os.contains("win")) {
-                        pb = new ProcessBuilder("cmd", "/c", "start", "", filePath);
-                    } else if (os.contains("mac")) {
-                        pb = new ProcessBuilder("open", filePath);
-                    } else {
-                        pb = new ProcessBuilder("xdg-open", filePath);
-                    }
-                    pb.start();
+    /**
+     * Ouvre un ticket genere avec l'application PDF par defaut.
+     *
+     * @param filePath le chemin du ticket
+     */
+    private void ouvrirTicket(String filePath) {
+        logger.info("Ticket genere: {}", filePath);
+
+        // Ouvrir le PDF avec l'application par defaut
+        try {
+            File pdfFile = new File(filePath);
+            if (pdfFile.exists()) {
+                String os = System.getProperty("os.name").toLowerCase();
+                ProcessBuilder pb;
+                if (os.contains("win")) {
+                    pb = new ProcessBuilder("cmd", "/c", "start", "", filePath);
+                } else if (os.contains("mac")) {
+                    pb = new ProcessBuilder("open", filePath);
+                } else {
+                    pb = new ProcessBuilder("xdg-open", filePath);
                 }
-                showSuccess("Ticket genere",
-                        "Le ticket a ete genere:\n" + filePath);
-            } catch (Throwable e) {
-                logger.warn("Impossible d'ouvrir le PDF automatiquement", e);
-                showSuccess("Ticket genere",
-                        "Le ticket a ete genere:\n" + filePath + "\n\n" +
-                                "(Ouverture automatique non disponible)");
+                pb.start();
             }
-        });
-
-        printTask.setOnFailed(event -> {
-            logger.error("Erreur lors de la generation du ticket", printTask.getException());
-            showError("Erreur",
-                    "Impossible de generer le ticket de caisse.");
-        });
-
-        runAsync(printTask);
+            showSuccess("Ticket genere",
+                    "Le ticket a ete genere:\n" + filePath);
+        } catch (Throwable e) {
+            logger.warn("Impossible d'ouvrir le PDF automatiquement", e);
+            showSuccess("Ticket genere",
+                    "Le ticket a ete genere:\n" + filePath + "\n\n" +
+                            "(Ouverture automatique non disponible)");
+        }
     }
 
     /**
@@ -438,13 +679,22 @@ public class VenteController extends BaseController {
         public final String principeActif;
         public final BigDecimal prix;
         public final int stock;
+        /** Lot de la boite scannee, null hors lecture DataMatrix */
+        public final Integer idLot;
+        public final String numeroLot;
 
         public MedicamentStock(Medicament med, int stock) {
+            this(med, stock, null);
+        }
+
+        public MedicamentStock(Medicament med, int stock, Lot lot) {
             this.id = med.getIdMedicament();
             this.nom = med.getNomCommercial();
             this.principeActif = med.getPrincipeActif();
             this.prix = med.getPrixPublic();
             this.stock = stock;
+            this.idLot = lot != null ? lot.getIdLot() : null;
+            this.numeroLot = lot != null ? lot.getNumeroLot() : null;
         }
     }
 
@@ -455,17 +705,22 @@ public class VenteController extends BaseController {
         public final int idMedicament;
         public final String nom;
         public int quantite;
-        public final BigDecimal prixUnitaire;
+        /** Prix unitaire en centimes */
+        public final long prixUnitaire;
+        /** Lot de la boite scannee, preleve en priorite a la vente ; null pour FEFO */
+        public final Integer idLot;
 
-        public LignePanier(int idMedicament, String nom, int quantite, BigDecimal prixUnitaire) {
+        public LignePanier(int idMedicament, String nom, int quantite, long prixUnitaire, Integer idLot) {
             this.idMedicament = idMedicament;
             this.nom = nom;
             this.quantite = quantite;
             this.prixUnitaire = prixUnitaire;
+            this.idLot = idLot;
         }
 
-        public BigDecimal getTotal() {
-            return prixUnitaire.multiply(BigDecimal.valueOf(quantite));
+        /** @return le total de la ligne en centimes */
+        public long getTotal() {
+            return Montant.multiplier(prixUnitaire, quantite);
         }
     }
 }
@@ -0,0 +1,32 @@
+package com.sgpa.dao;
+
+import com.sgpa.dto.ClasseMedicament;
+import com.sgpa.exception.DAOException;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Interface DAO pour la classification ABC/XYZ des medicaments.
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public interface ClassificationDAO {
+
+    /**
+     * Retourne les classes enregistrees de tous les medicaments.
+     *
+     * @return les classes par ID de medicament
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    Map<Integer, ClasseMedicament> findAll() throws DAOException;
+
+    /**
+     * Enregistre les classes de plusieurs medicaments, dans une transaction.
+     *
+     * @param classes les classes a inserer ou remplacer
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    void enregistrer(Collection<ClasseMedicament> classes) throws DAOException;
+}
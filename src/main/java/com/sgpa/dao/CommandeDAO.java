@@ -5,7 +5,9 @@ import com.sgpa.model.Commande;
 import com.sgpa.model.LigneCommande;
 import com.sgpa.model.enums.StatutCommande;
 
+import java.sql.Connection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface DAO pour les operations sur les commandes fournisseurs.
@@ -15,6 +17,20 @@ import java.util.List;
  */
 public interface CommandeDAO extends GenericDAO<Commande, Integer> {
 
+    /**
+     * Sauvegarde une commande en utilisant une connexion fournie par l'appelant.
+     * <p>
+     * La connexion n'est pas fermee : elle permet d'inclure l'insertion
+     * dans une transaction geree par le service.
+     * </p>
+     *
+     * @param conn     la connexion de la transaction en cours
+     * @param commande la commande a sauvegarder
+     * @return la commande sauvegardee avec son ID
+     * @throws DAOException si une erreur survient
+     */
+    Commande save(Connection conn, Commande commande) throws DAOException;
+
     /**
      * Sauvegarde une ligne de commande.
      *
@@ -24,6 +40,19 @@ public interface CommandeDAO extends GenericDAO<Commande, Integer> {
      */
     LigneCommande saveLigneCommande(LigneCommande ligneCommande) throws DAOException;
 
+    /**
+     * Sauvegarde plusieurs lignes de commande en un seul lot JDBC.
+     * <p>
+     * Les lignes, eventuellement de plusieurs commandes, sont inserees sur la
+     * connexion fournie (sans la fermer) et recoivent leur ID genere.
+     * </p>
+     *
+     * @param conn   la connexion de la transaction en cours
+     * @param lignes les lignes de commande a sauvegarder
+     * @throws DAOException si une erreur survient
+     */
+    void saveLignesCommande(Connection conn, List<LigneCommande> lignes) throws DAOException;
+
     /**
      * Recupere les lignes d'une commande.
      *
@@ -59,4 +88,12 @@ public interface CommandeDAO extends GenericDAO<Commande, Integer> {
      * @throws DAOException si une erreur survient
      */
     List<Commande> findByMedicament(int idMedicament) throws DAOException;
+
+    /**
+     * Calcule les quantites commandees et pas encore recues, par medicament.
+     *
+     * @return la quantite en attente par ID de medicament (commandes EN_ATTENTE)
+     * @throws DAOException si une erreur survient
+     */
+    Map<Integer, Integer> getQuantitesEnCommande() throws DAOException;
 }
@@ -1,7 +1,9 @@
 package com.sgpa.dao;
 
+import com.sgpa.dto.HistoriqueConsommations;
 import com.sgpa.exception.DAOException;
 
+import java.sql.Connection;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +15,12 @@ import java.util.Map;
  * et calculer les statistiques de consommation pour les predictions
  * de reapprovisionnement.
  * </p>
+ * <p>
+ * Les consommations sont lues dans la table agregee {@code consommation_journaliere}
+ * (quantite nette vendue par medicament et par jour), tenue a jour par les ventes,
+ * retours et annulations : le cout d'une requete depend de la periode analysee, pas
+ * de la taille de l'historique des ventes.
+ * </p>
  *
  * @author SGPA Team
  * @version 1.0
@@ -40,6 +48,24 @@ public interface ConsommationDAO {
      */
     Map<LocalDate, Integer> getHistoriqueConsommation(int idMedicament, int nbJours) throws DAOException;
 
+    /**
+     * Retourne l'historique journalier de tous les medicaments, en une requete.
+     *
+     * @param nbJours le nombre de jours complets avant aujourd'hui
+     * @return les series de consommation par medicament
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    HistoriqueConsommations getHistoriqueConsommations(int nbJours) throws DAOException;
+
+    /**
+     * Retourne la consommation d'un jour pour tous les medicaments.
+     *
+     * @param jour le jour
+     * @return les quantites par ID de medicament (medicaments vendus ce jour seulement)
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    Map<Integer, Integer> getConsommationsDuJour(LocalDate jour) throws DAOException;
+
     /**
      * Calcule la consommation moyenne journaliere sur les N derniers jours.
      *
@@ -59,6 +85,47 @@ public interface ConsommationDAO {
      */
     List<StatConsommation> getStatistiquesConsommation(int nbJours) throws DAOException;
 
+    /**
+     * Ajoute des quantites a la consommation d'un jour, dans la transaction de l'appelant.
+     * <p>
+     * Les quantites negatives retirent de la consommation (retour, annulation).
+     * Les medicaments sont traites par ID croissant pour que deux transactions
+     * concurrentes verrouillent les lignes dans le meme ordre.
+     * </p>
+     *
+     * @param conn                   la connexion (non fermee par cette methode)
+     * @param jour                   le jour de la vente
+     * @param quantitesParMedicament les quantites par ID de medicament
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    void ajouterConsommations(Connection conn, LocalDate jour, Map<Integer, Integer> quantitesParMedicament)
+            throws DAOException;
+
+    /**
+     * Reconstruit entierement la table de consommation journaliere depuis l'historique
+     * des ventes et des retours (initialisation ou reparation).
+     *
+     * @return le nombre de lignes (medicament, jour) produites
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    int reconstruireConsommationJournaliere() throws DAOException;
+
+    /**
+     * Retourne une empreinte des donnees dont dependent les statistiques de consommation.
+     * <p>
+     * L'empreinte change des qu'une vente, un retour, un lot ou une regularisation
+     * d'inventaire est cree (depuis n'importe quel poste), que le catalogue est modifie
+     * ou que la date change. Elle ne lit que des cles primaires et le catalogue : les
+     * modifications de lots existants faites sur ce poste sont signalees par ailleurs
+     * (evenements du {@link com.sgpa.service.FefoEngine}). Elle permet de garder en cache
+     * les resultats de {@link #getStatistiquesConsommation(int)}.
+     * </p>
+     *
+     * @return l'empreinte des donnees
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    String getVersionDonnees() throws DAOException;
+
     /**
      * Retourne le stock total (tous les lots) d'un medicament.
      *
@@ -0,0 +1,89 @@
+package com.sgpa.dao;
+
+import com.sgpa.dto.DelaiLivraison;
+import com.sgpa.exception.DAOException;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Interface DAO pour les delais de livraison observes des fournisseurs.
+ * <p>
+ * Les tables {@code delais_livraison} (par fournisseur) et
+ * {@code delais_livraison_medicament} (par fournisseur et medicament) gardent des
+ * sommes ponderees mises a jour a chaque reception : une reception coute une
+ * ecriture par ligne, sans relire l'historique des commandes.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public interface DelaiLivraisonDAO {
+
+    /**
+     * Facteur d'oubli applique aux observations precedentes a chaque reception
+     * (memoire effective d'environ dix receptions).
+     */
+    double FACTEUR_OUBLI = 0.9;
+
+    /**
+     * Poids minimal des observations d'un medicament pour preferer son delai propre
+     * a celui de son fournisseur.
+     */
+    double POIDS_MINIMAL_MEDICAMENT = 3.0;
+
+    /**
+     * Regle de choix du fournisseur habituel d'un medicament, commune aux delais de
+     * livraison et aux sources d'approvisionnement : le plus fort poids amorti des
+     * receptions du medicament, puis le plus petit ID de fournisseur.
+     *
+     * @param poids               le poids amorti des receptions du candidat
+     * @param idFournisseur       l'ID du fournisseur candidat
+     * @param poidsRetenu         le poids amorti du fournisseur retenu jusqu'ici
+     * @param idFournisseurRetenu l'ID du fournisseur retenu jusqu'ici
+     * @return true si le candidat doit remplacer le fournisseur retenu
+     */
+    static boolean estPrefere(double poids, int idFournisseur, double poidsRetenu, int idFournisseurRetenu) {
+        return poids > poidsRetenu || (poids == poidsRetenu && idFournisseur < idFournisseurRetenu);
+    }
+
+    /**
+     * Enregistre le delai observe d'une commande recue, dans une transaction.
+     *
+     * @param idFournisseur  l'ID du fournisseur
+     * @param idsMedicaments les medicaments recus
+     * @param jours          le delai entre creation et reception, en jours
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    void enregistrerReception(int idFournisseur, Collection<Integer> idsMedicaments, double jours)
+            throws DAOException;
+
+    /**
+     * Retourne le delai de livraison a retenir pour chaque medicament deja recu.
+     * <p>
+     * Le fournisseur retenu est le fournisseur actif choisi par {@link #estPrefere}. Son
+     * delai propre au medicament est utilise quand il repose sur assez d'observations
+     * ({@link #POIDS_MINIMAL_MEDICAMENT}), sinon le delai global du fournisseur.
+     * </p>
+     *
+     * @return le delai par ID de medicament (medicaments jamais recus absents)
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    Map<Integer, DelaiLivraison> getDelaisParMedicament() throws DAOException;
+
+    /**
+     * Retourne le delai de livraison global de chaque fournisseur.
+     *
+     * @return le delai par ID de fournisseur
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    Map<Integer, DelaiLivraison> getDelaisParFournisseur() throws DAOException;
+
+    /**
+     * Recalcule entierement les delais depuis les commandes recues, dans une transaction.
+     *
+     * @return le nombre de commandes prises en compte
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    int reconstruireDelais() throws DAOException;
+}
@@ -1,9 +1,11 @@
 package com.sgpa.dao;
 
+import com.sgpa.dto.SourceApprovisionnement;
 import com.sgpa.exception.DAOException;
 import com.sgpa.model.Fournisseur;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface DAO pour les operations sur les fournisseurs.
@@ -51,4 +53,28 @@ public interface FournisseurDAO extends GenericDAO<Fournisseur, Integer> {
      * @throws DAOException si une erreur d'acces aux donnees survient
      */
     void setActif(int idFournisseur, boolean actif) throws DAOException;
+
+    /**
+     * Determine le fournisseur habituel de chaque medicament a partir des lots recus.
+     * <p>
+     * Une requete groupee : lots par medicament et fournisseur actif, avec le poids
+     * amorti des receptions et le colisage configure. Le fournisseur retenu suit la
+     * regle des delais de livraison ({@link DelaiLivraisonDAO#estPrefere}) ; sans
+     * reception enregistree, celui qui a livre le plus de lots.
+     * </p>
+     *
+     * @return le fournisseur habituel par ID de medicament (medicaments sans lot fournisseur absents)
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    Map<Integer, SourceApprovisionnement> getSourcesApprovisionnement() throws DAOException;
+
+    /**
+     * Configure le colisage d'un medicament chez un fournisseur.
+     *
+     * @param idFournisseur l'ID du fournisseur
+     * @param idMedicament  l'ID du medicament
+     * @param colisage      le colisage, ou 0 pour revenir au colisage par defaut
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    void setColisage(int idFournisseur, int idMedicament, int colisage) throws DAOException;
 }
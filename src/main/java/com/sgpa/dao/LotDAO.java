@@ -1,10 +1,17 @@
 package com.sgpa.dao;
 
+import com.sgpa.dto.LotsPeremption;
+import com.sgpa.dto.StocksMedicaments;
 import com.sgpa.exception.DAOException;
 import com.sgpa.model.Lot;
+import com.sgpa.model.Medicament;
 
+import java.math.BigDecimal;
+import java.sql.Connection;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface DAO pour les operations sur les lots.
@@ -57,6 +64,23 @@ public interface LotDAO extends GenericDAO<Lot, Integer> {
      */
     List<Lot> findExpired() throws DAOException;
 
+    /**
+     * Recherche tous les lots en stock, perimes compris.
+     *
+     * @return les lots dont la quantite est positive, par peremption croissante
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    List<Lot> findEnStock() throws DAOException;
+
+    /**
+     * Recherche en une requete les lots en stock (perimes compris) de plusieurs medicaments.
+     *
+     * @param medicamentIds les identifiants des medicaments
+     * @return les lots dont la quantite est positive, par medicament puis peremption croissante
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    List<Lot> findEnStockByMedicaments(Collection<Integer> medicamentIds) throws DAOException;
+
     /**
      * Calcule le stock total pour un medicament (somme des quantites de tous les lots).
      *
@@ -66,6 +90,31 @@ public interface LotDAO extends GenericDAO<Lot, Integer> {
      */
     int getTotalStockByMedicament(int medicamentId) throws DAOException;
 
+    /**
+     * Calcule en une seule requete le stock total et le stock vendable de tous les medicaments.
+     *
+     * @return l'instantane des stocks, indexe par ID de medicament
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    StocksMedicaments getStocksParMedicament() throws DAOException;
+
+    /**
+     * Retourne en une seule requete les lots vendables de tous les medicaments, par
+     * date de peremption croissante.
+     *
+     * @return l'instantane des lots vendables, indexe par ID de medicament
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    LotsPeremption getLotsVendablesParPeremption() throws DAOException;
+
+    /**
+     * Calcule la valeur d'achat du stock vendable (lots non perimes des medicaments actifs).
+     *
+     * @return la somme prix d'achat x quantite
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    BigDecimal getValeurStockVendable() throws DAOException;
+
     /**
      * Recherche les lots avec un stock bas (medicaments en dessous du seuil).
      * <p>
@@ -96,6 +145,16 @@ public interface LotDAO extends GenericDAO<Lot, Integer> {
      */
     Lot findByNumeroLot(String numeroLot) throws DAOException;
 
+    /**
+     * Recherche le lot d'un medicament par son numero de lot fabricant (lecture DataMatrix).
+     *
+     * @param medicamentId l'identifiant du medicament
+     * @param numeroLot    le numero de lot
+     * @return le lot ou null si non trouve
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    Lot findByMedicamentAndNumeroLot(int medicamentId, String numeroLot) throws DAOException;
+
     /**
      * Recherche les lots vendables d'un medicament (stock > 0 et non perimes).
      *
@@ -105,6 +164,36 @@ public interface LotDAO extends GenericDAO<Lot, Integer> {
      */
     List<Lot> findVendableByMedicament(int medicamentId) throws DAOException;
 
+    /**
+     * Recherche les lots vendables d'un medicament sur une connexion fournie.
+     * <p>
+     * La connexion n'est pas fermee, ce qui permet la lecture dans la
+     * transaction de vente en cours.
+     * </p>
+     *
+     * @param conn         la connexion de la transaction en cours
+     * @param medicamentId l'identifiant du medicament
+     * @return la liste des lots vendables tries par FEFO
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    List<Lot> findVendableByMedicament(Connection conn, int medicamentId) throws DAOException;
+
+    /**
+     * Charge en une seule requete plusieurs medicaments et leurs lots vendables.
+     * <p>
+     * Utilise pour preparer une vente : un seul aller-retour {@code IN (...)} remplace
+     * les recherches medicament et lots ligne par ligne. Les medicaments sans lot
+     * vendable sont retournes avec une liste vide ; les IDs inconnus sont absents.
+     * </p>
+     *
+     * @param conn          la connexion de la transaction en cours
+     * @param medicamentIds les identifiants des medicaments
+     * @return les lots vendables tries par FEFO, par medicament
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    Map<Medicament, List<Lot>> findVendableByMedicaments(Connection conn, Collection<Integer> medicamentIds)
+            throws DAOException;
+
     /**
      * Met a jour la quantite en stock d'un lot.
      *
@@ -114,6 +203,49 @@ public interface LotDAO extends GenericDAO<Lot, Integer> {
      */
     void updateQuantite(int idLot, int nouvelleQuantite) throws DAOException;
 
+    /**
+     * Met a jour la quantite en stock d'un lot sur une connexion fournie.
+     * <p>
+     * La connexion n'est pas fermee, ce qui permet d'inclure la mise a jour
+     * dans une transaction geree par le service.
+     * </p>
+     *
+     * @param conn             la connexion de la transaction en cours
+     * @param idLot            l'identifiant du lot
+     * @param nouvelleQuantite la nouvelle quantite
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    void updateQuantite(Connection conn, int idLot, int nouvelleQuantite) throws DAOException;
+
+    /**
+     * Met a jour en un seul lot JDBC la quantite en stock de plusieurs lots.
+     * <p>
+     * Les quantites sont absolues (inventaire, corrections). La connexion n'est pas
+     * fermee ; toutes les mises a jour partent en un aller-retour.
+     * </p>
+     *
+     * @param conn      la connexion de la transaction en cours
+     * @param quantites la nouvelle quantite, par ID de lot
+     * @throws DAOException si un lot n'existe pas ou si une erreur d'acces aux donnees survient
+     */
+    void updateQuantites(Connection conn, Map<Integer, Integer> quantites) throws DAOException;
+
+    /**
+     * Decremente en un seul lot JDBC la quantite de plusieurs lots, sous condition de stock.
+     * <p>
+     * Chaque decrement est relatif ({@code quantite_stock = quantite_stock - ?}) et n'est
+     * applique que si le lot contient encore au moins la quantite demandee. Deux postes
+     * vendant le meme lot ne peuvent donc jamais le rendre negatif, sans verrouillage
+     * prealable. Les lots qui n'ont pas pu etre decrementes sont retournes a l'appelant.
+     * </p>
+     *
+     * @param conn      la connexion de la transaction en cours
+     * @param quantites la quantite a deduire, par ID de lot
+     * @return les IDs des lots dont le stock etait insuffisant (liste vide si tout a ete deduit)
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    List<Integer> decrementerQuantites(Connection conn, Map<Integer, Integer> quantites) throws DAOException;
+
     /**
      * Recherche les lots recus entre deux dates.
      *
@@ -72,6 +72,15 @@ public interface MedicamentDAO extends GenericDAO<Medicament, Integer> {
      */
     Medicament findByNomCommercialExact(String nomCommercial) throws DAOException;
 
+    /**
+     * Recherche un medicament par son code CIP13 (code-barres de la boite).
+     *
+     * @param codeCip13 le code CIP13 / EAN-13
+     * @return le medicament ou null si non trouve
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    Medicament findByCodeCip13(long codeCip13) throws DAOException;
+
     /**
      * Calcule le stock total d'un medicament (somme des quantites de tous les lots).
      *
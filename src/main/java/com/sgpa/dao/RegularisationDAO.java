@@ -4,6 +4,7 @@ import com.sgpa.exception.DAOException;
 import com.sgpa.model.Regularisation;
 import com.sgpa.model.enums.MotifEcart;
 
+import java.sql.Connection;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -15,6 +16,19 @@ import java.util.List;
  */
 public interface RegularisationDAO extends GenericDAO<Regularisation, Integer> {
 
+    /**
+     * Sauvegarde plusieurs regularisations en un seul lot JDBC.
+     * <p>
+     * Les regularisations sont inserees sur la connexion fournie (sans la fermer),
+     * dans la transaction qui met a jour le stock des lots, et recoivent leur ID genere.
+     * </p>
+     *
+     * @param conn            la connexion de la transaction en cours
+     * @param regularisations les regularisations a sauvegarder
+     * @throws DAOException si une erreur survient
+     */
+    void saveAll(Connection conn, List<Regularisation> regularisations) throws DAOException;
+
     /**
      * Recherche les regularisations d'une session.
      *
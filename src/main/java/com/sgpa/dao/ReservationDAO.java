@@ -0,0 +1,61 @@
+package com.sgpa.dao;
+
+import com.sgpa.exception.DAOException;
+
+import java.sql.Connection;
+
+/**
+ * Interface DAO pour les reservations de stock des paniers de caisse.
+ * <p>
+ * La table {@code reservations_stock} garde, par panier et par medicament, la
+ * quantite retenue et sa date d'expiration (horloge de la base). Elle est partagee
+ * par tous les postes : un panier ne peut retenir que le stock vendable non retenu
+ * par les autres paniers encore actifs. Une reservation expiree est ignoree, puis
+ * supprimee par {@link #purgerExpirees()}.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public interface ReservationDAO {
+
+    /**
+     * Fixe la quantite retenue par un panier pour un medicament, si le stock le permet,
+     * et prolonge toutes les reservations du panier. Les reservations d'un meme
+     * medicament sont serialisees par un verrou sur sa ligne de catalogue.
+     *
+     * @param referencePanier la reference du panier
+     * @param idMedicament    l'ID du medicament
+     * @param quantite        la quantite totale du medicament au panier, 0 pour liberer
+     * @param dureeSecondes   la duree de vie des reservations du panier
+     * @return le stock disponible pour ce panier (stock vendable moins les reservations
+     *         des autres paniers) ; la reservation n'est faite que s'il couvre la quantite
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    int reserver(String referencePanier, int idMedicament, int quantite, int dureeSecondes) throws DAOException;
+
+    /**
+     * Supprime toutes les reservations d'un panier abandonne ou vide.
+     *
+     * @param referencePanier la reference du panier
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    void liberer(String referencePanier) throws DAOException;
+
+    /**
+     * Supprime les reservations d'un panier dans la transaction de sa vente.
+     *
+     * @param conn            la connexion de la transaction
+     * @param referencePanier la reference du panier
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    void consommer(Connection conn, String referencePanier) throws DAOException;
+
+    /**
+     * Supprime les reservations expirees.
+     *
+     * @return le nombre de reservations supprimees
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    int purgerExpirees() throws DAOException;
+}
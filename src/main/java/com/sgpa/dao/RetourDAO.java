@@ -3,6 +3,7 @@ package com.sgpa.dao;
 import com.sgpa.exception.DAOException;
 import com.sgpa.model.Retour;
 
+import java.sql.Connection;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -14,6 +15,20 @@ import java.util.List;
  */
 public interface RetourDAO extends GenericDAO<Retour, Integer> {
 
+    /**
+     * Sauvegarde un retour en utilisant une connexion fournie par l'appelant.
+     * <p>
+     * La connexion n'est pas fermee : elle permet d'inclure l'insertion
+     * dans une transaction geree par le service.
+     * </p>
+     *
+     * @param conn   la connexion de la transaction en cours
+     * @param retour le retour a sauvegarder
+     * @return le retour sauvegarde avec son ID
+     * @throws DAOException si une erreur survient
+     */
+    Retour save(Connection conn, Retour retour) throws DAOException;
+
     /**
      * Recherche les retours pour une vente donnee.
      *
@@ -4,8 +4,10 @@ import com.sgpa.exception.DAOException;
 import com.sgpa.model.LigneVente;
 import com.sgpa.model.Vente;
 
+import java.sql.Connection;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Interface DAO pour les operations sur les ventes.
@@ -15,6 +17,36 @@ import java.util.List;
  */
 public interface VenteDAO extends GenericDAO<Vente, Integer> {
 
+    /**
+     * Sauvegarde une vente en utilisant une connexion fournie par l'appelant.
+     * <p>
+     * La connexion n'est pas fermee : elle permet d'inclure l'insertion
+     * dans une transaction geree par le service.
+     * </p>
+     *
+     * @param conn  la connexion de la transaction en cours
+     * @param vente la vente a sauvegarder
+     * @return la vente sauvegardee avec son ID
+     * @throws DAOException si une erreur survient, avec le code {@link DAOException#CODE_DOUBLON}
+     *                      si une vente porte deja la meme reference de journal
+     */
+    Vente save(Connection conn, Vente vente) throws DAOException;
+
+    /**
+     * Recherche une vente par la reference de son entree dans le journal local,
+     * sur une connexion fournie par l'appelant.
+     * <p>
+     * Utilise par le journal local des ventes pour ne pas rejouer deux fois
+     * une vente deja enregistree (colonne indexee et unique).
+     * </p>
+     *
+     * @param conn      la connexion de la transaction en cours
+     * @param reference la reference de l'entree du journal
+     * @return la vente trouvee ou Optional.empty()
+     * @throws DAOException si une erreur survient
+     */
+    Optional<Vente> findByReferenceJournal(Connection conn, String reference) throws DAOException;
+
     /**
      * Sauvegarde une ligne de vente.
      *
@@ -24,6 +56,19 @@ public interface VenteDAO extends GenericDAO<Vente, Integer> {
      */
     LigneVente saveLigneVente(LigneVente ligneVente) throws DAOException;
 
+    /**
+     * Sauvegarde plusieurs lignes de vente en un seul lot JDBC.
+     * <p>
+     * Les lignes sont inserees sur la connexion fournie (sans la fermer)
+     * et recoivent leur ID genere.
+     * </p>
+     *
+     * @param conn   la connexion de la transaction en cours
+     * @param lignes les lignes de vente a sauvegarder
+     * @throws DAOException si une erreur survient
+     */
+    void saveLignesVente(Connection conn, List<LigneVente> lignes) throws DAOException;
+
     /**
      * Recupere les lignes d'une vente.
      *
@@ -0,0 +1,83 @@
+package com.sgpa.dao.impl;
+
+import com.sgpa.dao.ClassificationDAO;
+import com.sgpa.dto.ClasseMedicament;
+import com.sgpa.exception.DAOException;
+import com.sgpa.utils.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implementation JDBC de l'interface {@link ClassificationDAO}.
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class ClassificationDAOImpl implements ClassificationDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassificationDAOImpl.class);
+
+    private static final String SQL_FIND_ALL =
+            "SELECT id_medicament, classe_abc, classe_xyz FROM classification_medicaments";
+
+    private static final String SQL_ENREGISTRER =
+            "INSERT INTO classification_medicaments (id_medicament, classe_abc, classe_xyz, date_classement) " +
+            "VALUES (?, ?, ?, NOW()) ON DUPLICATE KEY UPDATE " +
+            "classe_abc = VALUES(classe_abc), classe_xyz = VALUES(classe_xyz), " +
+            "date_classement = VALUES(date_classement)";
+
+    @Override
+    public Map<Integer, ClasseMedicament> findAll() throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_FIND_ALL);
+             ResultSet rs = ps.executeQuery()) {
+
+            Map<Integer, ClasseMedicament> classes = new HashMap<>();
+            while (rs.next()) {
+                int idMedicament = rs.getInt(1);
+                classes.put(idMedicament, new ClasseMedicament(idMedicament, rs.getString(2).charAt(0),
+                        rs.getString(3).charAt(0), 0, Double.NaN));
+            }
+            return classes;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la lecture de la classification des medicaments", e);
+            throw new DAOException("Erreur lors de la lecture de la classification des medicaments", e);
+        }
+    }
+
+    @Override
+    public void enregistrer(Collection<ClasseMedicament> classes) throws DAOException {
+        if (classes.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(SQL_ENREGISTRER)) {
+                for (ClasseMedicament classe : classes) {
+                    ps.setInt(1, classe.getIdMedicament());
+                    ps.setString(2, String.valueOf(classe.getClasseAbc()));
+                    ps.setString(3, String.valueOf(classe.getClasseXyz()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de l'enregistrement de la classification des medicaments", e);
+            throw new DAOException("Erreur lors de l'enregistrement de la classification des medicaments", e);
+        }
+    }
+}
@@ -13,7 +13,9 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -84,6 +86,12 @@ public class CommandeDAOImpl implements CommandeDAO {
             "INNER JOIN ligne_commandes lc ON c.id_commande = lc.id_commande " +
             "WHERE lc.id_medicament = ? ORDER BY c.date_creation DESC";
 
+    private static final String SQL_QUANTITES_EN_COMMANDE =
+            "SELECT lc.id_medicament, SUM(lc.quantite_commandee - lc.quantite_recue) " +
+            "FROM ligne_commandes lc INNER JOIN commandes c ON c.id_commande = lc.id_commande " +
+            "WHERE c.statut = 'EN_ATTENTE' GROUP BY lc.id_medicament " +
+            "HAVING SUM(lc.quantite_commandee - lc.quantite_recue) > 0";
+
     @Override
     public Optional<Commande> findById(Integer id) throws DAOException {
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
@@ -124,8 +132,16 @@ public class CommandeDAOImpl implements CommandeDAO {
 
     @Override
     public Commande save(Commande commande) throws DAOException {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return save(conn, commande);
+        } catch (SQLException e) {
+            throw new DAOException("Erreur lors de la sauvegarde de la commande", e);
+        }
+    }
+
+    @Override
+    public Commande save(Connection conn, Commande commande) throws DAOException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setTimestamp(1, Timestamp.valueOf(commande.getDateCreation()));
 
@@ -257,6 +273,49 @@ public class CommandeDAOImpl implements CommandeDAO {
         }
     }
 
+    @Override
+    public void saveLignesCommande(Connection conn, List<LigneCommande> lignes) throws DAOException {
+        if (lignes.isEmpty()) {
+            return;
+        }
+        logger.debug("Sauvegarde de {} ligne(s) de commande en lot", lignes.size());
+
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_LIGNE, Statement.RETURN_GENERATED_KEYS)) {
+
+            for (LigneCommande ligne : lignes) {
+                ps.setInt(1, ligne.getIdCommande());
+                ps.setInt(2, ligne.getIdMedicament());
+                ps.setInt(3, ligne.getQuantiteCommandee());
+                ps.setInt(4, ligne.getQuantiteRecue());
+                if (ligne.getPrixUnitaire() != null) {
+                    ps.setBigDecimal(5, ligne.getPrixUnitaire());
+                } else {
+                    ps.setNull(5, Types.DECIMAL);
+                }
+                ps.addBatch();
+            }
+
+            int[] results = ps.executeBatch();
+            for (int result : results) {
+                if (result == 0) {
+                    throw new DAOException("La creation d'une ligne de commande a echoue");
+                }
+            }
+
+            // Les cles generees sont renvoyees dans l'ordre d'insertion
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                int i = 0;
+                while (generatedKeys.next() && i < lignes.size()) {
+                    lignes.get(i++).setIdLigneCmd(generatedKeys.getInt(1));
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la sauvegarde des lignes de commande", e);
+            throw new DAOException("Erreur lors de la sauvegarde des lignes de commande", e);
+        }
+    }
+
     @Override
     public List<LigneCommande> findLignesByCommandeId(int idCommande) throws DAOException {
         List<LigneCommande> lignes = new ArrayList<>();
@@ -337,6 +396,24 @@ public class CommandeDAOImpl implements CommandeDAO {
         }
     }
 
+    @Override
+    public Map<Integer, Integer> getQuantitesEnCommande() throws DAOException {
+        Map<Integer, Integer> quantites = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_QUANTITES_EN_COMMANDE);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                quantites.put(rs.getInt(1), rs.getInt(2));
+            }
+            return quantites;
+
+        } catch (SQLException e) {
+            throw new DAOException("Erreur lors du calcul des quantites en commande", e);
+        }
+    }
+
     private Commande mapResultSetToCommande(ResultSet rs) throws SQLException {
         Commande commande = new Commande();
         commande.setIdCommande(rs.getInt("id_commande"));
@@ -1,6 +1,7 @@
 package com.sgpa.dao.impl;
 
 import com.sgpa.dao.ConsommationDAO;
+import com.sgpa.dto.HistoriqueConsommations;
 import com.sgpa.exception.DAOException;
 import com.sgpa.utils.DatabaseConnection;
 import org.slf4j.Logger;
@@ -12,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Implementation JDBC de l'interface {@link ConsommationDAO}.
@@ -29,32 +31,58 @@ public class ConsommationDAOImpl implements ConsommationDAO {
 
     // Consommation totale sur une periode
     private static final String SQL_CONSOMMATION_PERIODE =
-            "SELECT COALESCE(SUM(lv.quantite), 0) AS total " +
-            "FROM ligne_ventes lv " +
-            "JOIN lots l ON lv.id_lot = l.id_lot " +
-            "JOIN ventes v ON lv.id_vente = v.id_vente " +
-            "WHERE l.id_medicament = ? " +
-            "AND DATE(v.date_vente) BETWEEN ? AND ?";
+            "SELECT COALESCE(SUM(quantite), 0) AS total " +
+            "FROM consommation_journaliere " +
+            "WHERE id_medicament = ? AND jour BETWEEN ? AND ?";
 
     // Historique des ventes journalieres
     private static final String SQL_HISTORIQUE_CONSOMMATION =
-            "SELECT DATE(v.date_vente) AS date_vente, SUM(lv.quantite) AS quantite_totale " +
-            "FROM ventes v " +
-            "JOIN ligne_ventes lv ON v.id_vente = lv.id_vente " +
-            "JOIN lots l ON lv.id_lot = l.id_lot " +
-            "WHERE l.id_medicament = ? " +
-            "AND v.date_vente >= DATE_SUB(CURDATE(), INTERVAL ? DAY) " +
-            "GROUP BY DATE(v.date_vente) " +
-            "ORDER BY date_vente";
+            "SELECT jour AS date_vente, quantite AS quantite_totale " +
+            "FROM consommation_journaliere " +
+            "WHERE id_medicament = ? AND jour >= DATE_SUB(CURDATE(), INTERVAL ? DAY) AND quantite > 0 " +
+            "ORDER BY jour";
+
+    // Historique journalier de tous les medicaments (jours complets)
+    private static final String SQL_HISTORIQUE_TOUS =
+            "SELECT id_medicament, DATEDIFF(jour, ?) AS indice, quantite " +
+            "FROM consommation_journaliere " +
+            "WHERE jour >= ? AND jour < ? AND quantite > 0";
+
+    // Consommation d'un jour, tous medicaments
+    private static final String SQL_CONSOMMATIONS_DU_JOUR =
+            "SELECT id_medicament, quantite FROM consommation_journaliere WHERE jour = ?";
 
     // Consommation moyenne journaliere
     private static final String SQL_CONSOMMATION_MOYENNE =
-            "SELECT COALESCE(SUM(lv.quantite), 0) / ? AS conso_moyenne " +
+            "SELECT COALESCE(SUM(quantite), 0) / ? AS conso_moyenne " +
+            "FROM consommation_journaliere " +
+            "WHERE id_medicament = ? AND jour >= DATE_SUB(CURDATE(), INTERVAL ? DAY)";
+
+    // Ajout (ou retrait si negatif) a la consommation d'un medicament pour un jour
+    private static final String SQL_AJOUTER_CONSOMMATION =
+            "INSERT INTO consommation_journaliere (id_medicament, jour, quantite) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantite = quantite + VALUES(quantite)";
+
+    // Reconstruction depuis l'historique : ventes, puis retours imputes au jour de la vente
+    private static final String SQL_VIDER_CONSOMMATION =
+            "DELETE FROM consommation_journaliere";
+
+    private static final String SQL_RECONSTRUIRE_VENTES =
+            "INSERT INTO consommation_journaliere (id_medicament, jour, quantite) " +
+            "SELECT l.id_medicament, DATE(v.date_vente), SUM(lv.quantite) " +
             "FROM ligne_ventes lv " +
             "JOIN lots l ON lv.id_lot = l.id_lot " +
             "JOIN ventes v ON lv.id_vente = v.id_vente " +
-            "WHERE l.id_medicament = ? " +
-            "AND v.date_vente >= DATE_SUB(CURDATE(), INTERVAL ? DAY)";
+            "GROUP BY l.id_medicament, DATE(v.date_vente)";
+
+    private static final String SQL_RECONSTRUIRE_RETOURS =
+            "INSERT INTO consommation_journaliere (id_medicament, jour, quantite) " +
+            "SELECT l.id_medicament, DATE(v.date_vente), -SUM(r.quantite) " +
+            "FROM retours r " +
+            "JOIN lots l ON r.id_lot = l.id_lot " +
+            "JOIN ventes v ON r.id_vente = v.id_vente " +
+            "GROUP BY l.id_medicament, DATE(v.date_vente) " +
+            "ON DUPLICATE KEY UPDATE quantite = quantite + VALUES(quantite)";
 
     // Stock total d'un medicament
     private static final String SQL_STOCK_TOTAL =
@@ -86,16 +114,26 @@ public class ConsommationDAOImpl implements ConsommationDAO {
             "    GROUP BY id_medicament " +
             ") stock_vendable ON m.id_medicament = stock_vendable.id_medicament " +
             "LEFT JOIN ( " +
-            "    SELECT l.id_medicament, SUM(lv.quantite) AS total " +
-            "    FROM ligne_ventes lv " +
-            "    JOIN lots l ON lv.id_lot = l.id_lot " +
-            "    JOIN ventes v ON lv.id_vente = v.id_vente " +
-            "    WHERE v.date_vente >= DATE_SUB(CURDATE(), INTERVAL ? DAY) " +
-            "    GROUP BY l.id_medicament " +
+            "    SELECT id_medicament, SUM(quantite) AS total " +
+            "    FROM consommation_journaliere " +
+            "    WHERE jour >= DATE_SUB(CURDATE(), INTERVAL ? DAY) " +
+            "    GROUP BY id_medicament " +
             ") conso ON m.id_medicament = conso.id_medicament " +
             "WHERE m.actif = TRUE " +
             "ORDER BY m.nom_commercial";
 
+    // Empreinte des donnees utilisees par les statistiques (ventes, stocks, catalogue, date)
+    // Cles primaires seulement (lues dans l'index), plus le catalogue qui reste petit
+    private static final String SQL_VERSION_DONNEES =
+            "SELECT " +
+            "    (SELECT COALESCE(MAX(id_vente), 0) FROM ventes), " +
+            "    (SELECT COALESCE(MAX(id_retour), 0) FROM retours), " +
+            "    (SELECT COALESCE(MAX(id_lot), 0) FROM lots), " +
+            "    (SELECT COALESCE(MAX(id_regularisation), 0) FROM regularisations), " +
+            "    (SELECT COUNT(*) FROM medicaments WHERE actif = TRUE), " +
+            "    (SELECT MAX(date_modification) FROM medicaments), " +
+            "    CURDATE()";
+
     @Override
     public int getConsommationByPeriode(int idMedicament, LocalDate dateDebut, LocalDate dateFin) throws DAOException {
         logger.debug("Calcul consommation medicament {} entre {} et {}", idMedicament, dateDebut, dateFin);
@@ -149,6 +187,58 @@ public class ConsommationDAOImpl implements ConsommationDAO {
         }
     }
 
+    @Override
+    public HistoriqueConsommations getHistoriqueConsommations(int nbJours) throws DAOException {
+        LocalDate aujourdhui = LocalDate.now();
+        LocalDate premierJour = aujourdhui.minusDays(nbJours);
+        Map<Integer, int[]> series = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_HISTORIQUE_TOUS)) {
+
+            ps.setDate(1, Date.valueOf(premierJour));
+            ps.setDate(2, Date.valueOf(premierJour));
+            ps.setDate(3, Date.valueOf(aujourdhui));
+            ps.setFetchSize(1000);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int indice = rs.getInt(2);
+                    if (indice >= 0 && indice < nbJours) {
+                        series.computeIfAbsent(rs.getInt(1), id -> new int[nbJours])[indice] = rs.getInt(3);
+                    }
+                }
+            }
+            logger.debug("Historique de {} medicament(s) sur {} jours", series.size(), nbJours);
+            return new HistoriqueConsommations(premierJour, nbJours, series);
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la recuperation de l'historique des consommations", e);
+            throw new DAOException("Erreur lors de la recuperation de l'historique des consommations", e);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> getConsommationsDuJour(LocalDate jour) throws DAOException {
+        Map<Integer, Integer> quantites = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_CONSOMMATIONS_DU_JOUR)) {
+
+            ps.setDate(1, Date.valueOf(jour));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    quantites.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+            return quantites;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la lecture de la consommation du jour", e);
+            throw new DAOException("Erreur lors de la lecture de la consommation du jour", e);
+        }
+    }
+
     @Override
     public double getConsommationMoyenneJournaliere(int idMedicament, int nbJours) throws DAOException {
         logger.debug("Calcul consommation moyenne journaliere medicament {} sur {} jours", idMedicament, nbJours);
@@ -209,6 +299,86 @@ public class ConsommationDAOImpl implements ConsommationDAO {
         }
     }
 
+    @Override
+    public void ajouterConsommations(Connection conn, LocalDate jour, Map<Integer, Integer> quantitesParMedicament)
+            throws DAOException {
+        if (quantitesParMedicament.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(SQL_AJOUTER_CONSOMMATION)) {
+            // Ordre croissant des IDs : meme ordre de verrouillage pour toutes les transactions
+            for (Map.Entry<Integer, Integer> entree : new TreeMap<>(quantitesParMedicament).entrySet()) {
+                if (entree.getValue() == 0) {
+                    continue;
+                }
+                ps.setInt(1, entree.getKey());
+                ps.setDate(2, Date.valueOf(jour));
+                ps.setInt(3, entree.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la mise a jour de la consommation journaliere", e);
+            throw new DAOException("Erreur lors de la mise a jour de la consommation journaliere", e);
+        }
+    }
+
+    @Override
+    public int reconstruireConsommationJournaliere() throws DAOException {
+        logger.info("Reconstruction de la consommation journaliere depuis l'historique des ventes");
+        long debut = System.nanoTime();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate(SQL_VIDER_CONSOMMATION);
+                int lignes = st.executeUpdate(SQL_RECONSTRUIRE_VENTES);
+                st.executeUpdate(SQL_RECONSTRUIRE_RETOURS);
+                conn.commit();
+
+                logger.info("Consommation journaliere reconstruite: {} ligne(s) en {} ms",
+                        lignes, (System.nanoTime() - debut) / 1_000_000);
+                return lignes;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la reconstruction de la consommation journaliere", e);
+            throw new DAOException("Erreur lors de la reconstruction de la consommation journaliere", e);
+        }
+    }
+
+    @Override
+    public String getVersionDonnees() throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_VERSION_DONNEES);
+             ResultSet rs = ps.executeQuery()) {
+
+            StringBuilder version = new StringBuilder();
+            if (rs.next()) {
+                int nbColonnes = rs.getMetaData().getColumnCount();
+                for (int i = 1; i <= nbColonnes; i++) {
+                    if (i > 1) {
+                        version.append('/');
+                    }
+                    version.append(rs.getString(i));
+                }
+            }
+            return version.toString();
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la lecture de la version des donnees", e);
+            throw new DAOException("Erreur lors de la lecture de la version des donnees", e);
+        }
+    }
+
     @Override
     public int getStockTotal(int idMedicament) throws DAOException {
         logger.debug("Calcul stock total medicament {}", idMedicament);
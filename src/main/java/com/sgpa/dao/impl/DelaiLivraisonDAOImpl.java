@@ -0,0 +1,238 @@
+package com.sgpa.dao.impl;
+
+import com.sgpa.dao.DelaiLivraisonDAO;
+import com.sgpa.dto.DelaiLivraison;
+import com.sgpa.exception.DAOException;
+import com.sgpa.utils.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Implementation JDBC de l'interface {@link DelaiLivraisonDAO}.
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class DelaiLivraisonDAOImpl implements DelaiLivraisonDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(DelaiLivraisonDAOImpl.class);
+
+    // Chaque reception attenue les observations precedentes puis ajoute la sienne
+    private static final String SQL_AJOUTER_FOURNISSEUR =
+            "INSERT INTO delais_livraison (id_fournisseur, poids, somme_jours, somme_carres) " +
+            "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "poids = poids * " + FACTEUR_OUBLI + " + VALUES(poids), " +
+            "somme_jours = somme_jours * " + FACTEUR_OUBLI + " + VALUES(somme_jours), " +
+            "somme_carres = somme_carres * " + FACTEUR_OUBLI + " + VALUES(somme_carres)";
+
+    private static final String SQL_AJOUTER_MEDICAMENT =
+            "INSERT INTO delais_livraison_medicament " +
+            "(id_fournisseur, id_medicament, poids, somme_jours, somme_carres) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "poids = poids * " + FACTEUR_OUBLI + " + VALUES(poids), " +
+            "somme_jours = somme_jours * " + FACTEUR_OUBLI + " + VALUES(somme_jours), " +
+            "somme_carres = somme_carres * " + FACTEUR_OUBLI + " + VALUES(somme_carres)";
+
+    private static final String SQL_DELAIS_MEDICAMENTS =
+            "SELECT dm.id_medicament, dm.poids, dm.somme_jours, dm.somme_carres, " +
+            "df.poids, df.somme_jours, df.somme_carres, dm.id_fournisseur " +
+            "FROM delais_livraison_medicament dm " +
+            "INNER JOIN delais_livraison df ON df.id_fournisseur = dm.id_fournisseur " +
+            "INNER JOIN fournisseurs f ON f.id_fournisseur = dm.id_fournisseur AND f.actif = TRUE";
+
+    private static final String SQL_DELAIS_FOURNISSEURS =
+            "SELECT id_fournisseur, poids, somme_jours, somme_carres FROM delais_livraison";
+
+    private static final String SQL_VIDER_MEDICAMENTS = "DELETE FROM delais_livraison_medicament";
+
+    private static final String SQL_VIDER_FOURNISSEURS = "DELETE FROM delais_livraison";
+
+    private static final String SQL_COMMANDES_RECUES =
+            "SELECT c.id_commande, c.id_fournisseur, c.date_creation, c.date_reception, lc.id_medicament " +
+            "FROM commandes c INNER JOIN ligne_commandes lc ON lc.id_commande = c.id_commande " +
+            "WHERE c.statut = 'RECUE' AND c.date_reception IS NOT NULL " +
+            "ORDER BY c.date_reception, c.id_commande";
+
+    @Override
+    public void enregistrerReception(int idFournisseur, Collection<Integer> idsMedicaments, double jours)
+            throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement psFournisseur = conn.prepareStatement(SQL_AJOUTER_FOURNISSEUR);
+                 PreparedStatement psMedicament = conn.prepareStatement(SQL_AJOUTER_MEDICAMENT)) {
+
+                psFournisseur.setInt(1, idFournisseur);
+                psFournisseur.setDouble(2, 1);
+                psFournisseur.setDouble(3, jours);
+                psFournisseur.setDouble(4, jours * jours);
+                psFournisseur.executeUpdate();
+
+                // Ordre croissant des cles pour limiter les interblocages entre receptions
+                for (int idMedicament : new TreeSet<>(idsMedicaments)) {
+                    psMedicament.setInt(1, idFournisseur);
+                    psMedicament.setInt(2, idMedicament);
+                    psMedicament.setDouble(3, 1);
+                    psMedicament.setDouble(4, jours);
+                    psMedicament.setDouble(5, jours * jours);
+                    psMedicament.addBatch();
+                }
+                psMedicament.executeBatch();
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de l'enregistrement du delai de livraison", e);
+            throw new DAOException("Erreur lors de l'enregistrement du delai de livraison", e);
+        }
+    }
+
+    @Override
+    public Map<Integer, DelaiLivraison> getDelaisParMedicament() throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_DELAIS_MEDICAMENTS);
+             ResultSet rs = ps.executeQuery()) {
+
+            // Fournisseur habituel par medicament ({poids, idFournisseur}), puis delai propre ou global
+            Map<Integer, double[]> retenus = new HashMap<>();
+            Map<Integer, DelaiLivraison> delais = new HashMap<>();
+            while (rs.next()) {
+                int idMedicament = rs.getInt(1);
+                double poids = rs.getDouble(2);
+                int idFournisseur = rs.getInt(8);
+                double[] retenu = retenus.get(idMedicament);
+                if (retenu != null && !DelaiLivraisonDAO.estPrefere(poids, idFournisseur, retenu[0], (int) retenu[1])) {
+                    continue;
+                }
+                retenus.put(idMedicament, new double[]{poids, idFournisseur});
+                delais.put(idMedicament, poids >= POIDS_MINIMAL_MEDICAMENT
+                        ? DelaiLivraison.depuisSommes(poids, rs.getDouble(3), rs.getDouble(4))
+                        : DelaiLivraison.depuisSommes(rs.getDouble(5), rs.getDouble(6), rs.getDouble(7)));
+            }
+            return delais;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la lecture des delais de livraison", e);
+            throw new DAOException("Erreur lors de la lecture des delais de livraison", e);
+        }
+    }
+
+    @Override
+    public Map<Integer, DelaiLivraison> getDelaisParFournisseur() throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_DELAIS_FOURNISSEURS);
+             ResultSet rs = ps.executeQuery()) {
+
+            Map<Integer, DelaiLivraison> delais = new HashMap<>();
+            while (rs.next()) {
+                delais.put(rs.getInt(1), DelaiLivraison.depuisSommes(rs.getDouble(2), rs.getDouble(3),
+                        rs.getDouble(4)));
+            }
+            return delais;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la lecture des delais de livraison", e);
+            throw new DAOException("Erreur lors de la lecture des delais de livraison", e);
+        }
+    }
+
+    @Override
+    public int reconstruireDelais() throws DAOException {
+        logger.info("Reconstruction des delais de livraison depuis les commandes recues");
+        long debut = System.nanoTime();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Sommes ponderees {poids, somme, somme des carres}, rejouees dans l'ordre des receptions
+                Map<Integer, double[]> parFournisseur = new HashMap<>();
+                Map<Long, double[]> parMedicament = new HashMap<>();
+                int commandes = 0;
+                int commandeCourante = -1;
+
+                try (PreparedStatement ps = conn.prepareStatement(SQL_COMMANDES_RECUES);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int idCommande = rs.getInt(1);
+                        int idFournisseur = rs.getInt(2);
+                        double jours = jours(rs.getTimestamp(3), rs.getTimestamp(4));
+                        if (idCommande != commandeCourante) {
+                            commandeCourante = idCommande;
+                            commandes++;
+                            observer(parFournisseur.computeIfAbsent(idFournisseur, k -> new double[3]), jours);
+                        }
+                        long cle = ((long) idFournisseur << 32) | (rs.getInt(5) & 0xFFFFFFFFL);
+                        observer(parMedicament.computeIfAbsent(cle, k -> new double[3]), jours);
+                    }
+                }
+
+                try (Statement st = conn.createStatement()) {
+                    st.executeUpdate(SQL_VIDER_MEDICAMENTS);
+                    st.executeUpdate(SQL_VIDER_FOURNISSEURS);
+                }
+                try (PreparedStatement ps = conn.prepareStatement(SQL_AJOUTER_FOURNISSEUR)) {
+                    for (Map.Entry<Integer, double[]> entry : parFournisseur.entrySet()) {
+                        ps.setInt(1, entry.getKey());
+                        ps.setDouble(2, entry.getValue()[0]);
+                        ps.setDouble(3, entry.getValue()[1]);
+                        ps.setDouble(4, entry.getValue()[2]);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(SQL_AJOUTER_MEDICAMENT)) {
+                    for (Map.Entry<Long, double[]> entry : parMedicament.entrySet()) {
+                        ps.setInt(1, (int) (entry.getKey() >>> 32));
+                        ps.setInt(2, (int) entry.getKey().longValue());
+                        ps.setDouble(3, entry.getValue()[0]);
+                        ps.setDouble(4, entry.getValue()[1]);
+                        ps.setDouble(5, entry.getValue()[2]);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+
+                logger.info("Delais de livraison reconstruits depuis {} commande(s) en {} ms",
+                        commandes, (System.nanoTime() - debut) / 1_000_000);
+                return commandes;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la reconstruction des delais de livraison", e);
+            throw new DAOException("Erreur lors de la reconstruction des delais de livraison", e);
+        }
+    }
+
+    private static void observer(double[] sommes, double jours) {
+        sommes[0] = sommes[0] * FACTEUR_OUBLI + 1;
+        sommes[1] = sommes[1] * FACTEUR_OUBLI + jours;
+        sommes[2] = sommes[2] * FACTEUR_OUBLI + jours * jours;
+    }
+
+    private static double jours(Timestamp creation, Timestamp reception) {
+        if (creation == null || reception == null) {
+            return 0;
+        }
+        long minutes = Duration.between(creation.toLocalDateTime(), reception.toLocalDateTime()).toMinutes();
+        return Math.max(0, minutes / 1440.0);
+    }
+}
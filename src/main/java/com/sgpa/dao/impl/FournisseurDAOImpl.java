@@ -1,6 +1,8 @@
 package com.sgpa.dao.impl;
 
+import com.sgpa.dao.DelaiLivraisonDAO;
 import com.sgpa.dao.FournisseurDAO;
+import com.sgpa.dto.SourceApprovisionnement;
 import com.sgpa.exception.DAOException;
 import com.sgpa.model.Fournisseur;
 import com.sgpa.utils.DatabaseConnection;
@@ -8,8 +10,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -60,6 +65,28 @@ public class FournisseurDAOImpl implements FournisseurDAO {
     private static final String SQL_SET_ACTIF =
             "UPDATE fournisseurs SET actif = ? WHERE id_fournisseur = ?";
 
+    // Lots livres par medicament et fournisseur actif, avec le prix du dernier lot,
+    // le poids amorti des receptions et le colisage configure
+    private static final String SQL_SOURCES_LOTS =
+            "SELECT s.id_medicament, s.id_fournisseur, s.nb_lots, s.dernier_lot, d.prix_achat, " +
+            "COALESCE(dm.poids, 0), COALESCE(cf.colisage, 0) " +
+            "FROM (SELECT id_medicament, id_fournisseur, COUNT(*) AS nb_lots, MAX(id_lot) AS dernier_lot " +
+            "      FROM lots WHERE id_fournisseur IS NOT NULL " +
+            "      GROUP BY id_medicament, id_fournisseur) s " +
+            "INNER JOIN fournisseurs f ON f.id_fournisseur = s.id_fournisseur AND f.actif = TRUE " +
+            "INNER JOIN lots d ON d.id_lot = s.dernier_lot " +
+            "LEFT JOIN delais_livraison_medicament dm " +
+            "       ON dm.id_fournisseur = s.id_fournisseur AND dm.id_medicament = s.id_medicament " +
+            "LEFT JOIN colisages_fournisseur cf " +
+            "       ON cf.id_fournisseur = s.id_fournisseur AND cf.id_medicament = s.id_medicament";
+
+    private static final String SQL_SET_COLISAGE =
+            "INSERT INTO colisages_fournisseur (id_fournisseur, id_medicament, colisage) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE colisage = VALUES(colisage)";
+
+    private static final String SQL_DELETE_COLISAGE =
+            "DELETE FROM colisages_fournisseur WHERE id_fournisseur = ? AND id_medicament = ?";
+
     @Override
     public Optional<Fournisseur> findById(Integer id) throws DAOException {
         logger.debug("Recherche fournisseur par ID: {}", id);
@@ -300,6 +327,61 @@ public class FournisseurDAOImpl implements FournisseurDAO {
         }
     }
 
+    @Override
+    public Map<Integer, SourceApprovisionnement> getSourcesApprovisionnement() throws DAOException {
+        long debut = System.nanoTime();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_SOURCES_LOTS);
+             ResultSet rs = ps.executeQuery()) {
+
+            Map<Integer, Candidat> retenus = new HashMap<>();
+            while (rs.next()) {
+                Candidat candidat = new Candidat(rs.getInt(2), rs.getInt(3), rs.getInt(4),
+                        rs.getDouble(6), rs.getBigDecimal(5), rs.getInt(7));
+                Candidat retenu = retenus.get(rs.getInt(1));
+                if (retenu == null || candidat.estPrefere(retenu)) {
+                    retenus.put(rs.getInt(1), candidat);
+                }
+            }
+
+            Map<Integer, SourceApprovisionnement> sources = new HashMap<>(retenus.size() * 2);
+            for (Map.Entry<Integer, Candidat> entry : retenus.entrySet()) {
+                Candidat retenu = entry.getValue();
+                sources.put(entry.getKey(), new SourceApprovisionnement(entry.getKey(), retenu.idFournisseur,
+                        retenu.nombreLots, retenu.prix, retenu.colisage));
+            }
+
+            logger.debug("Fournisseurs habituels de {} medicament(s) determines en {} ms",
+                    sources.size(), (System.nanoTime() - debut) / 1_000_000);
+            return sources;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la recherche des fournisseurs habituels", e);
+            throw new DAOException("Erreur lors de la recherche des fournisseurs habituels", e);
+        }
+    }
+
+    @Override
+    public void setColisage(int idFournisseur, int idMedicament, int colisage) throws DAOException {
+        logger.debug("Colisage du medicament {} chez le fournisseur {}: {}", idMedicament, idFournisseur, colisage);
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(colisage > 0 ? SQL_SET_COLISAGE : SQL_DELETE_COLISAGE)) {
+
+            ps.setInt(1, idFournisseur);
+            ps.setInt(2, idMedicament);
+            if (colisage > 0) {
+                ps.setInt(3, colisage);
+            }
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de l'enregistrement du colisage", e);
+            throw new DAOException("Erreur lors de l'enregistrement du colisage", e);
+        }
+    }
+
     private Fournisseur mapResultSetToFournisseur(ResultSet rs) throws SQLException {
         Fournisseur fournisseur = new Fournisseur();
         fournisseur.setIdFournisseur(rs.getInt("id_fournisseur"));
@@ -317,4 +399,38 @@ public class FournisseurDAOImpl implements FournisseurDAO {
 
         return fournisseur;
     }
+
+    /**
+     * Fournisseur candidat d'un medicament.
+     */
+    private static final class Candidat {
+        private final int idFournisseur;
+        private final int nombreLots;
+        private final int dernierLot;
+        private final double poids;
+        private final BigDecimal prix;
+        private final int colisage;
+
+        private Candidat(int idFournisseur, int nombreLots, int dernierLot, double poids,
+                         BigDecimal prix, int colisage) {
+            this.idFournisseur = idFournisseur;
+            this.nombreLots = nombreLots;
+            this.dernierLot = dernierLot;
+            this.poids = poids;
+            this.prix = prix;
+            this.colisage = colisage;
+        }
+
+        /**
+         * Meme regle que les delais de livraison ; entre fournisseurs sans reception
+         * enregistree, le plus de lots puis le lot le plus recent.
+         */
+        private boolean estPrefere(Candidat retenu) {
+            if (poids == 0 && retenu.poids == 0) {
+                return nombreLots > retenu.nombreLots
+                        || (nombreLots == retenu.nombreLots && dernierLot > retenu.dernierLot);
+            }
+            return DelaiLivraisonDAO.estPrefere(poids, idFournisseur, retenu.poids, retenu.idFournisseur);
+        }
+    }
 }
@@ -1,8 +1,11 @@
 package com.sgpa.dao.impl;
 
 import com.sgpa.dao.LotDAO;
+import com.sgpa.dto.LotsPeremption;
+import com.sgpa.dto.StocksMedicaments;
 import com.sgpa.exception.DAOException;
 import com.sgpa.model.Lot;
+import com.sgpa.model.Medicament;
 import com.sgpa.utils.DatabaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +14,12 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -70,6 +78,15 @@ public class LotDAOImpl implements LotDAO {
             "WHERE id_medicament = ? AND quantite_stock > 0 AND date_peremption >= CURDATE() " +
             "ORDER BY date_peremption ASC";
 
+    // Medicaments et lots vendables d'une vente (la clause IN est completee a l'execution)
+    private static final String SQL_FIND_VENDABLE_BY_MEDICAMENTS =
+            "SELECT m.*, l.id_lot, l.id_fournisseur, l.numero_lot, l.date_peremption, l.date_fabrication, " +
+            "l.date_reception, l.quantite_stock, l.prix_achat FROM medicaments m " +
+            "LEFT JOIN lots l ON l.id_medicament = m.id_medicament " +
+            "AND l.quantite_stock > 0 AND l.date_peremption >= CURDATE() " +
+            "WHERE m.id_medicament IN (%s) " +
+            "ORDER BY m.id_medicament, l.date_peremption ASC";
+
     private static final String SQL_FIND_EXPIRING_BEFORE =
             "SELECT * FROM lots WHERE date_peremption < ? AND quantite_stock > 0 " +
             "ORDER BY date_peremption ASC";
@@ -78,9 +95,34 @@ public class LotDAOImpl implements LotDAO {
             "SELECT * FROM lots WHERE date_peremption < CURDATE() AND quantite_stock > 0 " +
             "ORDER BY date_peremption ASC";
 
+    // Lots en stock de plusieurs medicaments (la clause IN est completee a l'execution)
+    private static final String SQL_FIND_EN_STOCK =
+            "SELECT * FROM lots WHERE quantite_stock > 0 ORDER BY date_peremption ASC, id_lot";
+
+    private static final String SQL_FIND_EN_STOCK_BY_MEDICAMENTS =
+            "SELECT * FROM lots WHERE id_medicament IN (%s) AND quantite_stock > 0 " +
+            "ORDER BY id_medicament, date_peremption ASC";
+
     private static final String SQL_GET_TOTAL_STOCK =
             "SELECT COALESCE(SUM(quantite_stock), 0) FROM lots WHERE id_medicament = ?";
 
+    // Stock total et vendable de tous les medicaments, en un seul passage sur lots
+    private static final String SQL_STOCKS_PAR_MEDICAMENT =
+            "SELECT id_medicament, SUM(quantite_stock), " +
+            "SUM(CASE WHEN date_peremption >= CURDATE() THEN quantite_stock ELSE 0 END) " +
+            "FROM lots WHERE quantite_stock > 0 GROUP BY id_medicament ORDER BY id_medicament";
+
+    // Lots vendables de tous les medicaments, dans l'ordre FEFO
+    private static final String SQL_LOTS_VENDABLES_PAR_PEREMPTION =
+            "SELECT id_medicament, quantite_stock, DATEDIFF(date_peremption, CURDATE()), CURDATE() " +
+            "FROM lots WHERE quantite_stock > 0 AND date_peremption >= CURDATE() " +
+            "ORDER BY id_medicament, date_peremption, id_lot";
+
+    private static final String SQL_VALEUR_STOCK_VENDABLE =
+            "SELECT COALESCE(SUM(l.prix_achat * l.quantite_stock), 0) FROM lots l " +
+            "JOIN medicaments m ON l.id_medicament = m.id_medicament " +
+            "WHERE m.actif = TRUE AND l.quantite_stock > 0 AND l.date_peremption >= CURDATE()";
+
     private static final String SQL_FIND_WITH_LOW_STOCK =
             "SELECT l.* FROM lots l " +
             "JOIN medicaments m ON l.id_medicament = m.id_medicament " +
@@ -94,9 +136,16 @@ public class LotDAOImpl implements LotDAO {
     private static final String SQL_FIND_BY_NUMERO_LOT =
             "SELECT * FROM lots WHERE numero_lot = ?";
 
+    private static final String SQL_FIND_BY_MEDICAMENT_NUMERO_LOT =
+            "SELECT * FROM lots WHERE id_medicament = ? AND numero_lot = ? ORDER BY date_peremption DESC LIMIT 1";
+
     private static final String SQL_UPDATE_QUANTITE =
             "UPDATE lots SET quantite_stock = ? WHERE id_lot = ?";
 
+    // Decrement conditionnel : jamais de stock negatif, meme en ventes concurrentes
+    private static final String SQL_DECREMENTER_QUANTITE =
+            "UPDATE lots SET quantite_stock = quantite_stock - ? WHERE id_lot = ? AND quantite_stock >= ?";
+
     private static final String SQL_FIND_BY_DATE_RECEPTION =
             "SELECT * FROM lots WHERE DATE(date_reception) BETWEEN ? AND ? ORDER BY date_reception";
 
@@ -287,11 +336,20 @@ public class LotDAOImpl implements LotDAO {
 
     @Override
     public List<Lot> findVendableByMedicament(int medicamentId) throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return findVendableByMedicament(conn, medicamentId);
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la recherche des lots vendables", e);
+            throw new DAOException("Erreur lors de la recherche des lots vendables", e);
+        }
+    }
+
+    @Override
+    public List<Lot> findVendableByMedicament(Connection conn, int medicamentId) throws DAOException {
         logger.debug("Recherche lots vendables pour medicament: {}", medicamentId);
         List<Lot> lots = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(SQL_FIND_VENDABLE_BY_MEDICAMENT)) {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_FIND_VENDABLE_BY_MEDICAMENT)) {
 
             ps.setInt(1, medicamentId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -308,6 +366,51 @@ public class LotDAOImpl implements LotDAO {
         }
     }
 
+    @Override
+    public Map<Medicament, List<Lot>> findVendableByMedicaments(Connection conn, Collection<Integer> medicamentIds)
+            throws DAOException {
+        Map<Medicament, List<Lot>> resultat = new LinkedHashMap<>();
+        if (medicamentIds.isEmpty()) {
+            return resultat;
+        }
+        logger.debug("Chargement groupe des lots vendables pour {} medicament(s)", medicamentIds.size());
+
+        String placeholders = String.join(", ", Collections.nCopies(medicamentIds.size(), "?"));
+        String sql = String.format(SQL_FIND_VENDABLE_BY_MEDICAMENTS, placeholders);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (Integer id : medicamentIds) {
+                ps.setInt(index++, id);
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                Medicament courant = null;
+                List<Lot> lots = null;
+                while (rs.next()) {
+                    int idMedicament = rs.getInt("id_medicament");
+                    if (courant == null || courant.getIdMedicament() != idMedicament) {
+                        courant = MedicamentDAOImpl.mapResultSetToMedicament(rs);
+                        lots = new ArrayList<>();
+                        resultat.put(courant, lots);
+                    }
+                    rs.getInt("id_lot");
+                    if (!rs.wasNull()) {
+                        Lot lot = mapResultSetToLot(rs);
+                        lot.setMedicament(courant);
+                        lots.add(lot);
+                    }
+                }
+            }
+            return resultat;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors du chargement groupe des lots vendables", e);
+            throw new DAOException("Erreur lors du chargement des lots vendables", e);
+        }
+    }
+
     @Override
     public List<Lot> findExpiringBefore(LocalDate date) throws DAOException {
         logger.debug("Recherche lots expirant avant: {}", date);
@@ -352,6 +455,154 @@ public class LotDAOImpl implements LotDAO {
         }
     }
 
+    @Override
+    public StocksMedicaments getStocksParMedicament() throws DAOException {
+        long debut = System.nanoTime();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_STOCKS_PAR_MEDICAMENT);
+             ResultSet rs = ps.executeQuery()) {
+
+            int n = 0;
+            int[] ids = new int[256];
+            int[] totaux = new int[256];
+            int[] vendables = new int[256];
+            while (rs.next()) {
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                    totaux = Arrays.copyOf(totaux, n * 2);
+                    vendables = Arrays.copyOf(vendables, n * 2);
+                }
+                ids[n] = rs.getInt(1);
+                totaux[n] = rs.getInt(2);
+                vendables[n] = rs.getInt(3);
+                n++;
+            }
+
+            logger.debug("Stocks de {} medicament(s) calcules en {} ms", n, (System.nanoTime() - debut) / 1_000_000);
+            return new StocksMedicaments(Arrays.copyOf(ids, n), Arrays.copyOf(totaux, n),
+                    Arrays.copyOf(vendables, n));
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors du calcul des stocks par medicament", e);
+            throw new DAOException("Erreur lors du calcul des stocks par medicament", e);
+        }
+    }
+
+    @Override
+    public List<Lot> findEnStock() throws DAOException {
+        logger.debug("Recherche des lots en stock");
+        List<Lot> lots = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL_FIND_EN_STOCK)) {
+
+            while (rs.next()) {
+                lots.add(mapResultSetToLot(rs));
+            }
+            logger.debug("{} lot(s) en stock", lots.size());
+            return lots;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la recherche des lots en stock", e);
+            throw new DAOException("Erreur lors de la recherche des lots en stock", e);
+        }
+    }
+
+    @Override
+    public List<Lot> findEnStockByMedicaments(Collection<Integer> medicamentIds) throws DAOException {
+        List<Lot> lots = new ArrayList<>();
+        if (medicamentIds.isEmpty()) {
+            return lots;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(medicamentIds.size(), "?"));
+        String sql = String.format(SQL_FIND_EN_STOCK_BY_MEDICAMENTS, placeholders);
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (Integer id : medicamentIds) {
+                ps.setInt(index++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lots.add(mapResultSetToLot(rs));
+                }
+            }
+            return lots;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la recherche des lots en stock", e);
+            throw new DAOException("Erreur lors de la recherche des lots en stock", e);
+        }
+    }
+
+    @Override
+    public LotsPeremption getLotsVendablesParPeremption() throws DAOException {
+        long debut = System.nanoTime();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_LOTS_VENDABLES_PAR_PEREMPTION);
+             ResultSet rs = ps.executeQuery()) {
+
+            LocalDate dateReference = LocalDate.now();
+            int nbMedicaments = 0;
+            int nbLots = 0;
+            int[] ids = new int[256];
+            int[] debuts = new int[257];
+            int[] quantites = new int[1024];
+            int[] jours = new int[1024];
+            while (rs.next()) {
+                int idMedicament = rs.getInt(1);
+                if (nbMedicaments == 0 || ids[nbMedicaments - 1] != idMedicament) {
+                    if (nbMedicaments == ids.length) {
+                        ids = Arrays.copyOf(ids, nbMedicaments * 2);
+                        debuts = Arrays.copyOf(debuts, nbMedicaments * 2 + 1);
+                    }
+                    ids[nbMedicaments] = idMedicament;
+                    debuts[nbMedicaments] = nbLots;
+                    nbMedicaments++;
+                }
+                if (nbLots == quantites.length) {
+                    quantites = Arrays.copyOf(quantites, nbLots * 2);
+                    jours = Arrays.copyOf(jours, nbLots * 2);
+                }
+                quantites[nbLots] = rs.getInt(2);
+                jours[nbLots] = rs.getInt(3);
+                dateReference = rs.getDate(4).toLocalDate();
+                nbLots++;
+            }
+            debuts[nbMedicaments] = nbLots;
+
+            logger.debug("{} lot(s) vendable(s) de {} medicament(s) lus en {} ms", nbLots, nbMedicaments,
+                    (System.nanoTime() - debut) / 1_000_000);
+            return new LotsPeremption(dateReference, Arrays.copyOf(ids, nbMedicaments),
+                    Arrays.copyOf(debuts, nbMedicaments + 1), Arrays.copyOf(quantites, nbLots),
+                    Arrays.copyOf(jours, nbLots));
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la lecture des lots vendables", e);
+            throw new DAOException("Erreur lors de la lecture des lots vendables", e);
+        }
+    }
+
+    @Override
+    public BigDecimal getValeurStockVendable() throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_VALEUR_STOCK_VENDABLE);
+             ResultSet rs = ps.executeQuery()) {
+
+            BigDecimal valeur = rs.next() ? rs.getBigDecimal(1) : null;
+            return valeur != null ? valeur : BigDecimal.ZERO;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors du calcul de la valeur du stock", e);
+            throw new DAOException("Erreur lors du calcul de la valeur du stock", e);
+        }
+    }
+
     @Override
     public int getTotalStockByMedicament(int medicamentId) throws DAOException {
         logger.debug("Calcul stock total pour medicament: {}", medicamentId);
@@ -436,12 +687,43 @@ public class LotDAOImpl implements LotDAO {
         }
     }
 
+    @Override
+    public Lot findByMedicamentAndNumeroLot(int medicamentId, String numeroLot) throws DAOException {
+        logger.debug("Recherche lot {} du medicament {}", numeroLot, medicamentId);
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_FIND_BY_MEDICAMENT_NUMERO_LOT)) {
+
+            ps.setInt(1, medicamentId);
+            ps.setString(2, numeroLot);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToLot(rs);
+                }
+            }
+            return null;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la recherche du lot par medicament et numero", e);
+            throw new DAOException("Erreur lors de la recherche du lot par medicament et numero", e);
+        }
+    }
+
     @Override
     public void updateQuantite(int idLot, int nouvelleQuantite) throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            updateQuantite(conn, idLot, nouvelleQuantite);
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la mise a jour de la quantite", e);
+            throw new DAOException("Erreur lors de la mise a jour de la quantite", e);
+        }
+    }
+
+    @Override
+    public void updateQuantite(Connection conn, int idLot, int nouvelleQuantite) throws DAOException {
         logger.debug("Mise a jour quantite lot {}: {}", idLot, nouvelleQuantite);
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_QUANTITE)) {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_QUANTITE)) {
 
             ps.setInt(1, nouvelleQuantite);
             ps.setInt(2, idLot);
@@ -458,6 +740,73 @@ public class LotDAOImpl implements LotDAO {
         }
     }
 
+    @Override
+    public void updateQuantites(Connection conn, Map<Integer, Integer> quantites) throws DAOException {
+        if (quantites.isEmpty()) {
+            return;
+        }
+        logger.debug("Mise a jour groupee des quantites de {} lot(s)", quantites.size());
+
+        try (PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_QUANTITE)) {
+
+            List<Integer> ids = new ArrayList<>(quantites.keySet());
+            for (Integer idLot : ids) {
+                ps.setInt(1, quantites.get(idLot));
+                ps.setInt(2, idLot);
+                ps.addBatch();
+            }
+
+            int[] results = ps.executeBatch();
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == 0) {
+                    throw new DAOException("Lot non trouve pour mise a jour quantite: " + ids.get(i));
+                }
+            }
+            logger.info("Quantites mises a jour pour {} lot(s)", ids.size());
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la mise a jour groupee des quantites", e);
+            throw new DAOException("Erreur lors de la mise a jour des quantites", e);
+        }
+    }
+
+    @Override
+    public List<Integer> decrementerQuantites(Connection conn, Map<Integer, Integer> quantites)
+            throws DAOException {
+        List<Integer> echecs = new ArrayList<>();
+        if (quantites.isEmpty()) {
+            return echecs;
+        }
+        logger.debug("Decrement conditionnel de {} lot(s)", quantites.size());
+
+        try (PreparedStatement ps = conn.prepareStatement(SQL_DECREMENTER_QUANTITE)) {
+
+            List<Integer> ids = new ArrayList<>(quantites.keySet());
+            for (Integer idLot : ids) {
+                int quantite = quantites.get(idLot);
+                ps.setInt(1, quantite);
+                ps.setInt(2, idLot);
+                ps.setInt(3, quantite);
+                ps.addBatch();
+            }
+
+            int[] results = ps.executeBatch();
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == 0) {
+                    echecs.add(ids.get(i));
+                }
+            }
+            if (!echecs.isEmpty()) {
+                logger.warn("Stock insuffisant en base pour les lots {}", echecs);
+            }
+            return echecs;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors du decrement des quantites", e);
+            throw new DAOException("Erreur lors du decrement des quantites", e);
+        }
+    }
+
     @Override
     public List<Lot> findByDateReception(LocalDate dateDebut, LocalDate dateFin) throws DAOException {
         logger.debug("Recherche lots recus entre {} et {}", dateDebut, dateFin);
@@ -0,0 +1,478 @@
+package com.sgpa.dao.impl;
+
+import com.sgpa.dao.MedicamentDAO;
+import com.sgpa.exception.DAOException;
+import com.sgpa.model.Medicament;
+import com.sgpa.utils.DatabaseConnection;
+import com.sgpa.utils.LongIntHashMap;
+import com.sgpa.utils.TexteUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Catalogue des medicaments residant en memoire, place devant {@link MedicamentDAOImpl}.
+ * <p>
+ * Toutes les lignes de la table {@code medicaments} sont chargees en une requete et
+ * indexees par ID, par nom commercial et par code CIP13 (table {@code long -> int}
+ * primitive : la lecture d'un code-barres ne cree aucun objet). Les lectures ({@code findById}, recherches
+ * par nom ou principe actif, listes) deviennent des lectures memoire ; chaque appel
+ * retourne des copies, les appelants pouvant modifier les objets recus.
+ * </p>
+ * <p>
+ * <b>Invalidation :</b>
+ * </p>
+ * <ul>
+ *   <li>{@code save}, {@code update} et {@code delete} ecrivent en base puis invalident
+ *       le catalogue, recharge a la lecture suivante</li>
+ *   <li>Au plus toutes les {@link #PERIODE_VERIFICATION_MS} millisecondes, une requete
+ *       d'agregats ({@code COUNT}, {@code MAX(id)}, {@code MAX(date_modification)})
+ *       detecte les modifications faites depuis un autre poste</li>
+ * </ul>
+ * <p>
+ * {@code date_modification} etant a la seconde, une version lue dans la seconde de
+ * la derniere modification est consideree instable et provoque un rechargement a la
+ * verification suivante. {@link #findBelowThreshold()} et {@link #getStockTotal(int)}
+ * dependent des lots et restent delegues au DAO JDBC.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class MedicamentDAOCache implements MedicamentDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(MedicamentDAOCache.class);
+
+    /** Intervalle minimal entre deux verifications de version */
+    public static final long PERIODE_VERIFICATION_MS = 5_000;
+
+    private static final String SQL_VERSION =
+            "SELECT COUNT(*), COALESCE(MAX(id_medicament), 0), MAX(date_modification), NOW() FROM medicaments";
+
+    private static final String SQL_FIND_ALL =
+            "SELECT * FROM medicaments";
+
+    /** Ordre des listes, proche de la collation insensible a la casse de MySQL */
+    private static final Comparator<Medicament> ORDRE_NOM = Comparator
+            .comparing(Medicament::getNomCommercial, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Medicament::getIdMedicament);
+
+    /** Instance unique (Singleton) */
+    private static volatile MedicamentDAOCache instance;
+
+    private final MedicamentDAO delegue;
+    private final long periodeVerificationMs;
+
+    private volatile Catalogue catalogue;
+    private volatile long prochaineVerification;
+
+    private final List<Ecouteur> ecouteurs = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong succes = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+    private final AtomicLong chargements = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong verifications = new AtomicLong();
+
+    /**
+     * Constructeur avec injection du DAO (pour tests).
+     *
+     * @param delegue               le DAO JDBC utilise pour les ecritures
+     * @param periodeVerificationMs l'intervalle entre deux verifications de version
+     */
+    public MedicamentDAOCache(MedicamentDAO delegue, long periodeVerificationMs) {
+        this.delegue = delegue;
+        this.periodeVerificationMs = periodeVerificationMs;
+    }
+
+    /**
+     * Retourne l'instance unique du catalogue.
+     *
+     * @return le catalogue partage par les services et controleurs
+     */
+    public static MedicamentDAOCache getInstance() {
+        if (instance == null) {
+            synchronized (MedicamentDAOCache.class) {
+                if (instance == null) {
+                    instance = new MedicamentDAOCache(new MedicamentDAOImpl(), PERIODE_VERIFICATION_MS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public Optional<Medicament> findById(Integer id) throws DAOException {
+        Medicament med = getCatalogue().parId.get(id);
+        if (med != null) {
+            return Optional.of(copier(med));
+        }
+        // Ligne creee depuis un autre poste depuis la derniere verification
+        echecs.incrementAndGet();
+        Optional<Medicament> enBase = delegue.findById(id);
+        if (enBase.isPresent()) {
+            invalider();
+        }
+        return enBase;
+    }
+
+    @Override
+    public List<Medicament> findAll() throws DAOException {
+        return filtrer(e -> true);
+    }
+
+    @Override
+    public List<Medicament> findAllActive() throws DAOException {
+        return filtrer(e -> e.medicament.isActif());
+    }
+
+    @Override
+    public Medicament save(Medicament medicament) throws DAOException {
+        try {
+            Medicament cree = delegue.save(medicament);
+            for (Ecouteur ecouteur : ecouteurs) {
+                ecouteur.medicamentEnregistre(copier(cree));
+            }
+            return cree;
+        } finally {
+            invalider();
+        }
+    }
+
+    @Override
+    public void update(Medicament medicament) throws DAOException {
+        try {
+            delegue.update(medicament);
+            for (Ecouteur ecouteur : ecouteurs) {
+                ecouteur.medicamentEnregistre(copier(medicament));
+            }
+        } finally {
+            invalider();
+        }
+    }
+
+    @Override
+    public void delete(Integer id) throws DAOException {
+        try {
+            delegue.delete(id);
+            for (Ecouteur ecouteur : ecouteurs) {
+                ecouteur.medicamentSupprime(id);
+            }
+        } finally {
+            invalider();
+        }
+    }
+
+    @Override
+    public long count() throws DAOException {
+        return getCatalogue().tries.size();
+    }
+
+    @Override
+    public boolean existsById(Integer id) throws DAOException {
+        return findById(id).isPresent();
+    }
+
+    @Override
+    public List<Medicament> findByNom(String nom) throws DAOException {
+        String motif = TexteUtils.plier(nom);
+        return filtrer(e -> e.nom.contains(motif));
+    }
+
+    @Override
+    public Medicament findByNomCommercialExact(String nomCommercial) throws DAOException {
+        if (nomCommercial == null) {
+            return null;
+        }
+        Medicament med = getCatalogue().parNom.get(TexteUtils.plier(nomCommercial.strip()));
+        return med != null ? copier(med) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Lecture memoire uniquement : un code inconnu du catalogue (produit non reference)
+     * ne coute pas de requete. Un code ajoute depuis un autre poste est connu apres la
+     * verification de version suivante.
+     * </p>
+     */
+    @Override
+    public Medicament findByCodeCip13(long codeCip13) throws DAOException {
+        Catalogue courant = getCatalogue();
+        int id = courant.parCip.get(codeCip13);
+        return id != LongIntHashMap.ABSENT ? copier(courant.parId.get(id)) : null;
+    }
+
+    @Override
+    public List<Medicament> findByPrincipeActif(String principeActif) throws DAOException {
+        String motif = TexteUtils.plier(principeActif);
+        return filtrer(e -> e.medicament.getPrincipeActif() != null && e.principeActif.contains(motif));
+    }
+
+    @Override
+    public List<Medicament> findBelowThreshold() throws DAOException {
+        return delegue.findBelowThreshold();
+    }
+
+    @Override
+    public List<Medicament> findRequiringPrescription() throws DAOException {
+        return filtrer(e -> e.medicament.isNecessiteOrdonnance() && e.medicament.isActif());
+    }
+
+    @Override
+    public int getStockTotal(int idMedicament) throws DAOException {
+        return delegue.getStockTotal(idMedicament);
+    }
+
+    /**
+     * Abonne un observateur aux changements du catalogue.
+     * <p>
+     * Si le catalogue est deja charge, l'observateur le recoit immediatement.
+     * </p>
+     *
+     * @param ecouteur l'observateur
+     */
+    public synchronized void ajouterEcouteur(Ecouteur ecouteur) {
+        ecouteurs.add(ecouteur);
+        Catalogue courant = catalogue;
+        if (courant != null) {
+            ecouteur.catalogueCharge(Collections.unmodifiableCollection(courant.parId.values()));
+        }
+    }
+
+    /**
+     * Verifie la version du catalogue si l'intervalle de verification est ecoule,
+     * et le recharge si besoin.
+     *
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    public void verifier() throws DAOException {
+        getCatalogue();
+    }
+
+    /**
+     * Vide le catalogue : il sera recharge a la prochaine lecture.
+     */
+    public void invalider() {
+        catalogue = null;
+        prochaineVerification = 0;
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Retourne un resume des metriques du catalogue.
+     *
+     * @return les metriques (succes, echecs, chargements, invalidations, verifications)
+     */
+    public String getStatistiques() {
+        long s = succes.get();
+        long e = echecs.get();
+        return String.format("succes=%d, echecs=%d (%.1f %%), chargements=%d, invalidations=%d, verifications=%d",
+                s, e, s + e == 0 ? 0.0 : 100.0 * e / (s + e),
+                chargements.get(), invalidations.get(), verifications.get());
+    }
+
+    private List<Medicament> filtrer(Predicate<Entree> filtre) throws DAOException {
+        List<Medicament> resultat = new ArrayList<>();
+        for (Entree entree : getCatalogue().tries) {
+            if (filtre.test(entree)) {
+                resultat.add(copier(entree.medicament));
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne le catalogue courant, recharge s'il a ete invalide ou si la version en base a change.
+     */
+    private Catalogue getCatalogue() throws DAOException {
+        Catalogue courant = catalogue;
+        if (courant != null && System.currentTimeMillis() < prochaineVerification) {
+            succes.incrementAndGet();
+            return courant;
+        }
+
+        synchronized (this) {
+            courant = catalogue;
+            if (courant != null && System.currentTimeMillis() < prochaineVerification) {
+                succes.incrementAndGet();
+                return courant;
+            }
+
+            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                Version version = lireVersion(conn);
+                if (courant != null && !courant.version.instable && courant.version.equals(version)) {
+                    succes.incrementAndGet();
+                } else {
+                    echecs.incrementAndGet();
+                    courant = charger(conn, version);
+                    catalogue = courant;
+                }
+                prochaineVerification = System.currentTimeMillis() + periodeVerificationMs;
+                return courant;
+
+            } catch (SQLException e) {
+                logger.error("Erreur lors du chargement du catalogue des medicaments", e);
+                throw new DAOException("Erreur lors du chargement du catalogue des medicaments", e);
+            }
+        }
+    }
+
+    private Version lireVersion(Connection conn) throws SQLException {
+        verifications.incrementAndGet();
+        try (PreparedStatement ps = conn.prepareStatement(SQL_VERSION);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            Timestamp maxModification = rs.getTimestamp(3);
+            Timestamp maintenant = rs.getTimestamp(4);
+            boolean instable = maxModification != null
+                    && maxModification.getTime() >= maintenant.getTime() - 1_000;
+            return new Version(rs.getLong(1), rs.getLong(2),
+                    maxModification != null ? maxModification.getTime() : 0L, instable);
+        }
+    }
+
+    private Catalogue charger(Connection conn, Version version) throws SQLException {
+        long debut = System.nanoTime();
+        List<Medicament> medicaments = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(SQL_FIND_ALL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                medicaments.add(MedicamentDAOImpl.mapResultSetToMedicament(rs));
+            }
+        }
+        Catalogue nouveau = new Catalogue(medicaments, version);
+        chargements.incrementAndGet();
+        Collection<Medicament> lignes = Collections.unmodifiableCollection(nouveau.parId.values());
+        for (Ecouteur ecouteur : ecouteurs) {
+            ecouteur.catalogueCharge(lignes);
+        }
+        logger.debug("Catalogue des medicaments charge: {} ligne(s) en {} ms",
+                medicaments.size(), (System.nanoTime() - debut) / 1_000_000);
+        return nouveau;
+    }
+
+    private static Medicament copier(Medicament m) {
+        return new Medicament(m);
+    }
+
+    /**
+     * Observateur des changements du catalogue (index de recherche par exemple).
+     * <p>
+     * Les medicaments recus appartiennent au catalogue et ne doivent pas etre modifies.
+     * </p>
+     */
+    public interface Ecouteur {
+
+        /**
+         * Le catalogue a ete (re)charge depuis la base.
+         *
+         * @param medicaments toutes les lignes de la table
+         */
+        void catalogueCharge(Collection<Medicament> medicaments);
+
+        /**
+         * Un medicament a ete cree ou modifie depuis ce poste.
+         *
+         * @param medicament le medicament enregistre
+         */
+        void medicamentEnregistre(Medicament medicament);
+
+        /**
+         * Un medicament a ete supprime depuis ce poste.
+         *
+         * @param idMedicament l'ID du medicament supprime
+         */
+        void medicamentSupprime(int idMedicament);
+    }
+
+    /**
+     * Version de la table lue en base.
+     */
+    private static final class Version {
+        final long nombre;
+        final long maxId;
+        final long maxModification;
+        final boolean instable;
+
+        Version(long nombre, long maxId, long maxModification, boolean instable) {
+            this.nombre = nombre;
+            this.maxId = maxId;
+            this.maxModification = maxModification;
+            this.instable = instable;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Version)) return false;
+            Version that = (Version) o;
+            return nombre == that.nombre && maxId == that.maxId && maxModification == that.maxModification;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(nombre, maxId, maxModification);
+        }
+    }
+
+    /**
+     * Medicament du catalogue et ses cles de recherche pliees.
+     */
+    private static final class Entree {
+        final Medicament medicament;
+        final String nom;
+        final String principeActif;
+
+        Entree(Medicament medicament) {
+            this.medicament = medicament;
+            this.nom = TexteUtils.plier(medicament.getNomCommercial());
+            this.principeActif = TexteUtils.plier(medicament.getPrincipeActif());
+        }
+    }
+
+    /**
+     * Instantane immuable du catalogue.
+     */
+    private static final class Catalogue {
+        final Map<Integer, Medicament> parId = new HashMap<>();
+        final Map<String, Medicament> parNom = new HashMap<>();
+        final LongIntHashMap parCip;
+        final List<Entree> tries;
+        final Version version;
+
+        Catalogue(List<Medicament> medicaments, Version version) {
+            medicaments.sort(ORDRE_NOM);
+            parCip = new LongIntHashMap(medicaments.size());
+            List<Entree> entrees = new ArrayList<>(medicaments.size());
+            for (Medicament med : medicaments) {
+                Entree entree = new Entree(med);
+                entrees.add(entree);
+                parId.put(med.getIdMedicament(), med);
+                parNom.put(entree.nom, med);
+                if (med.getCodeCip13() != null) {
+                    parCip.put(med.getCodeCip13(), med.getIdMedicament());
+                }
+            }
+            this.tries = Collections.unmodifiableList(entrees);
+            this.version = version;
+        }
+    }
+}
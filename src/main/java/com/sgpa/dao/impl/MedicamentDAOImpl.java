@@ -39,13 +39,13 @@ public class MedicamentDAOImpl implements MedicamentDAO {
 
     private static final String SQL_INSERT =
             "INSERT INTO medicaments (nom_commercial, principe_actif, forme_galenique, dosage, " +
-            "prix_public, necessite_ordonnance, seuil_min, description, actif) " +
-            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            "prix_public, necessite_ordonnance, seuil_min, description, actif, code_cip13) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     private static final String SQL_UPDATE =
             "UPDATE medicaments SET nom_commercial = ?, principe_actif = ?, forme_galenique = ?, " +
             "dosage = ?, prix_public = ?, necessite_ordonnance = ?, seuil_min = ?, description = ?, " +
-            "actif = ? WHERE id_medicament = ?";
+            "actif = ?, code_cip13 = ? WHERE id_medicament = ?";
 
     private static final String SQL_DELETE =
             "DELETE FROM medicaments WHERE id_medicament = ?";
@@ -62,6 +62,9 @@ public class MedicamentDAOImpl implements MedicamentDAO {
     private static final String SQL_FIND_BY_NOM_EXACT =
             "SELECT * FROM medicaments WHERE nom_commercial = ?";
 
+    private static final String SQL_FIND_BY_CIP13 =
+            "SELECT * FROM medicaments WHERE code_cip13 = ?";
+
     private static final String SQL_FIND_BY_PRINCIPE_ACTIF =
             "SELECT * FROM medicaments WHERE principe_actif LIKE ? ORDER BY nom_commercial";
 
@@ -148,6 +151,7 @@ public class MedicamentDAOImpl implements MedicamentDAO {
 
             setMedicamentParameters(ps, medicament);
             ps.setBoolean(9, medicament.isActif());
+            setCodeCip13(ps, 10, medicament.getCodeCip13());
 
             int affectedRows = ps.executeUpdate();
             if (affectedRows == 0) {
@@ -180,7 +184,8 @@ public class MedicamentDAOImpl implements MedicamentDAO {
 
             setMedicamentParameters(ps, medicament);
             ps.setBoolean(9, medicament.isActif());
-            ps.setInt(10, medicament.getIdMedicament());
+            setCodeCip13(ps, 10, medicament.getCodeCip13());
+            ps.setInt(11, medicament.getIdMedicament());
 
             int affectedRows = ps.executeUpdate();
             if (affectedRows == 0) {
@@ -293,6 +298,27 @@ public class MedicamentDAOImpl implements MedicamentDAO {
         }
     }
 
+    @Override
+    public Medicament findByCodeCip13(long codeCip13) throws DAOException {
+        logger.debug("Recherche medicament par code CIP13: {}", codeCip13);
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_FIND_BY_CIP13)) {
+
+            ps.setLong(1, codeCip13);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToMedicament(rs);
+                }
+            }
+            return null;
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la recherche par code CIP13", e);
+            throw new DAOException("Erreur lors de la recherche par code CIP13", e);
+        }
+    }
+
     @Override
     public List<Medicament> findByPrincipeActif(String principeActif) throws DAOException {
         logger.debug("Recherche medicaments par principe actif: {}", principeActif);
@@ -379,15 +405,20 @@ public class MedicamentDAOImpl implements MedicamentDAO {
 
     /**
      * Mappe un ResultSet vers un objet Medicament.
+     * <p>
+     * Visible dans le package pour les DAOs qui joignent la table medicaments.
+     * </p>
      *
      * @param rs le ResultSet positionne sur une ligne
      * @return l'objet Medicament
      * @throws SQLException si une erreur d'acces aux donnees survient
      */
-    private Medicament mapResultSetToMedicament(ResultSet rs) throws SQLException {
+    static Medicament mapResultSetToMedicament(ResultSet rs) throws SQLException {
         Medicament medicament = new Medicament();
         medicament.setIdMedicament(rs.getInt("id_medicament"));
         medicament.setNomCommercial(rs.getString("nom_commercial"));
+        long codeCip13 = rs.getLong("code_cip13");
+        medicament.setCodeCip13(rs.wasNull() ? null : codeCip13);
         medicament.setPrincipeActif(rs.getString("principe_actif"));
         medicament.setFormeGalenique(rs.getString("forme_galenique"));
         medicament.setDosage(rs.getString("dosage"));
@@ -427,4 +458,12 @@ public class MedicamentDAOImpl implements MedicamentDAO {
         ps.setInt(7, medicament.getSeuilMin());
         ps.setString(8, medicament.getDescription());
     }
+
+    private void setCodeCip13(PreparedStatement ps, int index, Long codeCip13) throws SQLException {
+        if (codeCip13 != null) {
+            ps.setLong(index, codeCip13);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
 }
@@ -76,14 +76,7 @@ public class RegularisationDAOImpl implements RegularisationDAO {
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setInt(1, regularisation.getIdSession());
-            stmt.setInt(2, regularisation.getIdLot());
-            stmt.setInt(3, regularisation.getQuantiteAncienne());
-            stmt.setInt(4, regularisation.getQuantiteNouvelle());
-            stmt.setString(5, regularisation.getRaison().name());
-            stmt.setString(6, regularisation.getJustificatif());
-            stmt.setTimestamp(7, Timestamp.valueOf(regularisation.getDateRegularisation()));
-            stmt.setInt(8, regularisation.getIdUtilisateur());
+            setInsertParameters(stmt, regularisation);
 
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
@@ -105,6 +98,52 @@ public class RegularisationDAOImpl implements RegularisationDAO {
         }
     }
 
+    @Override
+    public void saveAll(Connection conn, List<Regularisation> regularisations) throws DAOException {
+        if (regularisations.isEmpty()) {
+            return;
+        }
+        logger.debug("Sauvegarde de {} regularisation(s) en lot", regularisations.size());
+
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+            for (Regularisation regularisation : regularisations) {
+                setInsertParameters(stmt, regularisation);
+                stmt.addBatch();
+            }
+
+            int[] results = stmt.executeBatch();
+            for (int result : results) {
+                if (result == 0) {
+                    throw new DAOException("Echec de la creation d'une regularisation");
+                }
+            }
+
+            // Les cles generees sont renvoyees dans l'ordre d'insertion
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                int i = 0;
+                while (generatedKeys.next() && i < regularisations.size()) {
+                    regularisations.get(i++).setIdRegularisation(generatedKeys.getInt(1));
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la creation des regularisations", e);
+            throw new DAOException("Erreur lors de la creation des regularisations", e);
+        }
+    }
+
+    private void setInsertParameters(PreparedStatement stmt, Regularisation regularisation) throws SQLException {
+        stmt.setInt(1, regularisation.getIdSession());
+        stmt.setInt(2, regularisation.getIdLot());
+        stmt.setInt(3, regularisation.getQuantiteAncienne());
+        stmt.setInt(4, regularisation.getQuantiteNouvelle());
+        stmt.setString(5, regularisation.getRaison().name());
+        stmt.setString(6, regularisation.getJustificatif());
+        stmt.setTimestamp(7, Timestamp.valueOf(regularisation.getDateRegularisation()));
+        stmt.setInt(8, regularisation.getIdUtilisateur());
+    }
+
     @Override
     public Optional<Regularisation> findById(Integer id) throws DAOException {
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
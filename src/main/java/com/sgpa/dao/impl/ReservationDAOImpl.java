@@ -0,0 +1,154 @@
+package com.sgpa.dao.impl;
+
+import com.sgpa.dao.ReservationDAO;
+import com.sgpa.exception.DAOException;
+import com.sgpa.utils.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+
+/**
+ * Implementation JDBC de l'interface {@link ReservationDAO}.
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class ReservationDAOImpl implements ReservationDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationDAOImpl.class);
+
+    // Serialise les reservations d'un medicament entre les postes
+    private static final String SQL_VERROUILLER =
+            "SELECT id_medicament FROM medicaments WHERE id_medicament = ? FOR UPDATE";
+
+    // Stock vendable moins les reservations actives des autres paniers
+    private static final String SQL_DISPONIBLE =
+            "SELECT (SELECT COALESCE(SUM(quantite_stock), 0) FROM lots " +
+            "        WHERE id_medicament = ? AND quantite_stock > 0 AND date_peremption >= CURDATE()) - " +
+            "       (SELECT COALESCE(SUM(quantite), 0) FROM reservations_stock " +
+            "        WHERE id_medicament = ? AND reference_panier <> ? AND date_expiration > NOW())";
+
+    private static final String SQL_RESERVER =
+            "INSERT INTO reservations_stock (reference_panier, id_medicament, quantite, date_expiration) " +
+            "VALUES (?, ?, ?, DATE_ADD(NOW(), INTERVAL ? SECOND)) ON DUPLICATE KEY UPDATE " +
+            "quantite = VALUES(quantite), date_expiration = VALUES(date_expiration)";
+
+    private static final String SQL_SUPPRIMER =
+            "DELETE FROM reservations_stock WHERE reference_panier = ? AND id_medicament = ?";
+
+    private static final String SQL_PROLONGER =
+            "UPDATE reservations_stock SET date_expiration = DATE_ADD(NOW(), INTERVAL ? SECOND) " +
+            "WHERE reference_panier = ?";
+
+    private static final String SQL_SUPPRIMER_PANIER =
+            "DELETE FROM reservations_stock WHERE reference_panier = ?";
+
+    private static final String SQL_PURGER =
+            "DELETE FROM reservations_stock WHERE date_expiration <= NOW()";
+
+    @Override
+    public int reserver(String referencePanier, int idMedicament, int quantite, int dureeSecondes)
+            throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(SQL_VERROUILLER)) {
+                    ps.setInt(1, idMedicament);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new DAOException("Medicament non trouve: " + idMedicament);
+                        }
+                    }
+                }
+
+                int disponible;
+                try (PreparedStatement ps = conn.prepareStatement(SQL_DISPONIBLE)) {
+                    ps.setInt(1, idMedicament);
+                    ps.setInt(2, idMedicament);
+                    ps.setString(3, referencePanier);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        disponible = Math.max(0, rs.getInt(1));
+                    }
+                }
+                if (quantite > disponible) {
+                    conn.rollback();
+                    return disponible;
+                }
+
+                if (quantite > 0) {
+                    try (PreparedStatement ps = conn.prepareStatement(SQL_RESERVER)) {
+                        ps.setString(1, referencePanier);
+                        ps.setInt(2, idMedicament);
+                        ps.setInt(3, quantite);
+                        ps.setInt(4, dureeSecondes);
+                        ps.executeUpdate();
+                    }
+                } else {
+                    try (PreparedStatement ps = conn.prepareStatement(SQL_SUPPRIMER)) {
+                        ps.setString(1, referencePanier);
+                        ps.setInt(2, idMedicament);
+                        ps.executeUpdate();
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(SQL_PROLONGER)) {
+                    ps.setInt(1, dureeSecondes);
+                    ps.setString(2, referencePanier);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                return disponible;
+
+            } catch (SQLException | DAOException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la reservation de stock", e);
+            throw new DAOException("Erreur lors de la reservation de stock", e);
+        }
+    }
+
+    @Override
+    public void liberer(String referencePanier) throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_SUPPRIMER_PANIER)) {
+
+            ps.setString(1, referencePanier);
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la liberation des reservations", e);
+            throw new DAOException("Erreur lors de la liberation des reservations", e);
+        }
+    }
+
+    @Override
+    public void consommer(Connection conn, String referencePanier) throws DAOException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_SUPPRIMER_PANIER)) {
+            ps.setString(1, referencePanier);
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la consommation des reservations", e);
+            throw new DAOException("Erreur lors de la consommation des reservations", e);
+        }
+    }
+
+    @Override
+    public int purgerExpirees() throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_PURGER)) {
+
+            return ps.executeUpdate();
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la purge des reservations expirees", e);
+            throw new DAOException("Erreur lors de la purge des reservations expirees", e);
+        }
+    }
+}
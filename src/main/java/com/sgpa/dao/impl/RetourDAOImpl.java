@@ -113,12 +113,31 @@ public class RetourDAOImpl implements RetourDAO {
 
     private static final String DELETE_SQL = "DELETE FROM retours WHERE id_retour = ?";
 
+    // Un retour supprime redevient de la consommation, au jour de la vente d'origine
+    private static final String RESTITUER_CONSOMMATION_SQL =
+            "INSERT INTO consommation_journaliere (id_medicament, jour, quantite) " +
+            "SELECT l.id_medicament, DATE(v.date_vente), r.quantite " +
+            "FROM retours r " +
+            "JOIN lots l ON r.id_lot = l.id_lot " +
+            "JOIN ventes v ON r.id_vente = v.id_vente " +
+            "WHERE r.id_retour = ? " +
+            "ON DUPLICATE KEY UPDATE quantite = quantite + VALUES(quantite)";
+
     private static final String COUNT_SQL = "SELECT COUNT(*) FROM retours";
 
     @Override
     public Retour save(Retour retour) throws DAOException {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return save(conn, retour);
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la creation du retour", e);
+            throw new DAOException("Erreur lors de la creation du retour", e);
+        }
+    }
+
+    @Override
+    public Retour save(Connection conn, Retour retour) throws DAOException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setInt(1, retour.getIdVente());
             stmt.setInt(2, retour.getIdLot());
@@ -220,14 +239,28 @@ public class RetourDAOImpl implements RetourDAO {
 
     @Override
     public void delete(Integer id) throws DAOException {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmtConso = conn.prepareStatement(RESTITUER_CONSOMMATION_SQL);
+                 PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
 
-            stmt.setInt(1, id);
-            int affectedRows = stmt.executeUpdate();
+                stmtConso.setInt(1, id);
+                stmtConso.executeUpdate();
 
-            if (affectedRows == 0) {
-                throw new DAOException("Retour non trouve: " + id);
+                stmt.setInt(1, id);
+                int affectedRows = stmt.executeUpdate();
+
+                if (affectedRows == 0) {
+                    conn.rollback();
+                    throw new DAOException("Retour non trouve: " + id);
+                }
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
 
             logger.info("Retour supprime: {}", id);
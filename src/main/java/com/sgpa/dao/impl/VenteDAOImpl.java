@@ -26,15 +26,21 @@ public class VenteDAOImpl implements VenteDAO {
 
     private static final Logger logger = LoggerFactory.getLogger(VenteDAOImpl.class);
 
+    /** Code d'erreur MySQL d'une cle unique en double */
+    private static final int ER_DUP_ENTRY = 1062;
+
     private static final String SQL_FIND_BY_ID =
             "SELECT * FROM ventes WHERE id_vente = ?";
 
+    private static final String SQL_FIND_BY_REFERENCE_JOURNAL =
+            "SELECT * FROM ventes WHERE reference_journal = ?";
+
     private static final String SQL_FIND_ALL =
             "SELECT * FROM ventes ORDER BY date_vente DESC";
 
     private static final String SQL_INSERT =
-            "INSERT INTO ventes (date_vente, montant_total, est_sur_ordonnance, numero_ordonnance, id_utilisateur, notes) " +
-            "VALUES (?, ?, ?, ?, ?, ?)";
+            "INSERT INTO ventes (date_vente, montant_total, est_sur_ordonnance, numero_ordonnance, id_utilisateur, notes, " +
+            "reference_journal) VALUES (?, ?, ?, ?, ?, ?, ?)";
 
     private static final String SQL_UPDATE =
             "UPDATE ventes SET montant_total = ?, est_sur_ordonnance = ?, numero_ordonnance = ?, notes = ? " +
@@ -43,6 +49,17 @@ public class VenteDAOImpl implements VenteDAO {
     private static final String SQL_DELETE =
             "DELETE FROM ventes WHERE id_vente = ?";
 
+    // Retrait de la consommation journaliere des quantites d'une vente annulee
+    private static final String SQL_RETIRER_CONSOMMATION =
+            "INSERT INTO consommation_journaliere (id_medicament, jour, quantite) " +
+            "SELECT l.id_medicament, DATE(v.date_vente), -SUM(lv.quantite) " +
+            "FROM ligne_ventes lv " +
+            "JOIN lots l ON lv.id_lot = l.id_lot " +
+            "JOIN ventes v ON lv.id_vente = v.id_vente " +
+            "WHERE lv.id_vente = ? " +
+            "GROUP BY l.id_medicament, DATE(v.date_vente) " +
+            "ON DUPLICATE KEY UPDATE quantite = quantite + VALUES(quantite)";
+
     private static final String SQL_COUNT =
             "SELECT COUNT(*) FROM ventes";
 
@@ -117,10 +134,19 @@ public class VenteDAOImpl implements VenteDAO {
 
     @Override
     public Vente save(Vente vente) throws DAOException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return save(conn, vente);
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la sauvegarde de la vente", e);
+            throw new DAOException("Erreur lors de la sauvegarde de la vente", e);
+        }
+    }
+
+    @Override
+    public Vente save(Connection conn, Vente vente) throws DAOException {
         logger.debug("Sauvegarde d'une nouvelle vente");
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setTimestamp(1, Timestamp.valueOf(vente.getDateVente()));
             ps.setBigDecimal(2, vente.getMontantTotal());
@@ -134,6 +160,7 @@ public class VenteDAOImpl implements VenteDAO {
             }
 
             ps.setString(6, vente.getNotes());
+            ps.setString(7, vente.getReferenceJournal());
 
             int affectedRows = ps.executeUpdate();
             if (affectedRows == 0) {
@@ -150,6 +177,10 @@ public class VenteDAOImpl implements VenteDAO {
             return vente;
 
         } catch (SQLException e) {
+            if (e.getErrorCode() == ER_DUP_ENTRY && vente.getReferenceJournal() != null) {
+                throw new DAOException("Vente deja enregistree pour l'entree " + vente.getReferenceJournal()
+                        + " du journal", e, DAOException.CODE_DOUBLON);
+            }
             logger.error("Erreur lors de la sauvegarde de la vente", e);
             throw new DAOException("Erreur lors de la sauvegarde de la vente", e);
         }
@@ -183,13 +214,28 @@ public class VenteDAOImpl implements VenteDAO {
     public void delete(Integer id) throws DAOException {
         logger.debug("Suppression de la vente ID: {}", id);
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(SQL_DELETE)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            // La consommation est corrigee dans la meme transaction que la suppression
+            conn.setAutoCommit(false);
+            try (PreparedStatement psConso = conn.prepareStatement(SQL_RETIRER_CONSOMMATION);
+                 PreparedStatement ps = conn.prepareStatement(SQL_DELETE)) {
 
-            ps.setInt(1, id);
-            int affectedRows = ps.executeUpdate();
-            if (affectedRows == 0) {
-                throw new DAOException("Vente non trouvee pour suppression");
+                psConso.setInt(1, id);
+                psConso.executeUpdate();
+
+                ps.setInt(1, id);
+                int affectedRows = ps.executeUpdate();
+                if (affectedRows == 0) {
+                    conn.rollback();
+                    throw new DAOException("Vente non trouvee pour suppression");
+                }
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
 
         } catch (SQLException e) {
@@ -263,6 +309,44 @@ public class VenteDAOImpl implements VenteDAO {
         }
     }
 
+    @Override
+    public void saveLignesVente(Connection conn, List<LigneVente> lignes) throws DAOException {
+        if (lignes.isEmpty()) {
+            return;
+        }
+        logger.debug("Sauvegarde de {} ligne(s) de vente en lot", lignes.size());
+
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_LIGNE, Statement.RETURN_GENERATED_KEYS)) {
+
+            for (LigneVente ligneVente : lignes) {
+                ps.setInt(1, ligneVente.getIdVente());
+                ps.setInt(2, ligneVente.getIdLot());
+                ps.setInt(3, ligneVente.getQuantite());
+                ps.setBigDecimal(4, ligneVente.getPrixUnitaireApplique());
+                ps.addBatch();
+            }
+
+            int[] results = ps.executeBatch();
+            for (int result : results) {
+                if (result == 0) {
+                    throw new DAOException("La creation d'une ligne de vente a echoue");
+                }
+            }
+
+            // Les cles generees sont renvoyees dans l'ordre d'insertion
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                int i = 0;
+                while (generatedKeys.next() && i < lignes.size()) {
+                    lignes.get(i++).setIdLigne(generatedKeys.getInt(1));
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Erreur lors de la sauvegarde des lignes de vente", e);
+            throw new DAOException("Erreur lors de la sauvegarde des lignes de vente", e);
+        }
+    }
+
     @Override
     public List<LigneVente> findLignesByVenteId(int idVente) throws DAOException {
         List<LigneVente> lignes = new ArrayList<>();
@@ -327,6 +411,23 @@ public class VenteDAOImpl implements VenteDAO {
         }
     }
 
+    @Override
+    public Optional<Vente> findByReferenceJournal(Connection conn, String reference) throws DAOException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_FIND_BY_REFERENCE_JOURNAL)) {
+
+            ps.setString(1, reference);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapResultSetToVente(rs));
+                }
+            }
+            return Optional.empty();
+
+        } catch (SQLException e) {
+            throw new DAOException("Erreur lors de la recherche par reference du journal", e);
+        }
+    }
+
     @Override
     public List<Vente> findByUtilisateur(int idUtilisateur) throws DAOException {
         List<Vente> ventes = new ArrayList<>();
@@ -384,6 +485,7 @@ public class VenteDAOImpl implements VenteDAO {
         }
 
         vente.setNotes(rs.getString("notes"));
+        vente.setReferenceJournal(rs.getString("reference_journal"));
 
         return vente;
     }
@@ -0,0 +1,95 @@
+package com.sgpa.dto;
+
+/**
+ * DTO representant la classification ABC/XYZ d'un medicament.
+ * <p>
+ * <b>ABC</b> classe par valeur des ventes de la periode : les medicaments A font
+ * ensemble 80 % du chiffre d'affaires, les B les 15 % suivants, les C le reste.
+ * <b>XYZ</b> classe par regularite de la demande journaliere (coefficient de
+ * variation) : X reguliere, Y variable, Z erratique ou nulle.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class ClasseMedicament {
+
+    private final int idMedicament;
+    private final char classeAbc;
+    private final char classeXyz;
+    private final long valeurCentimes;
+    private final double coefficientVariation;
+
+    /**
+     * Constructeur.
+     *
+     * @param idMedicament         l'ID du medicament
+     * @param classeAbc            la classe de valeur ('A', 'B' ou 'C')
+     * @param classeXyz            la classe de regularite ('X', 'Y' ou 'Z')
+     * @param valeurCentimes       la valeur des ventes de la periode, en centimes
+     * @param coefficientVariation le coefficient de variation de la demande journaliere (NaN si inconnu)
+     */
+    public ClasseMedicament(int idMedicament, char classeAbc, char classeXyz, long valeurCentimes,
+                            double coefficientVariation) {
+        this.idMedicament = idMedicament;
+        this.classeAbc = classeAbc;
+        this.classeXyz = classeXyz;
+        this.valeurCentimes = valeurCentimes;
+        this.coefficientVariation = coefficientVariation;
+    }
+
+    public int getIdMedicament() {
+        return idMedicament;
+    }
+
+    public char getClasseAbc() {
+        return classeAbc;
+    }
+
+    public char getClasseXyz() {
+        return classeXyz;
+    }
+
+    /**
+     * @return la valeur des ventes de la periode en centimes (0 si lue depuis la base)
+     */
+    public long getValeurCentimes() {
+        return valeurCentimes;
+    }
+
+    /**
+     * @return le coefficient de variation de la demande journaliere (NaN si lu depuis la base)
+     */
+    public double getCoefficientVariation() {
+        return coefficientVariation;
+    }
+
+    /**
+     * @return la classe combinee, par exemple "AX"
+     */
+    public String getClasse() {
+        return "" + classeAbc + classeXyz;
+    }
+
+    /**
+     * Retourne le rang de priorite de la classe : 0 pour AX, puis AY, AZ, BX, ... 8 pour CZ.
+     *
+     * @return le rang, plus petit pour les medicaments a traiter en premier
+     */
+    public int getPriorite() {
+        return (classeAbc - 'A') * 3 + (classeXyz - 'X');
+    }
+
+    /**
+     * @param autre une autre classification
+     * @return true si les deux classifications ont les memes classes
+     */
+    public boolean memesClasses(ClasseMedicament autre) {
+        return autre != null && classeAbc == autre.classeAbc && classeXyz == autre.classeXyz;
+    }
+
+    @Override
+    public String toString() {
+        return "ClasseMedicament{medicament=" + idMedicament + ", classe=" + getClasse() + '}';
+    }
+}
@@ -0,0 +1,67 @@
+package com.sgpa.dto;
+
+/**
+ * DTO representant le modele de delai de livraison d'un fournisseur, eventuellement
+ * pour un medicament donne.
+ * <p>
+ * Le delai est mesure entre la creation et la reception de chaque commande. Les
+ * observations sont ponderees avec oubli exponentiel : le poids est le nombre
+ * effectif de receptions prises en compte, les plus recentes pesant davantage.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class DelaiLivraison {
+
+    private final double poids;
+    private final double moyenneJours;
+    private final double ecartTypeJours;
+
+    /**
+     * Constructeur.
+     *
+     * @param poids          le nombre effectif de receptions observees
+     * @param moyenneJours   le delai moyen en jours
+     * @param ecartTypeJours l'ecart-type du delai en jours
+     */
+    public DelaiLivraison(double poids, double moyenneJours, double ecartTypeJours) {
+        this.poids = poids;
+        this.moyenneJours = moyenneJours;
+        this.ecartTypeJours = ecartTypeJours;
+    }
+
+    /**
+     * Construit le modele a partir des sommes ponderees stockees en base.
+     *
+     * @param poids       la somme des poids
+     * @param sommeJours  la somme ponderee des delais
+     * @param sommeCarres la somme ponderee des carres des delais
+     * @return le modele de delai
+     */
+    public static DelaiLivraison depuisSommes(double poids, double sommeJours, double sommeCarres) {
+        if (poids <= 0) {
+            return new DelaiLivraison(0, 0, 0);
+        }
+        double moyenne = sommeJours / poids;
+        double variance = Math.max(0, sommeCarres / poids - moyenne * moyenne);
+        return new DelaiLivraison(poids, moyenne, Math.sqrt(variance));
+    }
+
+    public double getPoids() {
+        return poids;
+    }
+
+    public double getMoyenneJours() {
+        return moyenneJours;
+    }
+
+    public double getEcartTypeJours() {
+        return ecartTypeJours;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DelaiLivraison{%.1f j +/- %.1f, poids=%.1f}", moyenneJours, ecartTypeJours, poids);
+    }
+}
@@ -0,0 +1,75 @@
+package com.sgpa.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * DTO representant l'historique journalier des consommations de tous les medicaments.
+ * <p>
+ * Chaque serie couvre les {@code nbJours} jours qui precedent aujourd'hui, du plus
+ * ancien ({@link #getPremierJour()}) a hier ; un jour sans vente vaut 0. Un medicament
+ * sans vente sur la periode n'a pas de serie propre.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class HistoriqueConsommations {
+
+    private final LocalDate premierJour;
+    private final int nbJours;
+    private final Map<Integer, int[]> series;
+    private final int[] serieVide;
+
+    /**
+     * Constructeur.
+     *
+     * @param premierJour le premier jour des series
+     * @param nbJours     la longueur des series
+     * @param series      les quantites par jour, par ID de medicament
+     */
+    public HistoriqueConsommations(LocalDate premierJour, int nbJours, Map<Integer, int[]> series) {
+        this.premierJour = premierJour;
+        this.nbJours = nbJours;
+        this.series = series;
+        this.serieVide = new int[nbJours];
+    }
+
+    /**
+     * Retourne la serie d'un medicament (tableau partage, a ne pas modifier).
+     *
+     * @param idMedicament l'ID du medicament
+     * @return les quantites vendues par jour, que des 0 si aucune vente
+     */
+    public int[] getSerie(int idMedicament) {
+        return series.getOrDefault(idMedicament, serieVide);
+    }
+
+    /**
+     * @return les IDs des medicaments ayant au moins une vente, par ordre croissant
+     */
+    public int[] getIdsMedicaments() {
+        return series.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * @return le premier jour des series
+     */
+    public LocalDate getPremierJour() {
+        return premierJour;
+    }
+
+    /**
+     * @return le nombre de jours des series
+     */
+    public int getNbJours() {
+        return nbJours;
+    }
+
+    /**
+     * @return le nombre de medicaments ayant au moins une vente
+     */
+    public int size() {
+        return series.size();
+    }
+}
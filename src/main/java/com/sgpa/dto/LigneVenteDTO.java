@@ -14,6 +14,8 @@ public class LigneVenteDTO {
     private int idMedicament;
     private int quantite;
     private BigDecimal prixUnitaire;
+    /** Lot de la boite scannee (DataMatrix), null pour laisser le choix au FEFO */
+    private Integer idLot;
 
     public LigneVenteDTO() {
     }
@@ -53,6 +55,14 @@ public class LigneVenteDTO {
         this.prixUnitaire = prixUnitaire;
     }
 
+    public Integer getIdLot() {
+        return idLot;
+    }
+
+    public void setIdLot(Integer idLot) {
+        this.idLot = idLot;
+    }
+
     /**
      * Calcule le montant de la ligne.
      */
@@ -67,6 +77,7 @@ public class LigneVenteDTO {
                 "idMedicament=" + idMedicament +
                 ", quantite=" + quantite +
                 ", prixUnitaire=" + prixUnitaire +
+                ", idLot=" + idLot +
                 '}';
     }
 }
@@ -0,0 +1,125 @@
+package com.sgpa.dto;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * DTO representant les lots vendables de tous les medicaments, dans l'ordre FEFO,
+ * lus en une seule requete.
+ * <p>
+ * Les lots sont ranges dans des tableaux primitifs : ceux d'un medicament occupent
+ * les indices {@link #getDebut(int)} a {@link #getFin(int)} (exclu), par date de
+ * peremption croissante. La date de peremption est exprimee en jours apres la date
+ * de reference ; un lot reste vendable jusqu'a ce jour inclus.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class LotsPeremption {
+
+    private final LocalDate dateReference;
+    private final int[] idsMedicaments;
+    private final int[] debuts;
+    private final int[] quantites;
+    private final int[] joursAvantPeremption;
+
+    /**
+     * Constructeur.
+     *
+     * @param dateReference        le jour de la lecture (jour 0)
+     * @param idsMedicaments       les IDs de medicaments, tries par ordre croissant
+     * @param debuts               l'indice du premier lot de chaque medicament, suivi du nombre de lots
+     * @param quantites            la quantite en stock de chaque lot
+     * @param joursAvantPeremption les jours entre la date de reference et la peremption de chaque lot
+     */
+    public LotsPeremption(LocalDate dateReference, int[] idsMedicaments, int[] debuts,
+                          int[] quantites, int[] joursAvantPeremption) {
+        this.dateReference = dateReference;
+        this.idsMedicaments = idsMedicaments;
+        this.debuts = debuts;
+        this.quantites = quantites;
+        this.joursAvantPeremption = joursAvantPeremption;
+    }
+
+    /**
+     * Retourne la position d'un medicament dans l'instantane.
+     *
+     * @param idMedicament l'ID du medicament
+     * @return la position, negative si le medicament n'a pas de lot vendable
+     */
+    public int indexOf(int idMedicament) {
+        return Arrays.binarySearch(idsMedicaments, idMedicament);
+    }
+
+    /**
+     * @param index la position du medicament
+     * @return l'indice de son premier lot
+     */
+    public int getDebut(int index) {
+        return debuts[index];
+    }
+
+    /**
+     * @param index la position du medicament
+     * @return l'indice qui suit son dernier lot
+     */
+    public int getFin(int index) {
+        return debuts[index + 1];
+    }
+
+    /**
+     * @param lot l'indice du lot
+     * @return la quantite en stock du lot
+     */
+    public int getQuantite(int lot) {
+        return quantites[lot];
+    }
+
+    /**
+     * @param lot l'indice du lot
+     * @return les jours entre la date de reference et la peremption du lot
+     */
+    public int getJoursAvantPeremption(int lot) {
+        return joursAvantPeremption[lot];
+    }
+
+    /**
+     * Retourne le stock vendable d'un medicament.
+     *
+     * @param idMedicament l'ID du medicament
+     * @return la somme des quantites de ses lots, 0 s'il n'en a pas
+     */
+    public int getStockVendable(int idMedicament) {
+        int index = indexOf(idMedicament);
+        if (index < 0) {
+            return 0;
+        }
+        int stock = 0;
+        for (int lot = debuts[index]; lot < debuts[index + 1]; lot++) {
+            stock += quantites[lot];
+        }
+        return stock;
+    }
+
+    /**
+     * @return le jour de la lecture
+     */
+    public LocalDate getDateReference() {
+        return dateReference;
+    }
+
+    /**
+     * @return le nombre de medicaments ayant au moins un lot vendable
+     */
+    public int size() {
+        return idsMedicaments.length;
+    }
+
+    /**
+     * @return le nombre total de lots
+     */
+    public int getNbLots() {
+        return quantites.length;
+    }
+}
@@ -30,6 +30,9 @@ public class PredictionReapprovisionnement {
     private int quantiteSuggeree;
     private int seuilMin;
     private String niveauUrgence;
+    private String modelePrevision;
+    private int delaiLivraison;
+    private int pointCommande;
 
     public PredictionReapprovisionnement() {
     }
@@ -167,6 +170,37 @@ public class PredictionReapprovisionnement {
         this.seuilMin = seuilMin;
     }
 
+    public String getModelePrevision() {
+        return modelePrevision;
+    }
+
+    public void setModelePrevision(String modelePrevision) {
+        this.modelePrevision = modelePrevision;
+    }
+
+    /**
+     * Retourne le delai de livraison retenu (en jours), appris des receptions ou par defaut.
+     */
+    public int getDelaiLivraison() {
+        return delaiLivraison;
+    }
+
+    public void setDelaiLivraison(int delaiLivraison) {
+        this.delaiLivraison = delaiLivraison;
+    }
+
+    /**
+     * Retourne le point de commande : stock vendable sous lequel commander
+     * (consommation pendant le delai de livraison et la marge de securite).
+     */
+    public int getPointCommande() {
+        return pointCommande;
+    }
+
+    public void setPointCommande(int pointCommande) {
+        this.pointCommande = pointCommande;
+    }
+
     public String getNiveauUrgence() {
         return niveauUrgence;
     }
@@ -0,0 +1,70 @@
+package com.sgpa.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO representant le fournisseur habituel d'un medicament, deduit de l'historique
+ * des lots recus.
+ * <p>
+ * Le fournisseur habituel est le fournisseur actif retenu pour les delais de
+ * livraison (plus fort poids amorti des receptions), ou a defaut celui ayant livre
+ * le plus de lots du medicament. Le prix d'achat est celui de son dernier lot. Le
+ * colisage est celui configure pour ce medicament chez ce fournisseur, 0 s'il n'est
+ * pas configure.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class SourceApprovisionnement {
+
+    private final int idMedicament;
+    private final int idFournisseur;
+    private final int nombreLots;
+    private final BigDecimal dernierPrixAchat;
+    private final int colisage;
+
+    /**
+     * Constructeur.
+     *
+     * @param idMedicament     l'ID du medicament
+     * @param idFournisseur    l'ID du fournisseur habituel
+     * @param nombreLots       le nombre de lots livres par ce fournisseur
+     * @param dernierPrixAchat le prix d'achat du dernier lot, peut etre null
+     * @param colisage         le colisage configure, 0 si inconnu
+     */
+    public SourceApprovisionnement(int idMedicament, int idFournisseur, int nombreLots,
+                                   BigDecimal dernierPrixAchat, int colisage) {
+        this.idMedicament = idMedicament;
+        this.idFournisseur = idFournisseur;
+        this.nombreLots = nombreLots;
+        this.dernierPrixAchat = dernierPrixAchat;
+        this.colisage = colisage;
+    }
+
+    public int getIdMedicament() {
+        return idMedicament;
+    }
+
+    public int getIdFournisseur() {
+        return idFournisseur;
+    }
+
+    public int getNombreLots() {
+        return nombreLots;
+    }
+
+    public BigDecimal getDernierPrixAchat() {
+        return dernierPrixAchat;
+    }
+
+    public int getColisage() {
+        return colisage;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceApprovisionnement{medicament=" + idMedicament + ", fournisseur=" + idFournisseur +
+               ", lots=" + nombreLots + ", prix=" + dernierPrixAchat + ", colisage=" + colisage + '}';
+    }
+}
@@ -0,0 +1,67 @@
+package com.sgpa.dto;
+
+import java.util.Arrays;
+
+/**
+ * DTO representant le stock de tous les medicaments, lu en une seule requete.
+ * <p>
+ * Pour chaque medicament ayant au moins un lot : stock total (tous lots) et stock
+ * vendable (lots non perimes). Les valeurs sont rangees dans des tableaux
+ * primitifs tries par ID de medicament, consultes par recherche dichotomique :
+ * pas d'objet par medicament, quelques octets par entree.
+ * </p>
+ * <p>
+ * Un medicament sans lot est absent de l'instantane ; ses stocks valent 0.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class StocksMedicaments {
+
+    private final int[] idsMedicaments;
+    private final int[] stocksTotaux;
+    private final int[] stocksVendables;
+
+    /**
+     * Constructeur.
+     *
+     * @param idsMedicaments  les IDs de medicaments, tries par ordre croissant
+     * @param stocksTotaux    le stock total de chaque medicament
+     * @param stocksVendables le stock vendable de chaque medicament
+     */
+    public StocksMedicaments(int[] idsMedicaments, int[] stocksTotaux, int[] stocksVendables) {
+        this.idsMedicaments = idsMedicaments;
+        this.stocksTotaux = stocksTotaux;
+        this.stocksVendables = stocksVendables;
+    }
+
+    /**
+     * Retourne le stock total d'un medicament (tous lots, perimes compris).
+     *
+     * @param idMedicament l'ID du medicament
+     * @return le stock total, 0 si le medicament n'a pas de lot
+     */
+    public int getStockTotal(int idMedicament) {
+        int i = Arrays.binarySearch(idsMedicaments, idMedicament);
+        return i >= 0 ? stocksTotaux[i] : 0;
+    }
+
+    /**
+     * Retourne le stock vendable d'un medicament (lots non perimes).
+     *
+     * @param idMedicament l'ID du medicament
+     * @return le stock vendable, 0 si le medicament n'a pas de lot
+     */
+    public int getStockVendable(int idMedicament) {
+        int i = Arrays.binarySearch(idsMedicaments, idMedicament);
+        return i >= 0 ? stocksVendables[i] : 0;
+    }
+
+    /**
+     * @return le nombre de medicaments ayant au moins un lot
+     */
+    public int size() {
+        return idsMedicaments.length;
+    }
+}
@@ -15,6 +15,9 @@ public class DAOException extends Exception {
 
     private static final long serialVersionUID = 1L;
 
+    /** Code d'erreur d'une insertion refusee par une contrainte d'unicite */
+    public static final String CODE_DOUBLON = "DOUBLON";
+
     /**
      * Code d'erreur optionnel pour categoriser l'exception.
      */
@@ -1,5 +1,7 @@
 package com.sgpa.model;
 
+import com.sgpa.utils.Montant;
+
 import java.math.BigDecimal;
 import java.util.Objects;
 
@@ -29,8 +31,11 @@ public class LigneVente {
     /** Quantite vendue */
     private int quantite;
 
-    /** Prix unitaire applique (peut differer du prix catalogue) */
-    private BigDecimal prixUnitaireApplique;
+    /** Prix unitaire applique en centimes (peut differer du prix catalogue) */
+    private long prixUnitaireCentimes;
+
+    /** Indique si un prix unitaire a ete applique */
+    private boolean prixApplique;
 
     /** Reference vers le lot (pour jointures) */
     private Lot lot;
@@ -56,7 +61,7 @@ public class LigneVente {
         this.idVente = idVente;
         this.idLot = idLot;
         this.quantite = quantite;
-        this.prixUnitaireApplique = prixUnitaireApplique;
+        setPrixUnitaireApplique(prixUnitaireApplique);
     }
 
     /**
@@ -69,7 +74,7 @@ public class LigneVente {
     public LigneVente(Integer idLot, int quantite, BigDecimal prixUnitaireApplique) {
         this.idLot = idLot;
         this.quantite = quantite;
-        this.prixUnitaireApplique = prixUnitaireApplique;
+        setPrixUnitaireApplique(prixUnitaireApplique);
     }
 
     // Getters et Setters
@@ -107,11 +112,21 @@ public class LigneVente {
     }
 
     public BigDecimal getPrixUnitaireApplique() {
-        return prixUnitaireApplique;
+        return prixApplique ? Montant.enBigDecimal(prixUnitaireCentimes) : null;
     }
 
     public void setPrixUnitaireApplique(BigDecimal prixUnitaireApplique) {
-        this.prixUnitaireApplique = prixUnitaireApplique;
+        this.prixApplique = prixUnitaireApplique != null;
+        this.prixUnitaireCentimes = Montant.enCentimes(prixUnitaireApplique);
+    }
+
+    public long getPrixUnitaireCentimes() {
+        return prixUnitaireCentimes;
+    }
+
+    public void setPrixUnitaireCentimes(long prixUnitaireCentimes) {
+        this.prixApplique = true;
+        this.prixUnitaireCentimes = prixUnitaireCentimes;
     }
 
     public Lot getLot() {
@@ -130,10 +145,16 @@ public class LigneVente {
      * @return le montant de la ligne
      */
     public BigDecimal getMontantLigne() {
-        if (prixUnitaireApplique == null) {
-            return BigDecimal.ZERO;
-        }
-        return prixUnitaireApplique.multiply(BigDecimal.valueOf(quantite));
+        return Montant.enBigDecimal(getMontantLigneCentimes());
+    }
+
+    /**
+     * Calcule le montant de la ligne en centimes, sans allocation.
+     *
+     * @return le montant de la ligne en centimes (0 si aucun prix applique)
+     */
+    public long getMontantLigneCentimes() {
+        return Montant.multiplier(prixUnitaireCentimes, quantite);
     }
 
     @Override
@@ -156,7 +177,7 @@ public class LigneVente {
                ", idVente=" + idVente +
                ", idLot=" + idLot +
                ", quantite=" + quantite +
-               ", prixUnitaireApplique=" + prixUnitaireApplique +
+               ", prixUnitaireApplique=" + getPrixUnitaireApplique() +
                ", montantLigne=" + getMontantLigne() +
                '}';
     }
@@ -28,6 +28,9 @@ public class Medicament {
     /** Nom commercial du medicament */
     private String nomCommercial;
 
+    /** Code CIP13 / EAN-13 de la boite (null si non renseigne) */
+    private Long codeCip13;
+
     /** Principe actif (molecule) */
     private String principeActif;
 
@@ -101,6 +104,18 @@ public class Medicament {
         this.dateModification = dateModification;
     }
 
+    /**
+     * Constructeur de copie.
+     *
+     * @param autre le medicament a copier
+     */
+    public Medicament(Medicament autre) {
+        this(autre.idMedicament, autre.nomCommercial, autre.principeActif, autre.formeGalenique,
+                autre.dosage, autre.prixPublic, autre.necessiteOrdonnance, autre.seuilMin,
+                autre.description, autre.actif, autre.dateCreation, autre.dateModification);
+        this.codeCip13 = autre.codeCip13;
+    }
+
     /**
      * Constructeur pour creation d'un nouveau medicament.
      *
@@ -142,6 +157,14 @@ public class Medicament {
         this.nomCommercial = nomCommercial;
     }
 
+    public Long getCodeCip13() {
+        return codeCip13;
+    }
+
+    public void setCodeCip13(Long codeCip13) {
+        this.codeCip13 = codeCip13;
+    }
+
     public String getPrincipeActif() {
         return principeActif;
     }
@@ -1,5 +1,7 @@
 package com.sgpa.model;
 
+import com.sgpa.utils.Montant;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -40,6 +42,9 @@ public class Vente {
     /** Notes complementaires */
     private String notes;
 
+    /** Reference de l'entree du journal local des ventes (null si saisie hors journal) */
+    private String referenceJournal;
+
     /** Liste des lignes de vente */
     private List<LigneVente> lignesVente;
 
@@ -153,6 +158,14 @@ public class Vente {
         this.notes = notes;
     }
 
+    public String getReferenceJournal() {
+        return referenceJournal;
+    }
+
+    public void setReferenceJournal(String referenceJournal) {
+        this.referenceJournal = referenceJournal;
+    }
+
     public List<LigneVente> getLignesVente() {
         return lignesVente;
     }
@@ -204,9 +217,11 @@ public class Vente {
             this.montantTotal = BigDecimal.ZERO;
             return;
         }
-        this.montantTotal = lignesVente.stream()
-                .map(LigneVente::getMontantLigne)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long total = 0;
+        for (LigneVente ligne : lignesVente) {
+            total = Montant.ajouter(total, ligne.getMontantLigneCentimes());
+        }
+        this.montantTotal = Montant.enBigDecimal(total);
     }
 
     /**
@@ -1,21 +1,13 @@
 package com.sgpa.service;
 
-import com.sgpa.dao.LotDAO;
-import com.sgpa.dao.MedicamentDAO;
-import com.sgpa.dao.impl.LotDAOImpl;
-import com.sgpa.dao.impl.MedicamentDAOImpl;
 import com.sgpa.dto.AlertePeremption;
 import com.sgpa.dto.AlerteStock;
 import com.sgpa.exception.DAOException;
 import com.sgpa.exception.ServiceException;
 import com.sgpa.model.Lot;
-import com.sgpa.model.Medicament;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -28,6 +20,11 @@ import java.util.List;
  *   <li>Produits perimes</li>
  * </ul>
  * </p>
+ * <p>
+ * Les alertes sont tenues en memoire par le {@link MoteurAlertes}, mis a jour a chaque
+ * modification de stock et a chaque changement de jour : les compteurs du dashboard ne
+ * relancent pas de requete, et les ecrans peuvent s'abonner aux changements.
+ * </p>
  *
  * @author SGPA Team
  * @version 1.0
@@ -37,35 +34,36 @@ public class AlerteService {
     private static final Logger logger = LoggerFactory.getLogger(AlerteService.class);
 
     /** Nombre de jours par defaut pour l'alerte de peremption (90 jours = 3 mois) */
-    private static final int JOURS_ALERTE_PEREMPTION_DEFAUT = 90;
+    private static final int JOURS_ALERTE_PEREMPTION_DEFAUT = MoteurAlertes.HORIZON_PEREMPTION_JOURS;
 
-    private final MedicamentDAO medicamentDAO;
-    private final LotDAO lotDAO;
+    private final ClassificationMedicaments classification;
+    private final MoteurAlertes moteur;
 
     /**
      * Constructeur par defaut.
      */
     public AlerteService() {
-        this.medicamentDAO = new MedicamentDAOImpl();
-        this.lotDAO = new LotDAOImpl();
+        this(ClassificationMedicaments.getInstance(), MoteurAlertes.getInstance());
     }
 
     /**
-     * Constructeur avec injection des DAOs (pour tests).
+     * Constructeur avec injection des dependances (pour tests). Le moteur d'alertes
+     * porte les DAOs medicament et lot.
      *
-     * @param medicamentDAO le DAO medicament
-     * @param lotDAO        le DAO lot
+     * @param classification la classification des medicaments
+     * @param moteur         le moteur d'alertes
      */
-    public AlerteService(MedicamentDAO medicamentDAO, LotDAO lotDAO) {
-        this.medicamentDAO = medicamentDAO;
-        this.lotDAO = lotDAO;
+    public AlerteService(ClassificationMedicaments classification, MoteurAlertes moteur) {
+        this.classification = classification;
+        this.moteur = moteur;
     }
 
     /**
      * Recupere toutes les alertes de stock bas.
      * <p>
      * Un medicament est en stock bas si la somme des quantites de tous ses lots
-     * est inferieure a son seuil minimum.
+     * est inferieure a son seuil minimum. Les alertes sont triees par classe ABC/XYZ :
+     * les medicaments qui comptent le plus (AX) en tete.
      * </p>
      *
      * @return la liste des alertes de stock bas
@@ -73,21 +71,10 @@ public class AlerteService {
      */
     public List<AlerteStock> getAlertesStockBas() throws ServiceException {
         logger.debug("Recherche des alertes de stock bas");
-        List<AlerteStock> alertes = new ArrayList<>();
 
         try {
-            List<Medicament> medicaments = medicamentDAO.findBelowThreshold();
-
-            for (Medicament med : medicaments) {
-                int stockTotal = lotDAO.getTotalStockByMedicament(med.getIdMedicament());
-                AlerteStock alerte = new AlerteStock(
-                        med.getIdMedicament(),
-                        med.getNomCommercial(),
-                        stockTotal,
-                        med.getSeuilMin()
-                );
-                alertes.add(alerte);
-            }
+            List<AlerteStock> alertes = moteur.getAlertesStockBas();
+            classification.trierParPriorite(alertes, AlerteStock::getIdMedicament);
 
             logger.info("{} alerte(s) de stock bas detectee(s)", alertes.size());
             return alertes;
@@ -113,6 +100,9 @@ public class AlerteService {
 
     /**
      * Recupere les alertes de peremption proche avec un delai personnalise.
+     * <p>
+     * Lecture d'une plage de l'echeancier des lots en memoire, quel que soit le delai.
+     * </p>
      *
      * @param joursAvant nombre de jours avant peremption pour l'alerte
      * @return la liste des alertes de peremption
@@ -120,32 +110,9 @@ public class AlerteService {
      */
     public List<AlertePeremption> getAlertesPeremption(int joursAvant) throws ServiceException {
         logger.debug("Recherche des alertes de peremption (< {} jours)", joursAvant);
-        List<AlertePeremption> alertes = new ArrayList<>();
 
         try {
-            LocalDate dateLimite = LocalDate.now().plusDays(joursAvant);
-            List<Lot> lots = lotDAO.findExpiringBefore(dateLimite);
-
-            for (Lot lot : lots) {
-                if (lot.getQuantiteStock() <= 0) continue;
-
-                Medicament med = medicamentDAO.findById(lot.getIdMedicament())
-                        .orElse(null);
-                String nomMedicament = med != null ? med.getNomCommercial() : "Inconnu";
-
-                long joursRestants = ChronoUnit.DAYS.between(LocalDate.now(), lot.getDatePeremption());
-
-                AlertePeremption alerte = new AlertePeremption(
-                        lot.getIdLot(),
-                        lot.getNumeroLot(),
-                        lot.getIdMedicament(),
-                        nomMedicament,
-                        lot.getDatePeremption(),
-                        joursRestants,
-                        lot.getQuantiteStock()
-                );
-                alertes.add(alerte);
-            }
+            List<AlertePeremption> alertes = moteur.getAlertesPeremption(joursAvant);
 
             logger.info("{} alerte(s) de peremption detectee(s)", alertes.size());
             return alertes;
@@ -166,7 +133,7 @@ public class AlerteService {
         logger.debug("Recherche des lots perimes");
 
         try {
-            List<Lot> lotsPerimes = lotDAO.findExpired();
+            List<Lot> lotsPerimes = moteur.getLotsPerimes();
             logger.info("{} lot(s) perime(s) detecte(s)", lotsPerimes.size());
             return lotsPerimes;
 
@@ -179,22 +146,29 @@ public class AlerteService {
     /**
      * Retourne le nombre total d'alertes actives.
      * <p>
-     * Utile pour afficher un badge sur le dashboard.
+     * Utile pour afficher un badge sur le dashboard. Les compteurs sont tenus a jour
+     * par le moteur d'alertes : sans modification de stock recente, aucune requete.
      * </p>
      *
      * @return le nombre total d'alertes
      * @throws ServiceException si une erreur survient
      */
     public int getNombreAlertes() throws ServiceException {
-        int nbStockBas = getAlertesStockBas().size();
-        int nbPeremption = getAlertesPeremption().size();
-        int nbPerimes = getLotsPerimes().size();
+        try {
+            int nbStockBas = moteur.getNombreStockBas();
+            int nbPeremption = moteur.getNombrePeremption();
+            int nbPerimes = moteur.getNombrePerimes();
+
+            int total = nbStockBas + nbPeremption + nbPerimes;
+            logger.debug("Total alertes: {} (stock bas: {}, peremption: {}, perimes: {})",
+                    total, nbStockBas, nbPeremption, nbPerimes);
 
-        int total = nbStockBas + nbPeremption + nbPerimes;
-        logger.debug("Total alertes: {} (stock bas: {}, peremption: {}, perimes: {})",
-                total, nbStockBas, nbPeremption, nbPerimes);
+            return total;
 
-        return total;
+        } catch (DAOException e) {
+            logger.error("Erreur lors du comptage des alertes", e);
+            throw new ServiceException("Erreur lors du comptage des alertes", e);
+        }
     }
 
     /**
@@ -204,11 +178,25 @@ public class AlerteService {
      * @throws ServiceException si une erreur survient
      */
     public List<AlertePeremption> getAlertesCritiques() throws ServiceException {
-        List<AlertePeremption> alertes = getAlertesPeremption(30);
-        // Filtrer pour ne garder que les critiques
-        return alertes.stream()
-                .filter(a -> a.getJoursRestants() <= 30)
-                .toList();
+        return getAlertesPeremption(MoteurAlertes.JOURS_CRITIQUE);
+    }
+
+    /**
+     * Abonne un ecouteur aux changements d'alertes, au lieu d'interroger le service a intervalles.
+     *
+     * @param ecouteur l'ecouteur
+     */
+    public void abonner(MoteurAlertes.EcouteurAlertes ecouteur) {
+        moteur.ajouterEcouteur(ecouteur);
+    }
+
+    /**
+     * Desabonne un ecouteur des changements d'alertes.
+     *
+     * @param ecouteur l'ecouteur
+     */
+    public void desabonner(MoteurAlertes.EcouteurAlertes ecouteur) {
+        moteur.retirerEcouteur(ecouteur);
     }
 
     /**
@@ -256,4 +244,5 @@ public class AlerteService {
 
         return sb.toString();
     }
+
 }
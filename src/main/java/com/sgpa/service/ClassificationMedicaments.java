@@ -0,0 +1,343 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.ClassificationDAO;
+import com.sgpa.dao.ConsommationDAO;
+import com.sgpa.dao.MedicamentDAO;
+import com.sgpa.dao.impl.ClassificationDAOImpl;
+import com.sgpa.dao.impl.ConsommationDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.dto.ClasseMedicament;
+import com.sgpa.dto.HistoriqueConsommations;
+import com.sgpa.exception.DAOException;
+import com.sgpa.model.Medicament;
+import com.sgpa.utils.Montant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+
+/**
+ * Classification ABC/XYZ residente de tout le catalogue.
+ * <p>
+ * Le classement se fait en un passage sur l'historique journalier agrege (une
+ * requete) et le catalogue en cache : valeur des ventes et coefficient de variation
+ * par medicament, puis un tri par valeur pour les classes ABC. Seules les lignes
+ * dont la classe change sont reecrites en base.
+ * </p>
+ * <p>
+ * Les classes servent a traiter d'abord les medicaments qui comptent (AX en tete) :
+ * tri des alertes, selection du modele de prevision, comptage cyclique. La
+ * classification n'est qu'une aide au tri : un echec de lecture est journalise et
+ * les medicaments sans classe sont traites comme des BY.
+ * </p>
+ * <p>
+ * L'instance partagee classe en tache de fond, sans jamais bloquer une lecture :
+ * {@link #demarrer()} (appele au lancement de l'application, sinon a la premiere
+ * lecture) charge les classes enregistrees puis recalcule le classement, refait
+ * ensuite toutes les {@value #DUREE_VALIDITE_MS} ms. En attendant, les lectures
+ * voient les classes deja connues. {@link #reclasser()} reste appelable directement
+ * (traitement de nuit).
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class ClassificationMedicaments {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassificationMedicaments.class);
+
+    /** Part cumulee du chiffre d'affaires couverte par les medicaments A */
+    public static final double PART_A = 0.80;
+
+    /** Part cumulee du chiffre d'affaires couverte par les medicaments A et B */
+    public static final double PART_B = 0.95;
+
+    /** Coefficient de variation maximal d'une demande X */
+    public static final double CV_X = 0.5;
+
+    /** Coefficient de variation maximal d'une demande Y */
+    public static final double CV_Y = 1.0;
+
+    /** Duree de validite d'un classement (24 heures) */
+    public static final long DUREE_VALIDITE_MS = 24L * 3600 * 1000;
+
+    /** Priorite d'un medicament sans classe (BY) */
+    public static final int PRIORITE_INCONNUE = 4;
+
+    /** Delai avant un nouvel essai apres un classement en echec (1 heure) */
+    private static final long DELAI_NOUVEL_ESSAI_MS = 3600_000L;
+
+    /** Instance unique (Singleton) */
+    private static volatile ClassificationMedicaments instance;
+
+    private final ConsommationDAO consommationDAO;
+    private final MedicamentDAO medicamentDAO;
+    private final ClassificationDAO classificationDAO;
+    private final int nbJours;
+    /** Executeur du classement de fond, null : classement a la lecture (tests) */
+    private final ScheduledExecutorService executeur;
+    private final AtomicBoolean demarre = new AtomicBoolean();
+
+    private volatile Map<Integer, ClasseMedicament> classes = Map.of();
+    private volatile boolean charge;
+    private volatile long dernierClassement;
+
+    /**
+     * Constructeur avec injection des dependances (pour tests). Aucun traitement de
+     * fond : le classement est calcule a la lecture quand il manque ou est perime.
+     *
+     * @param consommationDAO   le DAO consommation
+     * @param medicamentDAO     le DAO medicament
+     * @param classificationDAO le DAO classification
+     * @param nbJours           le nombre de jours d'historique classes
+     */
+    public ClassificationMedicaments(ConsommationDAO consommationDAO, MedicamentDAO medicamentDAO,
+                                     ClassificationDAO classificationDAO, int nbJours) {
+        this(consommationDAO, medicamentDAO, classificationDAO, nbJours, null);
+    }
+
+    private ClassificationMedicaments(ConsommationDAO consommationDAO, MedicamentDAO medicamentDAO,
+                                      ClassificationDAO classificationDAO, int nbJours,
+                                      ScheduledExecutorService executeur) {
+        this.consommationDAO = consommationDAO;
+        this.medicamentDAO = medicamentDAO;
+        this.classificationDAO = classificationDAO;
+        this.nbJours = nbJours;
+        this.executeur = executeur;
+    }
+
+    /**
+     * Retourne l'instance unique, sur la periode d'analyse des predictions.
+     *
+     * @return l'instance partagee
+     */
+    public static ClassificationMedicaments getInstance() {
+        if (instance == null) {
+            synchronized (ClassificationMedicaments.class) {
+                if (instance == null) {
+                    ScheduledExecutorService executeur = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "classification-medicaments");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    instance = new ClassificationMedicaments(new ConsommationDAOImpl(),
+                            MedicamentDAOCache.getInstance(), new ClassificationDAOImpl(),
+                            new ConfigService().getPredictionJoursAnalyse(), executeur);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Lance le classement de fond : classes enregistrees, puis classement recalcule
+     * et refait chaque jour. Sans effet s'il est deja lance ou sans executeur.
+     */
+    public void demarrer() {
+        if (executeur != null && demarre.compareAndSet(false, true)) {
+            executeur.execute(this::reclasserEnFond);
+        }
+    }
+
+    // ==================== Lectures ====================
+
+    /**
+     * Retourne la classe d'un medicament.
+     *
+     * @param idMedicament l'ID du medicament
+     * @return sa classe, ou null s'il n'est pas encore classe
+     */
+    public ClasseMedicament getClasse(int idMedicament) {
+        preparer();
+        return classes.get(idMedicament);
+    }
+
+    /**
+     * Retourne le rang de priorite d'un medicament (voir {@link ClasseMedicament#getPriorite()}).
+     *
+     * @param idMedicament l'ID du medicament
+     * @return le rang, {@link #PRIORITE_INCONNUE} s'il n'est pas classe
+     */
+    public int getPriorite(int idMedicament) {
+        ClasseMedicament classe = getClasse(idMedicament);
+        return classe != null ? classe.getPriorite() : PRIORITE_INCONNUE;
+    }
+
+    /**
+     * @return les classes de tous les medicaments classes, par ID (non modifiable)
+     */
+    public Map<Integer, ClasseMedicament> getClasses() {
+        preparer();
+        return classes;
+    }
+
+    /**
+     * Trie une liste par priorite de classe (AX en tete), en gardant l'ordre existant
+     * a priorite egale.
+     *
+     * @param elements     la liste a trier
+     * @param idMedicament l'ID du medicament de chaque element
+     * @param <T>          le type des elements
+     */
+    public <T> void trierParPriorite(List<T> elements, ToIntFunction<T> idMedicament) {
+        Map<Integer, ClasseMedicament> courantes = getClasses();
+        elements.sort(Comparator.comparingInt(element -> {
+            ClasseMedicament classe = courantes.get(idMedicament.applyAsInt(element));
+            return classe != null ? classe.getPriorite() : PRIORITE_INCONNUE;
+        }));
+    }
+
+    // ==================== Classement ====================
+
+    /**
+     * Recalcule les classes de tout le catalogue et enregistre celles qui changent.
+     *
+     * @return le nombre de medicaments dont la classe a change
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    public synchronized int reclasser() throws DAOException {
+        long debut = System.nanoTime();
+        if (!charge) {
+            classes = Map.copyOf(classificationDAO.findAll());
+            charge = true;
+        }
+
+        List<ClasseMedicament> nouvelles = classer(consommationDAO.getHistoriqueConsommations(nbJours),
+                medicamentDAO.findAllActive());
+        Map<Integer, ClasseMedicament> anciennes = classes;
+        Map<Integer, ClasseMedicament> parMedicament = new HashMap<>(nouvelles.size() * 2);
+        List<ClasseMedicament> changees = new ArrayList<>();
+        for (ClasseMedicament classe : nouvelles) {
+            parMedicament.put(classe.getIdMedicament(), classe);
+            if (!classe.memesClasses(anciennes.get(classe.getIdMedicament()))) {
+                changees.add(classe);
+            }
+        }
+
+        classificationDAO.enregistrer(changees);
+        classes = Map.copyOf(parMedicament);
+        dernierClassement = System.currentTimeMillis();
+        logger.info("Classification ABC/XYZ: {} medicaments, {} changement(s), {} ms", nouvelles.size(),
+                changees.size(), (System.nanoTime() - debut) / 1_000_000);
+        return changees.size();
+    }
+
+    /**
+     * Classe des medicaments d'apres leur historique de ventes.
+     *
+     * @param historique  l'historique journalier des consommations
+     * @param medicaments les medicaments a classer (prix public pour la valeur)
+     * @return les classes, dans l'ordre des valeurs decroissantes
+     */
+    public static List<ClasseMedicament> classer(HistoriqueConsommations historique, List<Medicament> medicaments) {
+        int n = medicaments.size();
+        int[] ids = new int[n];
+        long[] valeurs = new long[n];
+        double[] coefficients = new double[n];
+        long valeurTotale = 0;
+
+        for (int i = 0; i < n; i++) {
+            Medicament medicament = medicaments.get(i);
+            ids[i] = medicament.getIdMedicament();
+            int[] serie = historique.getSerie(ids[i]);
+            long somme = 0;
+            double sommeCarres = 0;
+            for (int quantite : serie) {
+                somme += quantite;
+                sommeCarres += (double) quantite * quantite;
+            }
+            long prix = medicament.getPrixPublic() != null ? Montant.enCentimes(medicament.getPrixPublic()) : 0;
+            valeurs[i] = Math.max(0, somme) * prix;
+            valeurTotale += valeurs[i];
+
+            double moyenne = serie.length > 0 ? (double) somme / serie.length : 0;
+            if (moyenne <= 0) {
+                coefficients[i] = Double.POSITIVE_INFINITY;
+            } else {
+                double variance = Math.max(0, sommeCarres / serie.length - moyenne * moyenne);
+                coefficients[i] = Math.sqrt(variance) / moyenne;
+            }
+        }
+
+        Integer[] ordre = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ordre[i] = i;
+        }
+        Arrays.sort(ordre, (a, b) -> Long.compare(valeurs[b], valeurs[a]));
+
+        List<ClasseMedicament> resultat = new ArrayList<>(n);
+        long cumul = 0;
+        for (Integer i : ordre) {
+            // La part cumulee avant le medicament decide : le premier a franchir 80 % est encore A
+            char abc;
+            if (valeurs[i] == 0) {
+                abc = 'C';
+            } else if (cumul < PART_A * valeurTotale) {
+                abc = 'A';
+            } else if (cumul < PART_B * valeurTotale) {
+                abc = 'B';
+            } else {
+                abc = 'C';
+            }
+            cumul += valeurs[i];
+            char xyz = coefficients[i] <= CV_X ? 'X' : coefficients[i] <= CV_Y ? 'Y' : 'Z';
+            resultat.add(new ClasseMedicament(ids[i], abc, xyz, valeurs[i], coefficients[i]));
+        }
+        return resultat;
+    }
+
+    /**
+     * Classe en tache de fond et planifie le classement suivant.
+     */
+    private void reclasserEnFond() {
+        long delai = DUREE_VALIDITE_MS;
+        try {
+            reclasser();
+        } catch (DAOException | RuntimeException e) {
+            // Les classes courantes restent en place jusqu'au nouvel essai
+            logger.warn("Classification ABC/XYZ non recalculee", e);
+            delai = DELAI_NOUVEL_ESSAI_MS;
+        }
+        executeur.schedule(this::reclasserEnFond, delai, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lance le classement de fond si aucun classement n'a encore eu lieu, ou, sans
+     * executeur, charge les classes a la premiere lecture et les recalcule si elles
+     * sont perimees.
+     */
+    private void preparer() {
+        if (executeur != null) {
+            if (!charge) {
+                demarrer();
+            }
+            return;
+        }
+        if (charge && System.currentTimeMillis() - dernierClassement < DUREE_VALIDITE_MS) {
+            return;
+        }
+        synchronized (this) {
+            if (charge && System.currentTimeMillis() - dernierClassement < DUREE_VALIDITE_MS) {
+                return;
+            }
+            try {
+                reclasser();
+            } catch (DAOException e) {
+                // Nouvel essai au plus tot apres une heure, les classes courantes restent en place
+                logger.warn("Classification ABC/XYZ non recalculee", e);
+                dernierClassement = System.currentTimeMillis() - DUREE_VALIDITE_MS + DELAI_NOUVEL_ESSAI_MS;
+                charge = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.LotDAO;
+import com.sgpa.dao.MedicamentDAO;
+import com.sgpa.dao.impl.LotDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.exception.DAOException;
+import com.sgpa.exception.ServiceException;
+import com.sgpa.exception.ServiceException.ErrorType;
+import com.sgpa.model.Lot;
+import com.sgpa.model.Medicament;
+import com.sgpa.utils.CodeBarre;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+
+/**
+ * Service de lecture des codes-barres (douchette).
+ * <p>
+ * Resout un code CIP13 / EAN-13 ou un DataMatrix GS1 en medicament et, si le code
+ * porte un numero de lot, en lot precis :
+ * </p>
+ * <ul>
+ *   <li>le medicament est trouve dans l'index CIP13 du catalogue residant
+ *       ({@link MedicamentDAOCache}), sans requete</li>
+ *   <li>le lot est d'abord cherche parmi les lots vendables du {@link FefoEngine},
+ *       puis en base (lot perime ou vide, utile a l'inventaire)</li>
+ *   <li>le stock vendable est lu dans le {@link FefoEngine} ; si le medicament n'y est
+ *       pas, ses lots sont charges une fois et resteront en memoire pour la vente</li>
+ * </ul>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class CodeBarreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodeBarreService.class);
+
+    private final MedicamentDAO medicamentDAO;
+    private final LotDAO lotDAO;
+    private final FefoEngine fefoEngine;
+
+    /**
+     * Constructeur par defaut.
+     */
+    public CodeBarreService() {
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
+        this.lotDAO = new LotDAOImpl();
+        this.fefoEngine = FefoEngine.getInstance();
+    }
+
+    /**
+     * Constructeur avec injection des dependances (pour tests).
+     *
+     * @param medicamentDAO le DAO medicament
+     * @param lotDAO        le DAO lot
+     * @param fefoEngine    le moteur FEFO
+     */
+    public CodeBarreService(MedicamentDAO medicamentDAO, LotDAO lotDAO, FefoEngine fefoEngine) {
+        this.medicamentDAO = medicamentDAO;
+        this.lotDAO = lotDAO;
+        this.fefoEngine = fefoEngine;
+    }
+
+    /**
+     * Resout une saisie de douchette.
+     *
+     * @param saisie le texte lu
+     * @return le medicament et, pour un DataMatrix, le lot ; null si la saisie n'est pas un code-barres
+     * @throws ServiceException si le code n'est pas reference (NOT_FOUND) ou en cas d'erreur d'acces
+     */
+    public Lecture lire(String saisie) throws ServiceException {
+        CodeBarre code = CodeBarre.analyser(saisie);
+        if (code == null) {
+            return null;
+        }
+
+        try {
+            Medicament medicament = medicamentDAO.findByCodeCip13(code.getCodeCip13());
+            if (medicament == null) {
+                throw new ServiceException("Code-barres inconnu: " + code.getCodeCip13(), ErrorType.NOT_FOUND);
+            }
+
+            int idMedicament = medicament.getIdMedicament();
+            int stockVendable = fefoEngine.getStockVendableResident(idMedicament);
+            if (stockVendable < 0) {
+                fefoEngine.charger(idMedicament, lotDAO.findVendableByMedicament(idMedicament));
+                stockVendable = Math.max(0, fefoEngine.getStockVendableResident(idMedicament));
+            }
+
+            Lot lot = null;
+            if (code.getNumeroLot() != null) {
+                lot = fefoEngine.trouverLotResident(medicament.getIdMedicament(), code.getNumeroLot());
+                if (lot == null) {
+                    lot = lotDAO.findByMedicamentAndNumeroLot(medicament.getIdMedicament(), code.getNumeroLot());
+                }
+            }
+
+            logger.debug("Code lu {} -> medicament {}, lot {}", code, medicament.getIdMedicament(),
+                    lot != null ? lot.getIdLot() : null);
+            return new Lecture(code, medicament, lot, stockVendable);
+
+        } catch (DAOException e) {
+            throw new ServiceException("Erreur lors de la lecture du code-barres", e);
+        }
+    }
+
+    /**
+     * Resultat d'une lecture de code-barres.
+     */
+    public static class Lecture {
+        private final CodeBarre code;
+        private final Medicament medicament;
+        private final Lot lot;
+        private final int stockVendable;
+
+        Lecture(CodeBarre code, Medicament medicament, Lot lot, int stockVendable) {
+            this.code = code;
+            this.medicament = medicament;
+            this.lot = lot;
+            this.stockVendable = stockVendable;
+        }
+
+        /**
+         * @return le code lu
+         */
+        public CodeBarre getCode() {
+            return code;
+        }
+
+        /**
+         * @return le medicament reference par le code
+         */
+        public Medicament getMedicament() {
+            return medicament;
+        }
+
+        /**
+         * @return le lot identifie par le DataMatrix, null si absent ou inconnu
+         */
+        public Lot getLot() {
+            return lot;
+        }
+
+        /**
+         * @return le stock vendable du medicament, lu dans le moteur FEFO
+         */
+        public int getStockVendable() {
+            return stockVendable;
+        }
+
+        /**
+         * Indique si la boite lue est perimee, d'apres son lot ou la date du DataMatrix.
+         *
+         * @return true si perimee
+         */
+        public boolean isPerime() {
+            if (lot != null) {
+                return lot.isPerime();
+            }
+            return code.getDatePeremption() != null
+                    && code.getDatePeremption().isBefore(LocalDate.now());
+        }
+    }
+}
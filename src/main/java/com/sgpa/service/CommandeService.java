@@ -1,8 +1,10 @@
 package com.sgpa.service;
 
 import com.sgpa.dao.CommandeDAO;
+import com.sgpa.dao.DelaiLivraisonDAO;
 import com.sgpa.dao.LotDAO;
 import com.sgpa.dao.impl.CommandeDAOImpl;
+import com.sgpa.dao.impl.DelaiLivraisonDAOImpl;
 import com.sgpa.dao.impl.LotDAOImpl;
 import com.sgpa.exception.DAOException;
 import com.sgpa.exception.ServiceException;
@@ -11,21 +13,28 @@ import com.sgpa.model.Commande;
 import com.sgpa.model.LigneCommande;
 import com.sgpa.model.Lot;
 import com.sgpa.model.enums.StatutCommande;
+import com.sgpa.utils.DatabaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service de gestion des commandes fournisseurs.
  * <p>
  * Gere le cycle de vie des commandes :
  * <ul>
- *   <li>Creation de commandes</li>
- *   <li>Reception et creation automatique des lots</li>
+ *   <li>Creation de commandes (lignes inserees en lot, dans une transaction)</li>
+ *   <li>Reception et creation automatique des lots, avec mesure du delai de livraison</li>
  *   <li>Annulation</li>
  * </ul>
  * </p>
@@ -39,24 +48,26 @@ public class CommandeService {
 
     private final CommandeDAO commandeDAO;
     private final LotDAO lotDAO;
+    private final DelaiLivraisonDAO delaiLivraisonDAO;
 
     /**
      * Constructeur par defaut.
      */
     public CommandeService() {
-        this.commandeDAO = new CommandeDAOImpl();
-        this.lotDAO = new LotDAOImpl();
+        this(new CommandeDAOImpl(), new LotDAOImpl(), new DelaiLivraisonDAOImpl());
     }
 
     /**
      * Constructeur avec injection des DAOs (pour tests).
      *
-     * @param commandeDAO le DAO commande
-     * @param lotDAO      le DAO lot
+     * @param commandeDAO       le DAO commande
+     * @param lotDAO            le DAO lot
+     * @param delaiLivraisonDAO le DAO des delais de livraison
      */
-    public CommandeService(CommandeDAO commandeDAO, LotDAO lotDAO) {
+    public CommandeService(CommandeDAO commandeDAO, LotDAO lotDAO, DelaiLivraisonDAO delaiLivraisonDAO) {
         this.commandeDAO = commandeDAO;
         this.lotDAO = lotDAO;
+        this.delaiLivraisonDAO = delaiLivraisonDAO;
     }
 
     /**
@@ -75,29 +86,17 @@ public class CommandeService {
 
         logger.info("Creation d'une commande pour le fournisseur {}", idFournisseur);
 
-        try {
-            Commande commande = new Commande();
-            commande.setIdFournisseur(idFournisseur);
-            commande.setDateCreation(LocalDateTime.now());
-            commande.setStatut(StatutCommande.EN_ATTENTE);
-            commande.setNotes(notes);
-
-            commande = commandeDAO.save(commande);
-
-            for (LigneCommande ligne : lignes) {
-                ligne.setIdCommande(commande.getIdCommande());
-                commandeDAO.saveLigneCommande(ligne);
-            }
+        Commande commande = new Commande();
+        commande.setIdFournisseur(idFournisseur);
+        commande.setDateCreation(LocalDateTime.now());
+        commande.setStatut(StatutCommande.EN_ATTENTE);
+        commande.setNotes(notes);
+        commande.setLignesCommande(lignes);
 
-            commande.setLignesCommande(lignes);
-            logger.info("Commande {} creee avec {} ligne(s)", commande.getIdCommande(), lignes.size());
+        creerCommandes(List.of(commande));
+        logger.info("Commande {} creee avec {} ligne(s)", commande.getIdCommande(), lignes.size());
 
-            return commande;
-
-        } catch (DAOException e) {
-            logger.error("Erreur lors de la creation de la commande", e);
-            throw new ServiceException("Erreur lors de la creation de la commande", e);
-        }
+        return commande;
     }
 
     /**
@@ -109,39 +108,64 @@ public class CommandeService {
      * @throws ServiceException si une erreur survient
      */
     public Commande creerCommande(int idFournisseur, List<LigneCommande> lignes) throws ServiceException {
-        if (lignes == null || lignes.isEmpty()) {
-            throw new ServiceException("La commande doit contenir au moins une ligne", ErrorType.VALIDATION);
-        }
+        return creerCommande(idFournisseur, lignes, null);
+    }
 
-        logger.info("Creation d'une commande pour le fournisseur {}", idFournisseur);
+    /**
+     * Enregistre plusieurs commandes preparees dans une seule transaction.
+     * <p>
+     * Chaque entete est insere, puis toutes les lignes de toutes les commandes sont
+     * inserees en un seul lot JDBC. En cas d'erreur, aucune commande n'est creee.
+     * Les commandes et leurs lignes recoivent leur ID genere.
+     * </p>
+     *
+     * @param commandes les commandes a creer, avec fournisseur, statut et lignes renseignes
+     * @throws ServiceException si une commande est vide ou si une erreur survient
+     */
+    public void creerCommandes(List<Commande> commandes) throws ServiceException {
+        for (Commande commande : commandes) {
+            if (commande.getLignesCommande() == null || commande.getLignesCommande().isEmpty()) {
+                throw new ServiceException("La commande doit contenir au moins une ligne", ErrorType.VALIDATION);
+            }
+        }
+        if (commandes.isEmpty()) {
+            return;
+        }
 
+        Connection conn = null;
         try {
-            Commande commande = new Commande();
-            commande.setIdFournisseur(idFournisseur);
-            commande.setDateCreation(LocalDateTime.now());
-            commande.setStatut(StatutCommande.EN_ATTENTE);
-
-            commande = commandeDAO.save(commande);
-
-            // Sauvegarder les lignes
-            for (LigneCommande ligne : lignes) {
-                ligne.setIdCommande(commande.getIdCommande());
-                commandeDAO.saveLigneCommande(ligne);
+            conn = DatabaseConnection.getInstance().getConnection();
+            conn.setAutoCommit(false);
+
+            List<LigneCommande> lignes = new ArrayList<>();
+            for (Commande commande : commandes) {
+                commandeDAO.save(conn, commande);
+                for (LigneCommande ligne : commande.getLignesCommande()) {
+                    ligne.setIdCommande(commande.getIdCommande());
+                    lignes.add(ligne);
+                }
             }
+            commandeDAO.saveLignesCommande(conn, lignes);
 
-            commande.setLignesCommande(lignes);
-            logger.info("Commande {} creee avec {} ligne(s)", commande.getIdCommande(), lignes.size());
+            conn.commit();
+            logger.debug("{} commande(s) creee(s) avec {} ligne(s)", commandes.size(), lignes.size());
 
-            return commande;
-
-        } catch (DAOException e) {
+        } catch (SQLException | DAOException e) {
+            rollback(conn);
             logger.error("Erreur lors de la creation de la commande", e);
             throw new ServiceException("Erreur lors de la creation de la commande", e);
+
+        } finally {
+            close(conn);
         }
     }
 
     /**
      * Recoit une commande et cree les lots correspondants.
+     * <p>
+     * Le delai entre la creation et la reception de la commande est ensuite ajoute au
+     * modele de delai du fournisseur et de chaque medicament recu.
+     * </p>
      *
      * @param idCommande     l'ID de la commande
      * @param receptions     les informations de reception (quantites recues, dates peremption)
@@ -173,6 +197,7 @@ public class CommandeService {
                 lot.setPrixAchat(reception.prixAchat);
 
                 lotDAO.save(lot);
+                FefoEngine.getInstance().invalider(reception.idMedicament);
                 logger.debug("Lot cree: {} ({} unites)", reception.numeroLot, reception.quantiteRecue);
             }
 
@@ -182,6 +207,7 @@ public class CommandeService {
             commandeDAO.update(commande);
 
             logger.info("Commande {} recue avec {} lot(s) cree(s)", idCommande, receptions.size());
+            enregistrerDelaiLivraison(commande, receptions);
 
         } catch (DAOException e) {
             logger.error("Erreur lors de la reception de la commande", e);
@@ -189,6 +215,32 @@ public class CommandeService {
         }
     }
 
+    /**
+     * Ajoute le delai de livraison d'une commande recue aux modeles de delai.
+     * <p>
+     * Un echec est journalise sans annuler la reception, deja enregistree.
+     * </p>
+     */
+    private void enregistrerDelaiLivraison(Commande commande, List<ReceptionInfo> receptions) {
+        if (commande.getDateCreation() == null || receptions.isEmpty()) {
+            return;
+        }
+        double jours = Math.max(0, Duration.between(commande.getDateCreation(),
+                commande.getDateReception()).toMinutes() / 1440.0);
+        Set<Integer> medicaments = new LinkedHashSet<>();
+        for (ReceptionInfo reception : receptions) {
+            medicaments.add(reception.idMedicament);
+        }
+        try {
+            delaiLivraisonDAO.enregistrerReception(commande.getIdFournisseur(), medicaments, jours);
+            PredictionService.viderCache();
+            logger.debug("Delai de livraison de la commande {}: {} jour(s)", commande.getIdCommande(),
+                    String.format("%.1f", jours));
+        } catch (DAOException e) {
+            logger.warn("Delai de livraison de la commande {} non enregistre", commande.getIdCommande(), e);
+        }
+    }
+
     /**
      * Annule une commande.
      *
@@ -263,6 +315,41 @@ public class CommandeService {
         }
     }
 
+    /**
+     * Effectue un rollback de la transaction.
+     *
+     * @param conn la connexion
+     */
+    private void rollback(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+                logger.warn("Transaction annulee (rollback)");
+            } catch (SQLException e) {
+                logger.error("Erreur lors du rollback", e);
+            }
+        }
+    }
+
+    /**
+     * Restaure l'auto-commit et rend la connexion au pool.
+     *
+     * @param conn la connexion
+     */
+    private void close(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ignored) {
+            }
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                logger.error("Erreur lors de la fermeture de la connexion", e);
+            }
+        }
+    }
+
     /**
      * Informations pour la reception d'un article.
      */
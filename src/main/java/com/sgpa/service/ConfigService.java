@@ -52,6 +52,12 @@ public class ConfigService {
         DEFAULT_PROPS.setProperty("prediction.stock.cible.jours", "30");
         DEFAULT_PROPS.setProperty("prediction.seuil.critique.jours", "7");
         DEFAULT_PROPS.setProperty("prediction.seuil.urgent.jours", "14");
+        // Planification des commandes
+        DEFAULT_PROPS.setProperty("planification.commande.minimum", "0");
+        DEFAULT_PROPS.setProperty("planification.colisage.defaut", "1");
+        // Journal local des ventes
+        DEFAULT_PROPS.setProperty("journal.repertoire", USER_CONFIG_DIR);
+        DEFAULT_PROPS.setProperty("journal.attente.ms", "2000");
     }
 
     private Properties config;
@@ -335,6 +341,50 @@ public class ConfigService {
         }
     }
 
+    // ==================== Getters Planification ====================
+
+    /**
+     * Retourne le montant minimum (en euros) d'une commande fournisseur planifiee, 0 pour aucun.
+     */
+    public int getPlanificationCommandeMinimum() {
+        try {
+            return Integer.parseInt(config.getProperty("planification.commande.minimum", "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Retourne le colisage applique quand aucun n'est configure pour le medicament et son fournisseur.
+     */
+    public int getPlanificationColisageDefaut() {
+        try {
+            return Integer.parseInt(config.getProperty("planification.colisage.defaut", "1"));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    // ==================== Getters Journal des ventes ====================
+
+    /**
+     * Retourne le repertoire du journal local des ventes.
+     */
+    public String getJournalRepertoire() {
+        return config.getProperty("journal.repertoire", USER_CONFIG_DIR);
+    }
+
+    /**
+     * Retourne le delai d'attente de la base (en ms) avant de rendre une vente provisoire.
+     */
+    public int getJournalAttenteMs() {
+        try {
+            return Integer.parseInt(config.getProperty("journal.attente.ms", "2000"));
+        } catch (NumberFormatException e) {
+            return 2000;
+        }
+    }
+
     // ==================== Setters Predictions ====================
 
     public void setPredictionJoursAnalyse(int jours) {
@@ -360,4 +410,14 @@ public class ConfigService {
     public void setPredictionSeuilUrgentJours(int jours) {
         config.setProperty("prediction.seuil.urgent.jours", String.valueOf(jours));
     }
+
+    // ==================== Setters Planification ====================
+
+    public void setPlanificationCommandeMinimum(int montant) {
+        config.setProperty("planification.commande.minimum", String.valueOf(montant));
+    }
+
+    public void setPlanificationColisageDefaut(int colisage) {
+        config.setProperty("planification.colisage.defaut", String.valueOf(colisage));
+    }
 }
@@ -4,7 +4,7 @@ import com.sgpa.dao.LotDAO;
 import com.sgpa.dao.MedicamentDAO;
 import com.sgpa.dao.VenteDAO;
 import com.sgpa.dao.impl.LotDAOImpl;
-import com.sgpa.dao.impl.MedicamentDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
 import com.sgpa.dao.impl.VenteDAOImpl;
 import com.sgpa.exception.DAOException;
 import com.sgpa.exception.ServiceException;
@@ -36,7 +36,7 @@ public class ExportService {
 
     public ExportService() {
         this.venteDAO = new VenteDAOImpl();
-        this.medicamentDAO = new MedicamentDAOImpl();
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
         this.lotDAO = new LotDAOImpl();
         this.auditService = new AuditService();
     }
@@ -0,0 +1,517 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.LotDAO;
+import com.sgpa.dao.impl.LotDAOImpl;
+import com.sgpa.exception.DAOException;
+import com.sgpa.model.Lot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Moteur FEFO residant en memoire.
+ * <p>
+ * Conserve, pour chaque medicament deja consulte, la liste de ses lots vendables
+ * triee par date de peremption croissante. Les allocations FEFO et les controles
+ * de stock d'une vente sont ainsi calcules en memoire, sans relancer la requete
+ * des lots vendables a chaque ligne du panier.
+ * </p>
+ * <p>
+ * <b>Coherence :</b> l'ecriture en base reste faite dans la transaction de vente,
+ * sous forme de decrements conditionnels groupes : un lot n'est decremente que s'il
+ * contient encore la quantite demandee. Si un lot a ete vide entre-temps (vente sur
+ * un autre poste par exemple), il est exclu du plan, la quantite manquante est
+ * reportee sur le lot suivant et le medicament est recharge apres la vente.
+ * Les receptions, retours, regularisations et modifications de lots doivent appeler
+ * {@link #invalider(int)} ou {@link #invaliderTout()}. Une entree est de toute facon
+ * rechargee apres {@link #DUREE_VIE_MS} millisecondes.
+ * </p>
+ * <p>
+ * <b>Evenements de stock :</b> ces invalidations et les ventes appliquees sont
+ * relayees aux {@link EcouteurStock ecouteurs} enregistres (moteur d'alertes par
+ * exemple), qui n'ont ainsi pas a etre appeles a chaque point de modification.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class FefoEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FefoEngine.class);
+
+    /** Duree de vie d'une entree avant rechargement depuis la base */
+    public static final long DUREE_VIE_MS = 30_000;
+
+    /** Ordre FEFO : peremption croissante, puis ID de lot pour departager */
+    private static final Comparator<Lot> ORDRE_FEFO = Comparator
+            .comparing(Lot::getDatePeremption)
+            .thenComparing(Lot::getIdLot);
+
+    /** Instance unique (Singleton) */
+    private static volatile FefoEngine instance;
+
+    private final LotDAO lotDAO;
+    private final long dureeVieMs;
+    private final Map<Integer, LotsMedicament> entrees = new ConcurrentHashMap<>();
+    private final List<EcouteurStock> ecouteurs = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructeur avec injection du DAO (pour tests).
+     *
+     * @param lotDAO     le DAO lot
+     * @param dureeVieMs la duree de vie d'une entree en millisecondes
+     */
+    public FefoEngine(LotDAO lotDAO, long dureeVieMs) {
+        this.lotDAO = lotDAO;
+        this.dureeVieMs = dureeVieMs;
+    }
+
+    /**
+     * Retourne l'instance unique du moteur FEFO.
+     *
+     * @return l'instance partagee par tous les services
+     */
+    public static FefoEngine getInstance() {
+        if (instance == null) {
+            synchronized (FefoEngine.class) {
+                if (instance == null) {
+                    instance = new FefoEngine(new LotDAOImpl(), DUREE_VIE_MS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Enregistre un ecouteur des modifications de stock.
+     *
+     * @param ecouteur l'ecouteur
+     */
+    public void ajouterEcouteur(EcouteurStock ecouteur) {
+        ecouteurs.add(ecouteur);
+    }
+
+    /**
+     * Retourne le stock vendable d'un medicament depuis la memoire.
+     *
+     * @param conn         la connexion utilisee si le medicament doit etre charge
+     * @param idMedicament l'ID du medicament
+     * @return la somme des quantites des lots vendables
+     * @throws DAOException si le chargement echoue
+     */
+    public int getStockVendable(Connection conn, int idMedicament) throws DAOException {
+        return stockVendable(getEntree(conn, idMedicament));
+    }
+
+    /**
+     * Retourne le stock vendable d'un medicament s'il est deja en memoire, sans requete.
+     *
+     * @param idMedicament l'ID du medicament
+     * @return la somme des quantites des lots vendables, ou -1 si le medicament n'est pas
+     *         charge ou si son entree a expire
+     */
+    public int getStockVendableResident(int idMedicament) {
+        LotsMedicament entree = entrees.get(idMedicament);
+        if (entree == null || System.currentTimeMillis() - entree.chargeLe >= dureeVieMs) {
+            return -1;
+        }
+        return stockVendable(entree);
+    }
+
+    /**
+     * Recherche un lot vendable deja en memoire par son numero (lecture DataMatrix).
+     * <p>
+     * Aucune requete : retourne null si le medicament n'est pas charge, si son entree
+     * a expire ou si le lot n'est pas vendable.
+     * </p>
+     *
+     * @param idMedicament l'ID du medicament
+     * @param numeroLot    le numero de lot fabricant
+     * @return une copie du lot, ou null
+     */
+    public Lot trouverLotResident(int idMedicament, String numeroLot) {
+        LotsMedicament entree = entrees.get(idMedicament);
+        if (entree == null || System.currentTimeMillis() - entree.chargeLe >= dureeVieMs) {
+            return null;
+        }
+        synchronized (entree) {
+            for (Lot lot : entree.lots) {
+                if (numeroLot.equals(lot.getNumeroLot())) {
+                    return copier(lot);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remplace les lots en memoire d'un medicament par des lots fraichement lus.
+     * <p>
+     * Permet de reutiliser un chargement groupe (voir {@link PlanVente}) sans
+     * relancer la requete des lots vendables medicament par medicament.
+     * </p>
+     *
+     * @param idMedicament l'ID du medicament
+     * @param lots         les lots vendables lus en base
+     */
+    public void charger(int idMedicament, List<Lot> lots) {
+        List<Lot> copie = new ArrayList<>(lots.size());
+        for (Lot lot : lots) {
+            copie.add(copier(lot));
+        }
+        copie.sort(ORDRE_FEFO);
+        entrees.put(idMedicament, new LotsMedicament(copie, System.currentTimeMillis()));
+    }
+
+    /**
+     * Cree un plan d'allocation vide pour une vente.
+     *
+     * @return un nouveau plan
+     */
+    public Plan nouveauPlan() {
+        return new Plan();
+    }
+
+    /**
+     * Applique en memoire un plan dont les ecritures ont ete validees (commit).
+     * <p>
+     * Un lot n'est mis a jour que si sa quantite en memoire est encore celle sur
+     * laquelle le plan a ete calcule ; sinon le medicament est invalide.
+     * </p>
+     *
+     * @param plan le plan persiste
+     */
+    public void appliquer(Plan plan) {
+        for (Integer idMedicament : plan.medicamentsEnConflit) {
+            invalider(idMedicament);
+        }
+        for (Map.Entry<Integer, int[]> e : plan.getQuantitesParLot().entrySet()) {
+            int idMedicament = plan.medicamentParLot.get(e.getKey());
+            LotsMedicament entree = entrees.get(idMedicament);
+            if (entree == null) {
+                continue;
+            }
+            boolean aJour = false;
+            synchronized (entree) {
+                for (Lot lot : entree.lots) {
+                    if (lot.getIdLot().equals(e.getKey())) {
+                        if (lot.getQuantiteStock() == e.getValue()[0]) {
+                            lot.setQuantiteStock(e.getValue()[1]);
+                            aJour = true;
+                        }
+                        break;
+                    }
+                }
+            }
+            if (!aJour) {
+                invalider(idMedicament);
+            }
+        }
+        for (EcouteurStock ecouteur : ecouteurs) {
+            for (Integer idMedicament : plan.getMedicaments()) {
+                ecouteur.stockModifie(idMedicament);
+            }
+        }
+    }
+
+    /**
+     * Invalide les medicaments touches par un plan (rollback ou conflit).
+     *
+     * @param plan le plan abandonne
+     */
+    public void invalider(Plan plan) {
+        for (Integer idMedicament : plan.getMedicaments()) {
+            invalider(idMedicament);
+        }
+    }
+
+    /**
+     * Invalide les lots en memoire d'un medicament.
+     *
+     * @param idMedicament l'ID du medicament
+     */
+    public void invalider(int idMedicament) {
+        if (entrees.remove(idMedicament) != null) {
+            logger.debug("Lots FEFO invalides pour medicament {}", idMedicament);
+        }
+        for (EcouteurStock ecouteur : ecouteurs) {
+            ecouteur.stockModifie(idMedicament);
+        }
+    }
+
+    /**
+     * Invalide l'ensemble des lots en memoire.
+     */
+    public void invaliderTout() {
+        entrees.clear();
+        logger.debug("Cache FEFO vide");
+        for (EcouteurStock ecouteur : ecouteurs) {
+            ecouteur.stockModifieTout();
+        }
+    }
+
+    /**
+     * Retourne l'entree d'un medicament, en la chargeant si absente ou expiree.
+     */
+    private LotsMedicament getEntree(Connection conn, int idMedicament) throws DAOException {
+        LotsMedicament entree = entrees.get(idMedicament);
+        long maintenant = System.currentTimeMillis();
+        if (entree != null && maintenant - entree.chargeLe < dureeVieMs) {
+            return entree;
+        }
+
+        List<Lot> lots = new ArrayList<>(lotDAO.findVendableByMedicament(conn, idMedicament));
+        lots.sort(ORDRE_FEFO);
+        LotsMedicament chargee = new LotsMedicament(lots, maintenant);
+        entrees.put(idMedicament, chargee);
+        logger.debug("{} lot(s) FEFO charges pour medicament {}", lots.size(), idMedicament);
+        return chargee;
+    }
+
+    /**
+     * Somme des quantites des lots vendables d'une entree.
+     */
+    private static int stockVendable(LotsMedicament entree) {
+        synchronized (entree) {
+            int total = 0;
+            for (Lot lot : entree.lots) {
+                if (lot.isVendable()) {
+                    total += lot.getQuantiteStock();
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Copie un lot pour ne pas exposer l'etat interne du moteur.
+     */
+    private static Lot copier(Lot lot) {
+        return new Lot(lot.getIdLot(), lot.getIdMedicament(), lot.getIdFournisseur(),
+                lot.getNumeroLot(), lot.getDatePeremption(), lot.getDateFabrication(),
+                lot.getDateReception(), lot.getQuantiteStock(), lot.getPrixAchat());
+    }
+
+    /**
+     * Ecouteur des modifications de stock (vente, reception, retour, regularisation,
+     * modification de lot). Appele apres l'ecriture en base, sur le thread qui l'a faite :
+     * le traitement doit etre court.
+     */
+    public interface EcouteurStock {
+
+        /**
+         * Le stock d'un medicament a change.
+         *
+         * @param idMedicament l'ID du medicament
+         */
+        void stockModifie(int idMedicament);
+
+        /**
+         * Le stock de medicaments non precises a change.
+         */
+        void stockModifieTout();
+    }
+
+    /**
+     * Lots vendables d'un medicament, tries FEFO.
+     */
+    private static class LotsMedicament {
+        final List<Lot> lots;
+        final long chargeLe;
+
+        LotsMedicament(List<Lot> lots, long chargeLe) {
+            this.lots = lots;
+            this.chargeLe = chargeLe;
+        }
+    }
+
+    /**
+     * Quantite prelevee sur un lot.
+     */
+    public static class Allocation {
+        private final Lot lot;
+        private final int quantite;
+        private final int quantiteAvant;
+
+        Allocation(Lot lot, int quantite, int quantiteAvant) {
+            this.lot = lot;
+            this.quantite = quantite;
+            this.quantiteAvant = quantiteAvant;
+        }
+
+        /** @return une copie du lot preleve */
+        public Lot getLot() {
+            return lot;
+        }
+
+        /** @return la quantite prelevee */
+        public int getQuantite() {
+            return quantite;
+        }
+
+        /** @return la quantite du lot connue du moteur avant la vente */
+        public int getQuantiteAvant() {
+            return quantiteAvant;
+        }
+    }
+
+    /**
+     * Plan d'allocation FEFO d'une vente.
+     * <p>
+     * Un plan cumule les prelevements de toutes les lignes d'une vente, ce qui evite
+     * d'allouer deux fois le meme stock si un medicament apparait sur plusieurs lignes.
+     * </p>
+     */
+    public class Plan {
+        private final List<Allocation> allocations = new ArrayList<>();
+        private final Map<Integer, Integer> dejaAlloue = new HashMap<>();
+        private final Map<Integer, Integer> medicamentParLot = new HashMap<>();
+        private final Set<Integer> lotsExclus = new HashSet<>();
+        private final Set<Integer> medicamentsEnConflit = new HashSet<>();
+
+        private Plan() {
+        }
+
+        /**
+         * Retire une allocation refusee par la base et exclut son lot du reste du plan.
+         * <p>
+         * Appele quand le decrement conditionnel d'un lot a echoue : les allocations
+         * suivantes du medicament passent au lot suivant dans l'ordre FEFO.
+         * </p>
+         *
+         * @param allocation l'allocation refusee
+         */
+        public void exclure(Allocation allocation) {
+            int idLot = allocation.lot.getIdLot();
+            allocations.remove(allocation);
+            dejaAlloue.merge(idLot, -allocation.quantite, Integer::sum);
+            lotsExclus.add(idLot);
+            medicamentsEnConflit.add(allocation.lot.getIdMedicament());
+        }
+
+        /**
+         * Alloue une quantite d'un medicament selon l'ordre FEFO.
+         *
+         * @param conn         la connexion utilisee si le medicament doit etre charge
+         * @param idMedicament l'ID du medicament
+         * @param quantite     la quantite demandee
+         * @return les allocations de cette demande, ou une liste vide si le stock est insuffisant
+         * @throws DAOException si le chargement echoue
+         */
+        public List<Allocation> allouer(Connection conn, int idMedicament, int quantite) throws DAOException {
+            return allouer(conn, idMedicament, quantite, null);
+        }
+
+        /**
+         * Alloue une quantite d'un medicament en commencant par un lot impose (boite scannee),
+         * puis selon l'ordre FEFO pour ce que ce lot ne couvre pas (stock du lot vide ou exclu
+         * alors que la boite est en main).
+         *
+         * @param conn         la connexion utilisee si le medicament doit etre charge
+         * @param idMedicament l'ID du medicament
+         * @param quantite     la quantite demandee
+         * @param idLotImpose  le lot a prelever en premier, ou null pour l'ordre FEFO seul
+         * @return les allocations de cette demande, ou une liste vide si le stock est insuffisant
+         * @throws DAOException si le chargement echoue
+         */
+        public List<Allocation> allouer(Connection conn, int idMedicament, int quantite, Integer idLotImpose)
+                throws DAOException {
+            LotsMedicament entree = getEntree(conn, idMedicament);
+            List<Allocation> resultat = new ArrayList<>();
+
+            synchronized (entree) {
+                int restant = quantite;
+                Lot impose = null;
+                if (idLotImpose != null) {
+                    for (Lot lot : entree.lots) {
+                        if (idLotImpose.equals(lot.getIdLot())) {
+                            impose = lot;
+                            restant -= prendre(lot, restant, resultat);
+                            break;
+                        }
+                    }
+                }
+                for (Lot lot : entree.lots) {
+                    if (restant <= 0) break;
+                    if (lot != impose) {
+                        restant -= prendre(lot, restant, resultat);
+                    }
+                }
+                if (restant > 0) {
+                    return Collections.emptyList();
+                }
+            }
+
+            for (Allocation allocation : resultat) {
+                dejaAlloue.merge(allocation.lot.getIdLot(), allocation.quantite, Integer::sum);
+                medicamentParLot.put(allocation.lot.getIdLot(), idMedicament);
+            }
+            allocations.addAll(resultat);
+            return resultat;
+        }
+
+        /**
+         * Preleve sur un lot ce qu'il peut encore fournir a ce plan, au plus la quantite restante.
+         *
+         * @return la quantite prelevee
+         */
+        private int prendre(Lot lot, int restant, List<Allocation> resultat) {
+            if (lot.isPerime() || lotsExclus.contains(lot.getIdLot())) {
+                return 0;
+            }
+            int disponible = lot.getQuantiteStock() - dejaAlloue.getOrDefault(lot.getIdLot(), 0);
+            if (disponible <= 0) {
+                return 0;
+            }
+            int aPrendre = Math.min(disponible, restant);
+            resultat.add(new Allocation(copier(lot), aPrendre, lot.getQuantiteStock()));
+            return aPrendre;
+        }
+
+        /**
+         * Retourne la quantite avant et apres la vente de chaque lot touche, indexee par ID de lot.
+         *
+         * @return les quantites attendues (index 0) et nouvelles (index 1) par lot
+         */
+        public Map<Integer, int[]> getQuantitesParLot() {
+            Map<Integer, int[]> quantites = new LinkedHashMap<>();
+            for (Allocation allocation : allocations) {
+                int idLot = allocation.lot.getIdLot();
+                int[] q = quantites.computeIfAbsent(idLot,
+                        k -> new int[]{allocation.quantiteAvant, allocation.quantiteAvant});
+                q[1] -= allocation.quantite;
+            }
+            return quantites;
+        }
+
+        /**
+         * Retourne les medicaments concernes par ce plan.
+         *
+         * @return les IDs des medicaments
+         */
+        public Set<Integer> getMedicaments() {
+            return new HashSet<>(medicamentParLot.values());
+        }
+
+        /**
+         * Retourne toutes les allocations du plan.
+         *
+         * @return les allocations
+         */
+        public List<Allocation> getAllocations() {
+            return Collections.unmodifiableList(allocations);
+        }
+    }
+}
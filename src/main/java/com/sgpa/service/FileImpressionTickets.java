@@ -0,0 +1,162 @@
+package com.sgpa.service;
+
+import com.sgpa.exception.ServiceException;
+import com.sgpa.model.Vente;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * File d'impression des tickets de caisse.
+ * <p>
+ * Les tickets sont rendus hors du chemin d'encaissement par un petit pool de
+ * workers alimente par une file bornee : la caisse peut servir le client suivant
+ * pendant que le ticket precedent est genere. Chaque worker possede son propre
+ * {@link RapportService} (le generateur PDF n'est pas partageable entre threads) ;
+ * polices et en-tete du ticket sont mis en cache par le {@code PDFGenerator}.
+ * </p>
+ * <p>
+ * <b>Metriques :</b> pour chaque ticket, l'attente en file et le temps de rendu sont
+ * mesures ; les cumuls sont exposes par {@link #getStatistiques()}.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class FileImpressionTickets {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileImpressionTickets.class);
+
+    /** Nombre maximal de tickets en attente */
+    public static final int CAPACITE_FILE = 32;
+
+    /** Nombre de workers de rendu */
+    public static final int NOMBRE_WORKERS = 2;
+
+    /** Instance unique (Singleton) */
+    private static volatile FileImpressionTickets instance;
+
+    private final ThreadPoolExecutor workers;
+    private final ThreadLocal<RapportService> rapportServices = ThreadLocal.withInitial(RapportService::new);
+
+    private final AtomicLong nombreTickets = new AtomicLong();
+    private final AtomicLong nombreEchecs = new AtomicLong();
+    private final AtomicLong cumulAttenteNanos = new AtomicLong();
+    private final AtomicLong cumulRenduNanos = new AtomicLong();
+    private final AtomicLong maxLatenceNanos = new AtomicLong();
+
+    /**
+     * Constructeur avec parametres (pour tests).
+     *
+     * @param capacite       le nombre maximal de tickets en attente
+     * @param nombreWorkers  le nombre de threads de rendu
+     */
+    public FileImpressionTickets(int capacite, int nombreWorkers) {
+        AtomicInteger compteur = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(nombreWorkers, nombreWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacite), r -> {
+                    Thread t = new Thread(r, "ticket-worker-" + compteur.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.workers.prestartAllCoreThreads();
+    }
+
+    /**
+     * Retourne l'instance unique de la file d'impression.
+     *
+     * @return la file d'impression partagee
+     */
+    public static FileImpressionTickets getInstance() {
+        if (instance == null) {
+            synchronized (FileImpressionTickets.class) {
+                if (instance == null) {
+                    instance = new FileImpressionTickets(CAPACITE_FILE, NOMBRE_WORKERS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Place un ticket dans la file d'impression.
+     *
+     * @param vente      la vente (avec ses lignes)
+     * @param nomVendeur le nom du vendeur
+     * @return le chemin du PDF, disponible une fois le ticket rendu
+     * @throws ServiceException si la file est pleine
+     */
+    public CompletableFuture<String> soumettre(Vente vente, String nomVendeur) throws ServiceException {
+        long soumisLe = System.nanoTime();
+        CompletableFuture<String> resultat = new CompletableFuture<>();
+
+        try {
+            workers.execute(() -> {
+                long debut = System.nanoTime();
+                try {
+                    String chemin = rapportServices.get().genererTicketCaisse(vente, nomVendeur);
+                    enregistrerLatence(vente, soumisLe, debut);
+                    resultat.complete(chemin);
+                } catch (ServiceException | RuntimeException e) {
+                    nombreEchecs.incrementAndGet();
+                    resultat.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("File d'impression pleine, ticket de la vente {} refuse", vente.getIdVente());
+            throw new ServiceException("File d'impression des tickets pleine, reessayez dans un instant", e);
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne le nombre de tickets en attente de rendu.
+     *
+     * @return la taille de la file
+     */
+    public int getNombreEnAttente() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * Retourne un resume des metriques de rendu.
+     *
+     * @return les metriques (tickets, echecs, attente et rendu moyens, latence max)
+     */
+    public String getStatistiques() {
+        long n = nombreTickets.get();
+        return String.format("tickets=%d, echecs=%d, attente moy.=%.1f ms, rendu moy.=%.1f ms, latence max=%.1f ms",
+                n, nombreEchecs.get(),
+                n == 0 ? 0.0 : cumulAttenteNanos.get() / 1e6 / n,
+                n == 0 ? 0.0 : cumulRenduNanos.get() / 1e6 / n,
+                maxLatenceNanos.get() / 1e6);
+    }
+
+    /**
+     * Arrete les workers apres les tickets deja en file.
+     */
+    public void arreter() {
+        workers.shutdown();
+    }
+
+    private void enregistrerLatence(Vente vente, long soumisLe, long debut) {
+        long fin = System.nanoTime();
+        long attente = debut - soumisLe;
+        long rendu = fin - debut;
+
+        nombreTickets.incrementAndGet();
+        cumulAttenteNanos.addAndGet(attente);
+        cumulRenduNanos.addAndGet(rendu);
+        maxLatenceNanos.accumulateAndGet(fin - soumisLe, Math::max);
+
+        logger.debug("Ticket vente {} : attente {} ms, rendu {} ms",
+                vente.getIdVente(), attente / 1_000_000, rendu / 1_000_000);
+    }
+}
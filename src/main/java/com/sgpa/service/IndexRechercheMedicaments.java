@@ -0,0 +1,402 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.exception.DAOException;
+import com.sgpa.model.Medicament;
+import com.sgpa.utils.TexteUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Index de recherche des medicaments pour la saisie au comptoir.
+ * <p>
+ * Indexe le nom commercial, le principe actif et le dosage de chaque medicament
+ * sous forme pliee (minuscules, sans accents) :
+ * </p>
+ * <ul>
+ *   <li>un <b>trie</b> des mots, dont chaque noeud connait les medicaments ayant un
+ *       mot qui commence par ce prefixe : "dol" trouve "Doliprane" sans parcourir
+ *       le catalogue</li>
+ *   <li>un index de <b>trigrammes</b>, utilise quand les prefixes ne suffisent pas :
+ *       il retrouve un mot a partir d'un fragment ("prane") ou malgre une faute de
+ *       frappe ("dolipranne")</li>
+ * </ul>
+ *
+ * <h3>Classement :</h3>
+ * <p>
+ * Chaque mot de la recherche doit etre trouve. Un mot complet compte double d'un
+ * prefixe, une correspondance par trigrammes compte moins qu'un prefixe ; le nom
+ * commercial pese plus que le principe actif, lui-meme plus que le dosage. A score
+ * egal, les noms commencant par la saisie puis les noms les plus courts passent devant.
+ * </p>
+ * <p>
+ * L'index s'abonne au {@link MedicamentDAOCache} : les creations, modifications et
+ * suppressions faites depuis ce poste sont reportees medicament par medicament, et
+ * un rechargement du catalogue (modification depuis un autre poste) ne reindexe que
+ * les medicaments dont le texte a change.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class IndexRechercheMedicaments implements MedicamentDAOCache.Ecouteur {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexRechercheMedicaments.class);
+
+    /** Nombre de resultats retournes par defaut */
+    public static final int LIMITE_DEFAUT = 50;
+
+    /** Part minimale des trigrammes d'un mot a retrouver pour une correspondance approchee */
+    private static final double SEUIL_SIMILARITE = 0.5;
+
+    private static final int POIDS_NOM = 3;
+    private static final int POIDS_PRINCIPE = 2;
+    private static final int POIDS_DOSAGE = 1;
+
+    /** Instance unique (Singleton) */
+    private static volatile IndexRechercheMedicaments instance;
+
+    private final MedicamentDAOCache catalogue;
+
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final Noeud racine = new Noeud();
+    private final Map<String, Set<Integer>> trigrammes = new HashMap<>();
+
+    /**
+     * Constructeur avec injection du catalogue (pour tests). L'index s'abonne au catalogue.
+     *
+     * @param catalogue le catalogue des medicaments
+     */
+    public IndexRechercheMedicaments(MedicamentDAOCache catalogue) {
+        this.catalogue = catalogue;
+        catalogue.ajouterEcouteur(this);
+    }
+
+    /**
+     * Retourne l'instance unique de l'index.
+     *
+     * @return l'index partage, abonne au catalogue partage
+     */
+    public static IndexRechercheMedicaments getInstance() {
+        if (instance == null) {
+            synchronized (IndexRechercheMedicaments.class) {
+                if (instance == null) {
+                    instance = new IndexRechercheMedicaments(MedicamentDAOCache.getInstance());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Recherche les medicaments actifs correspondant a une saisie.
+     *
+     * @param texte  la saisie (un ou plusieurs mots, accents et casse indifferents)
+     * @param limite le nombre maximal de resultats
+     * @return les medicaments trouves, du plus pertinent au moins pertinent
+     * @throws DAOException si la verification du catalogue echoue
+     */
+    public List<Medicament> rechercher(String texte, int limite) throws DAOException {
+        // Hors verrou : un rechargement du catalogue notifie l'index
+        catalogue.verifier();
+
+        String saisie = TexteUtils.plier(texte).strip();
+        List<String> mots = TexteUtils.decouper(saisie);
+        if (mots.isEmpty() || limite <= 0) {
+            return new ArrayList<>();
+        }
+
+        synchronized (this) {
+            Map<Integer, Double> scores = null;
+            for (String mot : mots) {
+                Map<Integer, Double> scoresMot = scorerMot(mot, limite,
+                        scores != null ? scores.keySet() : null);
+                if (scores == null) {
+                    scores = scoresMot;
+                } else {
+                    scores.keySet().retainAll(scoresMot.keySet());
+                    for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+                        e.setValue(e.getValue() + scoresMot.get(e.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+
+            Comparator<Resultat> ordre = Comparator
+                    .comparingDouble((Resultat r) -> r.score)
+                    .thenComparing(r -> -r.document.nom.length())
+                    .thenComparing(r -> r.document.nom, Comparator.reverseOrder());
+            PriorityQueue<Resultat> meilleurs = new PriorityQueue<>(limite + 1, ordre);
+            for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+                Document doc = documents.get(e.getKey());
+                if (!doc.medicament.isActif()) {
+                    continue;
+                }
+                double score = e.getValue() + (doc.nom.startsWith(saisie) ? 1.0 : 0.0);
+                meilleurs.add(new Resultat(doc, score));
+                if (meilleurs.size() > limite) {
+                    meilleurs.poll();
+                }
+            }
+
+            List<Medicament> resultats = new ArrayList<>(meilleurs.size());
+            while (!meilleurs.isEmpty()) {
+                resultats.add(new Medicament(meilleurs.poll().document.medicament));
+            }
+            Collections.reverse(resultats);
+            return resultats;
+        }
+    }
+
+    /**
+     * Retourne le nombre de medicaments indexes.
+     *
+     * @return le nombre de documents
+     */
+    public synchronized int getNombreDocuments() {
+        return documents.size();
+    }
+
+    @Override
+    public synchronized void catalogueCharge(Collection<Medicament> medicaments) {
+        Set<Integer> presents = new HashSet<>();
+        int reindexes = 0;
+        for (Medicament med : medicaments) {
+            presents.add(med.getIdMedicament());
+            Document doc = documents.get(med.getIdMedicament());
+            if (doc != null && doc.memeTexte(med)) {
+                doc.medicament = med;
+            } else {
+                indexer(med);
+                reindexes++;
+            }
+        }
+
+        Iterator<Integer> it = documents.keySet().iterator();
+        int retires = 0;
+        while (it.hasNext()) {
+            Integer id = it.next();
+            if (!presents.contains(id)) {
+                desindexer(documents.get(id));
+                it.remove();
+                retires++;
+            }
+        }
+        logger.debug("Index de recherche synchronise: {} medicament(s) reindexe(s), {} retire(s)",
+                reindexes, retires);
+    }
+
+    @Override
+    public synchronized void medicamentEnregistre(Medicament medicament) {
+        indexer(medicament);
+    }
+
+    @Override
+    public synchronized void medicamentSupprime(int idMedicament) {
+        Document doc = documents.remove(idMedicament);
+        if (doc != null) {
+            desindexer(doc);
+        }
+    }
+
+    /**
+     * Calcule le score de chaque medicament pour un mot de la recherche.
+     *
+     * @param restreints les candidats retenus par les mots precedents, null pour le premier mot
+     */
+    private Map<Integer, Double> scorerMot(String mot, int limite, Set<Integer> restreints) {
+        Map<Integer, Double> scoresMot = new HashMap<>();
+
+        Noeud noeud = racine;
+        for (int i = 0; i < mot.length() && noeud != null; i++) {
+            noeud = noeud.enfants.get(mot.charAt(i));
+        }
+        if (noeud != null) {
+            Collection<Integer> ids = restreints != null && restreints.size() < noeud.passants.size()
+                    ? restreints : noeud.passants.keySet();
+            for (Integer id : ids) {
+                Integer prefixe = noeud.passants.get(id);
+                if (prefixe != null) {
+                    Integer exact = noeud.mots.get(id);
+                    int score = exact != null ? Math.max(prefixe, 2 * exact) : prefixe;
+                    scoresMot.put(id, (double) score);
+                }
+            }
+        }
+
+        if (mot.length() >= 3 && scoresMot.size() < limite) {
+            List<String> trigrammesMot = trigrammes(mot);
+            List<Set<Integer>> listes = new ArrayList<>();
+            for (String trigramme : trigrammesMot) {
+                listes.add(trigrammes.getOrDefault(trigramme, Collections.emptySet()));
+            }
+            listes.sort(Comparator.comparingInt(Set::size));
+
+            // Un candidat doit figurer dans au moins une des listes les plus rares :
+            // seules celles-ci sont parcourues, les autres ne servent qu'au comptage
+            int requis = (int) Math.ceil(SEUIL_SIMILARITE * trigrammesMot.size());
+            Set<Integer> candidats = restreints;
+            if (candidats == null) {
+                candidats = new HashSet<>();
+                for (int i = 0; i <= trigrammesMot.size() - requis; i++) {
+                    candidats.addAll(listes.get(i));
+                }
+            }
+            for (Integer id : candidats) {
+                int communs = 0;
+                for (Set<Integer> liste : listes) {
+                    if (liste.contains(id)) {
+                        communs++;
+                    }
+                }
+                if (communs >= requis) {
+                    scoresMot.putIfAbsent(id, (double) communs / trigrammesMot.size());
+                }
+            }
+        }
+        return scoresMot;
+    }
+
+    private void indexer(Medicament med) {
+        Document ancien = documents.get(med.getIdMedicament());
+        if (ancien != null) {
+            desindexer(ancien);
+        }
+        Document doc = new Document(med);
+        documents.put(med.getIdMedicament(), doc);
+
+        int id = med.getIdMedicament();
+        inserer(doc.motsNom, id, POIDS_NOM);
+        inserer(doc.motsPrincipe, id, POIDS_PRINCIPE);
+        inserer(doc.motsDosage, id, POIDS_DOSAGE);
+        for (String trigramme : doc.trigrammes()) {
+            trigrammes.computeIfAbsent(trigramme, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void inserer(List<String> mots, int id, int poids) {
+        for (String mot : mots) {
+            Noeud noeud = racine;
+            for (int i = 0; i < mot.length(); i++) {
+                noeud = noeud.enfants.computeIfAbsent(mot.charAt(i), c -> new Noeud());
+                noeud.passants.merge(id, poids, Math::max);
+            }
+            noeud.mots.merge(id, poids, Math::max);
+        }
+    }
+
+    private void desindexer(Document doc) {
+        Integer id = doc.medicament.getIdMedicament();
+        for (List<String> mots : List.of(doc.motsNom, doc.motsPrincipe, doc.motsDosage)) {
+            for (String mot : mots) {
+                retirer(racine, mot, 0, id);
+            }
+        }
+        for (String trigramme : doc.trigrammes()) {
+            Set<Integer> ids = trigrammes.get(trigramme);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                trigrammes.remove(trigramme);
+            }
+        }
+    }
+
+    /**
+     * Retire un medicament du chemin d'un mot, en elaguant les noeuds devenus vides.
+     */
+    private void retirer(Noeud noeud, String mot, int position, Integer id) {
+        if (position == mot.length()) {
+            noeud.mots.remove(id);
+            return;
+        }
+        Noeud enfant = noeud.enfants.get(mot.charAt(position));
+        if (enfant == null) {
+            return;
+        }
+        enfant.passants.remove(id);
+        retirer(enfant, mot, position + 1, id);
+        if (enfant.passants.isEmpty()) {
+            noeud.enfants.remove(mot.charAt(position));
+        }
+    }
+
+    private static List<String> trigrammes(String mot) {
+        String borne = " " + mot + " ";
+        List<String> resultat = new ArrayList<>(borne.length() - 2);
+        for (int i = 0; i + 3 <= borne.length(); i++) {
+            resultat.add(borne.substring(i, i + 3));
+        }
+        return resultat;
+    }
+
+    /**
+     * Noeud du trie : medicaments dont un mot passe par ce prefixe ou s'y termine, avec leur poids.
+     */
+    private static final class Noeud {
+        final Map<Character, Noeud> enfants = new HashMap<>(4);
+        final Map<Integer, Integer> passants = new HashMap<>(4);
+        final Map<Integer, Integer> mots = new HashMap<>(2);
+    }
+
+    /**
+     * Medicament indexe et ses textes plies.
+     */
+    private static final class Document {
+        Medicament medicament;
+        final String nom;
+        final List<String> motsNom;
+        final List<String> motsPrincipe;
+        final List<String> motsDosage;
+
+        Document(Medicament medicament) {
+            this.medicament = medicament;
+            this.nom = TexteUtils.plier(medicament.getNomCommercial());
+            this.motsNom = TexteUtils.decouper(nom);
+            this.motsPrincipe = TexteUtils.decouper(TexteUtils.plier(medicament.getPrincipeActif()));
+            this.motsDosage = TexteUtils.decouper(TexteUtils.plier(medicament.getDosage()));
+        }
+
+        boolean memeTexte(Medicament autre) {
+            return Objects.equals(medicament.getNomCommercial(), autre.getNomCommercial())
+                    && Objects.equals(medicament.getPrincipeActif(), autre.getPrincipeActif())
+                    && Objects.equals(medicament.getDosage(), autre.getDosage());
+        }
+
+        Set<String> trigrammes() {
+            Set<String> resultat = new HashSet<>();
+            for (List<String> mots : List.of(motsNom, motsPrincipe, motsDosage)) {
+                for (String mot : mots) {
+                    resultat.addAll(IndexRechercheMedicaments.trigrammes(mot));
+                }
+            }
+            return resultat;
+        }
+    }
+
+    /**
+     * Candidat au classement.
+     */
+    private static final class Resultat {
+        final Document document;
+        final double score;
+
+        Resultat(Document document, double score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.sgpa.service;
 
 import com.sgpa.dao.*;
 import com.sgpa.dao.impl.*;
+import com.sgpa.dto.ClasseMedicament;
 import com.sgpa.exception.DAOException;
 import com.sgpa.exception.ServiceException;
 import com.sgpa.exception.ServiceException.ErrorType;
@@ -17,7 +18,10 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -34,11 +38,18 @@ public class InventaireService {
 
     private static final Logger logger = LoggerFactory.getLogger(InventaireService.class);
 
+    /** Periode de comptage cyclique des medicaments de classe B, en semaines */
+    public static final int CYCLE_COMPTAGE_B = 4;
+
+    /** Periode de comptage cyclique des medicaments de classe C, en semaines */
+    public static final int CYCLE_COMPTAGE_C = 13;
+
     private final SessionInventaireDAO sessionDAO;
     private final ComptageInventaireDAO comptageDAO;
     private final RegularisationDAO regularisationDAO;
     private final LotDAO lotDAO;
     private final AuditService auditService;
+    private final ClassificationMedicaments classification;
 
     /**
      * Constructeur par defaut.
@@ -49,18 +60,21 @@ public class InventaireService {
         this.regularisationDAO = new RegularisationDAOImpl();
         this.lotDAO = new LotDAOImpl();
         this.auditService = new AuditService();
+        this.classification = ClassificationMedicaments.getInstance();
     }
 
     /**
-     * Constructeur avec injection des DAOs (pour tests).
+     * Constructeur avec injection des dependances (pour tests).
      */
     public InventaireService(SessionInventaireDAO sessionDAO, ComptageInventaireDAO comptageDAO,
-                              RegularisationDAO regularisationDAO, LotDAO lotDAO, AuditService auditService) {
+                              RegularisationDAO regularisationDAO, LotDAO lotDAO, AuditService auditService,
+                              ClassificationMedicaments classification) {
         this.sessionDAO = sessionDAO;
         this.comptageDAO = comptageDAO;
         this.regularisationDAO = regularisationDAO;
         this.lotDAO = lotDAO;
         this.auditService = auditService;
+        this.classification = classification;
     }
 
     // ==================== GESTION DES SESSIONS ====================
@@ -363,7 +377,8 @@ public class InventaireService {
             conn = DatabaseConnection.getInstance().getConnection();
             conn.setAutoCommit(false);
 
-            int nbRegularisations = 0;
+            List<Regularisation> regularisations = new ArrayList<>();
+            Map<Integer, Integer> nouvellesQuantites = new LinkedHashMap<>();
 
             for (ComptageInventaire comptage : comptagesAvecEcart) {
                 // Verifier que le motif est renseigne
@@ -382,18 +397,21 @@ public class InventaireService {
                         idUtilisateur
                 );
                 regularisation.setJustificatif(comptage.getCommentaire());
-                regularisationDAO.save(regularisation);
+                regularisations.add(regularisation);
 
-                // Mettre a jour le stock du lot
-                lotDAO.updateQuantite(comptage.getIdLot(), comptage.getQuantitePhysique());
+                // Regularisations et stock des lots ecrits en fin de boucle, en lots JDBC
+                nouvellesQuantites.put(comptage.getIdLot(), comptage.getQuantitePhysique());
 
                 logger.debug("Regularisation appliquee: lot={}, {} -> {}",
                         comptage.getIdLot(), comptage.getQuantiteTheorique(), comptage.getQuantitePhysique());
-
-                nbRegularisations++;
             }
 
+            regularisationDAO.saveAll(conn, regularisations);
+            lotDAO.updateQuantites(conn, nouvellesQuantites);
+            int nbRegularisations = regularisations.size();
+
             conn.commit();
+            FefoEngine.getInstance().invaliderTout();
 
             // Audit
             auditService.log(TypeAction.MODIFICATION, "SessionInventaire", idSession,
@@ -513,6 +531,36 @@ public class InventaireService {
         }
     }
 
+    /**
+     * Selectionne les lots a compter lors du comptage cyclique d'une semaine.
+     * <p>
+     * Les medicaments de classe A sont comptes chaque semaine, ceux de classe B une
+     * semaine sur {@value #CYCLE_COMPTAGE_B}, ceux de classe C une semaine sur
+     * {@value #CYCLE_COMPTAGE_C} ; les semaines sont reparties par ID de medicament pour
+     * lisser la charge. Les lots sont tries par classe (AX en tete).
+     * </p>
+     *
+     * @param lots les lots candidats (voir {@link #getAllLotsForComptage()})
+     * @param jour un jour de la semaine de comptage
+     * @return les lots a compter cette semaine
+     */
+    public List<Lot> getLotsForComptageCyclique(List<Lot> lots, LocalDate jour) {
+        long semaine = Math.floorDiv(jour.toEpochDay(), 7);
+        Map<Integer, ClasseMedicament> classes = classification.getClasses();
+        List<Lot> aCompter = new ArrayList<>();
+        for (Lot lot : lots) {
+            ClasseMedicament classe = classes.get(lot.getIdMedicament());
+            int cycle = classe == null || classe.getClasseAbc() == 'B' ? CYCLE_COMPTAGE_B
+                    : classe.getClasseAbc() == 'A' ? 1 : CYCLE_COMPTAGE_C;
+            if (Math.floorMod(semaine + lot.getIdMedicament(), cycle) == 0) {
+                aCompter.add(lot);
+            }
+        }
+        classification.trierParPriorite(aCompter, Lot::getIdMedicament);
+        logger.debug("Comptage cyclique de la semaine {}: {} lot(s) sur {}", semaine, aCompter.size(), lots.size());
+        return aCompter;
+    }
+
     /**
      * Effectue un rollback de la transaction.
      */
@@ -0,0 +1,656 @@
+package com.sgpa.service;
+
+import com.sgpa.dto.LigneVenteDTO;
+import com.sgpa.exception.ServiceException;
+import com.sgpa.exception.ServiceException.ErrorType;
+import com.sgpa.model.Vente;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Journal local des ventes, en ajout seul, avec rejeu en arriere-plan.
+ * <p>
+ * Chaque vente est d'abord ecrite dans un fichier local puis forcee sur disque
+ * (fsync) avant d'etre confiee a un rejoueur mono-thread, qui la fait passer par le
+ * chemin transactionnel normal ({@link VenteService#creerVente}, FEFO compris).
+ * La caisse n'attend donc la base que pendant un delai borne : au-dela, une vente
+ * provisoire est rendue et l'enregistrement se poursuit en arriere-plan.
+ * </p>
+ * <p>
+ * <b>Format :</b> une ligne par evenement, champs separes par des tabulations :
+ * {@code V} (vente journalisee), {@code OK} (vente enregistree, avec son ID),
+ * {@code KO} (vente refusee au rejeu : stock insuffisant, ordonnance...) ou
+ * {@code ACQ} (refus pris en compte par l'equipe). Au demarrage, les ventes sans
+ * {@code OK}/{@code KO} sont rejouees et le fichier est compacte en gardant les refus
+ * non acquittes. Une ligne tronquee par un arret brutal est ignoree.
+ * </p>
+ * <p>
+ * <b>Conflits :</b> une erreur technique (base indisponible) laisse la vente en
+ * attente et le rejeu reprend apres {@link #DELAI_REPRISE_MS}. Une erreur metier
+ * la marque refusee. Si la caisse attendait encore la vente, le refus lui est rendu
+ * directement ; si un ticket provisoire a deja ete remis, la vente reste dans
+ * {@link #getVentesRejetees()} (et sur disque) jusqu'a son {@link #acquitter acquittement},
+ * et les {@link EcouteurRejets} sont prevenus.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class JournalVentes {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalVentes.class);
+
+    /** Prefixe des notes des ventes issues du journal */
+    public static final String PREFIXE_NOTES = "Journal local ";
+
+    /** Delai avant une nouvelle tentative quand la base est indisponible */
+    public static final long DELAI_REPRISE_MS = 5_000;
+
+    private static final String FICHIER = "journal_ventes.log";
+    private static final String VENTE = "V";
+    private static final String ENREGISTREE = "OK";
+    private static final String REFUSEE = "KO";
+    private static final String ACQUITTEE = "ACQ";
+
+    /** Instance unique (Singleton) */
+    private static volatile JournalVentes instance;
+
+    private final Path fichier;
+    private final long attenteMs;
+    private final VenteService venteService;
+    private final ScheduledExecutorService rejoueur;
+    private final Map<String, Entree> enAttente = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<Vente>> resultats = new LinkedHashMap<>();
+    private final Map<String, Entree> rejetees = new LinkedHashMap<>();
+    private final List<EcouteurRejets> ecouteurs = new CopyOnWriteArrayList<>();
+
+    private FileChannel canal;
+    private boolean rejeuPlanifie;
+
+    /**
+     * Constructeur avec injection (pour tests).
+     *
+     * @param repertoire   le repertoire du fichier journal
+     * @param attenteMs    le delai d'attente de la base avant vente provisoire
+     * @param venteService le service utilise pour rejouer les ventes
+     * @throws IOException si le journal ne peut etre ouvert
+     */
+    public JournalVentes(Path repertoire, long attenteMs, VenteService venteService) throws IOException {
+        this.fichier = repertoire.resolve(FICHIER);
+        this.attenteMs = attenteMs;
+        this.venteService = venteService;
+        this.rejoueur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-ventes");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Files.createDirectories(repertoire);
+        relire();
+        compacter();
+        canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        if (!rejetees.isEmpty()) {
+            logger.warn("{} vente(s) provisoire(s) refusee(s) au rejeu, non acquittee(s)", rejetees.size());
+        }
+        if (!enAttente.isEmpty()) {
+            logger.warn("{} vente(s) du journal local en attente d'enregistrement", enAttente.size());
+            planifierRejeu(0);
+        }
+    }
+
+    /**
+     * Retourne l'instance unique du journal, ouverte au premier appel.
+     *
+     * @return le journal des ventes
+     * @throws ServiceException si le journal ne peut etre ouvert
+     */
+    public static JournalVentes getInstance() throws ServiceException {
+        if (instance == null) {
+            synchronized (JournalVentes.class) {
+                if (instance == null) {
+                    ConfigService config = new ConfigService();
+                    try {
+                        instance = new JournalVentes(Paths.get(config.getJournalRepertoire()),
+                                config.getJournalAttenteMs(), new VenteService());
+                    } catch (IOException e) {
+                        logger.error("Impossible d'ouvrir le journal local des ventes", e);
+                        throw new ServiceException("Journal local des ventes inaccessible", e);
+                    }
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Ecrit une vente dans le journal (avec fsync) et la confie au rejoueur.
+     *
+     * @param lignes            les lignes de vente
+     * @param idUtilisateur     l'ID de l'utilisateur
+     * @param surOrdonnance     true si la vente est sur ordonnance
+     * @param montantProvisoire le montant affiche au panier
+     * @param referencePanier   la reference du panier dont les reservations sont consommees, ou null
+     * @return l'entree journalisee
+     * @throws ServiceException si l'ecriture sur disque echoue
+     */
+    public synchronized Entree enregistrer(List<LigneVenteDTO> lignes, int idUtilisateur, boolean surOrdonnance,
+                                           BigDecimal montantProvisoire, String referencePanier)
+            throws ServiceException {
+        Entree entree = new Entree(UUID.randomUUID().toString(), LocalDateTime.now(), idUtilisateur,
+                surOrdonnance, montantProvisoire != null ? montantProvisoire : BigDecimal.ZERO,
+                new ArrayList<>(lignes), referencePanier);
+        try {
+            ecrire(entree.toLigne());
+        } catch (IOException e) {
+            logger.error("Erreur d'ecriture dans le journal local des ventes", e);
+            throw new ServiceException("Impossible d'enregistrer la vente dans le journal local", e);
+        }
+
+        enAttente.put(entree.reference, entree);
+        resultats.put(entree.reference, new CompletableFuture<>());
+        logger.debug("Vente {} journalisee", entree.reference);
+        planifierRejeu(0);
+        return entree;
+    }
+
+    /**
+     * Attend l'enregistrement en base d'une vente journalisee pendant le delai configure.
+     *
+     * @param entree l'entree journalisee
+     * @return la vente definitive, ou une vente provisoire (sans ID) si le delai est depasse
+     * @throws ServiceException si la vente a ete refusee
+     */
+    public Vente attendre(Entree entree) throws ServiceException {
+        CompletableFuture<Vente> resultat;
+        synchronized (this) {
+            resultat = resultats.get(entree.reference);
+        }
+        if (resultat == null) {
+            return entree.toVenteProvisoire();
+        }
+
+        try {
+            return resultat.get(attenteMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (rendreProvisoire(entree, resultat)) {
+                logger.warn("Base lente ou indisponible, vente {} rendue provisoire", entree.reference);
+                return entree.toVenteProvisoire();
+            }
+            return issue(resultat);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return rendreProvisoire(entree, resultat) ? entree.toVenteProvisoire() : issue(resultat);
+        } catch (ExecutionException e) {
+            throw echec(e.getCause());
+        } finally {
+            synchronized (this) {
+                resultats.remove(entree.reference);
+            }
+        }
+    }
+
+    /**
+     * Marque une vente comme rendue provisoire a la caisse, sauf si son issue est deja connue.
+     * Sous le meme verrou que {@link #refuser} : un refus est soit rendu a la caisse, soit
+     * conserve pour acquittement, jamais perdu entre les deux.
+     */
+    private synchronized boolean rendreProvisoire(Entree entree, CompletableFuture<Vente> resultat) {
+        if (resultat.isDone()) {
+            return false;
+        }
+        entree.provisoire = true;
+        return true;
+    }
+
+    private static Vente issue(CompletableFuture<Vente> resultat) throws ServiceException {
+        try {
+            return resultat.join();
+        } catch (CompletionException e) {
+            throw echec(e.getCause());
+        }
+    }
+
+    private static ServiceException echec(Throwable cause) {
+        if (cause instanceof ServiceException) {
+            return (ServiceException) cause;
+        }
+        return new ServiceException("Erreur lors de l'enregistrement de la vente", cause);
+    }
+
+    /**
+     * Retourne le nombre de ventes journalisees non encore enregistrees en base.
+     *
+     * @return le nombre de ventes en attente
+     */
+    public synchronized int getNombreEnAttente() {
+        return enAttente.size();
+    }
+
+    /**
+     * Retourne les ventes provisoires refusees au rejeu et pas encore acquittees,
+     * y compris celles des sessions precedentes.
+     *
+     * @return les entrees refusees, avec leur motif
+     */
+    public synchronized List<Entree> getVentesRejetees() {
+        return Collections.unmodifiableList(new ArrayList<>(rejetees.values()));
+    }
+
+    /**
+     * Acquitte une vente refusee : le refus a ete pris en compte (client rappele,
+     * stock corrige...) et la vente disparait de {@link #getVentesRejetees()}.
+     *
+     * @param reference la reference de l'entree refusee
+     * @throws ServiceException si l'acquittement ne peut etre ecrit sur disque
+     */
+    public synchronized void acquitter(String reference) throws ServiceException {
+        if (!rejetees.containsKey(reference)) {
+            return;
+        }
+        try {
+            ecrire(ACQUITTEE + "\t" + reference);
+        } catch (IOException e) {
+            logger.error("Impossible d'acquitter la vente {} dans le journal", reference, e);
+            throw new ServiceException("Impossible d'acquitter la vente refusee", e);
+        }
+        rejetees.remove(reference);
+        logger.info("Vente refusee {} acquittee", reference);
+    }
+
+    /**
+     * Abonne un ecouteur aux ventes provisoires refusees au rejeu.
+     *
+     * @param ecouteur l'ecouteur
+     */
+    public void ajouterEcouteur(EcouteurRejets ecouteur) {
+        ecouteurs.add(ecouteur);
+    }
+
+    /**
+     * Desabonne un ecouteur des ventes refusees.
+     *
+     * @param ecouteur l'ecouteur
+     */
+    public void retirerEcouteur(EcouteurRejets ecouteur) {
+        ecouteurs.remove(ecouteur);
+    }
+
+    /**
+     * Ferme le journal s'il a ete ouvert (arret de l'application).
+     */
+    public static void arreter() {
+        JournalVentes journal = instance;
+        if (journal != null) {
+            journal.fermer();
+        }
+    }
+
+    /**
+     * Arrete le rejoueur et ferme le journal. Les ventes en attente seront rejouees au prochain demarrage.
+     */
+    public synchronized void fermer() {
+        rejoueur.shutdownNow();
+        try {
+            canal.close();
+        } catch (IOException e) {
+            logger.warn("Erreur lors de la fermeture du journal local des ventes", e);
+        }
+    }
+
+    /**
+     * Planifie un passage du rejoueur s'il n'y en a pas deja un.
+     */
+    private synchronized void planifierRejeu(long delaiMs) {
+        if (rejeuPlanifie || rejoueur.isShutdown()) {
+            return;
+        }
+        rejeuPlanifie = true;
+        rejoueur.schedule(this::rejouer, delaiMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rejoue dans l'ordre les ventes en attente. S'arrete a la premiere erreur technique.
+     */
+    private void rejouer() {
+        while (true) {
+            Entree entree;
+            synchronized (this) {
+                if (enAttente.isEmpty()) {
+                    rejeuPlanifie = false;
+                    return;
+                }
+                entree = enAttente.values().iterator().next();
+            }
+
+            try {
+                Vente vente = venteService.rejouerVente(entree);
+                terminer(entree, ENREGISTREE + "\t" + entree.reference + "\t" + vente.getIdVente());
+                logger.info("Vente {} du journal enregistree (ID {})", entree.reference, vente.getIdVente());
+                completer(entree, vente);
+
+            } catch (ServiceException e) {
+                if (e.getErrorType() == ErrorType.GENERIC) {
+                    // Le commit a pu aboutir avant l'erreur (connexion perdue par exemple)
+                    entree.reprise = true;
+                    logger.warn("Rejeu du journal interrompu, nouvelle tentative dans {} ms: {}",
+                            DELAI_REPRISE_MS, e.getMessage());
+                    synchronized (this) {
+                        rejeuPlanifie = false;
+                    }
+                    planifierRejeu(DELAI_REPRISE_MS);
+                    return;
+                }
+
+                entree.motifRejet = nettoyer(e.getMessage());
+                terminer(entree, REFUSEE + "\t" + entree.reference + "\t" + entree.motifRejet);
+                logger.error("Vente {} du journal refusee: {}", entree.reference, e.getMessage());
+                refuser(entree, e);
+
+            } catch (RuntimeException e) {
+                logger.error("Erreur inattendue lors du rejeu du journal", e);
+                entree.reprise = true;
+                synchronized (this) {
+                    rejeuPlanifie = false;
+                }
+                planifierRejeu(DELAI_REPRISE_MS);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ecrit l'issue d'une entree et la retire des ventes en attente.
+     */
+    private synchronized void terminer(Entree entree, String ligne) {
+        try {
+            ecrire(ligne);
+        } catch (IOException e) {
+            // La vente sera au pire retrouvee par sa reference au prochain rejeu
+            logger.error("Impossible d'ecrire l'issue de la vente {} dans le journal", entree.reference, e);
+        }
+        enAttente.remove(entree.reference);
+    }
+
+    private void completer(Entree entree, Vente vente) {
+        CompletableFuture<Vente> resultat;
+        synchronized (this) {
+            resultat = resultats.get(entree.reference);
+        }
+        if (resultat != null) {
+            resultat.complete(vente);
+        }
+    }
+
+    /**
+     * Rend le refus a la caisse si elle attend encore la vente ; sinon (ticket provisoire
+     * deja remis, ou vente relue au demarrage) la conserve jusqu'a son acquittement.
+     */
+    private void refuser(Entree entree, ServiceException erreur) {
+        synchronized (this) {
+            CompletableFuture<Vente> resultat = resultats.get(entree.reference);
+            if (resultat != null) {
+                resultat.completeExceptionally(erreur);
+                if (!entree.provisoire) {
+                    // Refus affiche a la caisse : rien a acquitter
+                    try {
+                        ecrire(ACQUITTEE + "\t" + entree.reference);
+                    } catch (IOException e) {
+                        logger.warn("Impossible d'acquitter la vente {} dans le journal", entree.reference, e);
+                    }
+                    return;
+                }
+            }
+            rejetees.put(entree.reference, entree);
+        }
+        for (EcouteurRejets ecouteur : ecouteurs) {
+            try {
+                ecouteur.venteRejetee(entree);
+            } catch (RuntimeException e) {
+                logger.warn("Erreur dans un ecouteur des ventes refusees", e);
+            }
+        }
+    }
+
+    /**
+     * Ajoute une ligne au journal et force son ecriture sur disque.
+     */
+    private void ecrire(String ligne) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((ligne + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        canal.force(true);
+    }
+
+    /**
+     * Relit le journal existant pour retrouver les ventes en attente.
+     */
+    private void relire() throws IOException {
+        if (!Files.exists(fichier)) {
+            return;
+        }
+        for (String ligne : Files.readAllLines(fichier, StandardCharsets.UTF_8)) {
+            String[] champs = ligne.split("\t", -1);
+            try {
+                switch (champs[0]) {
+                    case VENTE -> {
+                        Entree entree = Entree.depuisLigne(champs);
+                        entree.reprise = true;
+                        enAttente.put(entree.reference, entree);
+                    }
+                    case ENREGISTREE -> enAttente.remove(champs[1]);
+                    case REFUSEE -> {
+                        Entree entree = enAttente.remove(champs[1]);
+                        if (entree != null) {
+                            entree.motifRejet = champs.length > 2 ? champs[2] : "";
+                            rejetees.put(entree.reference, entree);
+                        }
+                    }
+                    case ACQUITTEE -> rejetees.remove(champs[1]);
+                    default -> logger.warn("Ligne ignoree dans le journal des ventes: {}", ligne);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Ligne illisible ignoree dans le journal des ventes: {}", ligne);
+            }
+        }
+    }
+
+    /**
+     * Reecrit le journal avec les seules ventes en attente et les refus non acquittes.
+     */
+    private void compacter() throws IOException {
+        Path temporaire = fichier.resolveSibling(FICHIER + ".tmp");
+        List<String> lignes = new ArrayList<>();
+        for (Entree entree : rejetees.values()) {
+            lignes.add(entree.toLigne());
+            lignes.add(REFUSEE + "\t" + entree.reference + "\t" + entree.motifRejet);
+        }
+        for (Entree entree : enAttente.values()) {
+            lignes.add(entree.toLigne());
+        }
+        try (FileChannel tmp = FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (String ligne : lignes) {
+                tmp.write(ByteBuffer.wrap((ligne + "\n").getBytes(StandardCharsets.UTF_8)));
+            }
+            tmp.force(true);
+        }
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String nettoyer(String texte) {
+        return texte == null ? "" : texte.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Ecouteur des ventes provisoires refusees au rejeu. Appele depuis le thread du
+     * rejoueur : une interface graphique doit repasser sur son propre thread.
+     */
+    public interface EcouteurRejets {
+
+        /**
+         * Une vente rendue provisoire a la caisse a ete refusee au rejeu.
+         *
+         * @param entree l'entree refusee, avec son motif
+         */
+        void venteRejetee(Entree entree);
+    }
+
+    /**
+     * Vente enregistree dans le journal local.
+     */
+    public static class Entree {
+        private final String reference;
+        private final LocalDateTime dateVente;
+        private final int idUtilisateur;
+        private final boolean surOrdonnance;
+        private final BigDecimal montantProvisoire;
+        private final List<LigneVenteDTO> lignes;
+        private final String referencePanier;
+        private volatile String motifRejet;
+        private volatile boolean reprise;
+        private boolean provisoire;
+
+        Entree(String reference, LocalDateTime dateVente, int idUtilisateur, boolean surOrdonnance,
+               BigDecimal montantProvisoire, List<LigneVenteDTO> lignes, String referencePanier) {
+            this.reference = reference;
+            this.dateVente = dateVente;
+            this.idUtilisateur = idUtilisateur;
+            this.surOrdonnance = surOrdonnance;
+            this.montantProvisoire = montantProvisoire;
+            this.lignes = lignes;
+            this.referencePanier = referencePanier;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public LocalDateTime getDateVente() {
+            return dateVente;
+        }
+
+        public int getIdUtilisateur() {
+            return idUtilisateur;
+        }
+
+        public boolean isSurOrdonnance() {
+            return surOrdonnance;
+        }
+
+        public BigDecimal getMontantProvisoire() {
+            return montantProvisoire;
+        }
+
+        public List<LigneVenteDTO> getLignes() {
+            return Collections.unmodifiableList(lignes);
+        }
+
+        /** @return la reference du panier dont les reservations de stock sont consommees, ou null */
+        public String getReferencePanier() {
+            return referencePanier;
+        }
+
+        /**
+         * @return true si l'entree a pu etre enregistree avant une interruption
+         *         (relue au demarrage, ou tentative precedente echouee)
+         */
+        public boolean isReprise() {
+            return reprise;
+        }
+
+        /** @return le motif du refus au rejeu, ou null */
+        public String getMotifRejet() {
+            return motifRejet;
+        }
+
+        /**
+         * Construit la vente provisoire rendue a la caisse (sans ID ni lignes tracees par lot).
+         */
+        Vente toVenteProvisoire() {
+            Vente vente = new Vente();
+            vente.setDateVente(dateVente);
+            vente.setMontantTotal(montantProvisoire);
+            vente.setEstSurOrdonnance(surOrdonnance);
+            vente.setIdUtilisateur(idUtilisateur);
+            vente.setNotes(PREFIXE_NOTES + reference);
+            return vente;
+        }
+
+        String toLigne() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(VENTE).append('\t').append(reference)
+                    .append('\t').append(dateVente)
+                    .append('\t').append(idUtilisateur)
+                    .append('\t').append(surOrdonnance)
+                    .append('\t').append(montantProvisoire.toPlainString())
+                    .append('\t');
+            for (int i = 0; i < lignes.size(); i++) {
+                LigneVenteDTO ligne = lignes.get(i);
+                if (i > 0) sb.append(',');
+                // medicament:quantite[:prix[:lot]], prix vide si seul le lot est renseigne
+                sb.append(ligne.getIdMedicament()).append(':').append(ligne.getQuantite());
+                if (ligne.getPrixUnitaire() != null || ligne.getIdLot() != null) {
+                    sb.append(':');
+                    if (ligne.getPrixUnitaire() != null) {
+                        sb.append(ligne.getPrixUnitaire().toPlainString());
+                    }
+                }
+                if (ligne.getIdLot() != null) {
+                    sb.append(':').append(ligne.getIdLot());
+                }
+            }
+            if (referencePanier != null) {
+                sb.append('\t').append(referencePanier);
+            }
+            return sb.toString();
+        }
+
+        static Entree depuisLigne(String[] champs) {
+            List<LigneVenteDTO> lignes = new ArrayList<>();
+            for (String l : champs[6].split(",")) {
+                String[] p = l.split(":");
+                LigneVenteDTO ligne = new LigneVenteDTO(Integer.parseInt(p[0]), Integer.parseInt(p[1]));
+                if (p.length > 2 && !p[2].isEmpty()) {
+                    ligne.setPrixUnitaire(new BigDecimal(p[2]));
+                }
+                if (p.length > 3) {
+                    ligne.setIdLot(Integer.parseInt(p[3]));
+                }
+                lignes.add(ligne);
+            }
+            // Reference du panier en dernier champ, absente des journaux anterieurs
+            String referencePanier = champs.length > 7 && !champs[7].isEmpty() ? champs[7] : null;
+            return new Entree(champs[1], LocalDateTime.parse(champs[2]), Integer.parseInt(champs[3]),
+                    Boolean.parseBoolean(champs[4]), new BigDecimal(champs[5]), lignes, referencePanier);
+        }
+    }
+}
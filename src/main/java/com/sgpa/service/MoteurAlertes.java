@@ -0,0 +1,673 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.LotDAO;
+import com.sgpa.dao.MedicamentDAO;
+import com.sgpa.dao.impl.LotDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.dto.AlertePeremption;
+import com.sgpa.dto.AlerteStock;
+import com.sgpa.exception.DAOException;
+import com.sgpa.model.Lot;
+import com.sgpa.model.Medicament;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moteur d'alertes residant en memoire.
+ * <p>
+ * Garde les medicaments actifs en stock bas et un echeancier de tous les lots en
+ * stock : les lots sont ranges par jour de peremption (jour epoch) dans une table
+ * triee. Les lots perimant dans N jours sont une lecture de plage de l'echeancier,
+ * quel que soit N ; les compteurs (stock bas, peremption sous
+ * {@value #HORIZON_PEREMPTION_JOURS} jours, perimes) se lisent en O(1).
+ * </p>
+ * <p>
+ * <b>Mise a jour :</b>
+ * </p>
+ * <ul>
+ *   <li>le moteur ecoute les modifications de stock relayees par le {@link FefoEngine}
+ *       (vente, reception, retour, regularisation, modification de lot) ; les
+ *       medicaments touches sont relus ensemble, en une requete, juste apres
+ *       l'evenement (ou a la lecture suivante)</li>
+ *   <li>a minuit, le jour de l'echeancier avance sans requete : les lots qui passent
+ *       sous {@value #JOURS_CRITIQUE} jours deviennent critiques, ceux dont la date est
+ *       depassee deviennent perimes, et les {@link EcouteurAlertes ecouteurs} sont
+ *       prevenus</li>
+ *   <li>toutes les {@value #PERIODE_RECONCILIATION_MS} ms et apres une modification de
+ *       stock non localisee, l'ensemble est recalcule en une requete (modifications du
+ *       catalogue, autres postes)</li>
+ * </ul>
+ * <p>
+ * Tant qu'aucune lecture n'a eu lieu, rien n'est charge et les evenements sont ignores.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class MoteurAlertes implements FefoEngine.EcouteurStock {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoteurAlertes.class);
+
+    /** Nombre de jours avant peremption a partir duquel un lot est en alerte (90 jours = 3 mois) */
+    public static final int HORIZON_PEREMPTION_JOURS = 90;
+
+    /** Nombre de jours avant peremption a partir duquel un lot est critique */
+    public static final int JOURS_CRITIQUE = 30;
+
+    /** Intervalle entre deux recalculs complets */
+    public static final long PERIODE_RECONCILIATION_MS = 5 * 60_000;
+
+    /** Delai de regroupement des evenements de stock avant relecture */
+    public static final long DELAI_EVENEMENTS_MS = 200;
+
+    /** Instance unique (Singleton) */
+    private static volatile MoteurAlertes instance;
+
+    private final MedicamentDAO medicamentDAO;
+    private final LotDAO lotDAO;
+    private final Clock horloge;
+    private final ScheduledExecutorService executeur;
+
+    private final Set<Integer> aRafraichir = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean toutARafraichir = new AtomicBoolean();
+    private final AtomicBoolean traitementPlanifie = new AtomicBoolean();
+    private final List<EcouteurAlertes> ecouteurs = new CopyOnWriteArrayList<>();
+
+    // Etat courant, modifie sous le verrou de l'instance
+    private final Map<Integer, EtatMedicament> medicaments = new HashMap<>();
+    private final Set<Integer> idsStockBas = new HashSet<>();
+    private final Map<Integer, Lot> lots = new HashMap<>();
+    private final Map<Integer, Set<Integer>> lotsParMedicament = new HashMap<>();
+    /** Lots en stock par jour epoch de peremption, puis par ID de lot */
+    private final TreeMap<Long, TreeMap<Integer, Lot>> echeancier = new TreeMap<>();
+    private long jourCourant;
+    /** Faux jusqu'au premier chargement : jourCourant n'a encore ete annonce a personne */
+    private boolean jourInitialise;
+
+    private volatile boolean charge;
+    private volatile long derniereReconciliation;
+    private int nombreStockBas;
+    private int nombrePeremption;
+    private int nombrePerimes;
+
+    /**
+     * Constructeur avec injection des dependances (pour tests). Aucun traitement n'est
+     * planifie : les evenements et le changement de jour sont traites a la lecture suivante.
+     *
+     * @param medicamentDAO le DAO medicament
+     * @param lotDAO        le DAO lot
+     * @param horloge       l'horloge donnant le jour courant
+     */
+    public MoteurAlertes(MedicamentDAO medicamentDAO, LotDAO lotDAO, Clock horloge) {
+        this(medicamentDAO, lotDAO, horloge, null);
+    }
+
+    private MoteurAlertes(MedicamentDAO medicamentDAO, LotDAO lotDAO, Clock horloge,
+                          ScheduledExecutorService executeur) {
+        this.medicamentDAO = medicamentDAO;
+        this.lotDAO = lotDAO;
+        this.horloge = horloge;
+        this.executeur = executeur;
+    }
+
+    /**
+     * Retourne l'instance unique, abonnee aux evenements du {@link FefoEngine} partage,
+     * avancee chaque nuit et reconciliee periodiquement.
+     *
+     * @return le moteur d'alertes partage
+     */
+    public static MoteurAlertes getInstance() {
+        if (instance == null) {
+            synchronized (MoteurAlertes.class) {
+                if (instance == null) {
+                    ScheduledExecutorService executeur = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "moteur-alertes");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    MoteurAlertes moteur = new MoteurAlertes(MedicamentDAOCache.getInstance(), new LotDAOImpl(),
+                            Clock.systemDefaultZone(), executeur);
+                    executeur.scheduleAtFixedRate(moteur::reconcilier, PERIODE_RECONCILIATION_MS,
+                            PERIODE_RECONCILIATION_MS, TimeUnit.MILLISECONDS);
+                    moteur.planifierChangementJour();
+                    FefoEngine.getInstance().ajouterEcouteur(moteur);
+                    instance = moteur;
+                }
+            }
+        }
+        return instance;
+    }
+
+    // ==================== Abonnements ====================
+
+    /**
+     * Abonne un ecouteur aux changements d'alertes.
+     *
+     * @param ecouteur l'ecouteur
+     */
+    public void ajouterEcouteur(EcouteurAlertes ecouteur) {
+        ecouteurs.add(ecouteur);
+    }
+
+    /**
+     * Desabonne un ecouteur.
+     *
+     * @param ecouteur l'ecouteur
+     */
+    public void retirerEcouteur(EcouteurAlertes ecouteur) {
+        ecouteurs.remove(ecouteur);
+    }
+
+    // ==================== Evenements de stock ====================
+
+    @Override
+    public void stockModifie(int idMedicament) {
+        if (!charge) {
+            return;
+        }
+        aRafraichir.add(idMedicament);
+        planifier();
+    }
+
+    @Override
+    public void stockModifieTout() {
+        if (!charge) {
+            return;
+        }
+        toutARafraichir.set(true);
+        planifier();
+    }
+
+    // ==================== Compteurs ====================
+
+    /**
+     * @return le nombre de medicaments actifs en stock bas
+     * @throws DAOException si le chargement ou la mise a jour echoue
+     */
+    public int getNombreStockBas() throws DAOException {
+        preparer();
+        synchronized (this) {
+            return nombreStockBas;
+        }
+    }
+
+    /**
+     * @return le nombre de lots en stock perimant sous {@link #HORIZON_PEREMPTION_JOURS} jours, perimes compris
+     * @throws DAOException si le chargement ou la mise a jour echoue
+     */
+    public int getNombrePeremption() throws DAOException {
+        preparer();
+        synchronized (this) {
+            return nombrePeremption;
+        }
+    }
+
+    /**
+     * @return le nombre de lots perimes encore en stock
+     * @throws DAOException si le chargement ou la mise a jour echoue
+     */
+    public int getNombrePerimes() throws DAOException {
+        preparer();
+        synchronized (this) {
+            return nombrePerimes;
+        }
+    }
+
+    // ==================== Listes ====================
+
+    /**
+     * Retourne les alertes de stock bas, par nom de medicament.
+     *
+     * @return une nouvelle liste d'alertes
+     * @throws DAOException si le chargement ou la mise a jour echoue
+     */
+    public List<AlerteStock> getAlertesStockBas() throws DAOException {
+        preparer();
+        List<AlerteStock> alertes = new ArrayList<>();
+        synchronized (this) {
+            for (Integer idMedicament : idsStockBas) {
+                EtatMedicament etat = medicaments.get(idMedicament);
+                alertes.add(new AlerteStock(idMedicament, etat.nom, etat.stockTotal, etat.seuilMin));
+            }
+        }
+        alertes.sort(Comparator.comparing(AlerteStock::getNomMedicament,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return alertes;
+    }
+
+    /**
+     * Retourne les alertes des lots perimant dans moins d'un nombre de jours, perimes compris.
+     *
+     * @param joursAvant le nombre de jours
+     * @return une nouvelle liste d'alertes, par peremption croissante
+     * @throws DAOException si le chargement ou la mise a jour echoue
+     */
+    public List<AlertePeremption> getAlertesPeremption(int joursAvant) throws DAOException {
+        preparer();
+        long aujourdhui;
+        List<Lot> enAlerte;
+        synchronized (this) {
+            aujourdhui = jourCourant;
+            enAlerte = lire(Long.MIN_VALUE, aujourdhui + joursAvant);
+        }
+
+        List<AlertePeremption> alertes = new ArrayList<>(enAlerte.size());
+        for (Lot lot : enAlerte) {
+            String nomMedicament = medicamentDAO.findById(lot.getIdMedicament())
+                    .map(Medicament::getNomCommercial).orElse("Inconnu");
+            alertes.add(new AlertePeremption(lot.getIdLot(), lot.getNumeroLot(), lot.getIdMedicament(),
+                    nomMedicament, lot.getDatePeremption(),
+                    lot.getDatePeremption().toEpochDay() - aujourdhui, lot.getQuantiteStock()));
+        }
+        return alertes;
+    }
+
+    /**
+     * Retourne les lots perimes encore en stock.
+     *
+     * @return des copies des lots, par peremption croissante
+     * @throws DAOException si le chargement ou la mise a jour echoue
+     */
+    public List<Lot> getLotsPerimes() throws DAOException {
+        preparer();
+        synchronized (this) {
+            return lire(Long.MIN_VALUE, jourCourant);
+        }
+    }
+
+    /**
+     * Oublie toutes les alertes ; la prochaine lecture recharge l'ensemble.
+     */
+    public synchronized void invalider() {
+        charge = false;
+    }
+
+    // ==================== Chargement et mise a jour ====================
+
+    /**
+     * Charge l'ensemble au premier appel ou quand il est a reconcilier, avance
+     * l'echeancier si le jour a change, puis traite les evenements en attente. Sans
+     * evenement ni changement de jour, ne fait rien.
+     */
+    private void preparer() throws DAOException {
+        if (!charge || toutARafraichir.get()
+                || System.currentTimeMillis() - derniereReconciliation >= PERIODE_RECONCILIATION_MS) {
+            rechargerEtAvancer();
+            return;
+        }
+        long aujourdhui = LocalDate.now(horloge).toEpochDay();
+        if (aujourdhui != jourCourant) {
+            changerJour(aujourdhui);
+        }
+        if (!aRafraichir.isEmpty() && traiterEvenements()) {
+            notifierModification();
+        }
+    }
+
+    private void planifier() {
+        if (executeur != null && traitementPlanifie.compareAndSet(false, true)) {
+            executeur.schedule(() -> {
+                traitementPlanifie.set(false);
+                try {
+                    preparer();
+                } catch (DAOException | RuntimeException e) {
+                    logger.warn("Mise a jour des alertes reportee a la prochaine lecture", e);
+                }
+            }, DELAI_EVENEMENTS_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Planifie le passage au jour suivant juste apres minuit, puis se replanifie
+     * (la duree d'un jour varie aux changements d'heure).
+     */
+    private void planifierChangementJour() {
+        ZonedDateTime maintenant = ZonedDateTime.now(horloge);
+        ZonedDateTime demain = maintenant.toLocalDate().plusDays(1).atStartOfDay(maintenant.getZone());
+        long delai = Duration.between(maintenant, demain).toMillis() + 1000;
+        executeur.schedule(() -> {
+            try {
+                if (charge) {
+                    changerJour(LocalDate.now(horloge).toEpochDay());
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Changement de jour des alertes impossible", e);
+            } finally {
+                planifierChangementJour();
+            }
+        }, delai, TimeUnit.MILLISECONDS);
+    }
+
+    private void reconcilier() {
+        if (!charge) {
+            return;
+        }
+        try {
+            rechargerEtAvancer();
+        } catch (DAOException | RuntimeException e) {
+            logger.warn("Reconciliation des alertes impossible", e);
+        }
+    }
+
+    /**
+     * Recharge l'ensemble puis passe au jour courant s'il a change depuis le jour deja
+     * annonce : un rechargement entre minuit et le changement de jour planifie ne fait
+     * pas perdre les echeances franchies.
+     */
+    private void rechargerEtAvancer() throws DAOException {
+        boolean modifie = recharger();
+        if (!changerJour(LocalDate.now(horloge).toEpochDay()) && modifie) {
+            notifierModification();
+        }
+    }
+
+    /**
+     * Recalcule toutes les alertes : catalogue en cache et lots en stock en une requete.
+     * <p>
+     * Apres le premier chargement, les compteurs restent calcules au jour deja annonce
+     * aux ecouteurs, meme apres {@link #invalider()} ; le passage au jour courant est fait ensuite par {@link #changerJour}.
+     * </p>
+     *
+     * @return true si les compteurs ont change (toujours au premier chargement)
+     */
+    private synchronized boolean recharger() throws DAOException {
+        long debut = System.nanoTime();
+        // Les evenements recus a partir d'ici seront traites apres ce chargement
+        toutARafraichir.set(false);
+        aRafraichir.clear();
+
+        long aujourdhui = LocalDate.now(horloge).toEpochDay();
+        List<Medicament> actifs;
+        List<Lot> enStock;
+        try {
+            actifs = medicamentDAO.findAllActive();
+            enStock = lotDAO.findEnStock();
+        } catch (DAOException e) {
+            toutARafraichir.set(true);
+            throw e;
+        }
+
+        boolean premierChargement = !charge;
+        int stockBasAvant = nombreStockBas;
+        int peremptionAvant = nombrePeremption;
+        int perimesAvant = nombrePerimes;
+
+        medicaments.clear();
+        idsStockBas.clear();
+        lots.clear();
+        lotsParMedicament.clear();
+        echeancier.clear();
+        if (!jourInitialise) {
+            jourCourant = aujourdhui;
+            jourInitialise = true;
+        }
+        nombrePeremption = 0;
+        nombrePerimes = 0;
+
+        Map<Integer, Integer> stocksTotaux = new HashMap<>();
+        for (Lot lot : enStock) {
+            stocksTotaux.merge(lot.getIdMedicament(), lot.getQuantiteStock(), Integer::sum);
+            ajouterLot(lot);
+        }
+        for (Medicament m : actifs) {
+            EtatMedicament etat = new EtatMedicament(m.getNomCommercial(), m.getSeuilMin(),
+                    stocksTotaux.getOrDefault(m.getIdMedicament(), 0));
+            medicaments.put(m.getIdMedicament(), etat);
+            if (etat.stockTotal < etat.seuilMin) {
+                idsStockBas.add(m.getIdMedicament());
+            }
+        }
+        nombreStockBas = idsStockBas.size();
+
+        charge = true;
+        derniereReconciliation = System.currentTimeMillis();
+        logger.debug("Alertes recalculees: {} stock bas, {} peremption, {} perime(s) sur {} lot(s) en {} ms",
+                nombreStockBas, nombrePeremption, nombrePerimes, lots.size(),
+                (System.nanoTime() - debut) / 1_000_000);
+        return premierChargement || stockBasAvant != nombreStockBas || peremptionAvant != nombrePeremption
+                || perimesAvant != nombrePerimes;
+    }
+
+    /**
+     * Relit les lots des medicaments touches par des evenements et met a jour leurs alertes.
+     *
+     * @return true si des medicaments ont ete relus
+     */
+    private synchronized boolean traiterEvenements() throws DAOException {
+        List<Integer> ids = new ArrayList<>(aRafraichir);
+        if (ids.isEmpty() || !charge) {
+            return false;
+        }
+        aRafraichir.removeAll(ids);
+
+        List<Lot> relus;
+        try {
+            relus = lotDAO.findEnStockByMedicaments(ids);
+        } catch (DAOException e) {
+            aRafraichir.addAll(ids);
+            throw e;
+        }
+
+        Map<Integer, Integer> stocksTotaux = new HashMap<>();
+        for (Integer idMedicament : ids) {
+            retirerLots(idMedicament);
+            stocksTotaux.put(idMedicament, 0);
+        }
+        for (Lot lot : relus) {
+            stocksTotaux.merge(lot.getIdMedicament(), lot.getQuantiteStock(), Integer::sum);
+            ajouterLot(lot);
+        }
+        for (Map.Entry<Integer, Integer> entree : stocksTotaux.entrySet()) {
+            int idMedicament = entree.getKey();
+            Medicament m = medicamentDAO.findById(idMedicament).orElse(null);
+            if (m == null || !m.isActif()) {
+                medicaments.remove(idMedicament);
+                idsStockBas.remove(idMedicament);
+                continue;
+            }
+            EtatMedicament etat = new EtatMedicament(m.getNomCommercial(), m.getSeuilMin(), entree.getValue());
+            medicaments.put(idMedicament, etat);
+            if (etat.stockTotal < etat.seuilMin) {
+                idsStockBas.add(idMedicament);
+            } else {
+                idsStockBas.remove(idMedicament);
+            }
+        }
+        nombreStockBas = idsStockBas.size();
+        logger.debug("Alertes mises a jour pour {} medicament(s)", ids.size());
+        return true;
+    }
+
+    /**
+     * Avance l'echeancier au jour donne : les lots franchissant le seuil critique ou leur
+     * date de peremption sont lus par plage, les compteurs ajustes, puis les ecouteurs
+     * prevenus.
+     *
+     * @param nouveauJour le jour epoch courant
+     * @return true si le jour a change (les ecouteurs ont ete prevenus)
+     */
+    private boolean changerJour(long nouveauJour) {
+        List<Lot> devenusCritiques;
+        List<Lot> devenusPerimes;
+        synchronized (this) {
+            long ancienJour = jourCourant;
+            if (nouveauJour == ancienJour) {
+                return false;
+            }
+            if (nouveauJour < ancienJour) {
+                // Horloge reculee : les compteurs sont recalcules sur l'echeancier
+                jourCourant = nouveauJour;
+                nombrePeremption = compter(Long.MIN_VALUE, nouveauJour + HORIZON_PEREMPTION_JOURS);
+                nombrePerimes = compter(Long.MIN_VALUE, nouveauJour);
+                devenusCritiques = List.of();
+                devenusPerimes = List.of();
+            } else {
+                devenusCritiques = lire(ancienJour + JOURS_CRITIQUE, nouveauJour + JOURS_CRITIQUE);
+                devenusPerimes = lire(ancienJour, nouveauJour);
+                nombrePeremption += compter(ancienJour + HORIZON_PEREMPTION_JOURS,
+                        nouveauJour + HORIZON_PEREMPTION_JOURS);
+                nombrePerimes += devenusPerimes.size();
+                jourCourant = nouveauJour;
+            }
+        }
+        logger.info("Alertes au {}: {} lot(s) devenu(s) critique(s), {} devenu(s) perime(s)",
+                LocalDate.ofEpochDay(nouveauJour), devenusCritiques.size(), devenusPerimes.size());
+
+        for (EcouteurAlertes ecouteur : ecouteurs) {
+            try {
+                ecouteur.echeancesFranchies(devenusCritiques, devenusPerimes);
+            } catch (RuntimeException e) {
+                logger.warn("Ecouteur d'alertes en echec", e);
+            }
+        }
+        notifierModification();
+        return true;
+    }
+
+    private void notifierModification() {
+        for (EcouteurAlertes ecouteur : ecouteurs) {
+            try {
+                ecouteur.alertesModifiees();
+            } catch (RuntimeException e) {
+                logger.warn("Ecouteur d'alertes en echec", e);
+            }
+        }
+    }
+
+    // ==================== Echeancier ====================
+
+    /**
+     * Copie les lots dont le jour de peremption est dans [debut, fin), par peremption puis ID.
+     */
+    private List<Lot> lire(long debut, long fin) {
+        List<Lot> resultat = new ArrayList<>();
+        if (debut >= fin) {
+            return resultat;
+        }
+        for (TreeMap<Integer, Lot> jour : echeancier.subMap(debut, true, fin, false).values()) {
+            for (Lot lot : jour.values()) {
+                resultat.add(copier(lot));
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Compte les lots dont le jour de peremption est dans [debut, fin).
+     */
+    private int compter(long debut, long fin) {
+        int nombre = 0;
+        if (debut < fin) {
+            for (TreeMap<Integer, Lot> jour : echeancier.subMap(debut, true, fin, false).values()) {
+                nombre += jour.size();
+            }
+        }
+        return nombre;
+    }
+
+    private void ajouterLot(Lot lot) {
+        Lot copie = copier(lot);
+        lots.put(copie.getIdLot(), copie);
+        lotsParMedicament.computeIfAbsent(copie.getIdMedicament(), k -> new HashSet<>()).add(copie.getIdLot());
+        if (copie.getDatePeremption() != null) {
+            long jour = copie.getDatePeremption().toEpochDay();
+            echeancier.computeIfAbsent(jour, k -> new TreeMap<>()).put(copie.getIdLot(), copie);
+            ajusterCompteurs(jour, 1);
+        }
+    }
+
+    private void retirerLots(int idMedicament) {
+        Set<Integer> idsLots = lotsParMedicament.remove(idMedicament);
+        if (idsLots == null) {
+            return;
+        }
+        for (Integer idLot : idsLots) {
+            Lot lot = lots.remove(idLot);
+            if (lot == null || lot.getDatePeremption() == null) {
+                continue;
+            }
+            long jour = lot.getDatePeremption().toEpochDay();
+            TreeMap<Integer, Lot> lotsDuJour = echeancier.get(jour);
+            if (lotsDuJour != null && lotsDuJour.remove(idLot) != null) {
+                if (lotsDuJour.isEmpty()) {
+                    echeancier.remove(jour);
+                }
+                ajusterCompteurs(jour, -1);
+            }
+        }
+    }
+
+    private void ajusterCompteurs(long jourPeremption, int delta) {
+        if (jourPeremption < jourCourant + HORIZON_PEREMPTION_JOURS) {
+            nombrePeremption += delta;
+        }
+        if (jourPeremption < jourCourant) {
+            nombrePerimes += delta;
+        }
+    }
+
+    /**
+     * Copie un lot pour ne pas exposer l'etat interne du moteur.
+     */
+    private static Lot copier(Lot lot) {
+        return new Lot(lot.getIdLot(), lot.getIdMedicament(), lot.getIdFournisseur(),
+                lot.getNumeroLot(), lot.getDatePeremption(), lot.getDateFabrication(),
+                lot.getDateReception(), lot.getQuantiteStock(), lot.getPrixAchat());
+    }
+
+    /**
+     * Stock et seuil d'un medicament actif.
+     */
+    private static final class EtatMedicament {
+        final String nom;
+        final int seuilMin;
+        final int stockTotal;
+
+        EtatMedicament(String nom, int seuilMin, int stockTotal) {
+            this.nom = nom;
+            this.seuilMin = seuilMin;
+            this.stockTotal = stockTotal;
+        }
+    }
+
+    /**
+     * Ecouteur des changements d'alertes (ecran des alertes, tableau de bord). Appele sur
+     * le thread du moteur ou sur celui de la lecture qui a declenche la mise a jour : le
+     * traitement doit etre court, et passer par le thread graphique pour l'affichage.
+     */
+    public interface EcouteurAlertes {
+
+        /**
+         * L'ensemble des alertes a change (modification de stock, reconciliation, changement de jour).
+         */
+        void alertesModifiees();
+
+        /**
+         * Au changement de jour, des lots sont passes sous le seuil critique ou sont devenus perimes.
+         *
+         * @param devenusCritiques les lots passes sous {@link MoteurAlertes#JOURS_CRITIQUE} jours
+         * @param devenusPerimes   les lots dont la date de peremption vient d'etre depassee
+         */
+        default void echeancesFranchies(List<Lot> devenusCritiques, List<Lot> devenusPerimes) {
+        }
+    }
+}
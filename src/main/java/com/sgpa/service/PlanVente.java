@@ -0,0 +1,166 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.LotDAO;
+import com.sgpa.dao.MedicamentDAO;
+import com.sgpa.dto.LigneVenteDTO;
+import com.sgpa.exception.DAOException;
+import com.sgpa.exception.ServiceException;
+import com.sgpa.exception.ServiceException.ErrorType;
+import com.sgpa.model.Lot;
+import com.sgpa.model.Medicament;
+import com.sgpa.utils.Montant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Instantane des donnees necessaires a une vente.
+ * <p>
+ * Sert la validation, le calcul des prix et le plan FEFO depuis la memoire : les
+ * medicaments viennent du catalogue en cache et le stock vendable des lots residents
+ * du {@link FefoEngine}. Seuls les medicaments absents du moteur, dont l'entree a
+ * expire ou dont le stock en memoire ne couvre pas la demande sont relus, tous
+ * ensemble en une requete, et reinjectes dans le moteur. Un panier dont les
+ * medicaments sont residents ne coute donc aucune lecture.
+ * </p>
+ * <p>
+ * Le stock en memoire peut etre en avance sur la base (vente sur un autre poste) :
+ * le decrement conditionnel de la vente reste l'arbitre. Il ne peut etre en retard
+ * que d'une reception ou d'un retour saisi sur un autre poste, cas couvert par la
+ * relecture avant un refus pour stock insuffisant.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class PlanVente {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanVente.class);
+
+    private final Map<Integer, Medicament> medicaments = new HashMap<>();
+    private final Map<Integer, Integer> stocksVendables = new HashMap<>();
+
+    private PlanVente() {
+    }
+
+    /**
+     * Prepare l'instantane des medicaments et lots references par les lignes d'une vente.
+     *
+     * @param conn          la connexion de la transaction de vente
+     * @param medicamentDAO le DAO medicament (catalogue en cache)
+     * @param lotDAO        le DAO lot
+     * @param fefoEngine    le moteur FEFO, alimente avec les lots relus
+     * @param lignes        les lignes de la vente
+     * @return l'instantane de la vente
+     * @throws DAOException si une erreur d'acces aux donnees survient
+     */
+    public static PlanVente charger(Connection conn, MedicamentDAO medicamentDAO, LotDAO lotDAO,
+                                    FefoEngine fefoEngine, List<LigneVenteDTO> lignes) throws DAOException {
+        Map<Integer, Integer> demandes = new LinkedHashMap<>();
+        for (LigneVenteDTO ligne : lignes) {
+            demandes.merge(ligne.getIdMedicament(), ligne.getQuantite(), Integer::sum);
+        }
+
+        PlanVente planVente = new PlanVente();
+        Set<Integer> aRelire = new LinkedHashSet<>();
+        for (Map.Entry<Integer, Integer> demande : demandes.entrySet()) {
+            int idMedicament = demande.getKey();
+            Medicament med = medicamentDAO.findById(idMedicament).orElse(null);
+            int stock = fefoEngine.getStockVendableResident(idMedicament);
+            if (med == null || stock < demande.getValue()) {
+                aRelire.add(idMedicament);
+            } else {
+                planVente.medicaments.put(idMedicament, med);
+                planVente.stocksVendables.put(idMedicament, stock);
+            }
+        }
+
+        if (!aRelire.isEmpty()) {
+            Map<Medicament, List<Lot>> snapshot = lotDAO.findVendableByMedicaments(conn, aRelire);
+            for (Map.Entry<Medicament, List<Lot>> e : snapshot.entrySet()) {
+                int idMedicament = e.getKey().getIdMedicament();
+                int stock = 0;
+                for (Lot lot : e.getValue()) {
+                    stock += lot.getQuantiteStock();
+                }
+                planVente.medicaments.put(idMedicament, e.getKey());
+                planVente.stocksVendables.put(idMedicament, stock);
+                fefoEngine.charger(idMedicament, e.getValue());
+            }
+        }
+
+        logger.debug("Plan de vente charge: {} medicament(s) demande(s), {} relu(s) en base",
+                demandes.size(), aRelire.size());
+        return planVente;
+    }
+
+    /**
+     * Valide une ligne de vente contre l'instantane.
+     *
+     * @param ligne         la ligne a valider
+     * @param surOrdonnance true si la vente est sur ordonnance
+     * @throws ServiceException si la validation echoue
+     */
+    public void valider(LigneVenteDTO ligne, boolean surOrdonnance) throws ServiceException {
+        Medicament med = getMedicament(ligne.getIdMedicament());
+
+        if (med.isNecessiteOrdonnance() && !surOrdonnance) {
+            throw new ServiceException(
+                    "Le medicament " + med.getNomCommercial() + " necessite une ordonnance",
+                    ErrorType.ORDONNANCE_REQUISE);
+        }
+
+        int stockVendable = getStockVendable(ligne.getIdMedicament());
+        if (stockVendable < ligne.getQuantite()) {
+            throw new ServiceException(
+                    String.format("Stock insuffisant pour %s. Disponible: %d, Demande: %d",
+                            med.getNomCommercial(), stockVendable, ligne.getQuantite()),
+                    ErrorType.STOCK_INSUFFISANT);
+        }
+    }
+
+    /**
+     * Retourne le prix unitaire applique a une ligne : prix saisi, sinon prix public.
+     *
+     * @param ligne la ligne de vente
+     * @return le prix unitaire en centimes
+     * @throws ServiceException si le medicament est absent de l'instantane
+     */
+    public long getPrixUnitaireCentimes(LigneVenteDTO ligne) throws ServiceException {
+        return Montant.enCentimes(ligne.getPrixUnitaire() != null
+                ? ligne.getPrixUnitaire()
+                : getMedicament(ligne.getIdMedicament()).getPrixPublic());
+    }
+
+    /**
+     * Retourne un medicament de l'instantane.
+     *
+     * @param idMedicament l'ID du medicament
+     * @return le medicament
+     * @throws ServiceException si le medicament n'existe pas
+     */
+    public Medicament getMedicament(int idMedicament) throws ServiceException {
+        Medicament med = medicaments.get(idMedicament);
+        if (med == null) {
+            throw new ServiceException("Medicament non trouve: " + idMedicament, ErrorType.NOT_FOUND);
+        }
+        return med;
+    }
+
+    /**
+     * Retourne le stock vendable d'un medicament au moment du chargement.
+     *
+     * @param idMedicament l'ID du medicament
+     * @return la somme des quantites des lots vendables, 0 si inconnu
+     */
+    public int getStockVendable(int idMedicament) {
+        return stocksVendables.getOrDefault(idMedicament, 0);
+    }
+}
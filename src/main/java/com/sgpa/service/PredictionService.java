@@ -2,18 +2,31 @@ package com.sgpa.service;
 
 import com.sgpa.dao.ConsommationDAO;
 import com.sgpa.dao.ConsommationDAO.StatConsommation;
+import com.sgpa.dao.DelaiLivraisonDAO;
 import com.sgpa.dao.impl.ConsommationDAOImpl;
+import com.sgpa.dao.impl.DelaiLivraisonDAOImpl;
+import com.sgpa.dto.ClasseMedicament;
+import com.sgpa.dto.DelaiLivraison;
+import com.sgpa.dto.HistoriqueConsommations;
 import com.sgpa.dto.PredictionReapprovisionnement;
 import com.sgpa.exception.DAOException;
 import com.sgpa.exception.ServiceException;
+import com.sgpa.service.prevision.MoteurPrevision;
+import com.sgpa.service.prevision.Prevision;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
 
 /**
  * Service de predictions de reapprovisionnement.
@@ -21,6 +34,32 @@ import java.util.stream.Collectors;
  * Analyse l'historique des ventes pour predire les ruptures de stock
  * et suggerer des quantites a commander.
  * </p>
+ * <p>
+ * Les statistiques de tous les medicaments sont lues en une seule requete, puis les
+ * predictions sont gardees en cache par periode d'analyse. Le cache est valide tant
+ * que l'empreinte des donnees ({@link ConsommationDAO#getVersionDonnees()}, lue sur
+ * les cles primaires), les evenements de stock de ce poste ({@link FefoEngine}) et les
+ * parametres de calcul n'ont pas change : un ecran qui consulte les predictions de
+ * tous ses medicaments ne coute alors qu'une requete de version.
+ * </p>
+ * <p>
+ * La consommation journaliere retenue est la demande prevue par le
+ * {@link MoteurPrevision} sur la periode a couvrir (delai de livraison, marge et stock
+ * cible) : moyenne mobile, Holt-Winters ou Croston selon le meilleur backtest de chaque
+ * medicament, plutot que la moyenne plate de la periode d'analyse. Les medicaments de
+ * classe C ({@link ClassificationMedicaments}) recoivent directement la moyenne mobile,
+ * sans backtest.
+ * </p>
+ * <p>
+ * Le delai de livraison de chaque medicament est celui appris des receptions de son
+ * fournisseur habituel ({@link DelaiLivraisonDAO}), a defaut le delai configure. La
+ * marge de securite est elargie selon la variabilite de ce delai.
+ * </p>
+ * <p>
+ * Les compteurs par urgence et les listes de predictions critiques, urgentes ou a
+ * surveiller sont calcules depuis les {@link StatistiquesConsommation} residentes,
+ * tenues a jour par les ventes et retours, sans requete d'agregation.
+ * </p>
  *
  * @author SGPA Team
  * @version 1.0
@@ -29,23 +68,72 @@ public class PredictionService {
 
     private static final Logger logger = LoggerFactory.getLogger(PredictionService.class);
 
+    /** Predictions en cache, par nombre de jours d'analyse */
+    private static final Map<Integer, PredictionsEnCache> CACHE = new ConcurrentHashMap<>();
+
+    /** Compteur des modifications de stock de ce poste (ventes, retours, lots, inventaires) */
+    private static final AtomicLong MODIFICATIONS_STOCK = new AtomicLong();
+
+    /** Abonnement du compteur au moteur FEFO, fait une seule fois */
+    private static volatile boolean abonne;
+
+    /** Quantile de la loi normale pour un taux de service de 95 % */
+    private static final double Z_SERVICE = 1.645;
+
     private final ConsommationDAO consommationDAO;
     private final ConfigService configService;
+    private final MoteurPrevision moteurPrevision;
+    private final StatistiquesConsommation statistiques;
+    private final DelaiLivraisonDAO delaiLivraisonDAO;
+    private final ClassificationMedicaments classification;
 
     /**
      * Constructeur par defaut.
      */
     public PredictionService() {
-        this.consommationDAO = new ConsommationDAOImpl();
-        this.configService = new ConfigService();
+        this(new ConsommationDAOImpl(), new ConfigService(), new MoteurPrevision(),
+                StatistiquesConsommation.getInstance(), new DelaiLivraisonDAOImpl(),
+                ClassificationMedicaments.getInstance());
+        abonnerEvenementsStock();
     }
 
     /**
      * Constructeur avec injection des dependances (pour tests).
      */
-    public PredictionService(ConsommationDAO consommationDAO, ConfigService configService) {
+    public PredictionService(ConsommationDAO consommationDAO, ConfigService configService,
+                             MoteurPrevision moteurPrevision, StatistiquesConsommation statistiques,
+                             DelaiLivraisonDAO delaiLivraisonDAO, ClassificationMedicaments classification) {
         this.consommationDAO = consommationDAO;
         this.configService = configService;
+        this.moteurPrevision = moteurPrevision;
+        this.statistiques = statistiques;
+        this.delaiLivraisonDAO = delaiLivraisonDAO;
+        this.classification = classification;
+    }
+
+    /**
+     * Abonne le compteur de modifications aux evenements de stock du moteur FEFO, qui
+     * couvrent aussi les mises a jour de lots existants absentes de l'empreinte en base.
+     */
+    private static void abonnerEvenementsStock() {
+        if (!abonne) {
+            synchronized (PredictionService.class) {
+                if (!abonne) {
+                    FefoEngine.getInstance().ajouterEcouteur(new FefoEngine.EcouteurStock() {
+                        @Override
+                        public void stockModifie(int idMedicament) {
+                            MODIFICATIONS_STOCK.incrementAndGet();
+                        }
+
+                        @Override
+                        public void stockModifieTout() {
+                            MODIFICATIONS_STOCK.incrementAndGet();
+                        }
+                    });
+                    abonne = true;
+                }
+            }
+        }
     }
 
     /**
@@ -66,24 +154,41 @@ public class PredictionService {
      * @throws ServiceException si une erreur survient
      */
     public List<PredictionReapprovisionnement> genererPredictions(int nbJoursAnalyse) throws ServiceException {
-        logger.info("Generation des predictions sur {} jours d'historique", nbJoursAnalyse);
-        List<PredictionReapprovisionnement> predictions = new ArrayList<>();
-
-        try {
-            List<StatConsommation> stats = consommationDAO.getStatistiquesConsommation(nbJoursAnalyse);
+        return new ArrayList<>(obtenirPredictions(nbJoursAnalyse).values());
+    }
 
-            for (StatConsommation stat : stats) {
-                PredictionReapprovisionnement prediction = creerPrediction(stat);
-                predictions.add(prediction);
-            }
+    /**
+     * Genere les predictions de tous les medicaments actifs, indexees par ID de medicament.
+     *
+     * @return les predictions par ID de medicament (non modifiable)
+     * @throws ServiceException si une erreur survient
+     */
+    public Map<Integer, PredictionReapprovisionnement> genererPredictionsParMedicament() throws ServiceException {
+        return genererPredictionsParMedicament(configService.getPredictionJoursAnalyse());
+    }
 
-            logger.info("{} predictions generees", predictions.size());
-            return predictions;
+    /**
+     * Genere les predictions de tous les medicaments actifs, indexees par ID de medicament.
+     * <p>
+     * Une seule passe de statistiques pour tout le catalogue, au lieu d'un appel a
+     * {@link #genererPrediction(int, int)} par medicament. Les predictions retournees
+     * sont partagees avec le cache et ne doivent pas etre modifiees.
+     * </p>
+     *
+     * @param nbJoursAnalyse le nombre de jours d'historique a analyser
+     * @return les predictions par ID de medicament, dans l'ordre des noms (non modifiable)
+     * @throws ServiceException si une erreur survient
+     */
+    public Map<Integer, PredictionReapprovisionnement> genererPredictionsParMedicament(int nbJoursAnalyse)
+            throws ServiceException {
+        return obtenirPredictions(nbJoursAnalyse);
+    }
 
-        } catch (DAOException e) {
-            logger.error("Erreur lors de la generation des predictions", e);
-            throw new ServiceException("Erreur lors de la generation des predictions", e);
-        }
+    /**
+     * Vide le cache des predictions (toutes periodes).
+     */
+    public static void viderCache() {
+        CACHE.clear();
     }
 
     /**
@@ -109,21 +214,11 @@ public class PredictionService {
             throws ServiceException {
         logger.debug("Generation de la prediction pour medicament {} sur {} jours", idMedicament, nbJoursAnalyse);
 
-        try {
-            List<StatConsommation> stats = consommationDAO.getStatistiquesConsommation(nbJoursAnalyse);
-
-            for (StatConsommation stat : stats) {
-                if (stat.getIdMedicament() == idMedicament) {
-                    return creerPrediction(stat);
-                }
-            }
-
+        PredictionReapprovisionnement prediction = obtenirPredictions(nbJoursAnalyse).get(idMedicament);
+        if (prediction == null) {
             throw new ServiceException("Medicament non trouve: " + idMedicament);
-
-        } catch (DAOException e) {
-            logger.error("Erreur lors de la generation de la prediction", e);
-            throw new ServiceException("Erreur lors de la generation de la prediction", e);
         }
+        return prediction;
     }
 
     /**
@@ -134,9 +229,7 @@ public class PredictionService {
      */
     public List<PredictionReapprovisionnement> getPredictionsCritiques() throws ServiceException {
         int seuilCritique = configService.getPredictionSeuilCritiqueJours();
-        return genererPredictions().stream()
-                .filter(p -> p.getJoursAvantRupture() <= seuilCritique)
-                .collect(Collectors.toList());
+        return predictionsResidentes(jours -> jours <= seuilCritique);
     }
 
     /**
@@ -147,9 +240,7 @@ public class PredictionService {
      */
     public List<PredictionReapprovisionnement> getPredictionsUrgentes() throws ServiceException {
         int seuilUrgent = configService.getPredictionSeuilUrgentJours();
-        return genererPredictions().stream()
-                .filter(p -> p.getJoursAvantRupture() <= seuilUrgent)
-                .collect(Collectors.toList());
+        return predictionsResidentes(jours -> jours <= seuilUrgent);
     }
 
     /**
@@ -159,9 +250,36 @@ public class PredictionService {
      * @throws ServiceException si une erreur survient
      */
     public List<PredictionReapprovisionnement> getPredictionsAttention() throws ServiceException {
-        return genererPredictions().stream()
-                .filter(p -> !PredictionReapprovisionnement.NIVEAU_OK.equals(p.getNiveauUrgence()))
-                .collect(Collectors.toList());
+        int seuilAttention = configService.getPredictionSeuilUrgentJours() * 2;
+        return predictionsResidentes(jours -> jours <= seuilAttention);
+    }
+
+    /**
+     * Construit, depuis les statistiques residentes, les predictions dont les jours avant
+     * rupture verifient un filtre ; triees par nom comme les predictions completes.
+     */
+    private List<PredictionReapprovisionnement> predictionsResidentes(IntPredicate filtreJoursAvantRupture)
+            throws ServiceException {
+        try {
+            List<PredictionReapprovisionnement> predictions = new ArrayList<>();
+            Map<Integer, DelaiLivraison> delais = null;
+            for (StatConsommation stat : statistiques.getStatistiques(filtreJoursAvantRupture)) {
+                if (delais == null) {
+                    delais = delaiLivraisonDAO.getDelaisParMedicament();
+                }
+                PredictionReapprovisionnement prediction = creerPrediction(stat, null,
+                        delais.get(stat.getIdMedicament()));
+                prediction.setModelePrevision(statistiques.getModele(stat.getIdMedicament()));
+                predictions.add(prediction);
+            }
+            predictions.sort(Comparator.comparing(PredictionReapprovisionnement::getNomMedicament,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            return predictions;
+
+        } catch (DAOException e) {
+            logger.error("Erreur lors de la lecture des statistiques de consommation", e);
+            throw new ServiceException("Erreur lors de la lecture des statistiques de consommation", e);
+        }
     }
 
     /**
@@ -187,11 +305,25 @@ public class PredictionService {
      * @return la quantite suggeree a commander
      */
     public int calculerQuantiteSuggeree(int stockActuel, double consommationJournaliere, int delaiLivraison) {
+        return calculerQuantiteSuggeree(stockActuel, consommationJournaliere, delaiLivraison,
+                configService.getPredictionMargeSecuriteJours());
+    }
+
+    /**
+     * Calcule la quantite optimale a commander avec une marge de securite donnee.
+     *
+     * @param stockActuel             le stock actuel
+     * @param consommationJournaliere la consommation moyenne journaliere
+     * @param delaiLivraison          le delai de livraison en jours
+     * @param margeSecurite           la marge de securite en jours
+     * @return la quantite suggeree a commander
+     */
+    public int calculerQuantiteSuggeree(int stockActuel, double consommationJournaliere, int delaiLivraison,
+                                        int margeSecurite) {
         if (consommationJournaliere <= 0) {
             return 0;
         }
 
-        int margeSecurite = configService.getPredictionMargeSecuriteJours();
         int stockCible = configService.getPredictionStockCibleJours();
 
         // Stock necessaire = consommation * (delai + marge + stock cible)
@@ -251,43 +383,152 @@ public class PredictionService {
      * @throws ServiceException si une erreur survient
      */
     public int[] getCompteurParUrgence() throws ServiceException {
-        int[] compteurs = new int[5]; // rupture, critique, urgent, attention, ok
-        List<PredictionReapprovisionnement> predictions = genererPredictions();
-
-        for (PredictionReapprovisionnement p : predictions) {
-            switch (p.getNiveauUrgence()) {
-                case PredictionReapprovisionnement.NIVEAU_RUPTURE -> compteurs[0]++;
-                case PredictionReapprovisionnement.NIVEAU_CRITIQUE -> compteurs[1]++;
-                case PredictionReapprovisionnement.NIVEAU_URGENT -> compteurs[2]++;
-                case PredictionReapprovisionnement.NIVEAU_ATTENTION -> compteurs[3]++;
-                default -> compteurs[4]++;
+        try {
+            // rupture, critique, urgent, attention, ok
+            return statistiques.compterParUrgence(configService.getPredictionSeuilCritiqueJours(),
+                    configService.getPredictionSeuilUrgentJours());
+        } catch (DAOException e) {
+            logger.error("Erreur lors du comptage des predictions par urgence", e);
+            throw new ServiceException("Erreur lors du comptage des predictions par urgence", e);
+        }
+    }
+
+    /**
+     * Retourne les predictions d'une periode, depuis le cache si les donnees n'ont pas change.
+     */
+    private Map<Integer, PredictionReapprovisionnement> obtenirPredictions(int nbJoursAnalyse)
+            throws ServiceException {
+        try {
+            String version = consommationDAO.getVersionDonnees() + "/" + MODIFICATIONS_STOCK.get();
+            String parametres = parametresCalcul();
+
+            PredictionsEnCache enCache = CACHE.get(nbJoursAnalyse);
+            if (enCache != null && enCache.version.equals(version) && enCache.parametres.equals(parametres)) {
+                return enCache.predictions;
             }
+
+            logger.info("Generation des predictions sur {} jours d'historique", nbJoursAnalyse);
+            List<StatConsommation> stats = consommationDAO.getStatistiquesConsommation(nbJoursAnalyse);
+            HistoriqueConsommations historique = consommationDAO.getHistoriqueConsommations(nbJoursAnalyse);
+
+            int[] ids = new int[stats.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = stats.get(i).getIdMedicament();
+            }
+            // Pas de selection de modele par backtest pour les medicaments de classe C
+            Map<Integer, ClasseMedicament> classes = classification.getClasses();
+            Prevision[] previsions = moteurPrevision.prevoir(historique, ids, joursACouvrir(), id -> {
+                ClasseMedicament classe = classes.get(id);
+                return classe == null || classe.getClasseAbc() != 'C';
+            });
+            Map<Integer, DelaiLivraison> delais = delaiLivraisonDAO.getDelaisParMedicament();
+
+            Map<Integer, PredictionReapprovisionnement> predictions = new LinkedHashMap<>(stats.size() * 2);
+            Map<Integer, Prevision> previsionsParMedicament = new HashMap<>(ids.length * 2);
+            for (int i = 0; i < ids.length; i++) {
+                predictions.put(ids[i], creerPrediction(stats.get(i), previsions[i], delais.get(ids[i])));
+                previsionsParMedicament.put(ids[i], previsions[i]);
+            }
+            if (nbJoursAnalyse == statistiques.getNbJours()) {
+                statistiques.enregistrerPrevisions(previsionsParMedicament);
+            }
+            predictions = Collections.unmodifiableMap(predictions);
+
+            // La version est lue avant les statistiques : une vente intervenue entre les
+            // deux provoque au pire un recalcul de trop, jamais un resultat perime
+            CACHE.put(nbJoursAnalyse, new PredictionsEnCache(version, parametres, predictions));
+            logger.info("{} predictions generees", predictions.size());
+            return predictions;
+
+        } catch (DAOException e) {
+            logger.error("Erreur lors de la generation des predictions", e);
+            throw new ServiceException("Erreur lors de la generation des predictions", e);
         }
+    }
 
-        return compteurs;
+    /**
+     * Nombre de jours que le stock doit couvrir : delai de livraison, marge et stock cible.
+     */
+    private int joursACouvrir() {
+        return Math.max(1, configService.getPredictionDelaiLivraisonDefaut()
+                + configService.getPredictionMargeSecuriteJours()
+                + configService.getPredictionStockCibleJours());
     }
 
     /**
-     * Cree une prediction a partir des statistiques de consommation.
+     * Marge de securite en jours : la marge configuree (variabilite de la demande)
+     * combinee a celle qui couvre la variabilite du delai de livraison.
      */
-    private PredictionReapprovisionnement creerPrediction(StatConsommation stat) {
+    private int margeSecurite(DelaiLivraison delai) {
+        int marge = configService.getPredictionMargeSecuriteJours();
+        if (delai == null || delai.getEcartTypeJours() <= 0) {
+            return marge;
+        }
+        double margeDelai = Z_SERVICE * delai.getEcartTypeJours();
+        return (int) Math.ceil(Math.sqrt((double) marge * marge + margeDelai * margeDelai));
+    }
+
+    /**
+     * Parametres de configuration utilises par {@link #creerPrediction(StatConsommation, Prevision, DelaiLivraison)}.
+     */
+    private String parametresCalcul() {
+        return configService.getPredictionDelaiLivraisonDefaut() + "/"
+                + configService.getPredictionMargeSecuriteJours() + "/"
+                + configService.getPredictionStockCibleJours() + "/"
+                + configService.getPredictionSeuilCritiqueJours() + "/"
+                + configService.getPredictionSeuilUrgentJours();
+    }
+
+    /**
+     * Predictions d'une periode, avec la version des donnees et les parametres de calcul.
+     */
+    private static final class PredictionsEnCache {
+        private final String version;
+        private final String parametres;
+        private final Map<Integer, PredictionReapprovisionnement> predictions;
+
+        PredictionsEnCache(String version, String parametres,
+                           Map<Integer, PredictionReapprovisionnement> predictions) {
+            this.version = version;
+            this.parametres = parametres;
+            this.predictions = predictions;
+        }
+    }
+
+    /**
+     * Cree une prediction a partir des statistiques de consommation, de la demande prevue
+     * et du delai de livraison appris (null si le medicament n'a jamais ete recu).
+     */
+    private PredictionReapprovisionnement creerPrediction(StatConsommation stat, Prevision prevision,
+                                                          DelaiLivraison delai) {
+        double consommationJour = prevision != null
+                ? prevision.getDemandeMoyenne() : stat.getConsommationMoyenneJour();
+
         PredictionReapprovisionnement prediction = new PredictionReapprovisionnement(
                 stat.getIdMedicament(),
                 stat.getNomMedicament(),
                 stat.getStockTotal(),
                 stat.getStockVendable(),
-                stat.getConsommationMoyenneJour(),
+                consommationJour,
                 stat.getSeuilMin()
         );
+        if (prevision != null) {
+            prediction.setModelePrevision(prevision.getModele());
+        }
 
-        // Calculer la quantite suggeree
-        int delaiLivraison = configService.getPredictionDelaiLivraisonDefaut();
+        // Calculer la quantite suggeree et le point de commande
+        int delaiLivraison = delai != null
+                ? (int) Math.ceil(delai.getMoyenneJours()) : configService.getPredictionDelaiLivraisonDefaut();
+        int margeSecurite = margeSecurite(delai);
         int quantiteSuggeree = calculerQuantiteSuggeree(
                 stat.getStockVendable(),
-                stat.getConsommationMoyenneJour(),
-                delaiLivraison
+                consommationJour,
+                delaiLivraison,
+                margeSecurite
         );
         prediction.setQuantiteSuggeree(quantiteSuggeree);
+        prediction.setDelaiLivraison(delaiLivraison);
+        prediction.setPointCommande((int) Math.ceil(consommationJour * (delaiLivraison + margeSecurite)));
 
         // Mettre a jour le niveau d'urgence avec les seuils configurables
         prediction.setNiveauUrgence(determinerNiveauUrgence(prediction.getJoursAvantRupture()));
@@ -0,0 +1,247 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.CommandeDAO;
+import com.sgpa.dao.FournisseurDAO;
+import com.sgpa.dao.impl.CommandeDAOImpl;
+import com.sgpa.dao.impl.FournisseurDAOImpl;
+import com.sgpa.dto.PredictionReapprovisionnement;
+import com.sgpa.dto.SourceApprovisionnement;
+import com.sgpa.exception.DAOException;
+import com.sgpa.exception.ServiceException;
+import com.sgpa.model.Commande;
+import com.sgpa.model.LigneCommande;
+import com.sgpa.model.Medicament;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service de planification automatique des commandes fournisseurs.
+ * <p>
+ * Transforme les quantites suggerees par les predictions en commandes en attente,
+ * une par fournisseur :
+ * </p>
+ * <ul>
+ *   <li>chaque medicament est commande a son fournisseur habituel, deduit des lots recus
+ *       ({@link FournisseurDAO#getSourcesApprovisionnement()}), au prix de son dernier lot</li>
+ *   <li>les quantites deja en commande (commandes en attente) sont deduites</li>
+ *   <li>la quantite est arrondie au colisage superieur</li>
+ *   <li>une commande sous le montant minimum est reportee, sauf si elle contient un
+ *       medicament en rupture, critique ou urgent</li>
+ * </ul>
+ * <p>
+ * Toutes les commandes sont creees dans une seule transaction, lignes inserees en lot.
+ * Relancer la planification ne duplique pas les commandes : les quantites en attente
+ * couvrent deja le besoin.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class ReapprovisionnementService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReapprovisionnementService.class);
+
+    private static final DateTimeFormatter FORMAT_NOTE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private final PredictionService predictionService;
+    private final CommandeService commandeService;
+    private final CommandeDAO commandeDAO;
+    private final FournisseurDAO fournisseurDAO;
+    private final ConfigService configService;
+
+    /**
+     * Constructeur par defaut.
+     */
+    public ReapprovisionnementService() {
+        this(new PredictionService(), new CommandeService(), new CommandeDAOImpl(),
+                new FournisseurDAOImpl(), new ConfigService());
+    }
+
+    /**
+     * Constructeur avec injection des dependances (pour tests).
+     *
+     * @param predictionService le service de predictions
+     * @param commandeService   le service des commandes
+     * @param commandeDAO       le DAO commande
+     * @param fournisseurDAO    le DAO fournisseur
+     * @param configService     la configuration
+     */
+    public ReapprovisionnementService(PredictionService predictionService, CommandeService commandeService,
+                                      CommandeDAO commandeDAO, FournisseurDAO fournisseurDAO,
+                                      ConfigService configService) {
+        this.predictionService = predictionService;
+        this.commandeService = commandeService;
+        this.commandeDAO = commandeDAO;
+        this.fournisseurDAO = fournisseurDAO;
+        this.configService = configService;
+    }
+
+    /**
+     * Calcule et enregistre les commandes de reapprovisionnement de tous les medicaments.
+     *
+     * @return le resultat de la planification (commandes creees avec leurs IDs)
+     * @throws ServiceException si une erreur survient
+     */
+    public Planification planifier() throws ServiceException {
+        long debut = System.nanoTime();
+        try {
+            Map<Integer, PredictionReapprovisionnement> predictions =
+                    predictionService.genererPredictionsParMedicament();
+            Map<Integer, SourceApprovisionnement> sources = fournisseurDAO.getSourcesApprovisionnement();
+            Map<Integer, Integer> enCommande = commandeDAO.getQuantitesEnCommande();
+
+            Planification planification = preparer(predictions.values(), sources, enCommande, LocalDateTime.now());
+            commandeService.creerCommandes(planification.getCommandes());
+
+            logger.info("Planification: {} commande(s), {} ligne(s), {} reportee(s), {} medicament(s) sans fournisseur"
+                            + " en {} ms", planification.getCommandes().size(), planification.getNombreLignes(),
+                    planification.getCommandesReportees(), planification.getMedicamentsSansFournisseur().size(),
+                    (System.nanoTime() - debut) / 1_000_000);
+            return planification;
+
+        } catch (DAOException e) {
+            logger.error("Erreur lors de la planification des commandes", e);
+            throw new ServiceException("Erreur lors de la planification des commandes", e);
+        }
+    }
+
+    /**
+     * Prepare les commandes sans les enregistrer.
+     *
+     * @param predictions les predictions de reapprovisionnement
+     * @param sources     le fournisseur habituel par ID de medicament
+     * @param enCommande  les quantites deja en commande par ID de medicament
+     * @param maintenant  la date de creation des commandes
+     * @return les commandes preparees, une par fournisseur, et les medicaments ecartes
+     */
+    public Planification preparer(Collection<PredictionReapprovisionnement> predictions,
+                                  Map<Integer, SourceApprovisionnement> sources,
+                                  Map<Integer, Integer> enCommande, LocalDateTime maintenant) {
+        int colisageDefaut = Math.max(1, configService.getPlanificationColisageDefaut());
+        BigDecimal minimum = BigDecimal.valueOf(Math.max(0, configService.getPlanificationCommandeMinimum()));
+        String notes = "Brouillon genere par le planificateur le " + maintenant.format(FORMAT_NOTE);
+
+        // Lignes dans l'ordre d'urgence puis alphabetique, commandes par ID de fournisseur
+        List<PredictionReapprovisionnement> triees = new ArrayList<>(predictions);
+        triees.sort(Comparator.comparingInt(PredictionReapprovisionnement::getOrdreUrgence)
+                .thenComparing(PredictionReapprovisionnement::getNomMedicament,
+                        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+
+        Map<Integer, Commande> parFournisseur = new TreeMap<>();
+        Map<Integer, Boolean> urgentes = new TreeMap<>();
+        List<String> sansFournisseur = new ArrayList<>();
+
+        for (PredictionReapprovisionnement prediction : triees) {
+            int besoin = prediction.getQuantiteSuggeree()
+                    - enCommande.getOrDefault(prediction.getIdMedicament(), 0);
+            if (besoin <= 0) {
+                continue;
+            }
+            SourceApprovisionnement source = sources.get(prediction.getIdMedicament());
+            if (source == null) {
+                sansFournisseur.add(prediction.getNomMedicament());
+                continue;
+            }
+
+            int colisage = source.getColisage() > 0 ? source.getColisage() : colisageDefaut;
+            int quantite = (besoin + colisage - 1) / colisage * colisage;
+
+            LigneCommande ligne = new LigneCommande(prediction.getIdMedicament(), quantite,
+                    source.getDernierPrixAchat());
+            Medicament medicament = new Medicament();
+            medicament.setIdMedicament(prediction.getIdMedicament());
+            medicament.setNomCommercial(prediction.getNomMedicament());
+            ligne.setMedicament(medicament);
+
+            Commande commande = parFournisseur.computeIfAbsent(source.getIdFournisseur(), id -> {
+                Commande nouvelle = new Commande(id);
+                nouvelle.setDateCreation(maintenant);
+                nouvelle.setNotes(notes);
+                return nouvelle;
+            });
+            commande.getLignesCommande().add(ligne);
+            if (prediction.isUrgent()) {
+                urgentes.put(source.getIdFournisseur(), Boolean.TRUE);
+            }
+        }
+
+        List<Commande> commandes = new ArrayList<>();
+        int reportees = 0;
+        for (Map.Entry<Integer, Commande> entry : parFournisseur.entrySet()) {
+            Commande commande = entry.getValue();
+            if (minimum.signum() > 0 && !urgentes.containsKey(entry.getKey())
+                    && montant(commande).compareTo(minimum) < 0) {
+                logger.debug("Commande au fournisseur {} reportee: montant {} sous le minimum {}",
+                        entry.getKey(), montant(commande), minimum);
+                reportees++;
+                continue;
+            }
+            commandes.add(commande);
+        }
+        return new Planification(commandes, reportees, sansFournisseur);
+    }
+
+    private static BigDecimal montant(Commande commande) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (LigneCommande ligne : commande.getLignesCommande()) {
+            if (ligne.getPrixUnitaire() != null) {
+                total = total.add(ligne.getPrixUnitaire().multiply(BigDecimal.valueOf(ligne.getQuantiteCommandee())));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Resultat d'une planification.
+     */
+    public static class Planification {
+        private final List<Commande> commandes;
+        private final int commandesReportees;
+        private final List<String> medicamentsSansFournisseur;
+
+        Planification(List<Commande> commandes, int commandesReportees, List<String> medicamentsSansFournisseur) {
+            this.commandes = Collections.unmodifiableList(commandes);
+            this.commandesReportees = commandesReportees;
+            this.medicamentsSansFournisseur = Collections.unmodifiableList(medicamentsSansFournisseur);
+        }
+
+        /**
+         * @return les commandes preparees ou creees, une par fournisseur
+         */
+        public List<Commande> getCommandes() {
+            return commandes;
+        }
+
+        /**
+         * @return le nombre total de lignes des commandes
+         */
+        public int getNombreLignes() {
+            return commandes.stream().mapToInt(c -> c.getLignesCommande().size()).sum();
+        }
+
+        /**
+         * @return le nombre de commandes reportees car sous le montant minimum
+         */
+        public int getCommandesReportees() {
+            return commandesReportees;
+        }
+
+        /**
+         * @return les noms des medicaments a commander sans fournisseur habituel connu
+         */
+        public List<String> getMedicamentsSansFournisseur() {
+            return medicamentsSansFournisseur;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.ReservationDAO;
+import com.sgpa.dao.impl.ReservationDAOImpl;
+import com.sgpa.exception.DAOException;
+import com.sgpa.exception.ServiceException;
+import com.sgpa.exception.ServiceException.ErrorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reservations de stock des paniers de caisse.
+ * <p>
+ * Chaque ligne ajoutee au panier retient sa quantite dans la table
+ * {@code reservations_stock}, partagee par tous les postes : un autre panier ne
+ * peut retenir que le stock vendable non retenu. La reservation est consommee par
+ * la transaction de la vente ({@link VenteService}), liberee quand le panier est
+ * vide, et expire apres {@link #DUREE_RESERVATION_SECONDES} sans activite sur le
+ * panier (panier abandonne, poste ferme).
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class ReservationStock {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationStock.class);
+
+    /** Duree de vie des reservations d'un panier sans activite */
+    public static final int DUREE_RESERVATION_SECONDES = 15 * 60;
+
+    /** Intervalle minimal entre deux purges des reservations expirees */
+    private static final long PERIODE_PURGE_MS = 5 * 60_000;
+
+    /** Date de la derniere purge, partagee par les instances du poste */
+    private static final AtomicLong dernierePurge = new AtomicLong();
+
+    private final ReservationDAO reservationDAO;
+
+    /**
+     * Constructeur par defaut.
+     */
+    public ReservationStock() {
+        this.reservationDAO = new ReservationDAOImpl();
+    }
+
+    /**
+     * Constructeur avec injection du DAO (pour tests).
+     *
+     * @param reservationDAO le DAO des reservations
+     */
+    public ReservationStock(ReservationDAO reservationDAO) {
+        this.reservationDAO = reservationDAO;
+    }
+
+    /**
+     * Fixe la quantite retenue par un panier pour un medicament et prolonge les
+     * reservations du panier.
+     *
+     * @param referencePanier la reference du panier
+     * @param idMedicament    l'ID du medicament
+     * @param quantiteTotale  la quantite totale du medicament au panier, 0 pour liberer
+     * @throws ServiceException si le stock non retenu par les autres paniers ne suffit pas
+     */
+    public void reserver(String referencePanier, int idMedicament, int quantiteTotale) throws ServiceException {
+        purgerSiNecessaire();
+        int disponible;
+        try {
+            disponible = reservationDAO.reserver(referencePanier, idMedicament, quantiteTotale,
+                    DUREE_RESERVATION_SECONDES);
+        } catch (DAOException e) {
+            logger.error("Erreur lors de la reservation de stock", e);
+            throw new ServiceException("Erreur lors de la reservation de stock", e);
+        }
+        if (quantiteTotale > disponible) {
+            throw new ServiceException(
+                    String.format("Stock insuffisant (reserve par d'autres paniers). Disponible: %d, Demande: %d",
+                            disponible, quantiteTotale),
+                    ErrorType.STOCK_INSUFFISANT);
+        }
+    }
+
+    /**
+     * Libere toutes les reservations d'un panier.
+     *
+     * @param referencePanier la reference du panier
+     * @throws ServiceException si une erreur survient
+     */
+    public void libererPanier(String referencePanier) throws ServiceException {
+        try {
+            reservationDAO.liberer(referencePanier);
+        } catch (DAOException e) {
+            logger.error("Erreur lors de la liberation des reservations", e);
+            throw new ServiceException("Erreur lors de la liberation des reservations", e);
+        }
+    }
+
+    /**
+     * Supprime les reservations expirees, au plus une fois par {@link #PERIODE_PURGE_MS}.
+     * Une reservation expiree ne retient deja plus de stock : la purge ne fait que
+     * garder la table petite, un echec est donc seulement journalise.
+     */
+    private void purgerSiNecessaire() {
+        long maintenant = System.currentTimeMillis();
+        long derniere = dernierePurge.get();
+        if (maintenant - derniere < PERIODE_PURGE_MS || !dernierePurge.compareAndSet(derniere, maintenant)) {
+            return;
+        }
+        try {
+            int purgees = reservationDAO.purgerExpirees();
+            if (purgees > 0) {
+                logger.debug("{} reservation(s) expiree(s) supprimee(s)", purgees);
+            }
+        } catch (DAOException e) {
+            logger.warn("Purge des reservations expirees impossible", e);
+        }
+    }
+}
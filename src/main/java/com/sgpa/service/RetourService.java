@@ -1,8 +1,10 @@
 package com.sgpa.service;
 
+import com.sgpa.dao.ConsommationDAO;
 import com.sgpa.dao.LotDAO;
 import com.sgpa.dao.RetourDAO;
 import com.sgpa.dao.VenteDAO;
+import com.sgpa.dao.impl.ConsommationDAOImpl;
 import com.sgpa.dao.impl.LotDAOImpl;
 import com.sgpa.dao.impl.RetourDAOImpl;
 import com.sgpa.dao.impl.VenteDAOImpl;
@@ -23,6 +25,7 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -31,6 +34,10 @@ import java.util.Optional;
  * Ce service gere les retours de produits vendus avec possibilite
  * de reintegration au stock si le lot n'est pas perime.
  * </p>
+ * <p>
+ * La quantite retournee est retiree de la consommation journaliere du jour de la
+ * vente d'origine : les predictions portent sur la consommation nette.
+ * </p>
  *
  * @author SGPA Team
  * @version 1.0
@@ -43,6 +50,7 @@ public class RetourService {
     private final VenteDAO venteDAO;
     private final LotDAO lotDAO;
     private final AuditService auditService;
+    private final ConsommationDAO consommationDAO;
 
     /**
      * Constructeur par defaut.
@@ -52,21 +60,25 @@ public class RetourService {
         this.venteDAO = new VenteDAOImpl();
         this.lotDAO = new LotDAOImpl();
         this.auditService = new AuditService();
+        this.consommationDAO = new ConsommationDAOImpl();
     }
 
     /**
      * Constructeur avec injection des DAOs (pour tests).
      *
-     * @param retourDAO    le DAO retour
-     * @param venteDAO     le DAO vente
-     * @param lotDAO       le DAO lot
-     * @param auditService le service d'audit
+     * @param retourDAO       le DAO retour
+     * @param venteDAO        le DAO vente
+     * @param lotDAO          le DAO lot
+     * @param auditService    le service d'audit
+     * @param consommationDAO le DAO consommation
      */
-    public RetourService(RetourDAO retourDAO, VenteDAO venteDAO, LotDAO lotDAO, AuditService auditService) {
+    public RetourService(RetourDAO retourDAO, VenteDAO venteDAO, LotDAO lotDAO, AuditService auditService,
+                         ConsommationDAO consommationDAO) {
         this.retourDAO = retourDAO;
         this.venteDAO = venteDAO;
         this.lotDAO = lotDAO;
         this.auditService = auditService;
+        this.consommationDAO = consommationDAO;
     }
 
     /**
@@ -159,22 +171,31 @@ public class RetourService {
             retour.setVente(vente);
             retour.setLot(lot);
 
-            // Sauvegarder le retour
-            retour = retourDAO.save(retour);
+            // Sauvegarder le retour, dans la transaction comme le stock et la consommation
+            retour = retourDAO.save(conn, retour);
+
+            // Retirer la quantite de la consommation du jour de la vente
+            consommationDAO.ajouterConsommations(conn, vente.getDateVente().toLocalDate(),
+                    Map.of(lot.getIdMedicament(), -quantite));
 
             // Reintegrer au stock si applicable
             if (reintegrationEffective) {
                 int nouvelleQuantite = lot.getQuantiteStock() + quantite;
-                lotDAO.updateQuantite(idLot, nouvelleQuantite);
+                lotDAO.updateQuantite(conn, idLot, nouvelleQuantite);
                 logger.info("Stock reintegre: lot={}, nouvelle qte={}", lot.getNumeroLot(), nouvelleQuantite);
             }
 
-            // Audit
+            conn.commit();
+            if (reintegrationEffective) {
+                FefoEngine.getInstance().invalider(lot.getIdMedicament());
+            }
+
+            // Audit, une fois le retour valide
             String details = String.format("Retour #%d: Vente #%d, Lot %s, Qte: %d, Reintegre: %s",
                     retour.getIdRetour(), idVente, lot.getNumeroLot(), quantite, reintegrationEffective);
             auditService.log(TypeAction.CREATION, "Retour", retour.getIdRetour(), details);
-
-            conn.commit();
+            StatistiquesConsommation.getInstance().enregistrerRetour(vente.getDateVente().toLocalDate(),
+                    lot.getIdMedicament(), quantite, reintegrationEffective);
             logger.info("Retour {} enregistre avec succes", retour.getIdRetour());
 
             return retour;
@@ -197,6 +218,7 @@ public class RetourService {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
+                    conn.close();
                 } catch (SQLException ignored) {
                 }
             }
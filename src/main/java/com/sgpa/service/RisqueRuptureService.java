@@ -0,0 +1,122 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.ConsommationDAO;
+import com.sgpa.dao.LotDAO;
+import com.sgpa.dao.MedicamentDAO;
+import com.sgpa.dao.impl.ConsommationDAOImpl;
+import com.sgpa.dao.impl.LotDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.dto.HistoriqueConsommations;
+import com.sgpa.dto.LotsPeremption;
+import com.sgpa.exception.DAOException;
+import com.sgpa.exception.ServiceException;
+import com.sgpa.model.Medicament;
+import com.sgpa.service.prevision.RisqueRupture;
+import com.sgpa.service.prevision.SimulationRupture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service d'estimation du risque de rupture par simulation.
+ * <p>
+ * Complement des {@link PredictionService predictions} : la ou les jours avant
+ * rupture divisent le stock par une consommation moyenne, la
+ * {@link SimulationRupture} tient compte de la variabilite de la demande et des
+ * dates de peremption des lots. Trois requetes alimentent tout le catalogue :
+ * l'historique journalier, les lots vendables et les medicaments actifs (cache).
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class RisqueRuptureService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RisqueRuptureService.class);
+
+    /** Horizons simules par defaut, en jours */
+    private static final int[] HORIZONS_DEFAUT = {7, 14, 30};
+
+    private final ConsommationDAO consommationDAO;
+    private final LotDAO lotDAO;
+    private final MedicamentDAO medicamentDAO;
+    private final ConfigService configService;
+    private final SimulationRupture simulation;
+
+    /**
+     * Constructeur par defaut.
+     */
+    public RisqueRuptureService() {
+        this(new SimulationRupture());
+    }
+
+    /**
+     * Constructeur avec une simulation parametree (nombre de trajectoires, graine).
+     *
+     * @param simulation la simulation
+     */
+    public RisqueRuptureService(SimulationRupture simulation) {
+        this(new ConsommationDAOImpl(), new LotDAOImpl(), MedicamentDAOCache.getInstance(),
+                new ConfigService(), simulation);
+    }
+
+    /**
+     * Constructeur avec injection de toutes les dependances (pour tests).
+     */
+    public RisqueRuptureService(ConsommationDAO consommationDAO, LotDAO lotDAO, MedicamentDAO medicamentDAO,
+                                ConfigService configService, SimulationRupture simulation) {
+        this.consommationDAO = consommationDAO;
+        this.lotDAO = lotDAO;
+        this.medicamentDAO = medicamentDAO;
+        this.configService = configService;
+        this.simulation = simulation;
+    }
+
+    /**
+     * Simule le risque de rupture de tous les medicaments actifs a 7, 14 et 30 jours.
+     *
+     * @return les risques par ID de medicament, dans l'ordre du catalogue
+     * @throws ServiceException si une erreur survient
+     */
+    public Map<Integer, RisqueRupture> simulerCatalogue() throws ServiceException {
+        return simulerCatalogue(HORIZONS_DEFAUT);
+    }
+
+    /**
+     * Simule le risque de rupture de tous les medicaments actifs.
+     * <p>
+     * La demande est tiree dans l'historique de la periode d'analyse configuree.
+     * </p>
+     *
+     * @param horizons les horizons en jours
+     * @return les risques par ID de medicament, dans l'ordre du catalogue
+     * @throws ServiceException si une erreur survient
+     */
+    public Map<Integer, RisqueRupture> simulerCatalogue(int[] horizons) throws ServiceException {
+        try {
+            List<Medicament> medicaments = medicamentDAO.findAllActive();
+            int[] ids = new int[medicaments.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = medicaments.get(i).getIdMedicament();
+            }
+
+            HistoriqueConsommations historique =
+                    consommationDAO.getHistoriqueConsommations(configService.getPredictionJoursAnalyse());
+            LotsPeremption lots = lotDAO.getLotsVendablesParPeremption();
+            RisqueRupture[] risques = simulation.simuler(historique, lots, ids, horizons);
+
+            Map<Integer, RisqueRupture> parMedicament = new LinkedHashMap<>(ids.length * 2);
+            for (int i = 0; i < ids.length; i++) {
+                parMedicament.put(ids[i], risques[i]);
+            }
+            return parMedicament;
+
+        } catch (DAOException e) {
+            logger.error("Erreur lors de la simulation des risques de rupture", e);
+            throw new ServiceException("Erreur lors de la simulation des risques de rupture", e);
+        }
+    }
+}
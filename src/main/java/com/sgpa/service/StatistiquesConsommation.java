@@ -0,0 +1,438 @@
+package com.sgpa.service;
+
+import com.sgpa.dao.ConsommationDAO;
+import com.sgpa.dao.ConsommationDAO.StatConsommation;
+import com.sgpa.dao.LotDAO;
+import com.sgpa.dao.MedicamentDAO;
+import com.sgpa.dao.impl.ConsommationDAOImpl;
+import com.sgpa.dao.impl.LotDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.dto.HistoriqueConsommations;
+import com.sgpa.dto.StocksMedicaments;
+import com.sgpa.exception.DAOException;
+import com.sgpa.model.Medicament;
+import com.sgpa.service.prevision.Prevision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Statistiques de consommation residentes, mises a jour a chaque vente et retour.
+ * <p>
+ * Pour chaque medicament actif, un tampon circulaire garde la quantite vendue de
+ * chacun des N derniers jours et du jour en cours, avec leur somme glissante et une
+ * moyenne exponentielle (EWMA) des jours complets, qui sert de demande journaliere
+ * aux medicaments sans prevision memorisee. Le stock vendable est garde a cote.
+ * Les compteurs d'urgence et les predictions a surveiller se calculent ainsi en
+ * memoire, en O(1) par medicament, sans relancer l'agregation SQL.
+ * </p>
+ * <p>
+ * <b>Mise a jour :</b>
+ * </p>
+ * <ul>
+ *   <li>{@link #enregistrerVente} et {@link #enregistrerRetour} sont appeles apres le
+ *       commit des ventes et retours de ce poste</li>
+ *   <li>le passage a minuit est fait paresseusement : le tampon d'un medicament
+ *       avance jusqu'au jour courant a sa prochaine lecture ou mise a jour</li>
+ *   <li>toutes les {@value #PERIODE_SYNCHRONISATION_MS} ms au plus, une lecture
+ *       resynchronise la consommation du jour et les stocks depuis la base (ventes
+ *       des autres postes, receptions, regularisations) en deux requetes</li>
+ * </ul>
+ * <p>
+ * Tant qu'aucune lecture n'a eu lieu, le magasin n'est pas charge et les evenements
+ * sont ignores : le premier chargement lit tout l'historique.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class StatistiquesConsommation {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatistiquesConsommation.class);
+
+    /** Intervalle maximal entre deux resynchronisations avec la base */
+    public static final long PERIODE_SYNCHRONISATION_MS = 30_000;
+
+    /** Nombre de jours equivalent de la moyenne exponentielle (alpha = 2 / (N + 1)) */
+    public static final int JOURS_EWMA = 14;
+
+    private static final double ALPHA = 2.0 / (JOURS_EWMA + 1);
+
+    /** Instance unique (Singleton) */
+    private static volatile StatistiquesConsommation instance;
+
+    private final ConsommationDAO consommationDAO;
+    private final LotDAO lotDAO;
+    private final MedicamentDAO medicamentDAO;
+    private final Clock horloge;
+    private final int nbJours;
+
+    private final Map<Integer, Compteurs> compteurs = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Prevision> previsions = Map.of();
+    private volatile boolean charge;
+    private volatile long derniereSynchronisation;
+
+    /**
+     * Constructeur avec injection des dependances (pour tests).
+     *
+     * @param consommationDAO le DAO consommation
+     * @param lotDAO          le DAO lot
+     * @param medicamentDAO   le DAO medicament
+     * @param horloge         l'horloge donnant le jour courant
+     * @param nbJours         le nombre de jours complets gardes par medicament
+     */
+    public StatistiquesConsommation(ConsommationDAO consommationDAO, LotDAO lotDAO, MedicamentDAO medicamentDAO,
+                                    Clock horloge, int nbJours) {
+        this.consommationDAO = consommationDAO;
+        this.lotDAO = lotDAO;
+        this.medicamentDAO = medicamentDAO;
+        this.horloge = horloge;
+        this.nbJours = nbJours;
+    }
+
+    /**
+     * Retourne l'instance unique, sur la periode d'analyse des predictions.
+     *
+     * @return l'instance partagee
+     */
+    public static StatistiquesConsommation getInstance() {
+        if (instance == null) {
+            synchronized (StatistiquesConsommation.class) {
+                if (instance == null) {
+                    instance = new StatistiquesConsommation(new ConsommationDAOImpl(), new LotDAOImpl(),
+                            MedicamentDAOCache.getInstance(), Clock.systemDefaultZone(),
+                            new ConfigService().getPredictionJoursAnalyse());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return le nombre de jours complets gardes par medicament
+     */
+    public int getNbJours() {
+        return nbJours;
+    }
+
+    // ==================== Evenements ====================
+
+    /**
+     * Ajoute les quantites d'une vente validee.
+     *
+     * @param jour                   le jour de la vente
+     * @param quantitesParMedicament les quantites vendues par ID de medicament
+     */
+    public void enregistrerVente(LocalDate jour, Map<Integer, Integer> quantitesParMedicament) {
+        if (!charge) {
+            return;
+        }
+        long epoque = jour.toEpochDay();
+        for (Map.Entry<Integer, Integer> entree : quantitesParMedicament.entrySet()) {
+            Compteurs c = compteurs.get(entree.getKey());
+            if (c != null) {
+                synchronized (c) {
+                    c.ajouter(epoque, entree.getValue());
+                    c.stockVendable -= entree.getValue();
+                    c.stockTotal -= entree.getValue();
+                }
+            }
+        }
+    }
+
+    /**
+     * Retire la quantite d'un retour de la consommation du jour de la vente.
+     *
+     * @param jourVente    le jour de la vente d'origine
+     * @param idMedicament l'ID du medicament retourne
+     * @param quantite     la quantite retournee
+     * @param reintegre    true si la quantite a ete remise en stock vendable
+     */
+    public void enregistrerRetour(LocalDate jourVente, int idMedicament, int quantite, boolean reintegre) {
+        if (!charge) {
+            return;
+        }
+        Compteurs c = compteurs.get(idMedicament);
+        if (c != null) {
+            synchronized (c) {
+                c.ajouter(jourVente.toEpochDay(), -quantite);
+                if (reintegre) {
+                    c.stockVendable += quantite;
+                    c.stockTotal += quantite;
+                }
+            }
+        }
+    }
+
+    /**
+     * Memorise les dernieres previsions du moteur de prevision.
+     * <p>
+     * La demande prevue remplace la moyenne de la periode pour estimer les jours avant
+     * rupture. Les previsions precedentes sont remplacees.
+     * </p>
+     *
+     * @param previsionsParMedicament les previsions par ID de medicament
+     */
+    public void enregistrerPrevisions(Map<Integer, Prevision> previsionsParMedicament) {
+        this.previsions = Map.copyOf(previsionsParMedicament);
+    }
+
+    // ==================== Lectures ====================
+
+    /**
+     * Compte les medicaments par niveau d'urgence, depuis la memoire.
+     *
+     * @param seuilCritique le seuil critique (jours)
+     * @param seuilUrgent   le seuil urgent (jours)
+     * @return un tableau [rupture, critique, urgent, attention, ok]
+     * @throws DAOException si le chargement ou la resynchronisation echoue
+     */
+    public int[] compterParUrgence(int seuilCritique, int seuilUrgent) throws DAOException {
+        preparer();
+        long jour = LocalDate.now(horloge).toEpochDay();
+        Map<Integer, Prevision> prevues = previsions;
+        int[] compteursUrgence = new int[5];
+        for (Map.Entry<Integer, Compteurs> entree : compteurs.entrySet()) {
+            Compteurs c = entree.getValue();
+            Prevision prevision = prevues.get(entree.getKey());
+            int jours;
+            synchronized (c) {
+                c.avancer(jour);
+                jours = c.joursAvantRupture(prevision);
+            }
+            if (jours <= 0) {
+                compteursUrgence[0]++;
+            } else if (jours <= seuilCritique) {
+                compteursUrgence[1]++;
+            } else if (jours <= seuilUrgent) {
+                compteursUrgence[2]++;
+            } else if (jours <= seuilUrgent * 2) {
+                compteursUrgence[3]++;
+            } else {
+                compteursUrgence[4]++;
+            }
+        }
+        return compteursUrgence;
+    }
+
+    /**
+     * Retourne les statistiques des medicaments dont les jours avant rupture verifient un filtre.
+     * <p>
+     * La consommation moyenne retournee est la demande prevue si elle est connue,
+     * sinon la moyenne exponentielle des jours complets (voir {@link #getModele(int)}).
+     * </p>
+     *
+     * @param filtreJoursAvantRupture le filtre sur les jours avant rupture
+     * @return les statistiques des medicaments retenus
+     * @throws DAOException si le chargement ou la resynchronisation echoue
+     */
+    public List<StatConsommation> getStatistiques(IntPredicate filtreJoursAvantRupture) throws DAOException {
+        preparer();
+        long jour = LocalDate.now(horloge).toEpochDay();
+        Map<Integer, Prevision> prevues = previsions;
+        List<StatConsommation> resultat = new ArrayList<>();
+        for (Map.Entry<Integer, Compteurs> entree : compteurs.entrySet()) {
+            Compteurs c = entree.getValue();
+            Prevision prevision = prevues.get(entree.getKey());
+            synchronized (c) {
+                c.avancer(jour);
+                if (filtreJoursAvantRupture.test(c.joursAvantRupture(prevision))) {
+                    resultat.add(new StatConsommation(entree.getKey(), c.nom, c.seuilMin, c.stockTotal,
+                            c.stockVendable, (int) c.sommeJoursComplets(), c.demandeJournaliere(prevision)));
+                }
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne le modele de prevision memorise pour un medicament.
+     *
+     * @param idMedicament l'ID du medicament
+     * @return le nom du modele, ou null si aucune prevision n'a ete memorisee
+     */
+    public String getModele(int idMedicament) {
+        Prevision prevision = previsions.get(idMedicament);
+        return prevision != null ? prevision.getModele() : null;
+    }
+
+    /**
+     * Oublie toutes les statistiques ; la prochaine lecture recharge l'historique.
+     */
+    public synchronized void invalider() {
+        charge = false;
+        compteurs.clear();
+    }
+
+    // ==================== Chargement et synchronisation ====================
+
+    /**
+     * Charge le magasin au premier appel, puis le resynchronise si la derniere
+     * synchronisation est trop ancienne.
+     */
+    private void preparer() throws DAOException {
+        if (!charge) {
+            charger();
+        } else if (aSynchroniser()) {
+            synchronized (this) {
+                if (aSynchroniser()) {
+                    synchroniser();
+                }
+            }
+        }
+    }
+
+    private boolean aSynchroniser() {
+        return System.currentTimeMillis() - derniereSynchronisation >= PERIODE_SYNCHRONISATION_MS;
+    }
+
+    private synchronized void charger() throws DAOException {
+        if (charge) {
+            return;
+        }
+        long debut = System.nanoTime();
+        LocalDate aujourdhui = LocalDate.now(horloge);
+        HistoriqueConsommations historique = consommationDAO.getHistoriqueConsommations(nbJours);
+
+        compteurs.clear();
+        for (Medicament m : medicamentDAO.findAllActive()) {
+            Compteurs c = new Compteurs(nbJours + 1, aujourdhui.toEpochDay());
+            c.nom = m.getNomCommercial();
+            c.seuilMin = m.getSeuilMin();
+            int[] serie = historique.getSerie(m.getIdMedicament());
+            long premierJour = historique.getPremierJour().toEpochDay();
+            c.ewma = serie.length > 0 ? serie[0] : 0;
+            for (int i = 0; i < serie.length; i++) {
+                if (serie[i] != 0) {
+                    c.ajouter(premierJour + i, serie[i]);
+                }
+                c.ewma += ALPHA * (serie[i] - c.ewma);
+            }
+            compteurs.put(m.getIdMedicament(), c);
+        }
+        charge = true;
+        synchroniser();
+        logger.info("Statistiques de consommation chargees: {} medicaments, {} jours, {} ms",
+                compteurs.size(), nbJours, (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    /**
+     * Relit la consommation du jour et les stocks, et aligne la liste des medicaments sur le catalogue.
+     */
+    private synchronized void synchroniser() throws DAOException {
+        LocalDate aujourdhui = LocalDate.now(horloge);
+        long jour = aujourdhui.toEpochDay();
+        Map<Integer, Integer> duJour = consommationDAO.getConsommationsDuJour(aujourdhui);
+        StocksMedicaments stocks = lotDAO.getStocksParMedicament();
+
+        Set<Integer> actifs = new HashSet<>();
+        for (Medicament m : medicamentDAO.findAllActive()) {
+            actifs.add(m.getIdMedicament());
+            Compteurs c = compteurs.computeIfAbsent(m.getIdMedicament(),
+                    id -> new Compteurs(nbJours + 1, jour));
+            synchronized (c) {
+                c.nom = m.getNomCommercial();
+                c.seuilMin = m.getSeuilMin();
+                c.avancer(jour);
+                int indice = c.indice(jour);
+                int quantite = duJour.getOrDefault(m.getIdMedicament(), 0);
+                c.somme += quantite - c.jours[indice];
+                c.jours[indice] = quantite;
+                c.stockTotal = stocks.getStockTotal(m.getIdMedicament());
+                c.stockVendable = stocks.getStockVendable(m.getIdMedicament());
+            }
+        }
+        compteurs.keySet().retainAll(actifs);
+        derniereSynchronisation = System.currentTimeMillis();
+    }
+
+    /**
+     * Compteurs d'un medicament. Acces sous verrou de l'instance.
+     */
+    private static final class Compteurs {
+        /** Quantites par jour ; la case d'un jour est son numero epoch modulo la taille */
+        final int[] jours;
+        /** Jour (epoch) de la case la plus recente */
+        long jourCourant;
+        /** Somme de toutes les cases, jour en cours compris */
+        long somme;
+        /** Moyenne exponentielle des jours complets */
+        double ewma;
+        String nom;
+        int seuilMin;
+        int stockTotal;
+        int stockVendable;
+
+        Compteurs(int taille, long jour) {
+            this.jours = new int[taille];
+            this.jourCourant = jour;
+        }
+
+        int indice(long jour) {
+            return (int) Math.floorMod(jour, (long) jours.length);
+        }
+
+        /**
+         * Fait avancer le tampon jusqu'au jour donne : les jours passes sont clos
+         * (EWMA) et les cases reutilisees sont remises a zero.
+         */
+        void avancer(long jour) {
+            long ecart = jour - jourCourant;
+            if (ecart <= 0) {
+                return;
+            }
+            for (long k = 0; k < Math.min(ecart, jours.length); k++) {
+                ewma += ALPHA * (jours[indice(jourCourant)] - ewma);
+                jourCourant++;
+                int indice = indice(jourCourant);
+                somme -= jours[indice];
+                jours[indice] = 0;
+            }
+            if (jourCourant < jour) {
+                // Toutes les cases sont deja vides : les jours restants sont des jours sans vente
+                ewma *= Math.pow(1 - ALPHA, jour - jourCourant);
+                jourCourant = jour;
+            }
+        }
+
+        /**
+         * Ajoute une quantite a un jour ; un jour sorti du tampon est ignore.
+         */
+        void ajouter(long jour, int quantite) {
+            avancer(jour);
+            if (jour <= jourCourant - jours.length) {
+                return;
+            }
+            jours[indice(jour)] += quantite;
+            somme += quantite;
+        }
+
+        long sommeJoursComplets() {
+            return somme - jours[indice(jourCourant)];
+        }
+
+        double demandeJournaliere(Prevision prevision) {
+            if (prevision != null) {
+                return prevision.getDemandeMoyenne();
+            }
+            return ewma;
+        }
+
+        int joursAvantRupture(Prevision prevision) {
+            double demande = demandeJournaliere(prevision);
+            if (demande <= 0) {
+                return Integer.MAX_VALUE;
+            }
+            return (int) Math.floor(stockVendable / demande);
+        }
+    }
+}
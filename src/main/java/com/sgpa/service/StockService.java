@@ -3,7 +3,8 @@ package com.sgpa.service;
 import com.sgpa.dao.LotDAO;
 import com.sgpa.dao.MedicamentDAO;
 import com.sgpa.dao.impl.LotDAOImpl;
-import com.sgpa.dao.impl.MedicamentDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.dto.StocksMedicaments;
 import com.sgpa.exception.DAOException;
 import com.sgpa.exception.ServiceException;
 import com.sgpa.exception.ServiceException.ErrorType;
@@ -42,7 +43,7 @@ public class StockService {
      * Constructeur par defaut.
      */
     public StockService() {
-        this.medicamentDAO = new MedicamentDAOImpl();
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
         this.lotDAO = new LotDAOImpl();
     }
 
@@ -92,6 +93,25 @@ public class StockService {
         }
     }
 
+    /**
+     * Retourne le stock total et le stock vendable de tous les medicaments, lus en une requete.
+     * <p>
+     * A preferer a {@link #getStockTotal(int)} / {@link #getStockVendable(int)} des qu'un
+     * ecran ou un traitement parcourt plusieurs medicaments.
+     * </p>
+     *
+     * @return l'instantane des stocks
+     * @throws ServiceException si une erreur survient
+     */
+    public StocksMedicaments getStocks() throws ServiceException {
+        try {
+            return lotDAO.getStocksParMedicament();
+        } catch (DAOException e) {
+            logger.error("Erreur lors de la recuperation des stocks", e);
+            throw new ServiceException("Erreur lors de la recuperation des stocks", e);
+        }
+    }
+
     /**
      * Retourne l'inventaire complet (tous les medicaments avec leur stock).
      *
@@ -104,10 +124,10 @@ public class StockService {
 
         try {
             List<Medicament> medicaments = medicamentDAO.findAllActive();
+            StocksMedicaments stocks = lotDAO.getStocksParMedicament();
 
             for (Medicament med : medicaments) {
-                int stock = lotDAO.getTotalStockByMedicament(med.getIdMedicament());
-                inventaire.put(med, stock);
+                inventaire.put(med, stocks.getStockTotal(med.getIdMedicament()));
             }
 
             logger.info("Inventaire genere: {} medicaments", inventaire.size());
@@ -155,6 +175,7 @@ public class StockService {
                             ErrorType.NOT_FOUND));
 
             Lot savedLot = lotDAO.save(lot);
+            FefoEngine.getInstance().invalider(lot.getIdMedicament());
             logger.info("Lot ajoute avec succes: ID={}, Numero={}",
                     savedLot.getIdLot(), savedLot.getNumeroLot());
 
@@ -180,6 +201,7 @@ public class StockService {
 
         try {
             lotDAO.updateQuantite(idLot, nouvelleQuantite);
+            FefoEngine.getInstance().invaliderTout();
             logger.info("Quantite du lot {} mise a jour: {}", idLot, nouvelleQuantite);
         } catch (DAOException e) {
             logger.error("Erreur lors de la mise a jour de la quantite", e);
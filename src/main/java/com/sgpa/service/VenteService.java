@@ -1,10 +1,14 @@
 package com.sgpa.service;
 
+import com.sgpa.dao.ConsommationDAO;
 import com.sgpa.dao.LotDAO;
 import com.sgpa.dao.MedicamentDAO;
+import com.sgpa.dao.ReservationDAO;
 import com.sgpa.dao.VenteDAO;
+import com.sgpa.dao.impl.ConsommationDAOImpl;
 import com.sgpa.dao.impl.LotDAOImpl;
-import com.sgpa.dao.impl.MedicamentDAOImpl;
+import com.sgpa.dao.impl.MedicamentDAOCache;
+import com.sgpa.dao.impl.ReservationDAOImpl;
 import com.sgpa.dao.impl.VenteDAOImpl;
 import com.sgpa.dto.LigneVenteDTO;
 import com.sgpa.exception.DAOException;
@@ -15,6 +19,7 @@ import com.sgpa.model.Lot;
 import com.sgpa.model.Medicament;
 import com.sgpa.model.Vente;
 import com.sgpa.utils.DatabaseConnection;
+import com.sgpa.utils.Montant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,7 +28,11 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Service de gestion des ventes avec algorithme FEFO.
@@ -34,7 +43,9 @@ import java.util.List;
  * </p>
  * <p>
  * <b>Gestion transactionnelle :</b> Les ventes sont effectuees dans une transaction
- * pour garantir la coherence des donnees. En cas d'erreur, un rollback est effectue.
+ * pour garantir la coherence des donnees. Toutes les ecritures (entete, deductions
+ * FEFO, lignes de vente, consommation du jour, reservations du panier) passent par la meme connexion et
+ * sont validees par un commit unique. En cas d'erreur, un rollback est effectue.
  * </p>
  *
  * @author SGPA Team
@@ -47,27 +58,39 @@ public class VenteService {
     private final VenteDAO venteDAO;
     private final MedicamentDAO medicamentDAO;
     private final LotDAO lotDAO;
+    private final FefoEngine fefoEngine;
+    private final ConsommationDAO consommationDAO;
+    private final ReservationDAO reservationDAO;
 
     /**
      * Constructeur par defaut.
      */
     public VenteService() {
         this.venteDAO = new VenteDAOImpl();
-        this.medicamentDAO = new MedicamentDAOImpl();
+        this.medicamentDAO = MedicamentDAOCache.getInstance();
         this.lotDAO = new LotDAOImpl();
+        this.fefoEngine = FefoEngine.getInstance();
+        this.consommationDAO = new ConsommationDAOImpl();
+        this.reservationDAO = new ReservationDAOImpl();
     }
 
     /**
      * Constructeur avec injection des DAOs (pour tests).
      *
-     * @param venteDAO       le DAO vente
-     * @param medicamentDAO  le DAO medicament
-     * @param lotDAO         le DAO lot
+     * @param venteDAO        le DAO vente
+     * @param medicamentDAO   le DAO medicament
+     * @param lotDAO          le DAO lot
+     * @param consommationDAO le DAO consommation
+     * @param reservationDAO  le DAO des reservations de stock
      */
-    public VenteService(VenteDAO venteDAO, MedicamentDAO medicamentDAO, LotDAO lotDAO) {
+    public VenteService(VenteDAO venteDAO, MedicamentDAO medicamentDAO, LotDAO lotDAO,
+                        ConsommationDAO consommationDAO, ReservationDAO reservationDAO) {
         this.venteDAO = venteDAO;
         this.medicamentDAO = medicamentDAO;
         this.lotDAO = lotDAO;
+        this.fefoEngine = new FefoEngine(lotDAO, FefoEngine.DUREE_VIE_MS);
+        this.consommationDAO = consommationDAO;
+        this.reservationDAO = reservationDAO;
     }
 
     /**
@@ -75,12 +98,18 @@ public class VenteService {
      * <p>
      * Cette methode :
      * <ol>
+     *   <li>Prepare medicaments et lots vendables depuis la memoire ({@link PlanVente})</li>
      *   <li>Valide la disponibilite du stock pour chaque ligne</li>
      *   <li>Applique l'algorithme FEFO pour deduire les quantites</li>
      *   <li>Cree la vente et les lignes de vente avec tracabilite des lots</li>
      *   <li>Effectue le tout dans une transaction</li>
      * </ol>
      * </p>
+     * <p>
+     * Les allocations FEFO sont calculees par le {@link FefoEngine} puis deduites en base
+     * par decrement conditionnel : plusieurs postes peuvent vendre le meme medicament en
+     * parallele sans serialiser les ventes ni rendre un lot negatif.
+     * </p>
      *
      * @param lignes        les lignes de vente (medicament + quantite)
      * @param idUtilisateur l'ID de l'utilisateur effectuant la vente
@@ -90,6 +119,84 @@ public class VenteService {
      */
     public Vente creerVente(List<LigneVenteDTO> lignes, int idUtilisateur, boolean surOrdonnance)
             throws ServiceException {
+        return enregistrerVente(lignes, idUtilisateur, surOrdonnance, LocalDateTime.now(), null);
+    }
+
+    /**
+     * Enregistre une vente via le journal local des ventes.
+     * <p>
+     * La vente est d'abord ecrite (fsync) dans le {@link JournalVentes}, puis rejouee
+     * en base par le rejoueur en arriere-plan. Si la base repond dans le delai
+     * configure, la vente definitive est retournee et les erreurs metier (stock,
+     * ordonnance) sont remontees comme avec {@link #creerVente}. Sinon une vente
+     * provisoire, sans ID, est retournee : elle sera enregistree des que la base
+     * sera de nouveau disponible.
+     * </p>
+     * <p>
+     * Les reservations de stock du panier ({@link ReservationStock}) sont supprimees dans
+     * la transaction de la vente.
+     * </p>
+     *
+     * @param lignes            les lignes de vente (medicament + quantite)
+     * @param idUtilisateur     l'ID de l'utilisateur effectuant la vente
+     * @param surOrdonnance     true si la vente est sur ordonnance
+     * @param montantProvisoire le montant affiche au panier, utilise pour la vente provisoire
+     * @param referencePanier   la reference du panier dont les reservations sont consommees, ou null
+     * @return la vente creee, ou une vente provisoire si la base n'a pas repondu a temps
+     * @throws ServiceException si la vente est refusee ou si le journal est inaccessible
+     */
+    public Vente creerVenteJournalisee(List<LigneVenteDTO> lignes, int idUtilisateur, boolean surOrdonnance,
+                                       BigDecimal montantProvisoire, String referencePanier)
+            throws ServiceException {
+        if (lignes == null || lignes.isEmpty()) {
+            throw new ServiceException("La vente doit contenir au moins une ligne", ErrorType.VALIDATION);
+        }
+        for (LigneVenteDTO ligne : lignes) {
+            if (ligne.getIdMedicament() <= 0) {
+                throw new ServiceException("ID medicament invalide", ErrorType.VALIDATION);
+            }
+            if (ligne.getQuantite() <= 0) {
+                throw new ServiceException("La quantite doit etre superieure a 0", ErrorType.VALIDATION);
+            }
+        }
+
+        JournalVentes journal = JournalVentes.getInstance();
+        JournalVentes.Entree entree = journal.enregistrer(lignes, idUtilisateur, surOrdonnance, montantProvisoire,
+                referencePanier);
+        return journal.attendre(entree);
+    }
+
+    /**
+     * Rejoue en base une vente du journal local.
+     * <p>
+     * La reference de l'entree est stockee dans la colonne unique {@code reference_journal} :
+     * une entree deja enregistree (arret brutal apres le commit par exemple) est refusee par
+     * la contrainte et la vente existante est rendue. Seules les reprises (entree relue au
+     * demarrage ou tentative precedente interrompue) la cherchent avant de la rejouer.
+     * </p>
+     *
+     * @param entree l'entree du journal
+     * @return la vente enregistree
+     * @throws ServiceException si la vente est refusee ou si la base est indisponible
+     */
+    Vente rejouerVente(JournalVentes.Entree entree) throws ServiceException {
+        return enregistrerVente(entree.getLignes(), entree.getIdUtilisateur(), entree.isSurOrdonnance(),
+                entree.getDateVente(), entree);
+    }
+
+    /**
+     * Enregistre une vente dans une transaction unique.
+     *
+     * @param lignes        les lignes de vente
+     * @param idUtilisateur l'ID de l'utilisateur
+     * @param surOrdonnance true si la vente est sur ordonnance
+     * @param dateVente     la date de la vente
+     * @param entree        l'entree du journal rejouee, ou null
+     * @return la vente creee, ou la vente deja enregistree pour la meme entree du journal
+     * @throws ServiceException si une erreur survient ou si le stock est insuffisant
+     */
+    private Vente enregistrerVente(List<LigneVenteDTO> lignes, int idUtilisateur, boolean surOrdonnance,
+                                   LocalDateTime dateVente, JournalVentes.Entree entree) throws ServiceException {
 
         if (lignes == null || lignes.isEmpty()) {
             throw new ServiceException("La vente doit contenir au moins une ligne", ErrorType.VALIDATION);
@@ -99,171 +206,187 @@ public class VenteService {
                 lignes.size(), idUtilisateur);
 
         Connection conn = null;
+        FefoEngine.Plan plan = fefoEngine.nouveauPlan();
         try {
             // Demarrer la transaction
             conn = DatabaseConnection.getInstance().getConnection();
             conn.setAutoCommit(false);
             logger.debug("Transaction demarree");
 
-            // 1. Valider toutes les lignes avant de commencer
+            // 0. Reprise d'une entree du journal : elle a pu etre enregistree avant l'interruption
+            if (entree != null && entree.isReprise()) {
+                Optional<Vente> existante = venteDAO.findByReferenceJournal(conn, entree.getReference());
+                if (existante.isPresent()) {
+                    logger.info("Vente deja enregistree pour l'entree {} du journal", entree.getReference());
+                    return existante.get();
+                }
+            }
+
+            // 1. Medicaments et lots vendables depuis la memoire (relus seulement si absents), puis valider
+            PlanVente planVente = PlanVente.charger(conn, medicamentDAO, lotDAO, fefoEngine, lignes);
             for (LigneVenteDTO ligne : lignes) {
-                validerLigneVente(ligne, surOrdonnance);
+                validerLigneVente(ligne, surOrdonnance, planVente);
             }
 
             // 2. Calculer le montant total
-            BigDecimal montantTotal = BigDecimal.ZERO;
+            long montantTotal = 0;
             List<LigneVenteInfo> lignesInfo = new ArrayList<>();
 
             for (LigneVenteDTO ligne : lignes) {
-                Medicament med = medicamentDAO.findById(ligne.getIdMedicament())
-                        .orElseThrow(() -> new ServiceException(
-                                "Medicament non trouve: " + ligne.getIdMedicament(),
-                                ErrorType.NOT_FOUND));
+                Medicament med = planVente.getMedicament(ligne.getIdMedicament());
+                long prixUnitaire = planVente.getPrixUnitaireCentimes(ligne);
 
-                BigDecimal prixUnitaire = ligne.getPrixUnitaire() != null
-                        ? ligne.getPrixUnitaire()
-                        : med.getPrixPublic();
+                montantTotal = Montant.ajouter(montantTotal, Montant.multiplier(prixUnitaire, ligne.getQuantite()));
 
-                BigDecimal montantLigne = prixUnitaire.multiply(BigDecimal.valueOf(ligne.getQuantite()));
-                montantTotal = montantTotal.add(montantLigne);
-
-                lignesInfo.add(new LigneVenteInfo(med, ligne.getQuantite(), prixUnitaire));
+                lignesInfo.add(new LigneVenteInfo(med, ligne.getQuantite(), prixUnitaire, ligne.getIdLot()));
             }
 
             // 3. Creer l'entete de vente
             Vente vente = new Vente();
-            vente.setDateVente(LocalDateTime.now());
-            vente.setMontantTotal(montantTotal);
+            vente.setDateVente(dateVente);
+            vente.setMontantTotal(Montant.enBigDecimal(montantTotal));
             vente.setEstSurOrdonnance(surOrdonnance);
             vente.setIdUtilisateur(idUtilisateur);
+            if (entree != null) {
+                vente.setNotes(JournalVentes.PREFIXE_NOTES + entree.getReference());
+                vente.setReferenceJournal(entree.getReference());
+            }
 
-            vente = venteDAO.save(vente);
+            try {
+                vente = venteDAO.save(conn, vente);
+            } catch (DAOException e) {
+                if (!DAOException.CODE_DOUBLON.equals(e.getErrorCode())) {
+                    throw e;
+                }
+                // Entree du journal deja enregistree : rendre la vente existante sans la dupliquer
+                annuler(conn, plan);
+                logger.info("Vente deja enregistree pour l'entree {} du journal", entree.getReference());
+                return venteDAO.findByReferenceJournal(conn, entree.getReference()).orElseThrow(() -> e);
+            }
             logger.debug("Vente creee avec ID: {}", vente.getIdVente());
 
-            // 4. Appliquer FEFO et creer les lignes de vente
+            // 4. Appliquer FEFO et preparer les lignes de vente
             List<LigneVente> lignesVente = new ArrayList<>();
 
             for (LigneVenteInfo info : lignesInfo) {
-                List<LotUtilise> lotsUtilises = deduireStockFEFO(info.medicament.getIdMedicament(),
-                        info.quantite, conn);
+                List<FefoEngine.Allocation> allocations = deduireStockFEFO(plan, info, conn);
 
-                for (LotUtilise lotUtilise : lotsUtilises) {
+                for (FefoEngine.Allocation allocation : allocations) {
                     LigneVente ligneVente = new LigneVente();
                     ligneVente.setIdVente(vente.getIdVente());
-                    ligneVente.setIdLot(lotUtilise.lot.getIdLot());
-                    ligneVente.setQuantite(lotUtilise.quantitePrelevee);
-                    ligneVente.setPrixUnitaireApplique(info.prixUnitaire);
+                    ligneVente.setIdLot(allocation.getLot().getIdLot());
+                    ligneVente.setQuantite(allocation.getQuantite());
+                    ligneVente.setPrixUnitaireCentimes(info.prixUnitaire);
 
                     // Assigner le lot avec le medicament pour la generation de rapports/tickets
-                    Lot lotComplet = lotUtilise.lot;
+                    Lot lotComplet = allocation.getLot();
                     lotComplet.setMedicament(info.medicament);
                     ligneVente.setLot(lotComplet);
 
-                    venteDAO.saveLigneVente(ligneVente);
                     lignesVente.add(ligneVente);
 
-                    logger.debug("Ligne de vente creee: Lot={}, Qte={}, Prix={}",
-                            lotUtilise.lot.getNumeroLot(), lotUtilise.quantitePrelevee, info.prixUnitaire);
+                    logger.debug("Ligne de vente preparee: Lot={}, Qte={}, Prix (centimes)={}",
+                            lotComplet.getNumeroLot(), allocation.getQuantite(), info.prixUnitaire);
                 }
             }
 
+            // 5. Inserer toutes les lignes en un seul lot
+            venteDAO.saveLignesVente(conn, lignesVente);
             vente.setLignesVente(lignesVente);
 
-            // 5. Commit de la transaction
+            // 6. Cumuler les quantites dans la consommation du jour
+            Map<Integer, Integer> consommations = new HashMap<>();
+            for (LigneVenteInfo info : lignesInfo) {
+                consommations.merge(info.medicament.getIdMedicament(), info.quantite, Integer::sum);
+            }
+            consommationDAO.ajouterConsommations(conn, dateVente.toLocalDate(), consommations);
+
+            // 7. Liberer le stock retenu par le panier
+            if (entree != null && entree.getReferencePanier() != null) {
+                reservationDAO.consommer(conn, entree.getReferencePanier());
+            }
+
+            // 8. Commit de la transaction
             conn.commit();
-            logger.info("Vente {} creee avec succes. Montant total: {}", vente.getIdVente(), montantTotal);
+            fefoEngine.appliquer(plan);
+            StatistiquesConsommation.getInstance().enregistrerVente(dateVente.toLocalDate(), consommations);
+            logger.info("Vente {} creee avec succes. Montant total: {}", vente.getIdVente(), vente.getMontantTotal());
 
             return vente;
 
-        } catch (SQLException e) {
-            // Rollback en cas d'erreur SQL
-            rollback(conn);
-            logger.error("Erreur SQL lors de la creation de la vente", e);
-            throw new ServiceException("Erreur lors de la creation de la vente", e);
-
-        } catch (DAOException e) {
-            // Rollback en cas d'erreur DAO
-            rollback(conn);
-            logger.error("Erreur DAO lors de la creation de la vente", e);
+        } catch (SQLException | DAOException e) {
+            annuler(conn, plan);
+            logger.error("Erreur lors de la creation de la vente", e);
             throw new ServiceException("Erreur lors de la creation de la vente", e);
 
         } catch (ServiceException e) {
-            // Rollback en cas d'erreur metier
-            rollback(conn);
+            // Erreur metier (stock insuffisant, ordonnance) : le plan a pu reserver des lots
+            annuler(conn, plan);
             throw e;
 
         } finally {
-            // Restaurer l'auto-commit et liberer la connexion
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                } catch (SQLException ignored) {
-                }
-            }
+            // Restaurer l'auto-commit et rendre la connexion au pool
+            close(conn);
         }
     }
 
     /**
-     * Applique l'algorithme FEFO pour deduire le stock.
+     * Applique l'algorithme FEFO pour deduire le stock d'une ligne de vente.
      * <p>
      * <b>FEFO (First Expired, First Out)</b> : Les lots avec la date de peremption
-     * la plus proche sont utilises en premier.
+     * la plus proche sont utilises en premier. Le plan est calcule en memoire par le
+     * {@link FefoEngine}, puis chaque lot est decremente en base seulement s'il contient
+     * encore la quantite prevue. Un lot vide entre-temps par un autre poste est exclu
+     * et la quantite manquante est reportee sur le lot suivant.
+     * </p>
+     * <p>
+     * Une ligne issue d'un scan DataMatrix porte le lot de la boite : ce lot est preleve
+     * en premier, pour que la tracabilite suive la boite reellement remise.
      * </p>
      *
-     * @param idMedicament     l'ID du medicament
-     * @param quantiteDemandee la quantite a deduire
-     * @param conn             la connexion pour la transaction
+     * @param plan le plan d'allocation de la vente
+     * @param info la ligne a servir
+     * @param conn la connexion pour la transaction
      * @return la liste des lots utilises avec les quantites prelevees
      * @throws ServiceException si le stock est insuffisant
      * @throws DAOException     si une erreur d'acces aux donnees survient
      */
-    private List<LotUtilise> deduireStockFEFO(int idMedicament, int quantiteDemandee, Connection conn)
+    private List<FefoEngine.Allocation> deduireStockFEFO(FefoEngine.Plan plan, LigneVenteInfo info,
+                                                         Connection conn)
             throws ServiceException, DAOException {
 
+        int idMedicament = info.medicament.getIdMedicament();
         logger.debug("Application FEFO pour medicament {}: {} unites demandees",
-                idMedicament, quantiteDemandee);
-
-        List<LotUtilise> lotsUtilises = new ArrayList<>();
-
-        // Recuperer les lots tries par date de peremption (FEFO)
-        List<Lot> lots = lotDAO.findVendableByMedicament(idMedicament);
-
-        int quantiteRestante = quantiteDemandee;
+                idMedicament, info.quantite);
 
-        for (Lot lot : lots) {
-            if (quantiteRestante <= 0) break;
+        List<FefoEngine.Allocation> lotsUtilises = new ArrayList<>();
+        int quantiteRestante = info.quantite;
 
-            // Ignorer les lots perimes
-            if (lot.isPerime()) {
-                logger.debug("Lot {} ignore (perime)", lot.getNumeroLot());
-                continue;
+        while (quantiteRestante > 0) {
+            List<FefoEngine.Allocation> allocations = plan.allouer(conn, idMedicament, quantiteRestante, info.idLot);
+            if (allocations.isEmpty()) {
+                throw new ServiceException(
+                        String.format("Stock insuffisant pour %s. Manque %d unites.",
+                                info.medicament.getNomCommercial(), quantiteRestante),
+                        ErrorType.STOCK_INSUFFISANT);
             }
 
-            // Ignorer les lots sans stock
-            if (lot.getQuantiteStock() <= 0) {
-                continue;
+            Map<Integer, Integer> decrements = new LinkedHashMap<>();
+            for (FefoEngine.Allocation allocation : allocations) {
+                decrements.put(allocation.getLot().getIdLot(), allocation.getQuantite());
+            }
+            List<Integer> echecs = lotDAO.decrementerQuantites(conn, decrements);
+
+            for (FefoEngine.Allocation allocation : allocations) {
+                if (echecs.contains(allocation.getLot().getIdLot())) {
+                    logger.debug("Lot {} vide entre-temps, report sur le lot suivant",
+                            allocation.getLot().getNumeroLot());
+                    plan.exclure(allocation);
+                } else {
+                    lotsUtilises.add(allocation);
+                    quantiteRestante -= allocation.getQuantite();
+                }
             }
-
-            // Calculer la quantite a prendre de ce lot
-            int aDeduire = Math.min(lot.getQuantiteStock(), quantiteRestante);
-
-            // Mettre a jour le lot
-            int nouvelleQuantite = lot.getQuantiteStock() - aDeduire;
-            lotDAO.updateQuantite(lot.getIdLot(), nouvelleQuantite);
-
-            logger.debug("Lot {} (expire {}): -{} unites (reste {})",
-                    lot.getNumeroLot(), lot.getDatePeremption(), aDeduire, nouvelleQuantite);
-
-            lotsUtilises.add(new LotUtilise(lot, aDeduire));
-            quantiteRestante -= aDeduire;
-        }
-
-        // Verifier que tout a ete deduit
-        if (quantiteRestante > 0) {
-            throw new ServiceException(
-                    String.format("Stock insuffisant pour le medicament %d. Manque %d unites.",
-                            idMedicament, quantiteRestante),
-                    ErrorType.STOCK_INSUFFISANT);
         }
 
         logger.debug("FEFO applique: {} lot(s) utilise(s)", lotsUtilises.size());
@@ -275,9 +398,11 @@ public class VenteService {
      *
      * @param ligne         la ligne a valider
      * @param surOrdonnance true si la vente est sur ordonnance
+     * @param planVente     l'instantane des medicaments et lots de la vente
      * @throws ServiceException si la validation echoue
      */
-    private void validerLigneVente(LigneVenteDTO ligne, boolean surOrdonnance) throws ServiceException {
+    private void validerLigneVente(LigneVenteDTO ligne, boolean surOrdonnance, PlanVente planVente)
+            throws ServiceException {
         if (ligne.getIdMedicament() <= 0) {
             throw new ServiceException("ID medicament invalide", ErrorType.VALIDATION);
         }
@@ -285,36 +410,19 @@ public class VenteService {
             throw new ServiceException("La quantite doit etre superieure a 0", ErrorType.VALIDATION);
         }
 
-        try {
-            // Verifier que le medicament existe
-            Medicament med = medicamentDAO.findById(ligne.getIdMedicament())
-                    .orElseThrow(() -> new ServiceException(
-                            "Medicament non trouve: " + ligne.getIdMedicament(),
-                            ErrorType.NOT_FOUND));
-
-            // Verifier si ordonnance requise
-            if (med.isNecessiteOrdonnance() && !surOrdonnance) {
-                throw new ServiceException(
-                        "Le medicament " + med.getNomCommercial() + " necessite une ordonnance",
-                        ErrorType.ORDONNANCE_REQUISE);
-            }
-
-            // Verifier le stock disponible
-            int stockVendable = lotDAO.findVendableByMedicament(ligne.getIdMedicament())
-                    .stream()
-                    .mapToInt(Lot::getQuantiteStock)
-                    .sum();
-
-            if (stockVendable < ligne.getQuantite()) {
-                throw new ServiceException(
-                        String.format("Stock insuffisant pour %s. Disponible: %d, Demande: %d",
-                                med.getNomCommercial(), stockVendable, ligne.getQuantite()),
-                        ErrorType.STOCK_INSUFFISANT);
-            }
+        planVente.valider(ligne, surOrdonnance);
+    }
 
-        } catch (DAOException e) {
-            throw new ServiceException("Erreur lors de la validation", e);
-        }
+    /**
+     * Annule une vente en echec : rollback de la transaction et invalidation des
+     * medicaments du plan, dont l'etat en memoire a pu diverger de la base.
+     *
+     * @param conn la connexion
+     * @param plan le plan d'allocation de la vente
+     */
+    private void annuler(Connection conn, FefoEngine.Plan plan) {
+        rollback(conn);
+        fefoEngine.invalider(plan);
     }
 
     /**
@@ -333,6 +441,25 @@ public class VenteService {
         }
     }
 
+    /**
+     * Restaure l'auto-commit et rend la connexion au pool.
+     *
+     * @param conn la connexion
+     */
+    private void close(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ignored) {
+            }
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                logger.error("Erreur lors de la fermeture de la connexion", e);
+            }
+        }
+    }
+
     /**
      * Recupere l'historique des ventes.
      *
@@ -373,25 +500,16 @@ public class VenteService {
     private static class LigneVenteInfo {
         final Medicament medicament;
         final int quantite;
-        final BigDecimal prixUnitaire;
+        /** Prix unitaire en centimes */
+        final long prixUnitaire;
+        /** Lot impose par le scan, ou null */
+        final Integer idLot;
 
-        LigneVenteInfo(Medicament medicament, int quantite, BigDecimal prixUnitaire) {
+        LigneVenteInfo(Medicament medicament, int quantite, long prixUnitaire, Integer idLot) {
             this.medicament = medicament;
             this.quantite = quantite;
             this.prixUnitaire = prixUnitaire;
-        }
-    }
-
-    /**
-     * Information sur un lot utilise lors d'une vente.
-     */
-    private static class LotUtilise {
-        final Lot lot;
-        final int quantitePrelevee;
-
-        LotUtilise(Lot lot, int quantitePrelevee) {
-            this.lot = lot;
-            this.quantitePrelevee = quantitePrelevee;
+            this.idLot = idLot;
         }
     }
 }
@@ -0,0 +1,72 @@
+package com.sgpa.service.prevision;
+
+import java.util.Arrays;
+
+/**
+ * Methode de Croston, variante de Syntetos-Boylan (SBA), pour la demande intermittente.
+ * <p>
+ * Lisse separement la taille des ventes non nulles et l'intervalle entre deux ventes ;
+ * la demande journaliere prevue est leur rapport, corrige du biais de Croston par le
+ * facteur {@code 1 - alpha / 2}. Adaptee aux produits vendus quelques fois par mois,
+ * pour lesquels une moyenne mobile oscille entre zero et des pics.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class Croston implements ModelePrevision {
+
+    private final double alpha;
+
+    /**
+     * Constructeur.
+     *
+     * @param alpha la constante de lissage (0 &lt; alpha &lt; 1)
+     */
+    public Croston(double alpha) {
+        this.alpha = alpha;
+    }
+
+    @Override
+    public String getNom() {
+        return "Croston";
+    }
+
+    @Override
+    public int getLongueurMinimale() {
+        return 14;
+    }
+
+    @Override
+    public double[] prevoir(int[] serie, int longueur, int horizon) {
+        double[] prevision = new double[horizon];
+
+        int premier = 0;
+        while (premier < longueur && serie[premier] <= 0) {
+            premier++;
+        }
+        if (premier == longueur) {
+            return prevision;
+        }
+
+        double taille = serie[premier];
+        double intervalle = premier + 1;
+        int depuisDerniere = 1;
+        for (int t = premier + 1; t < longueur; t++) {
+            if (serie[t] > 0) {
+                taille += alpha * (serie[t] - taille);
+                intervalle += alpha * (depuisDerniere - intervalle);
+                depuisDerniere = 1;
+            } else {
+                depuisDerniere++;
+            }
+        }
+        // Une longue absence de vente en fin de serie allonge l'intervalle estime
+        if (depuisDerniere > intervalle) {
+            intervalle += alpha * (depuisDerniere - intervalle);
+        }
+
+        Arrays.fill(prevision, (1 - alpha / 2) * taille / intervalle);
+        return prevision;
+    }
+}
@@ -0,0 +1,97 @@
+package com.sgpa.service.prevision;
+
+/**
+ * Lissage exponentiel de Holt-Winters additif, a tendance amortie et saisonnalite hebdomadaire.
+ * <p>
+ * Suit le niveau, la tendance (montee d'une epidemie saisonniere, decrue apres un pic)
+ * et le profil des jours de la semaine. Les constantes de lissage sont choisies par
+ * grille sur l'erreur de prevision a un jour dans l'historique ; la tendance amortie
+ * evite de prolonger indefiniment une hausse.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class HoltWinters implements ModelePrevision {
+
+    /** Longueur de la saison (jours) */
+    private static final int SAISON = 7;
+
+    /** Amortissement de la tendance */
+    private static final double PHI = 0.9;
+
+    private static final double[] ALPHAS = {0.1, 0.3, 0.5};
+    private static final double[] BETAS = {0.01, 0.1};
+    private static final double[] GAMMAS = {0.05, 0.2};
+
+    @Override
+    public String getNom() {
+        return "Holt-Winters";
+    }
+
+    @Override
+    public int getLongueurMinimale() {
+        return 3 * SAISON;
+    }
+
+    @Override
+    public double[] prevoir(int[] serie, int longueur, int horizon) {
+        double[] saisons = new double[SAISON];
+        double[] meilleuresSaisons = new double[SAISON];
+        double meilleureErreur = Double.POSITIVE_INFINITY;
+        double meilleurNiveau = 0;
+        double meilleureTendance = 0;
+
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                for (double gamma : GAMMAS) {
+                    // Initialisation sur les deux premieres saisons
+                    double niveau = moyenne(serie, 0, SAISON);
+                    double tendance = (moyenne(serie, SAISON, 2 * SAISON) - niveau) / SAISON;
+                    for (int i = 0; i < SAISON; i++) {
+                        saisons[i] = serie[i] - niveau;
+                    }
+
+                    double erreur = 0;
+                    for (int t = SAISON; t < longueur; t++) {
+                        int s = t % SAISON;
+                        double ecart = serie[t] - (niveau + PHI * tendance + saisons[s]);
+                        erreur += ecart * ecart;
+
+                        double nouveauNiveau = alpha * (serie[t] - saisons[s]) + (1 - alpha) * (niveau + PHI * tendance);
+                        tendance = beta * (nouveauNiveau - niveau) + (1 - beta) * PHI * tendance;
+                        saisons[s] = gamma * (serie[t] - nouveauNiveau) + (1 - gamma) * saisons[s];
+                        niveau = nouveauNiveau;
+                    }
+
+                    if (erreur < meilleureErreur) {
+                        meilleureErreur = erreur;
+                        meilleurNiveau = niveau;
+                        meilleureTendance = tendance;
+                        System.arraycopy(saisons, 0, meilleuresSaisons, 0, SAISON);
+                    }
+                }
+            }
+        }
+
+        double[] prevision = new double[horizon];
+        double amortissement = 0;
+        double puissance = 1;
+        for (int k = 0; k < horizon; k++) {
+            puissance *= PHI;
+            amortissement += puissance;
+            double valeur = meilleurNiveau + amortissement * meilleureTendance
+                    + meilleuresSaisons[(longueur + k) % SAISON];
+            prevision[k] = Math.max(0.0, valeur);
+        }
+        return prevision;
+    }
+
+    private static double moyenne(int[] serie, int debut, int fin) {
+        long somme = 0;
+        for (int t = debut; t < fin; t++) {
+            somme += serie[t];
+        }
+        return (double) somme / (fin - debut);
+    }
+}
@@ -0,0 +1,37 @@
+package com.sgpa.service.prevision;
+
+/**
+ * Modele de prevision de la demande journaliere d'un medicament.
+ * <p>
+ * Un modele est sans etat : {@link #prevoir(int[], int, int)} ajuste le modele sur
+ * les {@code longueur} premiers jours de la serie puis prolonge la prevision. Le
+ * {@link MoteurPrevision} appelle le meme modele depuis plusieurs threads et sur des
+ * prefixes de la serie (backtest) : une implementation ne doit ni modifier la serie
+ * ni garder d'etat entre deux appels.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public interface ModelePrevision {
+
+    /**
+     * @return le nom court du modele (affiche avec la prediction)
+     */
+    String getNom();
+
+    /**
+     * @return le nombre minimal de jours d'historique pour ajuster le modele
+     */
+    int getLongueurMinimale();
+
+    /**
+     * Prevoit la demande des jours qui suivent l'historique.
+     *
+     * @param serie    les quantites vendues par jour, du plus ancien au plus recent
+     * @param longueur le nombre de jours de la serie a utiliser (prefixe)
+     * @param horizon  le nombre de jours a prevoir
+     * @return la demande prevue pour chaque jour de l'horizon, jamais negative
+     */
+    double[] prevoir(int[] serie, int longueur, int horizon);
+}
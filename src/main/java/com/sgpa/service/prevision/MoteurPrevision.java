@@ -0,0 +1,206 @@
+package com.sgpa.service.prevision;
+
+import com.sgpa.dto.HistoriqueConsommations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+
+/**
+ * Moteur de prevision de la demande, tous medicaments en parallele.
+ * <p>
+ * Pour chaque medicament, chaque {@link ModelePrevision} est evalue en backtest sur
+ * les dernieres semaines de l'historique (origines glissantes de
+ * {@value #HORIZON_BACKTEST} jours) ; le modele de plus faible erreur quadratique est
+ * retenu puis ajuste sur tout l'historique. Les medicaments sont repartis en taches
+ * fork-join : le calcul est purement en memoire, sans requete ni verrou.
+ * </p>
+ * <p>
+ * Les medicaments peu importants (classe C par exemple) peuvent etre exclus de la
+ * selection : le premier modele leur est applique directement, sans backtest.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * HistoriqueConsommations historique = consommationDAO.getHistoriqueConsommations(90);
+ * Prevision[] previsions = new MoteurPrevision().prevoir(historique, idsMedicaments, 30);
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class MoteurPrevision {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoteurPrevision.class);
+
+    /** Jours prevus a chaque origine de backtest */
+    public static final int HORIZON_BACKTEST = 7;
+
+    /** Nombre maximal d'origines de backtest */
+    public static final int PLIS_BACKTEST = 3;
+
+    /** Nombre de medicaments en dessous duquel une tache n'est plus divisee */
+    private static final int SEUIL_DECOUPAGE = 64;
+
+    private final List<ModelePrevision> modeles;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructeur par defaut : moyennes mobiles 7 et 28 jours, Holt-Winters et Croston,
+     * sur le pool fork-join commun.
+     */
+    public MoteurPrevision() {
+        this(List.of(new MoyenneMobile(28), new MoyenneMobile(7), new HoltWinters(), new Croston(0.1)),
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructeur avec modeles et pool (pour tests).
+     *
+     * @param modeles les modeles candidats ; le premier sert quand l'historique est trop court
+     *                pour un backtest
+     * @param pool    le pool d'execution
+     */
+    public MoteurPrevision(List<ModelePrevision> modeles, ForkJoinPool pool) {
+        if (modeles.isEmpty()) {
+            throw new IllegalArgumentException("Au moins un modele de prevision est requis");
+        }
+        this.modeles = List.copyOf(modeles);
+        this.pool = pool;
+    }
+
+    /**
+     * Prevoit la demande de plusieurs medicaments.
+     *
+     * @param historique     l'historique journalier des consommations
+     * @param idsMedicaments les medicaments a prevoir
+     * @param horizon        le nombre de jours a prevoir
+     * @return les previsions, dans l'ordre de {@code idsMedicaments}
+     */
+    public Prevision[] prevoir(HistoriqueConsommations historique, int[] idsMedicaments, int horizon) {
+        return prevoir(historique, idsMedicaments, horizon, id -> true);
+    }
+
+    /**
+     * Prevoit la demande de plusieurs medicaments, avec selection du modele pour certains seulement.
+     *
+     * @param historique     l'historique journalier des consommations
+     * @param idsMedicaments les medicaments a prevoir
+     * @param horizon        le nombre de jours a prevoir
+     * @param selection      vrai pour les medicaments dont le modele est choisi par backtest ;
+     *                       les autres recoivent le premier modele
+     * @return les previsions, dans l'ordre de {@code idsMedicaments}
+     */
+    public Prevision[] prevoir(HistoriqueConsommations historique, int[] idsMedicaments, int horizon,
+                               IntPredicate selection) {
+        long debut = System.nanoTime();
+        Prevision[] previsions = new Prevision[idsMedicaments.length];
+        pool.invoke(new Tache(historique, idsMedicaments, horizon, selection, previsions, 0,
+                idsMedicaments.length));
+        logger.info("{} prevision(s) calculee(s) en {} ms", previsions.length,
+                (System.nanoTime() - debut) / 1_000_000);
+        return previsions;
+    }
+
+    /**
+     * Prevoit la demande d'une serie.
+     *
+     * @param serie   les quantites vendues par jour, du plus ancien au plus recent
+     * @param horizon le nombre de jours a prevoir
+     * @return la prevision du modele retenu
+     */
+    public Prevision prevoir(int[] serie, int horizon) {
+        return prevoir(serie, horizon, true);
+    }
+
+    /**
+     * Prevoit la demande d'une serie.
+     *
+     * @param serie     les quantites vendues par jour, du plus ancien au plus recent
+     * @param horizon   le nombre de jours a prevoir
+     * @param selection true pour choisir le modele par backtest, false pour appliquer le premier
+     * @return la prevision du modele retenu
+     */
+    public Prevision prevoir(int[] serie, int horizon, boolean selection) {
+        int n = serie.length;
+        boolean aDesVentes = false;
+        for (int quantite : serie) {
+            if (quantite > 0) {
+                aDesVentes = true;
+                break;
+            }
+        }
+        if (!aDesVentes) {
+            return new Prevision(Prevision.MODELE_AUCUNE_VENTE, new double[horizon], 0.0);
+        }
+
+        ModelePrevision meilleur = modeles.get(0);
+        double meilleureErreur = Double.NaN;
+        if (!selection) {
+            return new Prevision(meilleur.getNom(), meilleur.prevoir(serie, n, horizon), meilleureErreur);
+        }
+
+        for (ModelePrevision modele : modeles) {
+            int plis = Math.min(PLIS_BACKTEST, (n - modele.getLongueurMinimale()) / HORIZON_BACKTEST);
+            if (plis <= 0) {
+                continue;
+            }
+            double erreur = 0;
+            for (int pli = plis; pli >= 1; pli--) {
+                int origine = n - pli * HORIZON_BACKTEST;
+                double[] prevue = modele.prevoir(serie, origine, HORIZON_BACKTEST);
+                for (int k = 0; k < HORIZON_BACKTEST; k++) {
+                    double ecart = serie[origine + k] - prevue[k];
+                    erreur += ecart * ecart;
+                }
+            }
+            erreur = Math.sqrt(erreur / (plis * HORIZON_BACKTEST));
+            if (Double.isNaN(meilleureErreur) || erreur < meilleureErreur) {
+                meilleureErreur = erreur;
+                meilleur = modele;
+            }
+        }
+
+        return new Prevision(meilleur.getNom(), meilleur.prevoir(serie, n, horizon), meilleureErreur);
+    }
+
+    /**
+     * Tache fork-join sur une tranche de medicaments.
+     */
+    private final class Tache extends RecursiveAction {
+        private final HistoriqueConsommations historique;
+        private final int[] ids;
+        private final int horizon;
+        private final IntPredicate selection;
+        private final Prevision[] resultats;
+        private final int debut;
+        private final int fin;
+
+        Tache(HistoriqueConsommations historique, int[] ids, int horizon, IntPredicate selection,
+              Prevision[] resultats, int debut, int fin) {
+            this.historique = historique;
+            this.ids = ids;
+            this.horizon = horizon;
+            this.selection = selection;
+            this.resultats = resultats;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        @Override
+        protected void compute() {
+            if (fin - debut <= SEUIL_DECOUPAGE) {
+                for (int i = debut; i < fin; i++) {
+                    resultats[i] = prevoir(historique.getSerie(ids[i]), horizon, selection.test(ids[i]));
+                }
+                return;
+            }
+            int milieu = (debut + fin) >>> 1;
+            invokeAll(new Tache(historique, ids, horizon, selection, resultats, debut, milieu),
+                    new Tache(historique, ids, horizon, selection, resultats, milieu, fin));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.sgpa.service.prevision;
+
+import java.util.Arrays;
+
+/**
+ * Moyenne mobile : la demande prevue est la moyenne des N derniers jours.
+ * <p>
+ * Reference simple et robuste ; une fenetre courte suit vite un changement de
+ * niveau, une fenetre longue lisse les pics.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class MoyenneMobile implements ModelePrevision {
+
+    private final int fenetre;
+
+    /**
+     * Constructeur.
+     *
+     * @param fenetre le nombre de jours moyennes
+     */
+    public MoyenneMobile(int fenetre) {
+        this.fenetre = fenetre;
+    }
+
+    @Override
+    public String getNom() {
+        return "MM" + fenetre;
+    }
+
+    @Override
+    public int getLongueurMinimale() {
+        return 1;
+    }
+
+    @Override
+    public double[] prevoir(int[] serie, int longueur, int horizon) {
+        int debut = Math.max(0, longueur - fenetre);
+        long somme = 0;
+        for (int t = debut; t < longueur; t++) {
+            somme += serie[t];
+        }
+        double[] prevision = new double[horizon];
+        if (longueur > debut) {
+            Arrays.fill(prevision, Math.max(0.0, (double) somme / (longueur - debut)));
+        }
+        return prevision;
+    }
+}
@@ -0,0 +1,91 @@
+package com.sgpa.service.prevision;
+
+/**
+ * Prevision de demande d'un medicament, produite par le {@link MoteurPrevision}.
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class Prevision {
+
+    /** Nom du modele d'un medicament sans vente sur la periode */
+    public static final String MODELE_AUCUNE_VENTE = "Aucune vente";
+
+    private final String modele;
+    private final double[] quantites;
+    private final double erreur;
+    private final double demandeMoyenne;
+
+    /**
+     * Constructeur.
+     *
+     * @param modele    le nom du modele retenu
+     * @param quantites la demande prevue par jour de l'horizon
+     * @param erreur    l'erreur quadratique moyenne du modele en backtest (unites/jour), NaN si non mesuree
+     */
+    public Prevision(String modele, double[] quantites, double erreur) {
+        this.modele = modele;
+        this.quantites = quantites;
+        this.erreur = erreur;
+        this.demandeMoyenne = quantites.length == 0 ? 0.0 : getDemandeCumulee(quantites.length) / quantites.length;
+    }
+
+    /**
+     * @return le nom du modele retenu
+     */
+    public String getModele() {
+        return modele;
+    }
+
+    /**
+     * @return le nombre de jours prevus
+     */
+    public int getHorizon() {
+        return quantites.length;
+    }
+
+    /**
+     * Retourne la demande prevue d'un jour de l'horizon.
+     *
+     * @param jour l'indice du jour (0 = demain)
+     * @return la demande prevue
+     */
+    public double getQuantite(int jour) {
+        return quantites[jour];
+    }
+
+    /**
+     * Retourne la demande cumulee des N premiers jours de l'horizon.
+     *
+     * @param nbJours le nombre de jours (borne a l'horizon)
+     * @return la demande cumulee
+     */
+    public double getDemandeCumulee(int nbJours) {
+        double somme = 0;
+        int fin = Math.min(nbJours, quantites.length);
+        for (int k = 0; k < fin; k++) {
+            somme += quantites[k];
+        }
+        return somme;
+    }
+
+    /**
+     * @return la demande journaliere moyenne sur l'horizon
+     */
+    public double getDemandeMoyenne() {
+        return demandeMoyenne;
+    }
+
+    /**
+     * @return l'erreur quadratique moyenne en backtest (unites/jour), NaN si l'historique etait trop court
+     */
+    public double getErreur() {
+        return erreur;
+    }
+
+    @Override
+    public String toString() {
+        return "Prevision{modele=" + modele + ", demandeMoyenne=" + getDemandeMoyenne() +
+               ", erreur=" + erreur + '}';
+    }
+}
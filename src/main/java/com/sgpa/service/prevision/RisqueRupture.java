@@ -0,0 +1,94 @@
+package com.sgpa.service.prevision;
+
+/**
+ * Risque de rupture et pertes par peremption d'un medicament, estimes par la
+ * {@link SimulationRupture}.
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class RisqueRupture {
+
+    private final int idMedicament;
+    private final int[] horizons;
+    private final double[] probabilitesRupture;
+    private final double[] pertesMoyennes;
+    private final int nbTrajectoires;
+
+    /**
+     * Constructeur.
+     *
+     * @param idMedicament        l'ID du medicament
+     * @param horizons            les horizons simules en jours, par ordre croissant
+     * @param probabilitesRupture la part des trajectoires en rupture avant chaque horizon
+     * @param pertesMoyennes      les unites perimees en moyenne avant chaque horizon
+     * @param nbTrajectoires      le nombre de trajectoires simulees
+     */
+    public RisqueRupture(int idMedicament, int[] horizons, double[] probabilitesRupture,
+                         double[] pertesMoyennes, int nbTrajectoires) {
+        this.idMedicament = idMedicament;
+        this.horizons = horizons;
+        this.probabilitesRupture = probabilitesRupture;
+        this.pertesMoyennes = pertesMoyennes;
+        this.nbTrajectoires = nbTrajectoires;
+    }
+
+    /**
+     * @return l'ID du medicament
+     */
+    public int getIdMedicament() {
+        return idMedicament;
+    }
+
+    /**
+     * @return le nombre d'horizons simules
+     */
+    public int getNbHorizons() {
+        return horizons.length;
+    }
+
+    /**
+     * @param index la position de l'horizon
+     * @return l'horizon en jours
+     */
+    public int getHorizon(int index) {
+        return horizons[index];
+    }
+
+    /**
+     * Retourne la probabilite qu'une demande ne puisse pas etre servie avant un horizon.
+     *
+     * @param index la position de l'horizon
+     * @return la probabilite de rupture, entre 0 et 1
+     */
+    public double getProbabiliteRupture(int index) {
+        return probabilitesRupture[index];
+    }
+
+    /**
+     * Retourne les unites qui periment, en moyenne, avant un horizon.
+     *
+     * @param index la position de l'horizon
+     * @return les unites perdues attendues
+     */
+    public double getPerteMoyenne(int index) {
+        return pertesMoyennes[index];
+    }
+
+    /**
+     * @return le nombre de trajectoires simulees (1 si l'issue est deterministe)
+     */
+    public int getNbTrajectoires() {
+        return nbTrajectoires;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RisqueRupture{medicament=").append(idMedicament);
+        for (int i = 0; i < horizons.length; i++) {
+            sb.append(String.format(", J+%d: %.1f%% rupture, %.1f perdu(s)", horizons[i],
+                    probabilitesRupture[i] * 100, pertesMoyennes[i]));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,258 @@
+package com.sgpa.service.prevision;
+
+import com.sgpa.dto.HistoriqueConsommations;
+import com.sgpa.dto.LotsPeremption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulation Monte Carlo du risque de rupture et des pertes par peremption, tous
+ * medicaments en parallele.
+ * <p>
+ * Pour chaque medicament, des milliers de trajectoires de demande sont tirees jour
+ * par jour dans sa distribution empirique (un jour de l'historique au hasard). Chaque
+ * trajectoire part des lots vendables et les consomme dans l'ordre FEFO ; un lot
+ * encore en stock le lendemain de sa peremption est compte en perte. On en deduit,
+ * pour chaque horizon, la probabilite qu'une demande ne soit pas servie et les
+ * unites perimees attendues.
+ * </p>
+ * <p>
+ * Les medicaments sont repartis en taches fork-join comme dans le
+ * {@link MoteurPrevision}. Une tache n'alloue qu'un tableau de travail pour toute sa
+ * tranche ; le generateur pseudo-aleatoire tient dans un {@code long}, initialise par
+ * medicament : les resultats ne dependent ni du nombre de coeurs ni du decoupage.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * RisqueRupture[] risques = new SimulationRupture(2000, 42)
+ *         .simuler(historique, lots, idsMedicaments, new int[] {7, 14, 30});
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public class SimulationRupture {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulationRupture.class);
+
+    /** Nombre de trajectoires simulees par defaut */
+    public static final int TRAJECTOIRES_DEFAUT = 2000;
+
+    /** Nombre de medicaments en dessous duquel une tache n'est plus divisee */
+    private static final int SEUIL_DECOUPAGE = 16;
+
+    private static final long PAS_GRAINE = 0x9E3779B97F4A7C15L;
+
+    private final int nbTrajectoires;
+    private final long graine;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructeur par defaut : {@value #TRAJECTOIRES_DEFAUT} trajectoires par
+     * medicament, sur le pool fork-join commun.
+     */
+    public SimulationRupture() {
+        this(TRAJECTOIRES_DEFAUT, 42);
+    }
+
+    /**
+     * Constructeur sur le pool fork-join commun.
+     *
+     * @param nbTrajectoires le nombre de trajectoires par medicament
+     * @param graine         la graine des tirages
+     */
+    public SimulationRupture(int nbTrajectoires, long graine) {
+        this(nbTrajectoires, graine, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructeur avec pool (pour tests).
+     *
+     * @param nbTrajectoires le nombre de trajectoires par medicament
+     * @param graine         la graine des tirages
+     * @param pool           le pool d'execution
+     */
+    public SimulationRupture(int nbTrajectoires, long graine, ForkJoinPool pool) {
+        if (nbTrajectoires <= 0) {
+            throw new IllegalArgumentException("Le nombre de trajectoires doit etre positif");
+        }
+        this.nbTrajectoires = nbTrajectoires;
+        this.graine = graine;
+        this.pool = pool;
+    }
+
+    /**
+     * Simule le risque de rupture de plusieurs medicaments.
+     *
+     * @param historique     l'historique journalier des consommations (distribution de la demande)
+     * @param lots           les lots vendables de depart
+     * @param idsMedicaments les medicaments a simuler
+     * @param horizons       les horizons en jours
+     * @return les risques, dans l'ordre de {@code idsMedicaments}
+     */
+    public RisqueRupture[] simuler(HistoriqueConsommations historique, LotsPeremption lots,
+                                   int[] idsMedicaments, int[] horizons) {
+        int[] horizonsTries = Arrays.stream(horizons).filter(h -> h > 0).distinct().sorted().toArray();
+        if (horizonsTries.length == 0) {
+            throw new IllegalArgumentException("Au moins un horizon positif est requis");
+        }
+
+        long debut = System.nanoTime();
+        RisqueRupture[] risques = new RisqueRupture[idsMedicaments.length];
+        pool.invoke(new Tache(historique, lots, idsMedicaments, horizonsTries, risques, 0, idsMedicaments.length));
+        logger.info("{} medicament(s) x {} trajectoire(s) simule(s) en {} ms", risques.length, nbTrajectoires,
+                (System.nanoTime() - debut) / 1_000_000);
+        return risques;
+    }
+
+    /**
+     * Simule un medicament.
+     *
+     * @param idMedicament l'ID du medicament (initialise le generateur)
+     * @param serie        les quantites vendues par jour
+     * @param lots         les lots vendables de depart
+     * @param horizons     les horizons en jours, tries et positifs
+     * @param restant      tableau de travail, au moins aussi long que les lots du medicament
+     */
+    private RisqueRupture simuler(int idMedicament, int[] serie, LotsPeremption lots, int[] horizons,
+                                  int[] restant) {
+        int index = lots.indexOf(idMedicament);
+        int debutLots = index >= 0 ? lots.getDebut(index) : 0;
+        int nbLots = index >= 0 ? lots.getFin(index) - debutLots : 0;
+
+        // Sans vente sur la periode, la demande tiree est toujours nulle : une trajectoire suffit
+        boolean aDesVentes = false;
+        for (int quantite : serie) {
+            if (quantite > 0) {
+                aDesVentes = true;
+                break;
+            }
+        }
+        int trajectoires = aDesVentes ? nbTrajectoires : 1;
+
+        int horizonMax = horizons[horizons.length - 1];
+        int[] ruptures = new int[horizons.length];
+        long[] pertes = new long[horizons.length];
+        // Graine propre au medicament, melangee : des ID voisins ne donnent pas des
+        // suites de tirages decalees les unes des autres
+        long etat = mix64(graine ^ idMedicament);
+
+        for (int t = 0; t < trajectoires; t++) {
+            for (int k = 0; k < nbLots; k++) {
+                restant[k] = lots.getQuantite(debutLots + k);
+            }
+            int premier = 0;
+            long perte = 0;
+            int jourRupture = Integer.MAX_VALUE;
+            int h = 0;
+
+            for (int jour = 0; jour < horizonMax; jour++) {
+                // Lots perimes la veille : le reste est perdu
+                while (premier < nbLots && lots.getJoursAvantPeremption(debutLots + premier) < jour) {
+                    perte += restant[premier];
+                    premier++;
+                }
+
+                int demande = 0;
+                if (aDesVentes) {
+                    etat += PAS_GRAINE;
+                    demande = serie[tirage(etat, serie.length)];
+                }
+                // Consommation FEFO : les lots a partir de "premier" sont tous encore vendables
+                while (demande > 0 && premier < nbLots) {
+                    int pris = Math.min(demande, restant[premier]);
+                    restant[premier] -= pris;
+                    demande -= pris;
+                    if (restant[premier] == 0) {
+                        premier++;
+                    }
+                }
+                if (demande > 0 && jourRupture == Integer.MAX_VALUE) {
+                    jourRupture = jour;
+                }
+
+                while (h < horizons.length && horizons[h] == jour + 1) {
+                    if (jourRupture <= jour) {
+                        ruptures[h]++;
+                    }
+                    pertes[h] += perte;
+                    h++;
+                }
+            }
+        }
+
+        double[] probabilites = new double[horizons.length];
+        double[] pertesMoyennes = new double[horizons.length];
+        for (int i = 0; i < horizons.length; i++) {
+            probabilites[i] = (double) ruptures[i] / trajectoires;
+            pertesMoyennes[i] = (double) pertes[i] / trajectoires;
+        }
+        return new RisqueRupture(idMedicament, horizons, probabilites, pertesMoyennes, trajectoires);
+    }
+
+    /**
+     * Tire un indice uniforme dans [0, borne) a partir de l'etat du generateur (SplitMix64).
+     */
+    private static int tirage(long etat, int borne) {
+        return (int) (((mix64(etat) >>> 32) * borne) >>> 32);
+    }
+
+    /**
+     * Fonction de melange de SplitMix64.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Tache fork-join sur une tranche de medicaments.
+     */
+    private final class Tache extends RecursiveAction {
+        private final HistoriqueConsommations historique;
+        private final LotsPeremption lots;
+        private final int[] ids;
+        private final int[] horizons;
+        private final RisqueRupture[] resultats;
+        private final int debut;
+        private final int fin;
+
+        Tache(HistoriqueConsommations historique, LotsPeremption lots, int[] ids, int[] horizons,
+              RisqueRupture[] resultats, int debut, int fin) {
+            this.historique = historique;
+            this.lots = lots;
+            this.ids = ids;
+            this.horizons = horizons;
+            this.resultats = resultats;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        @Override
+        protected void compute() {
+            if (fin - debut <= SEUIL_DECOUPAGE) {
+                int maxLots = 0;
+                for (int i = debut; i < fin; i++) {
+                    int index = lots.indexOf(ids[i]);
+                    if (index >= 0) {
+                        maxLots = Math.max(maxLots, lots.getFin(index) - lots.getDebut(index));
+                    }
+                }
+                int[] restant = new int[maxLots];
+                for (int i = debut; i < fin; i++) {
+                    resultats[i] = simuler(ids[i], historique.getSerie(ids[i]), lots, horizons, restant);
+                }
+                return;
+            }
+            int milieu = (debut + fin) >>> 1;
+            invokeAll(new Tache(historique, lots, ids, horizons, resultats, debut, milieu),
+                    new Tache(historique, lots, ids, horizons, resultats, milieu, fin));
+        }
+    }
+}
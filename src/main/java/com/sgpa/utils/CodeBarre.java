@@ -0,0 +1,245 @@
+package com.sgpa.utils;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Lecture des codes-barres des boites de medicaments.
+ * <p>
+ * Deux formats sont reconnus, tels que les envoie une douchette en mode clavier :
+ * </p>
+ * <ul>
+ *   <li><b>CIP13 / EAN-13</b> : 13 chiffres, cle de controle verifiee
+ *       (ex: {@code 3400930000007})</li>
+ *   <li><b>DataMatrix GS1</b> : suite d'identifiants d'application, avec separateur
+ *       GS (FNC1) ou entre parentheses. Sont lus le GTIN-14 {@code (01)}, la date de
+ *       peremption {@code (17)}, le numero de lot {@code (10)} et le numero de serie
+ *       {@code (21)} ; le CIP13 est le GTIN-14 prive de son zero de tete</li>
+ * </ul>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * CodeBarre code = CodeBarre.analyser(saisie);
+ * if (code != null) {
+ *     Medicament med = medicamentDAO.findByCodeCip13(code.getCodeCip13());
+ *     String lot = code.getNumeroLot();           // null pour un simple EAN-13
+ * }
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class CodeBarre {
+
+    /** Separateur GS1 des champs de longueur variable (FNC1) */
+    private static final char GS = '\u001D';
+
+    private final long codeCip13;
+    private final String numeroLot;
+    private final LocalDate datePeremption;
+    private final String numeroSerie;
+
+    private CodeBarre(long codeCip13, String numeroLot, LocalDate datePeremption, String numeroSerie) {
+        this.codeCip13 = codeCip13;
+        this.numeroLot = numeroLot;
+        this.datePeremption = datePeremption;
+        this.numeroSerie = numeroSerie;
+    }
+
+    /**
+     * Analyse une saisie de douchette.
+     *
+     * @param saisie le texte lu
+     * @return le code lu, ou null si la saisie n'est pas un code-barres valide
+     */
+    public static CodeBarre analyser(String saisie) {
+        if (saisie == null) {
+            return null;
+        }
+        String texte = saisie.strip();
+        // Prefixe d'identification de symbologie ajoute par certaines douchettes
+        if (texte.startsWith("]d2") || texte.startsWith("]C1") || texte.startsWith("]Q3")) {
+            texte = texte.substring(3);
+        }
+        if (texte.length() == 13 && estNumerique(texte)) {
+            long code = Long.parseLong(texte);
+            return cleValide(texte) ? new CodeBarre(code, null, null, null) : null;
+        }
+        if (texte.startsWith("(")) {
+            return analyserGs1(texte.replace(")", "").replace('(', GS).substring(1));
+        }
+        if (texte.startsWith("01") || (!texte.isEmpty() && texte.charAt(0) == GS)) {
+            return analyserGs1(texte.charAt(0) == GS ? texte.substring(1) : texte);
+        }
+        return null;
+    }
+
+    /**
+     * Indique si une saisie ressemble a un code-barres (a ne pas traiter comme une recherche par nom).
+     *
+     * @param saisie le texte saisi
+     * @return true pour une suite de chiffres d'au moins 8 caracteres ou un code GS1
+     */
+    public static boolean ressembleCodeBarre(String saisie) {
+        if (saisie == null) {
+            return false;
+        }
+        String texte = saisie.strip();
+        return (texte.length() >= 8 && estNumerique(texte))
+                || (texte.length() >= 16 && texte.startsWith("01") && estNumerique(texte.substring(0, 16)))
+                || texte.startsWith("(01)") || texte.startsWith("]d2") || texte.indexOf(GS) >= 0;
+    }
+
+    /**
+     * Verifie la cle de controle modulo 10 d'un code GTIN (EAN-13, GTIN-14).
+     *
+     * @param chiffres le code complet, cle comprise
+     * @return true si la cle est correcte
+     */
+    public static boolean cleValide(String chiffres) {
+        if (chiffres.length() < 2 || !estNumerique(chiffres)) {
+            return false;
+        }
+        int somme = 0;
+        int poids = 3;
+        for (int i = chiffres.length() - 2; i >= 0; i--) {
+            somme += (chiffres.charAt(i) - '0') * poids;
+            poids = 4 - poids;
+        }
+        int cle = (10 - somme % 10) % 10;
+        return cle == chiffres.charAt(chiffres.length() - 1) - '0';
+    }
+
+    /**
+     * Lit les identifiants d'application d'un code GS1 (separateur GS entre champs variables).
+     */
+    private static CodeBarre analyserGs1(String donnees) {
+        long cip13 = -1;
+        String lot = null;
+        LocalDate peremption = null;
+        String serie = null;
+
+        int i = 0;
+        while (i < donnees.length()) {
+            if (donnees.charAt(i) == GS) {
+                i++;
+                continue;
+            }
+            if (i + 2 > donnees.length()) {
+                return null;
+            }
+            String ia = donnees.substring(i, i + 2);
+            i += 2;
+            switch (ia) {
+                case "01": {
+                    if (i + 14 > donnees.length()) {
+                        return null;
+                    }
+                    String gtin = donnees.substring(i, i + 14);
+                    i += 14;
+                    if (!cleValide(gtin) || gtin.charAt(0) != '0') {
+                        return null;
+                    }
+                    cip13 = Long.parseLong(gtin.substring(1));
+                    break;
+                }
+                case "11":
+                case "17": {
+                    if (i + 6 > donnees.length()) {
+                        return null;
+                    }
+                    LocalDate date = lireDate(donnees.substring(i, i + 6));
+                    i += 6;
+                    if (date == null) {
+                        return null;
+                    }
+                    if ("17".equals(ia)) {
+                        peremption = date;
+                    }
+                    break;
+                }
+                case "10":
+                case "21": {
+                    int fin = donnees.indexOf(GS, i);
+                    if (fin < 0) {
+                        fin = donnees.length();
+                    }
+                    String valeur = donnees.substring(i, fin);
+                    i = fin;
+                    if ("10".equals(ia)) {
+                        lot = valeur;
+                    } else {
+                        serie = valeur;
+                    }
+                    break;
+                }
+                default:
+                    // Identifiant non gere : la longueur du champ est inconnue, on s'arrete
+                    i = donnees.length();
+                    break;
+            }
+        }
+        return cip13 > 0 ? new CodeBarre(cip13, lot, peremption, serie) : null;
+    }
+
+    /**
+     * Lit une date GS1 AAMMJJ ; un jour a 00 designe le dernier jour du mois.
+     */
+    private static LocalDate lireDate(String aammjj) {
+        if (!estNumerique(aammjj)) {
+            return null;
+        }
+        try {
+            int annee = 2000 + Integer.parseInt(aammjj.substring(0, 2));
+            int mois = Integer.parseInt(aammjj.substring(2, 4));
+            int jour = Integer.parseInt(aammjj.substring(4, 6));
+            return jour == 0 ? YearMonth.of(annee, mois).atEndOfMonth() : LocalDate.of(annee, mois, jour);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean estNumerique(String texte) {
+        for (int i = 0; i < texte.length(); i++) {
+            if (texte.charAt(i) < '0' || texte.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return !texte.isEmpty();
+    }
+
+    /**
+     * @return le code CIP13 de la boite
+     */
+    public long getCodeCip13() {
+        return codeCip13;
+    }
+
+    /**
+     * @return le numero de lot (DataMatrix), null pour un EAN-13
+     */
+    public String getNumeroLot() {
+        return numeroLot;
+    }
+
+    /**
+     * @return la date de peremption (DataMatrix), null si absente
+     */
+    public LocalDate getDatePeremption() {
+        return datePeremption;
+    }
+
+    /**
+     * @return le numero de serie (DataMatrix), null si absent
+     */
+    public String getNumeroSerie() {
+        return numeroSerie;
+    }
+
+    @Override
+    public String toString() {
+        return "CodeBarre{cip13=" + codeCip13 + ", lot=" + numeroLot +
+               ", peremption=" + datePeremption + ", serie=" + numeroSerie + '}';
+    }
+}
@@ -2,6 +2,8 @@ package com.sgpa.utils;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +46,9 @@ public class DatabaseConnection {
     /** Instance unique (Singleton) */
     private static volatile DatabaseConnection instance;
 
+    /** Collecteur de metriques du pool, a definir avant le premier getInstance() */
+    private static volatile MetricsTrackerFactory metricsTrackerFactory;
+
     /** Pool de connexions HikariCP */
     private final HikariDataSource dataSource;
 
@@ -83,6 +88,27 @@ public class DatabaseConnection {
         return instance;
     }
 
+    /**
+     * Definit le collecteur de metriques du pool (temps d'attente des connexions, etc.).
+     * <p>
+     * Sans effet si le pool est deja initialise ; utilise par les outils de mesure.
+     * </p>
+     *
+     * @param factory la fabrique de collecteurs HikariCP
+     */
+    public static void setMetricsTrackerFactory(MetricsTrackerFactory factory) {
+        metricsTrackerFactory = factory;
+    }
+
+    /**
+     * Retourne le MXBean du pool pour la supervision.
+     *
+     * @return le MXBean HikariCP
+     */
+    public HikariPoolMXBean getHikariPoolMXBean() {
+        return dataSource.getHikariPoolMXBean();
+    }
+
     /**
      * Obtient une connexion depuis le pool.
      * <p>
@@ -212,6 +238,9 @@ public class DatabaseConnection {
 
         // Nom du pool pour le monitoring
         config.setPoolName("SGPA-HikariPool");
+        if (metricsTrackerFactory != null) {
+            config.setMetricsTrackerFactory(metricsTrackerFactory);
+        }
 
         logger.info("Configuration HikariCP: URL={}, Pool Size={}",
                 config.getJdbcUrl(), config.getMaximumPoolSize());
@@ -0,0 +1,111 @@
+package com.sgpa.utils;
+
+import java.util.Arrays;
+
+/**
+ * Table de hachage {@code long -> int} sur tableaux primitifs.
+ * <p>
+ * Adressage ouvert a sondage lineaire : ni objet {@code Long} ni entree de table
+ * par element, une recherche est un calcul de hachage et quelques lectures de
+ * tableau. Sert a resoudre un code-barres (CIP13) en ID de medicament.
+ * </p>
+ * <p>
+ * La cle {@link Long#MIN_VALUE} est reservee (case vide). Les suppressions ne sont
+ * pas prevues : la table est reconstruite avec le catalogue. Non synchronisee.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class LongIntHashMap {
+
+    /** Valeur retournee pour une cle absente */
+    public static final int ABSENT = -1;
+
+    private static final long VIDE = Long.MIN_VALUE;
+
+    private long[] cles;
+    private int[] valeurs;
+    private int taille;
+
+    /**
+     * Constructeur.
+     *
+     * @param capaciteAttendue le nombre d'elements prevu
+     */
+    public LongIntHashMap(int capaciteAttendue) {
+        int capacite = Integer.highestOneBit(Math.max(4, capaciteAttendue * 2 - 1)) << 1;
+        cles = new long[capacite];
+        valeurs = new int[capacite];
+        Arrays.fill(cles, VIDE);
+    }
+
+    /**
+     * Associe une valeur a une cle.
+     *
+     * @param cle    la cle (differente de {@link Long#MIN_VALUE})
+     * @param valeur la valeur
+     */
+    public void put(long cle, int valeur) {
+        if (cle == VIDE) {
+            throw new IllegalArgumentException("Cle reservee: " + cle);
+        }
+        if ((taille + 1) * 2 > cles.length) {
+            agrandir();
+        }
+        int masque = cles.length - 1;
+        int i = hacher(cle) & masque;
+        while (cles[i] != VIDE && cles[i] != cle) {
+            i = (i + 1) & masque;
+        }
+        if (cles[i] == VIDE) {
+            cles[i] = cle;
+            taille++;
+        }
+        valeurs[i] = valeur;
+    }
+
+    /**
+     * Retourne la valeur associee a une cle.
+     *
+     * @param cle la cle
+     * @return la valeur, ou {@link #ABSENT}
+     */
+    public int get(long cle) {
+        int masque = cles.length - 1;
+        int i = hacher(cle) & masque;
+        while (cles[i] != VIDE) {
+            if (cles[i] == cle) {
+                return valeurs[i];
+            }
+            i = (i + 1) & masque;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * @return le nombre de cles
+     */
+    public int size() {
+        return taille;
+    }
+
+    private void agrandir() {
+        long[] anciennesCles = cles;
+        int[] anciennesValeurs = valeurs;
+        cles = new long[anciennesCles.length * 2];
+        valeurs = new int[anciennesValeurs.length * 2];
+        Arrays.fill(cles, VIDE);
+        taille = 0;
+        for (int i = 0; i < anciennesCles.length; i++) {
+            if (anciennesCles[i] != VIDE) {
+                put(anciennesCles[i], anciennesValeurs[i]);
+            }
+        }
+    }
+
+    private static int hacher(long cle) {
+        long h = cle * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,90 @@
+package com.sgpa.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Utilitaire de calcul monetaire en virgule fixe (centimes sur un {@code long}).
+ * <p>
+ * Les calculs du panier, du plan FEFO et du ticket se font en centimes entiers :
+ * aucune allocation par operation, contrairement aux chaines
+ * {@code BigDecimal.multiply/add}. La conversion en {@link BigDecimal} n'a lieu
+ * qu'a la frontiere JDBC (colonnes {@code DECIMAL(10,2)}) et a l'affichage.
+ * </p>
+ *
+ * <h3>Regles d'arrondi :</h3>
+ * <ul>
+ *   <li>Un prix en entree est arrondi au centime le plus proche, demi-centime vers
+ *       le haut en valeur absolue ({@link RoundingMode#HALF_UP}), comme MySQL pour
+ *       un {@code DECIMAL(10,2)}</li>
+ *   <li>Prix x quantite et sommes sont exacts ; un depassement de capacite leve une
+ *       {@link ArithmeticException} au lieu de boucler silencieusement</li>
+ * </ul>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * long prix = Montant.enCentimes(med.getPrixPublic());   // 4.35 -> 435
+ * long total = Montant.ajouter(total, Montant.multiplier(prix, 3));
+ * ps.setBigDecimal(2, Montant.enBigDecimal(total));       // 13.05
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class Montant {
+
+    /** Nombre de decimales des montants en base */
+    public static final int DECIMALES = 2;
+
+    private Montant() {
+        // Classe utilitaire
+    }
+
+    /**
+     * Convertit un montant decimal en centimes.
+     *
+     * @param montant le montant (null accepte comme zero)
+     * @return le montant en centimes
+     * @throws ArithmeticException si le montant depasse la capacite d'un long
+     */
+    public static long enCentimes(BigDecimal montant) {
+        if (montant == null) {
+            return 0L;
+        }
+        return montant.setScale(DECIMALES, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convertit des centimes en montant decimal a deux decimales.
+     *
+     * @param centimes le montant en centimes
+     * @return le montant decimal
+     */
+    public static BigDecimal enBigDecimal(long centimes) {
+        return BigDecimal.valueOf(centimes, DECIMALES);
+    }
+
+    /**
+     * Multiplie un prix unitaire par une quantite.
+     *
+     * @param centimes le prix unitaire en centimes
+     * @param quantite la quantite
+     * @return le montant en centimes
+     * @throws ArithmeticException en cas de depassement
+     */
+    public static long multiplier(long centimes, int quantite) {
+        return Math.multiplyExact(centimes, (long) quantite);
+    }
+
+    /**
+     * Additionne deux montants.
+     *
+     * @param a le premier montant en centimes
+     * @param b le second montant en centimes
+     * @return la somme en centimes
+     * @throws ArithmeticException en cas de depassement
+     */
+    public static long ajouter(long a, long b) {
+        return Math.addExact(a, b);
+    }
+}
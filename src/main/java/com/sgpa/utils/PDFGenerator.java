@@ -11,8 +11,10 @@ import com.itextpdf.kernel.geom.PageSize;
 import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.borders.Border;
 import com.itextpdf.layout.borders.SolidBorder;
@@ -23,18 +25,24 @@ import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.HorizontalAlignment;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
 import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.io.image.ImageData;
 import com.itextpdf.io.image.ImageDataFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utilitaire de generation de documents PDF avec iText 7.
@@ -74,6 +82,19 @@ public class PDFGenerator {
     /** Repertoire par defaut pour les PDFs generes */
     private static final String DEFAULT_OUTPUT_DIR = System.getProperty("user.home") + File.separator + "ApotiCare_Rapports";
 
+    /** Largeur d'un ticket thermique : 80mm = 226.77 points */
+    private static final float LARGEUR_TICKET = 226.77f;
+
+    /** Marge laterale d'un ticket */
+    private static final float MARGE_TICKET = 10f;
+
+    /** Programmes de police charges une seule fois (les PdfFont sont lies a un document) */
+    private static FontProgram programmeRegular;
+    private static FontProgram programmeBold;
+
+    /** En-tetes de ticket pre-rendus, par nom de pharmacie */
+    private static final Map<String, byte[]> GABARITS_TICKET = new ConcurrentHashMap<>();
+
     private PdfFont fontRegular;
     private PdfFont fontBold;
 
@@ -82,13 +103,26 @@ public class PDFGenerator {
      */
     public PDFGenerator() {
         try {
-            this.fontRegular = PdfFontFactory.createFont(StandardFonts.HELVETICA);
-            this.fontBold = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+            creerPolices();
         } catch (IOException e) {
             logger.error("Erreur lors du chargement des polices", e);
         }
     }
 
+    /**
+     * Cree les polices du document courant a partir des programmes de police en cache.
+     */
+    private void creerPolices() throws IOException {
+        synchronized (PDFGenerator.class) {
+            if (programmeRegular == null) {
+                programmeRegular = FontProgramFactory.createFont(StandardFonts.HELVETICA);
+                programmeBold = FontProgramFactory.createFont(StandardFonts.HELVETICA_BOLD);
+            }
+        }
+        this.fontRegular = PdfFontFactory.createFont(programmeRegular);
+        this.fontBold = PdfFontFactory.createFont(programmeBold);
+    }
+
     /**
      * Cree un nouveau document PDF.
      *
@@ -100,8 +134,7 @@ public class PDFGenerator {
     public Document createDocument(String filePath, PageSize pageSize) throws IOException {
         ensureDirectoryExists(filePath);
         // Recreer les polices pour chaque document (evite les polices perimees apres fermeture)
-        this.fontRegular = PdfFontFactory.createFont(StandardFonts.HELVETICA);
-        this.fontBold = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+        creerPolices();
         PdfWriter writer = new PdfWriter(filePath);
         PdfDocument pdf = new PdfDocument(writer);
         Document document = new Document(pdf, pageSize);
@@ -134,9 +167,9 @@ public class PDFGenerator {
      */
     public Document createTicketDocument(String filePath) throws IOException {
         // Format ticket thermique: 80mm de large, hauteur variable
-        PageSize ticketSize = new PageSize(226.77f, 600f); // 80mm = 226.77 points
+        PageSize ticketSize = new PageSize(LARGEUR_TICKET, 600f);
         Document document = createDocument(filePath, ticketSize);
-        document.setMargins(10, 10, 10, 10);
+        document.setMargins(MARGE_TICKET, MARGE_TICKET, MARGE_TICKET, MARGE_TICKET);
         return document;
     }
 
@@ -293,14 +326,64 @@ public class PDFGenerator {
      * @param nomPharmacie le nom de la pharmacie
      */
     public void addTicketHeader(Document document, String nomPharmacie) {
+        try {
+            byte[] gabarit = GABARITS_TICKET.get(nomPharmacie);
+            if (gabarit == null) {
+                gabarit = creerGabaritEnteteTicket(nomPharmacie);
+                GABARITS_TICKET.put(nomPharmacie, gabarit);
+            }
+            try (PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(gabarit)))) {
+                PdfFormXObject entete = source.getFirstPage().copyAsFormXObject(document.getPdfDocument());
+                document.add(new Image(entete));
+            }
+        } catch (IOException e) {
+            logger.warn("Gabarit d'en-tete de ticket indisponible, rendu direct", e);
+            ajouterEnteteTicket(document, nomPharmacie, fontRegular, fontBold);
+        }
+    }
+
+    /**
+     * Pre-rend l'en-tete de ticket dans un PDF d'une page, reutilise comme XObject.
+     * <p>
+     * Un premier rendu mesure la hauteur utile ; le second produit une page
+     * exactement a cette hauteur, copiee ensuite dans chaque ticket.
+     * </p>
+     */
+    private static byte[] creerGabaritEnteteTicket(String nomPharmacie) throws IOException {
+        float largeur = LARGEUR_TICKET - 2 * MARGE_TICKET;
+        float hauteurMax = 200f;
+
+        float hauteur;
+        try (Document mesure = new Document(new PdfDocument(new PdfWriter(new ByteArrayOutputStream())),
+                new PageSize(largeur, hauteurMax))) {
+            mesure.setMargins(0, 0, 0, 0);
+            ajouterEnteteTicket(mesure, nomPharmacie,
+                    PdfFontFactory.createFont(programmeRegular), PdfFontFactory.createFont(programmeBold));
+            // +1pt : evite un saut de page du second rendu sur un arrondi
+            hauteur = hauteurMax - mesure.getRenderer().getCurrentArea().getBBox().getTop() + 1f;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Document gabarit = new Document(new PdfDocument(new PdfWriter(out)),
+                new PageSize(largeur, hauteur))) {
+            gabarit.setMargins(0, 0, 0, 0);
+            ajouterEnteteTicket(gabarit, nomPharmacie,
+                    PdfFontFactory.createFont(programmeRegular), PdfFontFactory.createFont(programmeBold));
+        }
+        logger.debug("Gabarit d'en-tete de ticket cree pour {} ({} pt)", nomPharmacie, hauteur);
+        return out.toByteArray();
+    }
+
+    private static void ajouterEnteteTicket(Document document, String nomPharmacie,
+                                            PdfFont regular, PdfFont bold) {
         Paragraph header = new Paragraph(nomPharmacie)
-                .setFont(fontBold)
+                .setFont(bold)
                 .setFontSize(12)
                 .setTextAlignment(TextAlignment.CENTER);
         document.add(header);
 
         document.add(new Paragraph("--------------------------------")
-                .setFont(fontRegular)
+                .setFont(regular)
                 .setFontSize(8)
                 .setTextAlignment(TextAlignment.CENTER));
     }
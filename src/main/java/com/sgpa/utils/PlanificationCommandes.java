@@ -0,0 +1,54 @@
+package com.sgpa.utils;
+
+import com.sgpa.exception.ServiceException;
+import com.sgpa.service.ReapprovisionnementService;
+import com.sgpa.service.ReapprovisionnementService.Planification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Planification nocturne des commandes fournisseurs, sans interface graphique.
+ * <p>
+ * Cree les commandes en attente proposees par le {@link ReapprovisionnementService}.
+ * A planifier chaque nuit (cron, planificateur de taches) : les commandes sont pretes a
+ * verifier et transmettre a l'ouverture.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.PlanificationCommandes
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class PlanificationCommandes {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanificationCommandes.class);
+
+    private PlanificationCommandes() {
+    }
+
+    /**
+     * Point d'entree du traitement.
+     *
+     * @param args non utilises
+     */
+    public static void main(String[] args) {
+        try {
+            Planification planification = new ReapprovisionnementService().planifier();
+            System.out.println("Commandes creees: " + planification.getCommandes().size()
+                    + " (" + planification.getNombreLignes() + " ligne(s)), reportees: "
+                    + planification.getCommandesReportees());
+            if (!planification.getMedicamentsSansFournisseur().isEmpty()) {
+                System.out.println("Sans fournisseur habituel: "
+                        + String.join(", ", planification.getMedicamentsSansFournisseur()));
+            }
+        } catch (ServiceException e) {
+            logger.error("Planification des commandes impossible", e);
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().shutdown();
+        }
+    }
+}
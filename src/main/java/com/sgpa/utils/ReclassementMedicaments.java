@@ -0,0 +1,58 @@
+package com.sgpa.utils;
+
+import com.sgpa.dto.ClasseMedicament;
+import com.sgpa.exception.DAOException;
+import com.sgpa.service.ClassificationMedicaments;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reclassement ABC/XYZ du catalogue, sans interface graphique.
+ * <p>
+ * Les classes sont aussi recalculees par l'application une fois par jour ; ce
+ * traitement, a planifier chaque nuit, les tient a jour en base avant l'ouverture et
+ * affiche le nombre de medicaments par classe.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.ReclassementMedicaments
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class ReclassementMedicaments {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReclassementMedicaments.class);
+
+    private ReclassementMedicaments() {
+    }
+
+    /**
+     * Point d'entree du traitement.
+     *
+     * @param args non utilises
+     */
+    public static void main(String[] args) {
+        try {
+            ClassificationMedicaments classification = ClassificationMedicaments.getInstance();
+            int changements = classification.reclasser();
+
+            Map<String, Integer> parClasse = new TreeMap<>();
+            for (ClasseMedicament classe : classification.getClasses().values()) {
+                parClasse.merge(classe.getClasse(), 1, Integer::sum);
+            }
+            System.out.println("Medicaments reclasses: " + changements + " changement(s)");
+            parClasse.forEach((classe, nombre) -> System.out.println("  " + classe + ": " + nombre));
+        } catch (DAOException e) {
+            logger.error("Reclassement des medicaments impossible", e);
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().shutdown();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.sgpa.utils;
+
+import com.sgpa.dao.impl.ConsommationDAOImpl;
+import com.sgpa.exception.DAOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reconstruction de la table {@code consommation_journaliere}, sans interface graphique.
+ * <p>
+ * La table est tenue a jour par les ventes, retours et annulations ; sur une base
+ * existante, {@code schema.sql} la remplit depuis l'historique tant qu'elle est vide.
+ * Ce traitement sert a la reparer : il la recalcule entierement depuis les lignes de
+ * vente et les retours, dans une seule transaction.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.ReconstructionConsommation
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class ReconstructionConsommation {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconstructionConsommation.class);
+
+    private ReconstructionConsommation() {
+    }
+
+    /**
+     * Point d'entree du traitement.
+     *
+     * @param args non utilises
+     */
+    public static void main(String[] args) {
+        try {
+            int lignes = new ConsommationDAOImpl().reconstruireConsommationJournaliere();
+            System.out.println("Consommation journaliere reconstruite: " + lignes + " ligne(s)");
+        } catch (DAOException e) {
+            logger.error("Reconstruction de la consommation journaliere impossible", e);
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().shutdown();
+        }
+    }
+}
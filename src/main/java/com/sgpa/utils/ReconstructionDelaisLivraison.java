@@ -0,0 +1,48 @@
+package com.sgpa.utils;
+
+import com.sgpa.dao.impl.DelaiLivraisonDAOImpl;
+import com.sgpa.exception.DAOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reconstruction des tables de delais de livraison, sans interface graphique.
+ * <p>
+ * Les tables sont ensuite tenues a jour a chaque reception de commande. Ce
+ * traitement est a lancer une fois apres leur creation sur une base existante, ou
+ * pour les reparer : il rejoue toutes les commandes recues, dans l'ordre des
+ * receptions, dans une seule transaction.
+ * </p>
+ *
+ * <h3>Utilisation :</h3>
+ * <pre>{@code
+ * java -cp sgpa-pharmacie.jar com.sgpa.utils.ReconstructionDelaisLivraison
+ * }</pre>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class ReconstructionDelaisLivraison {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconstructionDelaisLivraison.class);
+
+    private ReconstructionDelaisLivraison() {
+    }
+
+    /**
+     * Point d'entree du traitement.
+     *
+     * @param args non utilises
+     */
+    public static void main(String[] args) {
+        try {
+            int commandes = new DelaiLivraisonDAOImpl().reconstruireDelais();
+            System.out.println("Delais de livraison reconstruits: " + commandes + " commande(s)");
+        } catch (DAOException e) {
+            logger.error("Reconstruction des delais de livraison impossible", e);
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().shutdown();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.sgpa.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Utilitaires de normalisation de texte pour les recherches.
+ * <p>
+ * Les recherches de medicaments se font sur une forme pliee du texte :
+ * minuscules, sans accents ni signes diacritiques. "Ibuprofène" et "IBUPROFENE"
+ * donnent ainsi la meme cle, comme avec la collation insensible de MySQL.
+ * </p>
+ *
+ * @author SGPA Team
+ * @version 1.0
+ */
+public final class TexteUtils {
+
+    private TexteUtils() {
+        // Classe utilitaire
+    }
+
+    /**
+     * Plie un texte : minuscules, accents retires.
+     *
+     * @param texte le texte (null accepte)
+     * @return le texte plie, chaine vide si null
+     */
+    public static String plier(String texte) {
+        if (texte == null || texte.isEmpty()) {
+            return "";
+        }
+        String decompose = Normalizer.normalize(texte, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decompose.length());
+        for (int i = 0; i < decompose.length(); i++) {
+            char c = decompose.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Decoupe un texte plie en mots (suites de lettres et de chiffres).
+     *
+     * @param textePlie le texte deja plie
+     * @return les mots, dans l'ordre
+     */
+    public static List<String> decouper(String textePlie) {
+        List<String> mots = new ArrayList<>();
+        int debut = -1;
+        for (int i = 0; i <= textePlie.length(); i++) {
+            boolean lettre = i < textePlie.length() && Character.isLetterOrDigit(textePlie.charAt(i));
+            if (lettre && debut < 0) {
+                debut = i;
+            } else if (!lettre && debut >= 0) {
+                mots.add(textePlie.substring(debut, i));
+                debut = -1;
+            }
+        }
+        return mots;
+    }
+}